@@ -33,6 +33,8 @@ public abstract class ApplicationCore implements ApplicationListener{
 
     @Override
     public void update(){
+        Events.drain();
+
         for(ApplicationListener listener : modules){
             listener.update();
         }
@@ -2,20 +2,52 @@ package arc;
 
 import arc.func.*;
 import arc.struct.*;
+import arc.util.*;
 
-import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
-/** Simple global event listener system. */
+/**
+ * Simple global event listener system.
+ * <p>
+ * Each event type is given a dense slot the first time a listener is added for it. Listeners of a slot are kept in an
+ * array that is copied whenever a listener is added or removed, so firing never allocates or locks, and events may be
+ * fired from any thread. Adding and removing listeners is synchronized. Firing still looks the slot up by type; an
+ * {@link EventType} from {@link #type(Class)} resolves it once and fires through it directly.
+ * <p>
+ * Events can also be {@link #post(Object) posted}, which queues them to be fired on the next {@link #drain()}, and
+ * setting {@link #profiling} records how long every event type and listener takes.
+ */
 @SuppressWarnings("unchecked")
 public class Events{
+    private static final Handler<?>[] noHandlers = {};
+    private static final Object lock = new Object();
+
     private static int lastId = -1;
-    private static class Handler<T>{ // FINISHME: Pool these maybe? I doubt it's needed though
-        private int id = ++lastId;
+    private static volatile Table table = new Table(new ObjectIntMap<>(), new Handler[0][]);
+
+    private static volatile ArrayBlockingQueue<Object> queue = new ArrayBlockingQueue<>(4096);
+    private static final ConcurrentHashMap<Class<?>, Latest> coalesced = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<Object, Histogram> eventTimes = new ConcurrentHashMap<>();
+
+    /** If true, the time taken by every fired event type and listener is recorded, see {@link #logTimings(int)}. */
+    public static volatile boolean profiling;
+
+    private static class Handler<T>{
+        private final int id;
         private final Cons<T> cons;
+        /** The listener as it was passed in, used to name it in timings. */
+        private final Object source;
+        /** Set once removed, so that a fire already iterating the old array skips it. */
+        private volatile boolean removed;
+        /** Created the first time the listener is timed. */
+        private volatile Histogram time;
 //        private final String trace;
 
-        Handler(Cons<T> cons){
+        Handler(int id, Cons<T> cons, Object source){
+            this.id = id;
             this.cons = cons;
+            this.source = source;
 //            trace = null;
         }
 
@@ -25,9 +57,57 @@ public class Events{
 //        }
     }
 
-    public static Class<?> debugType;
+    /** An immutable snapshot of every event type's slot and listeners. */
+    private static class Table{
+        final ObjectIntMap<Object> slots;
+        final Handler<?>[][] handlers;
 
-    private static final ObjectMap<Object, Seq<Handler<?>>> events = new ObjectMap<>();
+        Table(ObjectIntMap<Object> slots, Handler<?>[][] handlers){
+            this.slots = slots;
+            this.handlers = handlers;
+        }
+
+        Handler<?>[] get(Object type){
+            int slot = slots.get(type, -1);
+            return slot == -1 ? noHandlers : handlers[slot];
+        }
+    }
+
+    /** The pending event of a latest-wins type. It is queued once, and replaced by newer posts until it is fired. */
+    private static class Latest{
+        final AtomicReference<Object> event = new AtomicReference<>();
+        /** Whether this is in the queue. Only the poster that sets it offers this, so a failed offer can't leave it set. */
+        final AtomicBoolean queued = new AtomicBoolean();
+    }
+
+    /**
+     * An event type whose slot has been resolved, so that firing it indexes the listener table directly instead of
+     * looking the type up. Slots are never reassigned, so an instance stays valid for the lifetime of the program,
+     * including across {@link #clear()}.
+     */
+    public static final class EventType<T>{
+        private final Object key;
+        private final int slot;
+
+        private EventType(Object key, int slot){
+            this.key = key;
+            this.slot = slot;
+        }
+
+        /** Fires an event to the listeners of this type. Equivalent to {@link Events#fire(Class, Object)}. */
+        public void fire(T event){
+            Handler<T>[] handlers = (Handler<T>[])table.handlers[slot];
+            if(profiling){
+                fireProfiled(key, event, handlers);
+                return;
+            }
+            for(Handler<T> listener : handlers){
+                if(!listener.removed) listener.cons.get(event);
+            }
+        }
+    }
+
+    public static Class<?> debugType;
 
     /** Handle an event by class. */
     public static <T> void on(Class<T> type, Cons<T> listener){
@@ -38,52 +118,57 @@ public class Events{
 //            for (int i = 2; i < st.length; i++) sb.append(st[i].toString()).append('\n');
 //            trace = sb.toString();
 //        }
-        events.get(type, () -> new Seq<>(Handler.class)).add(new Handler<>(listener));
+        add(type, listener, listener);
     }
 
     /** Handle an event by class. Returns an id */
     public static <T> int onid(Class<T> type, Cons<T> listener){
-        on(type, listener);
-        return lastId;
+        return add(type, listener, listener);
     }
 
     /** Handle an event by enum trigger. */
     public static void run(Object type, Runnable listener){
-        events.get(type, () -> new Seq<>(Handler.class)).add(new Handler<>(e -> listener.run()));
+        add(type, e -> listener.run(), listener);
     }
 
     /** Handle an event by enum trigger. Returns an id */
     public static int runid(Object type, Runnable listener){
-        run(type, listener);
-        return lastId;
+        return add(type, e -> listener.run(), listener);
     }
 
     /** Only use this method if you have the reference to the exact listener object that was used.
      * Doesn't work with listeners added through {@link #run(Object, Runnable)}, use {@link #remove(Class, int)} for that. */
     public static <T> boolean remove(Class<T> type, Cons<T> listener){
-        return events.get(type, () -> new Seq<>(Cons.class)).remove(h -> h.cons == listener);
+        synchronized(lock){
+            Handler<?>[] handlers = table.get(type);
+            for(int i = 0; i < handlers.length; i++){
+                if(handlers[i].cons == listener) return removeAt(type, i);
+            }
+            return false;
+        }
     }
 
     /** Only use this method if you have the reference to the exact listener object that was used. */
     public static <T> boolean remove(Class<T> type, int id){
-        Seq<Handler<?>> listeners = events.get(type);
-        if(listeners == null || listeners.isEmpty() || id < 0 || id > lastId) return false;
-        Handler<?> found = listeners.find(h -> h.id == id);
-        if(found == null) return false;
-
-        found.id = -1; // Mark for deletion FINISHME: Purge the marked events every so often as they will currently sit around in memory forever if the event is never fired after removal
-        return true;
+        if(id < 0) return false;
+        synchronized(lock){
+            Handler<?>[] handlers = table.get(type);
+            for(int i = 0; i < handlers.length; i++){
+                if(handlers[i].id == id) return removeAt(type, i);
+            }
+            return false;
+        }
     }
 
     /** Fires an enum trigger. */
     public static <T extends Enum<T>> void fire(Enum<T> type){
-        Seq<Handler<?>> listeners = events.get(type);
-
-        if(listeners != null){
-            Handler[] items = listeners.items;
-            for(int i = 0; i < listeners.size; i++){
-                items[i].cons.get(type);
-            }
+        Handler<Enum<T>>[] handlers = (Handler<Enum<T>>[])table.get(type);
+        if(profiling){
+            fireProfiled(type, type, handlers);
+            return;
+        }
+        for(Handler<Enum<T>> handler : handlers){
+            if(!handler.removed) handler.cons.get(type);
         }
     }
 
@@ -93,30 +178,211 @@ public class Events{
     }
 
     public static <T> void fire(Class<?> ctype, T type){
-        Seq<Handler<?>> listeners = events.get(ctype);
-//        boolean dbg = ctype == debugType;
-
-        if(listeners != null){
-            Iterator<Handler<T>> it = listeners.<Handler<T>>as().iterator();
-//            long tot = Time.nanos();
-            while(it.hasNext()){
-                Handler<T> listener = it.next();
-                if(listener.id == -1){
-                    it.remove();
-                    continue;
-                }
-//                long start = Time.nanos();
-                listener.cons.get(type);
-//                if (dbg) {
-//                    Log.info("Event listener in @ms. Trace:\n@", Time.millisSinceNanos(start), listener.trace);
-//                }
+        Handler<T>[] handlers = (Handler<T>[])table.get(ctype);
+        if(profiling){
+            fireProfiled(ctype, type, handlers);
+            return;
+        }
+        for(Handler<T> listener : handlers){
+            if(!listener.removed) listener.cons.get(type);
+        }
+    }
+
+    private static <T> void fireProfiled(Object key, T event, Handler<T>[] handlers){
+        long total = Time.nanos();
+        for(Handler<T> listener : handlers){
+            if(listener.removed) continue;
+            long start = Time.nanos();
+            listener.cons.get(event);
+
+            Histogram time = listener.time;
+            if(time == null) listener.time = time = new Histogram();
+            time.record(Time.timeSinceNanos(start));
+        }
+        Histogram time = eventTimes.get(key);
+        if(time == null){
+            Histogram created = new Histogram();
+            time = eventTimes.putIfAbsent(key, created);
+            if(time == null) time = created;
+        }
+        time.record(Time.timeSinceNanos(total));
+    }
+
+    /**
+     * Queues an enum trigger to be fired on the next {@link #drain()}. This method is thread safe.
+     * @return False if the queue is full and the trigger was dropped.
+     */
+    public static <T extends Enum<T>> boolean post(Enum<T> type){
+        return queue.offer(type);
+    }
+
+    /**
+     * Queues a non-enum event to be fired by class on the next {@link #drain()}. If the class is {@link #coalesce(Class) latest-wins}
+     * and an event of it is already queued, that event is replaced instead, keeping its place in the queue.
+     * Enum values are always queued as triggers. This method is thread safe.
+     * @return False if the queue is full and the event was dropped.
+     */
+    public static boolean post(Object event){
+        Latest latest = coalesced.isEmpty() ? null : coalesced.get(event.getClass());
+        if(latest == null) return queue.offer(event);
+
+        latest.event.set(event);
+        if(!latest.queued.compareAndSet(false, true)) return true;
+        if(queue.offer(latest)) return true;
+
+        //any event replaced meanwhile is dropped too, and the next post queues this again
+        latest.queued.set(false);
+        latest.event.compareAndSet(event, null);
+        return false;
+    }
+
+    /** Marks events of a class as latest-wins: only the newest posted event is fired on each {@link #drain()}. Has no effect on {@link #fire(Object)}. */
+    public static void coalesce(Class<?> type){
+        coalesced.putIfAbsent(type, new Latest());
+    }
+
+    /**
+     * Fires every event that was queued with {@link #post(Object)} before this call, in order. Events posted while
+     * draining wait for the next call. {@link ApplicationCore} calls this at the start of each update.
+     */
+    public static void drain(){
+        ArrayBlockingQueue<Object> queue = Events.queue;
+        for(int i = queue.size(); i > 0; i--){
+            Object event = queue.poll();
+            if(event == null) break;
+
+            if(event instanceof Latest){
+                Latest latest = (Latest)event;
+                //unmark first, so that an event posted from here on is queued again instead of lost
+                latest.queued.set(false);
+                event = latest.event.getAndSet(null);
+                if(event == null) continue;
             }
-//            if (dbg) Log.info("Event fired in @ms", Time.millisSinceNanos(tot));
+            if(event instanceof Enum){
+                fire((Enum)event);
+            }else{
+                fire(event);
+            }
+        }
+    }
+
+    /** Sets how many posted events can be waiting to be drained. Events that are currently queued are discarded. */
+    public static void setQueueCapacity(int capacity){
+        queue = new ArrayBlockingQueue<>(capacity);
+        for(Latest latest : coalesced.values()){
+            latest.event.set(null);
+            latest.queued.set(false);
+        }
+    }
+
+    /** @return The time taken to fire an event type, in nanoseconds, or null if it has not been fired while {@link #profiling}. */
+    public static @Nullable Histogram getTime(Object type){
+        return eventTimes.get(type);
+    }
+
+    /** Logs the event types and listeners that took the most time in total while {@link #profiling}. */
+    public static void logTimings(int count){
+        Table table = Events.table;
+        Seq<Object> types = new Seq<>();
+        for(Object type : eventTimes.keySet()) types.add(type);
+        types.sort(Structs.comparingLong(type -> -eventTimes.get(type).total()));
+
+        for(int i = 0; i < Math.min(count, types.size); i++){
+            Object type = types.get(i);
+            Log.info("[Events] @: @", type, eventTimes.get(type));
+
+            Seq<Handler<?>> handlers = Seq.with(table.get(type)).select(h -> h.time != null);
+            handlers.sort(Structs.comparingLong(h -> -h.time.total()));
+            for(int j = 0; j < Math.min(count, handlers.size); j++){
+                Handler<?> handler = handlers.get(j);
+                Log.info("[Events]   #@ @: @", handler.id, handler.source.getClass().getName(), handler.time);
+            }
+        }
+    }
+
+    /** Discards every recorded time. */
+    public static void clearTimings(){
+        eventTimes.clear();
+        for(Handler<?>[] handlers : table.handlers){
+            for(Handler<?> handler : handlers) handler.time = null;
         }
     }
 
-    /** Don't do this. */
+    /** @return The class resolved to its slot, to be fired without a lookup. */
+    public static <T> EventType<T> type(Class<T> type){
+        return new EventType<>(type, slot(type));
+    }
+
+    /** @return The enum trigger resolved to its slot, to be fired without a lookup. */
+    public static <T extends Enum<T>> EventType<Enum<T>> type(Enum<T> trigger){
+        return new EventType<>(trigger, slot(trigger));
+    }
+
+    /** Don't do this. Removes every listener; event types keep their slots. */
     public static void clear(){
-        events.clear();
+        synchronized(lock){
+            Table table = Events.table;
+            Handler<?>[][] handlers = new Handler[table.handlers.length][];
+            for(int i = 0; i < handlers.length; i++){
+                for(Handler<?> handler : table.handlers[i]) handler.removed = true;
+                handlers[i] = noHandlers;
+            }
+            Events.table = new Table(table.slots, handlers);
+        }
+    }
+
+    private static <T> int add(Object type, Cons<T> listener, Object source){
+        synchronized(lock){
+            Handler<T> handler = new Handler<>(++lastId, listener, source);
+            int slot = slot(type);
+
+            Table table = Events.table;
+            Handler<?>[] old = table.handlers[slot];
+            Handler<?>[] updated = new Handler[old.length + 1];
+            System.arraycopy(old, 0, updated, 0, old.length);
+            updated[old.length] = handler;
+            set(table, slot, updated);
+            return handler.id;
+        }
+    }
+
+    /** @return The slot of an event type, giving it the next one if it has none. */
+    private static int slot(Object type){
+        synchronized(lock){
+            Table table = Events.table;
+            int slot = table.slots.get(type, -1);
+            if(slot != -1) return slot;
+
+            ObjectIntMap<Object> slots = new ObjectIntMap<>(table.slots);
+            slot = table.handlers.length;
+            slots.put(type, slot);
+
+            Handler<?>[][] handlers = new Handler[slot + 1][];
+            System.arraycopy(table.handlers, 0, handlers, 0, slot);
+            handlers[slot] = noHandlers;
+            Events.table = new Table(slots, handlers);
+            return slot;
+        }
+    }
+
+    /** Must be called with the lock held. */
+    private static boolean removeAt(Object type, int index){
+        Table table = Events.table;
+        int slot = table.slots.get(type, -1);
+        Handler<?>[] old = table.handlers[slot];
+        old[index].removed = true;
+
+        Handler<?>[] updated = new Handler[old.length - 1];
+        System.arraycopy(old, 0, updated, 0, index);
+        System.arraycopy(old, index + 1, updated, index, updated.length - index);
+        set(table, slot, updated);
+        return true;
+    }
+
+    /** Must be called with the lock held. Publishes a table with new listeners for one slot. */
+    private static void set(Table table, int slot, Handler<?>[] handlers){
+        Handler<?>[][] copy = table.handlers.clone();
+        copy[slot] = handlers;
+        Events.table = new Table(table.slots, copy);
     }
-}
\ No newline at end of file
+}
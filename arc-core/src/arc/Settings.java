@@ -12,19 +12,28 @@ import java.io.*;
 import java.text.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.zip.*;
 
 import static arc.Core.*;
 
 public class Settings{
     protected final static byte typeBool = 0, typeInt = 1, typeLong = 2, typeFloat = 3, typeString = 4, typeBinary = 5;
     protected final static int maxBackups = 10;
+    protected final static byte journalPut = 0, journalRemove = 1;
+    /** The journal is compacted into the settings file once it is larger than this and the settings file. */
+    protected final static int minCompactSize = 64 * 1024;
 
     //general state data
     protected Fi dataDirectory;
     protected String appName = "app";
     protected ObjectMap<String, Object> defaults = new ObjectMap<>();
-    protected HashMap<String, Object> values = new HashMap<>();
-    protected HashMap<String, Object> overrideValues = new HashMap<>();
+    /** Written while holding the lock of this object, but read without it, so getters never wait on a save. */
+    protected ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+    protected ConcurrentHashMap<String, Object> overrideValues = new ConcurrentHashMap<>();
+    /** Keys that were put or removed since the last save, to be appended to the journal. */
+    protected HashSet<String> changed = new HashSet<>();
+    /** Whether the next save must rewrite the whole settings file instead of appending to the journal. */
+    protected boolean compact = true;
     protected boolean modified;
     protected Cons<Throwable> errorHandler;
     protected boolean hasErrored;
@@ -35,6 +44,7 @@ public class Settings{
 
     //IO utility objects
     protected ByteArrayOutputStream byteStream = new ByteArrayOutputStream(32);
+    protected ByteArrayOutputStream journalStream = new ByteArrayOutputStream(256);
     protected ReusableByteInStream byteInputStream = new ReusableByteInStream();
     protected UBJsonReader ureader = new UBJsonReader();
     protected Json json = new Json();
@@ -123,15 +133,21 @@ public class Settings{
 
     /** Loads a settings file into {@link #values} using the specified appName. */
     public synchronized void loadValues(){
+        //the settings file is rewritten on the first save after loading
+        compact = true;
+        finishCompaction();
+
         //don't load settings files if neither of them exist
         if(!getSettingsFile().exists() && !getBackupSettingsFile().exists()){
             writeLog("No settings files found: " + getSettingsFile().absolutePath() + " and " + getBackupSettingsFile().absolutePath());
+            if(getJournalFile().exists()) replayJournal(getJournalFile());
             return;
         }
 
         try{
             loadValues(getSettingsFile());
             writeLog("Loaded " + values.size() + " values");
+            replayJournal(getJournalFile());
             if(OS.hasProp("settingsOverride")) {
                 loadOverrideValues();
                 if(!overrideValues.isEmpty()){
@@ -158,6 +174,8 @@ public class Settings{
 
                     loadValues(attempt);
                     attempt.copyTo(getSettingsFile());
+                    //changes made after the last compaction are still in the journal; they are newer than any backup
+                    replayJournal(getJournalFile());
 
                     Log.info("Loaded backup settings file successfully!");
                     writeLog("| Loaded backup settings file after load failure. New settings file length: " + getSettingsFile().length());
@@ -180,33 +198,7 @@ public class Settings{
             if(amount <= 0) throw new IOException("0 values are not allowed.");
             for(int i = 0; i < amount; i++){
                 String key = stream.readUTF();
-                byte type = stream.readByte();
-
-                switch(type){
-                    case typeBool:
-                        values.put(key, stream.readBoolean());
-                        break;
-                    case typeInt:
-                        values.put(key, stream.readInt());
-                        break;
-                    case typeLong:
-                        values.put(key, stream.readLong());
-                        break;
-                    case typeFloat:
-                        values.put(key, stream.readFloat());
-                        break;
-                    case typeString:
-                        values.put(key, stream.readUTF());
-                        break;
-                    case typeBinary:
-                        int length = stream.readInt();
-                        byte[] bytes = new byte[length];
-                        stream.read(bytes);
-                        values.put(key, bytes);
-                        break;
-                    default:
-                        throw new IOException("Unknown key type: " + type);
-                }
+                values.put(key, readValue(stream, stream.readByte()));
             }
             //make sure all data was read - this helps with potential corruption
             int end = stream.read();
@@ -226,46 +218,107 @@ public class Settings{
         }
     }
 
-    /** Saves all entries from {@link #values} into the correct location. */
+    /**
+     * Saves the entries of {@link #values} that changed since the last save by appending them to the journal. Once the
+     * journal grows larger than the settings file, every entry is written to the settings file instead, see {@link #compactValues()}.
+     */
     public synchronized void saveValues(){
-        Fi file = getSettingsFile();
+        Fi journal = getJournalFile();
+        if(compact || !getSettingsFile().exists() || journal.length() > Math.max(minCompactSize, getSettingsFile().length())){
+            compactValues();
+            return;
+        }
+        if(changed.isEmpty()) return;
+
+        try{
+            journalStream.reset();
+            DataOutputStream records = new DataOutputStream(journalStream);
+            ByteArrayOutputStream record = byteStream;
+            DataOutputStream stream = new DataOutputStream(record);
+            CRC32 crc = new CRC32();
+
+            for(String key : changed){
+                record.reset();
+                Object value = values.get(key);
+                if(value == null){
+                    stream.writeByte(journalRemove);
+                    stream.writeUTF(key);
+                }else{
+                    stream.writeByte(journalPut);
+                    stream.writeUTF(key);
+                    writeValue(stream, value);
+                }
+                //each record is checksummed, so that a write torn by a crash is detected and dropped on load
+                crc.reset();
+                crc.update(record.toByteArray());
+                records.writeInt(record.size());
+                record.writeTo(records);
+                records.writeInt((int)crc.getValue());
+            }
+
+            try(OutputStream out = journal.write(true)){
+                journalStream.writeTo(out);
+            }
+        }catch(Throwable e){
+            //the journal may now end in a partial record, which is ignored on load; start over with a full write next time
+            compact = true;
+            throw new RuntimeException("Error writing preferences journal: " + journal, e);
+        }
 
-        try(DataOutputStream stream = new DataOutputStream(file.write(false, 8192))){
+        writeLog("Journaled " + changed.size() + " values; " + journal.length() + " bytes");
+        changed.clear();
+    }
+
+    /**
+     * Writes all entries from {@link #values} into the settings file and empties the journal. The file is written to a
+     * temporary file first and then renamed over the old one, so a crash never leaves a partial settings file behind.
+     * The new file is then copied into the backup folder.
+     * <p>
+     * Before the rename, the journal is moved aside to {@link #getRetiredJournalFile()}. Its records are older than the
+     * temporary file, so they must not be replayed over it; the retired journal instead marks the temporary file as
+     * complete, and {@link #loadValues()} finishes the rename if it was interrupted.
+     */
+    public synchronized void compactValues(){
+        Fi file = getSettingsFile(), temp = getTempSettingsFile();
+
+        try(FileOutputStream out = new FileOutputStream(temp.file());
+            DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(out, 8192))){
             stream.writeInt(values.size());
 
             for(Map.Entry<String, Object> entry : values.entrySet()){
                 stream.writeUTF(entry.getKey());
-
-                Object value = entry.getValue();
-
-                if(value instanceof Boolean){
-                    stream.writeByte(typeBool);
-                    stream.writeBoolean((Boolean)value);
-                }else if(value instanceof Integer){
-                    stream.writeByte(typeInt);
-                    stream.writeInt((Integer)value);
-                }else if(value instanceof Long){
-                    stream.writeByte(typeLong);
-                    stream.writeLong((Long)value);
-                }else if(value instanceof Float){
-                    stream.writeByte(typeFloat);
-                    stream.writeFloat((Float)value);
-                }else if(value instanceof String){
-                    stream.writeByte(typeString);
-                    stream.writeUTF((String)value);
-                }else if(value instanceof byte[]){
-                    stream.writeByte(typeBinary);
-                    stream.writeInt(((byte[])value).length);
-                    stream.write((byte[])value);
-                }
+                writeValue(stream, entry.getValue());
             }
 
+            stream.flush();
+            out.getFD().sync();
         }catch(Throwable e){
-            //file is now corrupt, delete it
-            file.delete();
+            temp.delete();
             throw new RuntimeException("Error writing preferences: " + file, e);
         }
 
+        Fi journal = getJournalFile(), retired = getRetiredJournalFile();
+        try{
+            if(journal.exists()){
+                replace(journal, retired);
+            }else{
+                retired.writeBytes(new byte[0]);
+            }
+        }catch(Throwable e){
+            temp.delete();
+            throw new RuntimeException("Error retiring preferences journal: " + journal, e);
+        }
+
+        try{
+            replace(temp, file);
+            retired.delete();
+        }catch(Throwable e){
+            //the retired journal is left in place, so the next load can still complete the rename
+            throw new RuntimeException("Error replacing preferences: " + file, e);
+        }
+
+        changed.clear();
+        compact = false;
         writeLog("Saving " + values.size() + " values; " + file.length() + " bytes");
 
         executor.submit(() -> {
@@ -288,11 +341,142 @@ public class Settings{
         });
     }
 
+    /**
+     * Completes a {@link #compactValues()} that was interrupted. If the journal was retired, the temporary file was fully
+     * written and replaces the settings file; otherwise any temporary file is incomplete and discarded.
+     */
+    protected void finishCompaction(){
+        Fi temp = getTempSettingsFile(), retired = getRetiredJournalFile();
+        try{
+            if(retired.exists()){
+                if(temp.exists()){
+                    replace(temp, getSettingsFile());
+                    writeLog("Completed interrupted compaction of " + getSettingsFile());
+                }
+                retired.delete();
+            }else{
+                temp.delete();
+            }
+        }catch(Throwable e){
+            writeLog("Failed to complete interrupted compaction:\n" + Strings.getStackTrace(e));
+        }
+    }
+
+    /** Renames a file over another. Where renaming can't replace an existing file, the target is deleted first. */
+    protected static void replace(Fi from, Fi to) throws IOException{
+        if(from.file().renameTo(to.file())) return;
+        to.delete();
+        if(!from.file().renameTo(to.file())) throw new IOException("Couldn't rename " + from + " to " + to);
+    }
+
+    /** Applies the records of a journal to {@link #values}. Reading stops at the first incomplete or corrupt record, which is where a write was interrupted. */
+    public synchronized void replayJournal(Fi file){
+        if(!file.exists()) return;
+        int applied = 0;
+        CRC32 crc = new CRC32();
+
+        try(DataInputStream stream = new DataInputStream(file.read(8192))){
+            while(true){
+                int length;
+                try{
+                    length = stream.readInt();
+                }catch(EOFException e){
+                    break;
+                }
+                if(length <= 0 || length > file.length()) throw new IOException("Invalid journal record length: " + length);
+
+                byte[] record = new byte[length];
+                stream.readFully(record);
+                crc.reset();
+                crc.update(record);
+                if(stream.readInt() != (int)crc.getValue()) throw new IOException("Journal record checksum mismatch.");
+
+                DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+                byte op = in.readByte();
+                String key = in.readUTF();
+                if(op == journalPut){
+                    values.put(key, readValue(in, in.readByte()));
+                }else if(op == journalRemove){
+                    values.remove(key);
+                }else{
+                    throw new IOException("Unknown journal operation: " + op);
+                }
+                applied++;
+            }
+        }catch(Throwable e){
+            writeLog("Stopped reading journal " + file + " after " + applied + " records:\n" + Strings.getStackTrace(e));
+        }
+
+        writeLog("Replayed " + applied + " journal records");
+        //the journal is folded into the settings file on the next save
+        compact = true;
+    }
+
+    protected void writeValue(DataOutputStream stream, Object value) throws IOException{
+        if(value instanceof Boolean){
+            stream.writeByte(typeBool);
+            stream.writeBoolean((Boolean)value);
+        }else if(value instanceof Integer){
+            stream.writeByte(typeInt);
+            stream.writeInt((Integer)value);
+        }else if(value instanceof Long){
+            stream.writeByte(typeLong);
+            stream.writeLong((Long)value);
+        }else if(value instanceof Float){
+            stream.writeByte(typeFloat);
+            stream.writeFloat((Float)value);
+        }else if(value instanceof String){
+            stream.writeByte(typeString);
+            stream.writeUTF((String)value);
+        }else if(value instanceof byte[]){
+            stream.writeByte(typeBinary);
+            stream.writeInt(((byte[])value).length);
+            stream.write((byte[])value);
+        }
+    }
+
+    protected Object readValue(DataInputStream stream, byte type) throws IOException{
+        switch(type){
+            case typeBool:
+                return stream.readBoolean();
+            case typeInt:
+                return stream.readInt();
+            case typeLong:
+                return stream.readLong();
+            case typeFloat:
+                return stream.readFloat();
+            case typeString:
+                return stream.readUTF();
+            case typeBinary:
+                int length = stream.readInt();
+                byte[] bytes = new byte[length];
+                stream.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown key type: " + type);
+        }
+    }
+
     /** Returns the file used for writing settings to. Not available on all platforms! */
     public Fi getSettingsFile(){
         return getDataDirectory().child("settings.bin");
     }
 
+    /** Returns the file that changes are appended to between full writes of the settings file. */
+    public Fi getJournalFile(){
+        return getDataDirectory().child("settings.journal");
+    }
+
+    /** Returns the file the settings are written to before they replace the settings file. */
+    public Fi getTempSettingsFile(){
+        return getDataDirectory().child("settings.bin.tmp");
+    }
+
+    /** Returns the file the journal is moved to while the settings file is being replaced. */
+    public Fi getRetiredJournalFile(){
+        return getDataDirectory().child("settings.journal.old");
+    }
+
     public Fi getBackupFolder(){
         return getDataDirectory().child("settings_backups");
     }
@@ -324,20 +508,38 @@ public class Settings{
     /** Clears all preference values. */
     public synchronized void clear(){
         values.clear();
+        changed.clear();
+        compact = true;
     }
 
     public synchronized Object getDefault(String name){
         return defaults.get(name);
     }
 
-    public synchronized boolean has(String name){
+    public boolean has(String name){
         if(!loaded && debug) Log.debug("Call to Settings.has before settings loaded:\n@", Threads.getTrace());
-        return values.containsKey(name) || overrideValues.containsKey(name);
+        return find(name) != null;
+    }
+
+    public Object get(String name, Object defaultValue){
+        Object value = lookup(name);
+        return value == null ? defaultValue : value;
     }
 
-    public synchronized Object get(String name, Object defaultValue){
+    /** @return The override or stored value of a key, or null. Does not lock. */
+    protected @Nullable Object lookup(String name){
         if(!loaded && debug) Log.debug("Call to Settings.get before settings loaded:\n@", Threads.getTrace());
-        return overrideValues.getOrDefault(name, values.getOrDefault(name, defaultValue)); // FINISHME: We could optimize this to skip the first getOrDefault if we know overrideValues is always empty
+        return find(name);
+    }
+
+    private @Nullable Object find(String name){
+        //the maps don't allow null keys, but no value is stored under one either
+        if(name == null) return null;
+        if(!overrideValues.isEmpty()){
+            Object value = overrideValues.get(name);
+            if(value != null) return value;
+        }
+        return values.get(name);
     }
 
     public boolean isModified(){
@@ -375,11 +577,13 @@ public class Settings{
     }
 
     public float getFloat(String name, float def){
-        return (float)get(name, def);
+        Object value = lookup(name);
+        return value == null ? def : (float)value;
     }
 
     public long getLong(String name, long def){
-        return (long)get(name, def);
+        Object value = lookup(name);
+        return value == null ? def : (long)value;
     }
 
     /** Do not use this it has a bad return type but needs to be kept for compat reasons */
@@ -388,11 +592,13 @@ public class Settings{
     }
 
     public int getInt(String name, int def){
-        return (int)get(name, def);
+        Object value = lookup(name);
+        return value == null ? def : (int)value;
     }
 
     public boolean getBool(String name, boolean def){
-        return (boolean)get(name, def);
+        Object value = lookup(name);
+        return value == null ? def : (boolean)value;
     }
 
     public byte[] getBytes(String name, byte[] def){
@@ -404,15 +610,21 @@ public class Settings{
     }
 
     public float getFloat(String name){
-        return getFloat(name, (float)defaults.get(name, 0f));
+        Object value = lookup(name);
+        if(value == null) value = defaults.get(name);
+        return value == null ? 0f : (float)value;
     }
 
     public int getInt(String name){
-        return getInt(name, (int)defaults.get(name, 0));
+        Object value = lookup(name);
+        if(value == null) value = defaults.get(name);
+        return value == null ? 0 : (int)value;
     }
 
     public boolean getBool(String name){
-        return getBool(name, (boolean)defaults.get(name, false));
+        Object value = lookup(name);
+        if(value == null) value = defaults.get(name);
+        return value != null && (boolean)value;
     }
 
     /** Runs the specified code once, and never again. */
@@ -446,9 +658,11 @@ public class Settings{
 
     /** Stores an object in the preference map. To use this with integers or floats in js: Core.settings.put("name", java.lang.Integer(1)) */
     public synchronized void put(String name, Object object){
+        if(name == null) throw new IllegalArgumentException("name cannot be null.");
         if(object instanceof Float || object instanceof Integer || object instanceof Boolean || object instanceof Long
         || object instanceof String || object instanceof byte[]){
             values.put(name, object);
+            changed.add(name);
 //            if (object instanceof Boolean && (Boolean) object == getBool(name)) {
 //                Log.info("Wrote boolean @ with value @ needlessly", name, object);
 //            } else if (object instanceof Integer && (Integer) object == getInt(name)) {
@@ -469,7 +683,9 @@ public class Settings{
     }
 
     public synchronized void remove(String name){
+        if(name == null) return;
         values.remove(name);
+        changed.add(name);
         modified = true;
     }
 
@@ -8,93 +8,123 @@ import java.io.*;
 import java.util.*;
 import java.util.zip.*;
 
-/** A FileHandle meant for easily representing and reading the contents of a zip/jar file.*/
+/**
+ * A FileHandle meant for easily representing and reading the contents of a zip/jar file.
+ * <p>
+ * Each directory keeps its children in a map by name, so {@link #child(String)} is a single lookup and {@link #list()}
+ * only touches the directory's own children. By default the whole tree is built when the archive is opened. In lazy
+ * mode, only a sorted array of entry names is kept, and directories are filled in the first time they are listed or
+ * searched.
+ */
 public class ZipFi extends Fi{
-    private @Nullable ZipFi[] children;
-    private @Nullable ZipFi parent;
-    private String path;
-
-    private Seq<ZipFi> allFiles, allDirectories;
-
-    private final @Nullable ZipEntry entry;
     private final ZipFile zip;
-
+    private final Index index;
+    private final @Nullable ZipFi parent;
+    /** Empty for the root, ends with a slash for directories. */
+    private final String path;
+    private final boolean directory;
+    private @Nullable ZipEntry entry;
+
+    /** Children by name, created when first needed. */
+    private @Nullable ObjectMap<String, ZipFi> children;
+    /** Whether every child is in {@link #children}. */
+    private boolean complete;
+    private @Nullable ZipFi[] list;
+
+    /** Opens an archive and builds its whole directory tree. */
     public ZipFi(Fi zipFileLoc){
+        this(zipFileLoc, false);
+    }
+
+    /**
+     * Opens an archive.
+     * @param lazy If true, only entry names are read up front, and directories are indexed when they are first listed
+     * or searched. Use this for large archives of which only a part is browsed.
+     */
+    public ZipFi(Fi zipFileLoc, boolean lazy){
         super(new File(""), FileType.absolute);
-        entry = null;
+        path = "";
+        parent = null;
+        directory = true;
 
         try{
             zip = new ZipFile(zipFileLoc.file());
-            path = "";
-
-            Seq<ZipEntry> entries = (Seq<ZipEntry>)Seq.with(Collections.list(zip.entries()));
-            ObjectMap<String, ZipEntry> byName = new ObjectMap<>();
-            entries.each(e -> byName.put(e.getName(), e));
-
-            Seq<String> names = entries.map(z -> z.getName().replace('\\', '/'));
-            ObjectSet<String> paths = new ObjectSet<>();
-
-            for(String path : names){
-                paths.add(path);
-                while(path.contains("/") && !path.equals("/") && path.substring(0, path.length() - 1).contains("/")){
-                    int index = path.endsWith("/") ? path.substring(0, path.length() - 1).lastIndexOf('/') : path.lastIndexOf('/');
-                    path = path.substring(0, index);
-                    paths.add(path.endsWith("/") ? path : path + "/");
-                }
+        }catch(IOException e){
+            throw new ArcRuntimeException(e);
+        }
+        index = new Index();
+
+        if(lazy){
+            Seq<String> names = new Seq<>(String.class);
+            for(Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ){
+                String raw = e.nextElement().getName(), name = normalize(raw);
+                if(name.isEmpty()) continue;
+                names.add(name);
+                if(!name.equals(raw)) index.rawNames.put(name, raw);
             }
-
-            if(paths.contains("/")){
-                file = new File("/");
-                paths.remove("/");
+            names.sort();
+            index.names = names.toArray();
+        }else{
+            for(Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); ){
+                ZipEntry entry = e.nextElement();
+                String name = normalize(entry.getName());
+                if(!name.isEmpty()) add(name, entry);
             }
+            markComplete();
+        }
+    }
 
-            allFiles = new Seq<>();
-            allDirectories = new Seq<>();
-
-            for(String s : paths){
-                ZipEntry entry = byName.get(s);
-
-                ZipFi file =  entry != null ? new ZipFi(entry, zip, allFiles, allDirectories) : new ZipFi(s, zip, allFiles, allDirectories);
-                allFiles.add(file);
-
-                if(file.isDirectory()){
-                    allDirectories.add(file);
-                }
-            }
+    private ZipFi(ZipFi parent, String path, boolean directory, @Nullable ZipEntry entry){
+        super(new File(path), FileType.absolute);
+        this.zip = parent.zip;
+        this.index = parent.index;
+        this.parent = parent;
+        this.path = path;
+        this.directory = directory;
+        this.entry = entry;
+    }
 
-            allFiles.add(this);
-            allDirectories.add(this);
+    /** Uses forward slashes and strips leading ones. */
+    private static String normalize(String name){
+        name = name.replace('\\', '/');
+        int start = 0;
+        while(start < name.length() && name.charAt(start) == '/') start++;
+        return start == 0 ? name : name.substring(start);
+    }
 
-            parent = null;
-        }catch(IOException e){
-            throw new ArcRuntimeException(e);
+    /** Adds an entry to the tree below this directory, creating the directories on its path. */
+    private void add(String name, ZipEntry entry){
+        ZipFi dir = this;
+        int start = 0;
+        for(int slash; (slash = name.indexOf('/', start)) != -1; start = slash + 1){
+            dir = dir.node(name.substring(start, slash), name.substring(0, slash + 1), true);
         }
-    }
 
-    private static int countSlashes(String str){
-        int sum = 0;
-        for(int i = 0; i < str.length(); i++){
-            if(str.charAt(i) == '/') sum ++;
+        if(start < name.length()){
+            dir.node(name.substring(start), name, false).entry = entry;
+        }else{
+            //an explicit directory entry
+            dir.entry = entry;
         }
-        return sum;
     }
 
-    private ZipFi(ZipEntry entry, ZipFile file, Seq<ZipFi> allFiles, Seq<ZipFi> allDirectories){
-        super(new File(entry.getName()), FileType.absolute);
-        this.allDirectories = allDirectories;
-        this.allFiles = allFiles;
-        this.path = entry.getName().replace('\\', '/');
-        this.entry = entry;
-        this.zip = file;
+    /** @return the child with this name, created if it doesn't exist yet. */
+    private ZipFi node(String name, String path, boolean directory){
+        if(children == null) children = new ObjectMap<>();
+        ZipFi child = children.get(name);
+        if(child == null){
+            children.put(name, child = new ZipFi(this, path, directory, directory || index.names == null ? null : index.entry(zip, path)));
+        }
+        return child;
     }
 
-    private ZipFi(String path, ZipFile file, Seq<ZipFi> allFiles, Seq<ZipFi> allDirectories){
-        super(new File(path), FileType.absolute);
-        this.allDirectories = allDirectories;
-        this.allFiles = allFiles;
-        this.path = path.replace('\\', '/');
-        this.entry = null;
-        this.zip = file;
+    private void markComplete(){
+        complete = true;
+        if(children != null){
+            for(ZipFi child : children.values()){
+                if(child.directory) child.markComplete();
+            }
+        }
     }
 
     @Override
@@ -115,15 +145,22 @@ public class ZipFi extends Fi{
 
     @Override
     public Fi child(String name){
-        //trigger cache
-        list();
-
-        for(ZipFi child : children){
-            if(child.name().equals(name)){
-                return child;
-            }
+        //nested paths are resolved one directory at a time, so that only direct children end up in the map
+        int slash = name.indexOf('/');
+        if(slash != -1){
+            Fi dir = child(name.substring(0, slash));
+            String rest = name.substring(slash + 1);
+            if(dir instanceof ZipFi && dir.isDirectory()) return rest.isEmpty() ? dir : dir.child(rest);
+            return missing(name);
         }
 
+        ZipFi child = children == null ? null : children.get(name);
+        if(child == null && !complete && directory && !name.isEmpty()) child = find(name);
+        if(child != null) return child;
+        return missing(name);
+    }
+
+    private Fi missing(String name){
         return new Fi(new File(file, name)){
             @Override
             public boolean exists(){
@@ -132,6 +169,49 @@ public class ZipFi extends Fi{
         };
     }
 
+    /** Looks up a direct child, whose name has no slashes, in the sorted names of a lazy archive. */
+    private @Nullable ZipFi find(String name){
+        String[] names = index.names;
+        String full = path + name;
+        if(Arrays.binarySearch(names, full) >= 0) return node(name, full, false);
+
+        String dir = full + "/";
+        int at = lowerBound(names, dir);
+        if(at < names.length && names[at].startsWith(dir)){
+            ZipFi child = node(name, dir, true);
+            if(child.entry == null) child.entry = index.entry(zip, dir);
+            return child;
+        }
+        return null;
+    }
+
+    /** Fills in every child from the sorted names of a lazy archive, skipping over the contents of subdirectories. */
+    private void index(){
+        String[] names = index.names;
+        for(int i = lowerBound(names, path); i < names.length && names[i].startsWith(path); i++){
+            String name = names[i];
+            //this directory's own entry
+            if(name.length() == path.length()) continue;
+
+            int slash = name.indexOf('/', path.length());
+            if(slash == -1){
+                node(name.substring(path.length()), name, false);
+            }else if(slash > path.length()){
+                String dir = name.substring(0, slash + 1);
+                ZipFi child = node(name.substring(path.length(), slash), dir, true);
+                if(child.entry == null && name.length() == dir.length()) child.entry = index.entry(zip, dir);
+                //'0' sorts right after '/', so this is the first name past the subdirectory
+                i = lowerBound(names, name.substring(0, slash) + '0') - 1;
+            }
+        }
+        complete = true;
+    }
+
+    private static int lowerBound(String[] names, String key){
+        int at = Arrays.binarySearch(names, key);
+        return at >= 0 ? at : -at - 1;
+    }
+
     @Override
     public String name(){
         return file.getName();
@@ -142,42 +222,32 @@ public class ZipFi extends Fi{
         return path;
     }
 
-    private static boolean isChild(ZipFi file, ZipFi dir){
-        return dir != file
-            && file.path().startsWith(dir.path())
-            && (file.path().substring(1 + dir.path().length()).indexOf('/') == -1 || //do not allow extra slashes in the path
-            (file.path().endsWith("/") && countSlashes(file.path().substring(1 + dir.path().length())) == 1));
-    }
-
     @Override
     public Fi parent(){
-        //root
-        if(path.length() == 0) return null;
-
-        if(parent == null){
-            parent = allDirectories.find(other -> isChild(this, other));
-        }
-
         return parent;
     }
 
     @Override
     public Fi[] list(){
-        if(children == null){
-            children = allFiles.select(f -> f.parent == this || isChild(f, this)).toArray(ZipFi.class);
+        if(list == null){
+            if(!directory){
+                list = new ZipFi[0];
+            }else{
+                if(!complete) index();
+                list = children == null ? new ZipFi[0] : children.values().toSeq().toArray(ZipFi.class);
+            }
         }
-
-        return children;
+        return list;
     }
 
     @Override
     public boolean isDirectory(){
-        return entry == null || entry.isDirectory();
+        return directory;
     }
 
     @Override
     public InputStream read(){
-        if(entry == null) throw new RuntimeException("Not permitted.");
+        if(entry == null || directory) throw new RuntimeException("Not permitted.");
         try{
             return zip.getInputStream(entry);
         }catch(IOException e){
@@ -194,4 +264,16 @@ public class ZipFi extends Fi{
     public String toString(){
         return path();
     }
-}
\ No newline at end of file
+
+    /** State shared by every file of one archive. */
+    private static class Index{
+        /** Sorted, normalized entry names; only set in lazy mode. */
+        @Nullable String[] names;
+        /** Original names of entries whose names were changed by normalizing. */
+        final ObjectMap<String, String> rawNames = new ObjectMap<>();
+
+        @Nullable ZipEntry entry(ZipFile zip, String name){
+            return zip.getEntry(rawNames.get(name, name));
+        }
+    }
+}
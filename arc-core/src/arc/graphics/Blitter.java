@@ -0,0 +1,291 @@
+package arc.graphics;
+
+import arc.math.*;
+import arc.util.*;
+
+import java.nio.*;
+import java.util.concurrent.*;
+
+/**
+ * Row-oriented implementation of the blending and scaling {@link Pixmap#draw} paths. Each call is clipped once, then works on
+ * whole rows: a row of pixels is read into an int array, composed there and written back in bulk. Blits covering at least
+ * {@link #parallelPixels} pixels are split by rows across the {@link Threads#computePool()}.
+ * <p>
+ * The results are identical to drawing one pixel at a time with {@link Pixmap#blend(int, int)} and its non-premultiplied
+ * alpha.
+ */
+final class Blitter{
+    /** Blits that cover at least this many destination pixels are split across threads. */
+    static int parallelPixels = 128 * 128;
+    /** The minimum number of rows given to each thread. */
+    static final int minRows = 16;
+
+    private static final ThreadLocal<Scratch> scratch = Threads.local(Scratch::new);
+
+    private Blitter(){
+    }
+
+    /**
+     * Draws with {@link Pixmap#draw(Pixmap, int, int, int, int, int, int, int, int, boolean, boolean)} semantics. The
+     * pixmaps must not share a buffer and every size must be positive.
+     * @return false if the call can't be handled here, in which case nothing was drawn.
+     */
+    static boolean draw(Pixmap src, int srcx, int srcy, int srcWidth, int srcHeight, Pixmap dst, int dstx, int dsty, int dstWidth, int dstHeight, boolean filtering, boolean blending){
+        if(srcWidth == dstWidth && srcHeight == dstHeight){
+            if(!blending) return false;
+            blend(src, srcx, srcy, dst, dstx, dsty, srcWidth, srcHeight);
+            return true;
+        }else if(filtering){
+            return scaleFiltered(src, srcx, srcy, srcWidth, srcHeight, dst, dstx, dsty, dstWidth, dstHeight, blending);
+        }else{
+            return scale(src, srcx, srcy, srcWidth, srcHeight, dst, dstx, dsty, dstWidth, dstHeight, blending);
+        }
+    }
+
+    /** Blends a same-size area. */
+    static void blend(Pixmap src, int srcx, int srcy, Pixmap dst, int dstx, int dsty, int width, int height){
+        int owidth = src.width, dwidth = dst.width;
+        int x0 = Math.max(0, Math.max(-srcx, -dstx)), x1 = Math.min(width, Math.min(owidth - srcx, dwidth - dstx));
+        int y0 = Math.max(0, Math.max(-srcy, -dsty)), y1 = Math.min(height, Math.min(src.height - srcy, dst.height - dsty));
+        int length = x1 - x0;
+        if(length <= 0 || y1 <= y0) return;
+
+        rows(y1 - y0, length, (from, to) -> {
+            IntBuffer sbuf = ints(src), dbuf = ints(dst);
+            Scratch s = scratch.get().ensure(length);
+            int[] srow = s.src, drow = s.dst;
+
+            for(int i = y0 + from; i < y0 + to; i++){
+                sbuf.position((srcy + i) * owidth + srcx + x0);
+                sbuf.get(srow, 0, length);
+                int doffset = (dsty + i) * dwidth + dstx + x0;
+                dbuf.position(doffset);
+                dbuf.get(drow, 0, length);
+
+                blendRow(srow, 0, drow, 0, length);
+
+                dbuf.position(doffset);
+                dbuf.put(drow, 0, length);
+            }
+        });
+    }
+
+    /** Scales with nearest neighbor filtering. */
+    static boolean scale(Pixmap src, int srcx, int srcy, int srcWidth, int srcHeight, Pixmap dst, int dstx, int dsty, int dstWidth, int dstHeight, boolean blending){
+        //the fixed-point ratios below overflow for larger sizes
+        if(srcWidth >= 1 << 15 || srcHeight >= 1 << 15) return false;
+
+        int owidth = src.width, dwidth = dst.width;
+        int xratio = (srcWidth << 16) / dstWidth + 1;
+        int yratio = (srcHeight << 16) / dstHeight + 1;
+
+        //the source column of every destination column, found with the same steps as the per-pixel loop
+        int[] sxs = new int[dstWidth];
+        int first = -1, last = -1;
+        for(int j = 0; j < dstWidth; j++){
+            int sx = ((j * xratio) >> 16) + srcx, dx = j + dstx;
+            if(sx < 0 || dx < 0){
+                if(first != -1) return false;
+                continue;
+            }
+            if(sx >= owidth || dx >= dwidth) break;
+            if(first == -1) first = j;
+            sxs[j] = sx;
+            last = j;
+        }
+        if(first == -1) return true;
+
+        int j0 = first, length = last - first + 1, minsx = sxs[first], span = sxs[last] - minsx + 1;
+        int rows = validRows(dstHeight, dsty, dst.height);
+
+        rows(rows, length, (from, to) -> {
+            IntBuffer sbuf = ints(src), dbuf = ints(dst);
+            Scratch s = scratch.get().ensure(Math.max(span, length));
+            int[] srow = s.src, drow = s.dst;
+            int lastsy = -1;
+
+            for(int i = from; i < to; i++){
+                int sy = ((i * yratio) >> 16) + srcy, dy = i + dsty;
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= src.height) break;
+
+                if(sy != lastsy){
+                    sbuf.position(sy * owidth + minsx);
+                    sbuf.get(srow, 0, span);
+                    lastsy = sy;
+                }
+
+                int doffset = dy * dwidth + dstx + j0;
+                if(blending){
+                    dbuf.position(doffset);
+                    dbuf.get(drow, 0, length);
+                    for(int j = 0; j < length; j++){
+                        drow[j] = blend(srow[sxs[j0 + j] - minsx], drow[j]);
+                    }
+                }else{
+                    for(int j = 0; j < length; j++){
+                        drow[j] = srow[sxs[j0 + j] - minsx];
+                    }
+                }
+                dbuf.position(doffset);
+                dbuf.put(drow, 0, length);
+            }
+        });
+        return true;
+    }
+
+    /** Scales with the bilinear filtering of {@link Pixmap#draw}, reading the same source pixels. */
+    static boolean scaleFiltered(Pixmap src, int srcx, int srcy, int srcWidth, int srcHeight, Pixmap dst, int dstx, int dsty, int dstWidth, int dstHeight, boolean blending){
+        int owidth = src.width, oheight = src.height, dwidth = dst.width;
+        float xratio = ((float)srcWidth - 1) / dstWidth;
+        float yratio = ((float)srcHeight - 1) / dstHeight;
+        int rX = Math.max(Mathf.round(xratio), 1), rY = Math.max(Mathf.round(yratio), 1);
+
+        int[] sxs = new int[dstWidth];
+        float[] xdiffs = new float[dstWidth];
+        int first = -1, last = -1;
+        for(int j = 0; j < dstWidth; j++){
+            int sx = (int)(j * xratio) + srcx, dx = j + dstx;
+            if(sx < 0 || dx < 0){
+                if(first != -1) return false;
+                continue;
+            }
+            if(sx >= owidth || dx >= dwidth) break;
+            if(first == -1) first = j;
+            sxs[j] = sx;
+            xdiffs[j] = (xratio * j + srcx) - sx;
+            last = j;
+        }
+        if(first == -1) return true;
+
+        int j0 = first, length = last - first + 1;
+        int rows = validRows(dstHeight, dsty, dst.height);
+
+        rows(rows, length, (from, to) -> {
+            IntBuffer sbuf = ints(src), dbuf = ints(dst);
+            int[] drow = scratch.get().ensure(length).dst;
+
+            for(int i = from; i < to; i++){
+                int sy = (int)(i * yratio) + srcy, dy = i + dsty;
+                float ydiff = (yratio * i + srcy) - sy;
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= oheight) break;
+
+                int doffset = dy * dwidth + dstx + j0;
+                if(blending){
+                    dbuf.position(doffset);
+                    dbuf.get(drow, 0, length);
+                }
+
+                boolean below = sy + rY < srcHeight;
+                for(int j = 0; j < length; j++){
+                    int sx = sxs[j0 + j];
+                    float xdiff = xdiffs[j0 + j];
+                    boolean right = sx + rX < srcWidth;
+
+                    int
+                    srcp = sx + sy * owidth,
+                    c1 = sbuf.get(srcp),
+                    c2 = right ? sbuf.get(srcp + rX) : c1,
+                    c3 = below ? sbuf.get(srcp + owidth * rY) : c1,
+                    c4 = right && below ? sbuf.get(srcp + rX + owidth * rY) : c1;
+
+                    float ta = (1 - xdiff) * (1 - ydiff);
+                    float tb = (xdiff) * (1 - ydiff);
+                    float tc = (1 - xdiff) * (ydiff);
+                    float td = (xdiff) * (ydiff);
+
+                    int r = (int)(((c1 & 0xff000000) >>> 24) * ta + ((c2 & 0xff000000) >>> 24) * tb + ((c3 & 0xff000000) >>> 24) * tc + ((c4 & 0xff000000) >>> 24) * td) & 0xff;
+                    int g = (int)(((c1 & 0xff0000) >>> 16) * ta + ((c2 & 0xff0000) >>> 16) * tb + ((c3 & 0xff0000) >>> 16) * tc + ((c4 & 0xff0000) >>> 16) * td) & 0xff;
+                    int b = (int)(((c1 & 0xff00) >>> 8) * ta + ((c2 & 0xff00) >>> 8) * tb + ((c3 & 0xff00) >>> 8) * tc + ((c4 & 0xff00) >>> 8) * td) & 0xff;
+                    int a = (int)((c1 & 0xff) * ta + (c2 & 0xff) * tb + (c3 & 0xff) * tc + (c4 & 0xff) * td) & 0xff;
+                    int srccol = (r << 24) | (g << 16) | (b << 8) | a;
+
+                    drow[j] = blending ? blend(srccol, drow[j]) : srccol;
+                }
+
+                dbuf.position(doffset);
+                dbuf.put(drow, 0, length);
+            }
+        });
+        return true;
+    }
+
+    /** Blends a row of source pixels over a row of destination pixels, which receives the result. */
+    static void blendRow(int[] src, int srcOffset, int[] dst, int dstOffset, int length){
+        for(int i = 0; i < length; i++){
+            int s = src[srcOffset + i];
+            int sa = s & 0xff;
+            //sprites are mostly transparent or opaque, which both skip the arithmetic
+            if(sa == 0) continue;
+            if(sa == 255){
+                dst[dstOffset + i] = s;
+            }else{
+                dst[dstOffset + i] = blend(s, dst[dstOffset + i]);
+            }
+        }
+    }
+
+    /**
+     * Equivalent to {@link Pixmap#blend(int, int)}. Over an opaque destination, the result alpha is always 255, so the
+     * divisions by it become divisions by a constant.
+     */
+    static int blend(int src, int dst){
+        if((dst & 0xff) != 255) return Pixmap.blend(src, dst);
+
+        int src_a = src & 0xff, dst_a = 255 - src_a;
+        int r = (((dst >>> 24) & 0xff) * dst_a + ((src >>> 24) & 0xff) * src_a) / 255;
+        int g = (((dst >>> 16) & 0xff) * dst_a + ((src >>> 16) & 0xff) * src_a) / 255;
+        int b = (((dst >>> 8) & 0xff) * dst_a + ((src >>> 8) & 0xff) * src_a) / 255;
+        return (r << 24) | (g << 16) | (b << 8) | 255;
+    }
+
+    /** @return the number of leading destination rows before the per-pixel loop would stop at the bottom edge. */
+    private static int validRows(int dstHeight, int dsty, int height){
+        return Math.max(Math.min(dstHeight, height - dsty), 0);
+    }
+
+    /** @return a view of all pixels with its own position. */
+    private static IntBuffer ints(Pixmap pixmap){
+        ByteBuffer buffer = pixmap.pixels.duplicate().order(pixmap.pixels.order());
+        buffer.clear();
+        return buffer.asIntBuffer();
+    }
+
+    /** Draws rows [0, count), in chunks on several threads if the blit is large enough. */
+    private static void rows(int count, int width, RowRange range){
+        int chunks = (long)count * width < parallelPixels ? 1 : Math.min(OS.cores, count / minRows);
+        if(chunks <= 1){
+            range.draw(0, count);
+            return;
+        }
+
+        ForkJoinPool pool = Threads.computePool();
+        ForkJoinTask<?>[] tasks = new ForkJoinTask[chunks - 1];
+        for(int c = 1; c < chunks; c++){
+            int from = (int)((long)count * c / chunks), to = (int)((long)count * (c + 1) / chunks);
+            tasks[c - 1] = pool.submit(() -> range.draw(from, to));
+        }
+        range.draw(0, count / chunks);
+        for(ForkJoinTask<?> task : tasks){
+            task.join();
+        }
+    }
+
+    private interface RowRange{
+        void draw(int from, int to);
+    }
+
+    /** Row buffers reused by each thread. */
+    private static class Scratch{
+        int[] src = {}, dst = {};
+
+        Scratch ensure(int length){
+            if(src.length < length){
+                src = new int[length];
+                dst = new int[length];
+            }
+            return this;
+        }
+    }
+}
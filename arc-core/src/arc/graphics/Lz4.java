@@ -0,0 +1,161 @@
+package arc.graphics;
+
+import arc.util.*;
+
+/**
+ * Compresses and decompresses the LZ4 block format. It compresses far less than deflate, but decompresses several times
+ * faster, which makes it a good fit for data that is read much more often than it is written.
+ */
+final class Lz4{
+    private static final int minMatch = 4, lastLiterals = 5, matchFindLimit = 12, maxOffset = 65535;
+    private static final int hashLog = 12;
+
+    private Lz4(){
+    }
+
+    /** @return the largest size {@link #compress} can produce for an input of the specified length. */
+    static int maxCompressedLength(int length){
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses src into dst, which must have room for {@link #maxCompressedLength(int)} bytes.
+     * @return the number of bytes written to dst.
+     */
+    static int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff){
+        int end = srcOff + srcLen, matchLimit = end - lastLiterals, limit = end - matchFindLimit;
+        int anchor = srcOff, ip = srcOff, op = dstOff;
+
+        if(srcLen >= matchFindLimit){
+            int[] table = new int[1 << hashLog];
+            int misses = 0;
+
+            while(ip < limit){
+                int sequence = readInt(src, ip);
+                int hash = (sequence * -1640531535) >>> (32 - hashLog);
+                //positions are stored plus one, so that 0 means empty
+                int ref = table[hash] - 1;
+                table[hash] = ip + 1;
+
+                if(ref < 0 || ip - ref > maxOffset || readInt(src, ref) != sequence){
+                    //skip ahead faster the longer no match is found, as incompressible data would otherwise be slow
+                    ip += 1 + (misses++ >>> 6);
+                    continue;
+                }
+                misses = 0;
+
+                int length = minMatch;
+                while(ip + length < matchLimit && src[ref + length] == src[ip + length]) length++;
+
+                op = writeSequence(src, anchor, ip - anchor, dst, op, ip - ref, length);
+                ip += length;
+                anchor = ip;
+            }
+        }
+
+        //the last literals, which have no match
+        int literals = end - anchor;
+        op = writeLength(dst, op, literals, 0);
+        System.arraycopy(src, anchor, dst, op, literals);
+        return op + literals - dstOff;
+    }
+
+    /**
+     * Decompresses src into dst, which must be exactly the size of the uncompressed data.
+     * @throws ArcRuntimeException if the data is malformed.
+     */
+    static void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen){
+        int ip = srcOff, end = srcOff + srcLen, op = dstOff, dstEnd = dstOff + dstLen;
+
+        try{
+            while(true){
+                int token = src[ip++] & 0xff;
+
+                int literals = token >>> 4;
+                if(literals == 15){
+                    int b;
+                    do{
+                        b = src[ip++] & 0xff;
+                        literals += b;
+                    }while(b == 255);
+                }
+                if(literals > end - ip || literals > dstEnd - op) throw new ArcRuntimeException("Malformed LZ4 data: literals out of bounds.");
+                System.arraycopy(src, ip, dst, op, literals);
+                ip += literals;
+                op += literals;
+
+                if(ip == end) break;
+
+                int offset = (src[ip++] & 0xff) | (src[ip++] & 0xff) << 8;
+                int length = token & 15;
+                if(length == 15){
+                    int b;
+                    do{
+                        b = src[ip++] & 0xff;
+                        length += b;
+                    }while(b == 255);
+                }
+                length += minMatch;
+
+                int ref = op - offset;
+                if(offset == 0 || ref < dstOff || length > dstEnd - op) throw new ArcRuntimeException("Malformed LZ4 data: match out of bounds.");
+
+                if(offset >= length){
+                    System.arraycopy(dst, ref, dst, op, length);
+                    op += length;
+                }else{
+                    //overlapping matches repeat the bytes being written
+                    for(int i = 0; i < length; i++){
+                        dst[op++] = dst[ref++];
+                    }
+                }
+            }
+        }catch(ArrayIndexOutOfBoundsException e){
+            throw new ArcRuntimeException("Malformed LZ4 data: unexpected end.", e);
+        }
+
+        if(op != dstEnd) throw new ArcRuntimeException("Malformed LZ4 data: expected " + dstLen + " bytes, got " + (op - dstOff));
+    }
+
+    private static int writeSequence(byte[] src, int literalStart, int literals, byte[] dst, int op, int offset, int matchLength){
+        int matchCode = matchLength - minMatch;
+        op = writeLength(dst, op, literals, matchCode);
+        System.arraycopy(src, literalStart, dst, op, literals);
+        op += literals;
+
+        dst[op++] = (byte)offset;
+        dst[op++] = (byte)(offset >>> 8);
+
+        if(matchCode >= 15){
+            matchCode -= 15;
+            while(matchCode >= 255){
+                dst[op++] = (byte)255;
+                matchCode -= 255;
+            }
+            dst[op++] = (byte)matchCode;
+        }
+        return op;
+    }
+
+    /**
+     * Writes the token at op, with the literal length and the low nibble of the match code, followed by the extra bytes
+     * of the literal length.
+     * @return the position after the extra bytes.
+     */
+    private static int writeLength(byte[] dst, int op, int literals, int matchCode){
+        dst[op++] = (byte)((Math.min(literals, 15) << 4) | Math.min(matchCode, 15));
+        if(literals >= 15){
+            int rest = literals - 15;
+            while(rest >= 255){
+                dst[op++] = (byte)255;
+                rest -= 255;
+            }
+            dst[op++] = (byte)rest;
+        }
+        return op;
+    }
+
+    private static int readInt(byte[] bytes, int i){
+        return (bytes[i] & 0xff) | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff) << 16 | (bytes[i + 3] & 0xff) << 24;
+    }
+}
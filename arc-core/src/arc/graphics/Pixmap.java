@@ -393,7 +393,7 @@ public class Pixmap implements Disposable{
 
     /**
      * Draws an area from another Pixmap to this Pixmap. This will automatically scale and stretch the source image to the
-     * specified target rectangle. Blending is currently unsupported for stretched/scaled pixmaps.
+     * specified target rectangle.
      * @param pixmap The other Pixmap
      * @param srcx The source x-coordinate (top left corner)
      * @param srcy The source y-coordinate (top left corner);
@@ -412,6 +412,12 @@ public class Pixmap implements Disposable{
             return;
         }
 
+        //blending and scaling between different pixmaps go through whole rows at a time
+        if(this.pixels != pixmap.pixels && srcWidth > 0 && srcHeight > 0 && dstWidth > 0 && dstHeight > 0 &&
+            Blitter.draw(pixmap, srcx, srcy, srcWidth, srcHeight, this, dstx, dsty, dstWidth, dstHeight, filtering, blending)){
+            return;
+        }
+
         if(srcWidth == dstWidth && srcHeight == dstHeight){
 
             //same-size blit, no filtering
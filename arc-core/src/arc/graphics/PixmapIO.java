@@ -1,12 +1,15 @@
 package arc.graphics;
 
 import arc.files.*;
+import arc.struct.*;
 import arc.util.*;
 import arc.util.io.*;
 
 import java.io.*;
 import java.nio.*;
 import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.zip.*;
 
 /**
@@ -15,55 +18,279 @@ import java.util.zip.*;
  * @author Nathan Sweet
  */
 public class PixmapIO{
+    /** The size of the square tiles that APIX files are split into. Larger tiles compress slightly better, smaller ones decode in more parallel tasks. */
+    public static int apixTileSize = 256;
+
+    private static final int apixMagic = 0x41504958; //"APIX", which can't be the start of a deflate stream
+    private static final byte apixVersion = 2;
+    private static final byte apixStored = 0, apixDeflate = 1, apixLz4 = 2;
+    private static final ThreadLocal<PngWriter> pngWriters = Threads.local(PngWriter::new);
 
     /**
-     * Arc PIXmap: Similar to to the libGDX CIM format. Writes deflation-compressed pixmap RGBA data to a file.
+     * Arc PIXmap: Similar to to the libGDX CIM format. Writes compressed pixmap RGBA data to a file.
      * Faster and smaller than RGBA PNG.
-     * */
-    public static void writeApix(Fi file, Pixmap pixmap) {
-        try(DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(file.write(false))); WritableByteChannel channel = Channels.newChannel(out)){
+     * <p>
+     * The image is split into tiles of {@link #apixTileSize} pixels that are compressed independently, so that they can be
+     * decoded in parallel and areas can be read without decoding the rest. Files written by older versions, which hold a
+     * single deflate stream, can still be read.
+     */
+    public static void writeApix(Fi file, Pixmap pixmap){
+        writeApix(file, pixmap, ApixCompression.deflate);
+    }
+
+    /** Writes compressed pixmap RGBA data to a file. Tiles are compressed in parallel. */
+    public static void writeApix(Fi file, Pixmap pixmap, ApixCompression compression){
+        int tileSize = apixTileSize, cols = (pixmap.width + tileSize - 1) / tileSize, rows = (pixmap.height + tileSize - 1) / tileSize;
+        byte[][] tiles = new byte[cols * rows][];
+        byte[] codecs = new byte[cols * rows];
+
+        ForkJoinTask<?>[] tasks = new ForkJoinTask[tiles.length];
+        for(int i = 0; i < tiles.length; i++){
+            int tile = i;
+            tasks[i] = Threads.computePool().submit(() -> {
+                int x = (tile % cols) * tileSize, y = (tile / cols) * tileSize;
+                byte[] raw = new byte[Math.min(tileSize, pixmap.width - x) * Math.min(tileSize, pixmap.height - y) * 4];
+                readTile(pixmap.pixels.duplicate(), pixmap.width, x, y, raw, Math.min(tileSize, pixmap.width - x));
+                encodeTile(raw, compression, tile, codecs, tiles);
+            });
+        }
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file.write(false)))){
+            out.writeInt(apixMagic);
+            out.writeByte(apixVersion);
             out.writeInt(pixmap.width);
             out.writeInt(pixmap.height);
+            out.writeInt(tileSize);
 
-            ByteBuffer buf = pixmap.pixels;
-            buf.position(0);
-            buf.limit(buf.capacity());
-            channel.write(buf);
+            for(ForkJoinTask<?> task : tasks){
+                task.join();
+            }
+            for(int i = 0; i < tiles.length; i++){
+                out.writeByte(codecs[i]);
+                out.writeInt(tiles[i].length);
+            }
+            for(byte[] tile : tiles){
+                out.write(tile);
+            }
         }catch(Exception e){
+            for(ForkJoinTask<?> task : tasks){
+                task.quietlyJoin();
+            }
             throw new ArcRuntimeException("Couldn't write Pixmap to file '" + file + "'", e);
         }
     }
 
-    /** Reads deflation-compressed pixmap RGBA data from a file. */
-    public static Pixmap readApix(Fi file) {
-        try(DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(file.read()))); ReadableByteChannel channel = Channels.newChannel(in)){
-            Pixmap pixmap = new Pixmap(in.readInt(), in.readInt());
-
-            ByteBuffer pixelBuf = pixmap.pixels;
-            pixelBuf.position(0);
-            pixelBuf.limit(pixelBuf.capacity());
-            channel.read(pixelBuf);
-            pixelBuf.position(0);
-            pixelBuf.limit(pixelBuf.capacity());
-            return pixmap;
+    /** Reads compressed pixmap RGBA data from a file, decoding tiles in parallel. */
+    public static Pixmap readApix(Fi file){
+        return readApix(file, 0, 0, -1, -1);
+    }
+
+    /**
+     * Reads an area of compressed pixmap RGBA data from a file. Only the tiles that overlap the area are decompressed,
+     * except in files written by older versions, which are decoded whole and then cropped.
+     * @param width The width of the area, or -1 to read the whole image.
+     * @param height The height of the area, or -1 to read the whole image.
+     */
+    public static Pixmap readApix(Fi file, int x, int y, int width, int height){
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(file.read()))){
+            in.mark(4);
+            if(in.readInt() == apixMagic){
+                return readApixTiles(in, x, y, width, height);
+            }
+            in.reset();
+
+            //the first version: a single deflate stream holding the size and pixels
+            try(DataInputStream inflated = new DataInputStream(new InflaterInputStream(in)); ReadableByteChannel channel = Channels.newChannel(inflated)){
+                Pixmap pixmap = new Pixmap(inflated.readInt(), inflated.readInt());
+
+                ByteBuffer pixelBuf = pixmap.pixels;
+                pixelBuf.position(0);
+                pixelBuf.limit(pixelBuf.capacity());
+                while(pixelBuf.hasRemaining() && channel.read(pixelBuf) >= 0);
+                pixelBuf.position(0);
+                pixelBuf.limit(pixelBuf.capacity());
+
+                if(width < 0 || height < 0) return pixmap;
+                checkArea(pixmap.width, pixmap.height, x, y, width, height);
+                Pixmap area = Pixmaps.crop(pixmap, x, y, width, height);
+                pixmap.dispose();
+                return area;
+            }
+        }catch(IllegalArgumentException e){
+            throw e;
         }catch(Exception e){
             throw new ArcRuntimeException("Couldn't read Pixmap from file '" + file + "'", e);
         }
     }
 
-    /**
-     * Writes the pixmap as a PNG with compression. See {@link PngWriter} to configure the compression level, more efficiently flip the
-     * pixmap vertically, and to write out multiple PNGs with minimal allocation.
-     */
-    public static void writePng(Fi file, Pixmap pixmap){
+    private static Pixmap readApixTiles(DataInputStream in, int x, int y, int width, int height) throws IOException{
+        int version = in.readUnsignedByte();
+        if(version != apixVersion) throw new IOException("Unsupported APIX version: " + version);
+
+        int fullWidth = in.readInt(), fullHeight = in.readInt(), tileSize = in.readInt();
+        if(width < 0 || height < 0){
+            x = y = 0;
+            width = fullWidth;
+            height = fullHeight;
+        }
+        checkArea(fullWidth, fullHeight, x, y, width, height);
+
+        int cols = (fullWidth + tileSize - 1) / tileSize, rows = (fullHeight + tileSize - 1) / tileSize;
+        byte[] codecs = new byte[cols * rows];
+        int[] lengths = new int[cols * rows];
+        for(int i = 0; i < codecs.length; i++){
+            codecs[i] = in.readByte();
+            lengths[i] = in.readInt();
+        }
+
+        Pixmap pixmap = new Pixmap(width, height);
+        Seq<ForkJoinTask<?>> tasks = new Seq<>();
+        int areaX = x, areaY = y, areaWidth = width;
         try{
-            PngWriter writer = new PngWriter((int)(pixmap.width * pixmap.height * 1.5f)); // Guess at deflated size.
+            //tiles are decoded while the following ones are read
+            for(int i = 0; i < codecs.length; i++){
+                int tx = (i % cols) * tileSize, ty = (i / cols) * tileSize;
+                int tw = Math.min(tileSize, fullWidth - tx), th = Math.min(tileSize, fullHeight - ty);
+
+                if(tx + tw <= x || ty + th <= y || tx >= x + width || ty >= y + height){
+                    skipFully(in, lengths[i]);
+                    continue;
+                }
+
+                byte[] data = new byte[lengths[i]];
+                in.readFully(data);
+                byte codec = codecs[i];
+                tasks.add(Threads.computePool().submit(() -> {
+                    byte[] raw = decodeTile(codec, data, tw * th * 4);
+                    drawTile(raw, tx, ty, tw, th, pixmap, areaX, areaY, areaWidth);
+                }));
+            }
+            for(ForkJoinTask<?> task : tasks){
+                task.join();
+            }
+        }catch(Throwable t){
+            //the tasks write into the pixmap, so they must be done before it is freed
+            for(ForkJoinTask<?> task : tasks){
+                task.quietlyJoin();
+            }
+            pixmap.dispose();
+            throw t;
+        }
+        return pixmap;
+    }
+
+    private static void encodeTile(byte[] raw, ApixCompression compression, int tile, byte[] codecs, byte[][] tiles){
+        byte[] fast = null, deflated = null;
+
+        if(compression != ApixCompression.deflate){
+            byte[] buffer = new byte[Lz4.maxCompressedLength(raw.length)];
+            fast = Arrays.copyOf(buffer, Lz4.compress(raw, 0, raw.length, buffer, 0));
+        }
+        if(compression != ApixCompression.fast){
+            Deflater deflater = new Deflater();
             try{
-                writer.setFlipY(false);
-                writer.write(file, pixmap);
+                deflater.setInput(raw);
+                deflater.finish();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+                byte[] chunk = new byte[8192];
+                while(!deflater.finished()){
+                    out.write(chunk, 0, deflater.deflate(chunk));
+                }
+                deflated = out.toByteArray();
             }finally{
-                writer.dispose();
+                deflater.end();
             }
+        }
+
+        //the fast codec is kept unless deflate saves a quarter of its size
+        byte codec = fast != null && (deflated == null || deflated.length * 4 >= fast.length * 3) ? apixLz4 : apixDeflate;
+        byte[] data = codec == apixLz4 ? fast : deflated;
+        if(data.length >= raw.length){
+            codec = apixStored;
+            data = raw;
+        }
+        codecs[tile] = codec;
+        tiles[tile] = data;
+    }
+
+    private static byte[] decodeTile(byte codec, byte[] data, int length){
+        if(codec == apixStored){
+            if(data.length != length) throw new ArcRuntimeException("Stored APIX tile has the wrong size.");
+            return data;
+        }
+
+        byte[] raw = new byte[length];
+        if(codec == apixLz4){
+            Lz4.decompress(data, 0, data.length, raw, 0, length);
+        }else if(codec == apixDeflate){
+            Inflater inflater = new Inflater();
+            try{
+                inflater.setInput(data);
+                int read = 0;
+                while(read < length && !inflater.finished()){
+                    int count = inflater.inflate(raw, read, length - read);
+                    if(count == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                    read += count;
+                }
+                if(read != length) throw new ArcRuntimeException("Deflated APIX tile is truncated.");
+            }catch(DataFormatException e){
+                throw new ArcRuntimeException(e);
+            }finally{
+                inflater.end();
+            }
+        }else{
+            throw new ArcRuntimeException("Unknown APIX tile codec: " + codec);
+        }
+        return raw;
+    }
+
+    /** Copies the part of a decoded tile that overlaps the area starting at areaX, areaY into the pixmap holding that area. */
+    private static void drawTile(byte[] raw, int tx, int ty, int tw, int th, Pixmap pixmap, int areaX, int areaY, int areaWidth){
+        int x0 = Math.max(tx, areaX), x1 = Math.min(tx + tw, areaX + areaWidth);
+        int y0 = Math.max(ty, areaY), y1 = Math.min(ty + th, areaY + pixmap.height);
+        ByteBuffer pixels = pixmap.pixels.duplicate();
+
+        for(int py = y0; py < y1; py++){
+            pixels.position(((py - areaY) * pixmap.width + x0 - areaX) * 4);
+            pixels.put(raw, ((py - ty) * tw + x0 - tx) * 4, (x1 - x0) * 4);
+        }
+    }
+
+    /** Copies the rows of the tile at tx, ty from the pixels into the tile array. */
+    private static void readTile(ByteBuffer pixels, int width, int tx, int ty, byte[] tile, int tw){
+        for(int row = 0, th = tile.length / 4 / tw; row < th; row++){
+            pixels.position(((ty + row) * width + tx) * 4);
+            pixels.get(tile, row * tw * 4, tw * 4);
+        }
+    }
+
+    private static void checkArea(int fullWidth, int fullHeight, int x, int y, int width, int height){
+        if(x < 0 || y < 0 || width < 0 || height < 0 || x + width > fullWidth || y + height > fullHeight){
+            throw new IllegalArgumentException("Area " + x + ", " + y + " " + width + "x" + height + " is outside of the " + fullWidth + "x" + fullHeight + " image.");
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException{
+        while(count > 0){
+            long skipped = in.skip(count);
+            if(skipped <= 0){
+                if(in.read() < 0) throw new EOFException();
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Writes the pixmap as a PNG with compression. Each thread keeps a {@link PngWriter} for this, so that its deflater is
+     * reused between calls. See {@link PngWriter} to configure the compression level, more efficiently flip the pixmap
+     * vertically, or compress on several threads.
+     */
+    public static void writePng(Fi file, Pixmap pixmap){
+        try{
+            PngWriter writer = pngWriters.get();
+            writer.setFlipY(false);
+            writer.write(file, pixmap);
         }catch(IOException ex){
             throw new ArcRuntimeException("Error writing PNG: " + file, ex);
         }
@@ -90,19 +317,29 @@ public class PixmapIO{
         private static final int IHDR = 0x49484452, IDAT = 0x49444154, IEND = 0x49454E44;
         private static final byte COLOR_ARGB = 6;
         private static final byte COMPRESSION_DEFLATE = 0;
-        private static final byte FILTER_NONE = 0;
+        private static final byte FILTER_NONE = 0, FILTER_SUB = 1, FILTER_UP = 2, FILTER_AVERAGE = 3, FILTER_PAETH = 4;
         private static final byte INTERLACE_NONE = 0;
+        /** Image data is written in IDAT chunks of at most this many bytes, so it is never buffered as a whole. */
+        private static final int IDAT_SIZE = 1 << 16;
+        /** With an executor, rows are compressed in blocks of about this many bytes. */
+        private static final int BLOCK_SIZE = 1 << 17;
+        /** The size of the deflate window, which is how much of the previous block primes the next one. */
+        private static final int WINDOW_SIZE = 1 << 15;
 
         private final ChunkBuffer buffer;
         private final Deflater deflater;
-        private boolean flipY = true;
+        /** Raw deflaters for compressing blocks, kept between calls. */
+        private final Seq<Deflater> blockDeflaters = new Seq<>();
+        private boolean flipY = true, filter = true;
+        private int level = Deflater.DEFAULT_COMPRESSION;
+        private @Nullable ExecutorService executor;
 
         public PngWriter(){
             this(128 * 128);
         }
 
         public PngWriter(int initialBufferSize){
-            buffer = new ChunkBuffer(initialBufferSize);
+            buffer = new ChunkBuffer(Math.min(initialBufferSize, IDAT_SIZE + 8));
             deflater = new Deflater();
         }
 
@@ -111,11 +348,29 @@ public class PixmapIO{
             this.flipY = flipY;
         }
 
+        /**
+         * If true, each row is written with whichever PNG filter makes its bytes smallest, as measured by the sum of their
+         * absolute values. This usually makes the file considerably smaller, especially for gradients and photos. Default is true.
+         */
+        public void setFilter(boolean filter){
+            this.filter = filter;
+        }
+
         /** Sets the deflate compression level. Default is {@link Deflater#DEFAULT_COMPRESSION}. */
         public void setCompression(int level){
+            this.level = level;
             deflater.setLevel(level);
         }
 
+        /**
+         * Compresses blocks of rows on the executor instead of the calling thread. Each block is primed with the end of the
+         * previous one, and the blocks are stitched into one deflate stream, so the output is only slightly larger. The
+         * executor is not shut down by this writer. Default is null.
+         */
+        public void setExecutor(@Nullable ExecutorService executor){
+            this.executor = executor;
+        }
+
         public void write(Fi file, Pixmap pixmap) throws IOException{
             OutputStream output = file.write(false);
             try{
@@ -127,7 +382,6 @@ public class PixmapIO{
 
         /** Writes the pixmap to the stream without closing the stream. */
         public void write(OutputStream output, Pixmap pixmap) throws IOException{
-            DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(buffer, deflater);
             DataOutputStream dataOutput = new DataOutputStream(output);
             dataOutput.write(SIGNATURE);
 
@@ -141,35 +395,293 @@ public class PixmapIO{
             buffer.writeByte(INTERLACE_NONE);
             buffer.endChunk(dataOutput);
 
-            buffer.writeInt(IDAT);
-            deflater.reset();
+            IdatOutput idat = new IdatOutput(dataOutput);
+            int blockRows = Math.max(BLOCK_SIZE / (pixmap.width * 4 + 1), 1);
+            if(executor != null && pixmap.height > blockRows){
+                writeBlocks(idat, pixmap, blockRows);
+            }else{
+                DeflaterOutputStream deflaterOutput = new DeflaterOutputStream(idat, deflater);
+                deflater.reset();
+                writeRows(deflaterOutput, pixmap);
+                deflaterOutput.finish();
+            }
+            idat.finish();
 
+            buffer.writeInt(IEND);
+            buffer.endChunk(dataOutput);
+
+            output.flush();
+        }
+
+        private void writeRows(OutputStream output, Pixmap pixmap) throws IOException{
             int lineLen = pixmap.width * 4;
-            //1 extra byte for filter 0
-            byte[] curLine = new byte[lineLen + 1];
+            //1 extra byte for the filter type
+            byte[] prevLine = new byte[lineLen + 1], curLine = new byte[lineLen + 1], outLine = new byte[lineLen + 1];
+
+            ByteBuffer pixels = pixmap.pixels.duplicate();
+            for(int y = 0; y < pixmap.height; y++){
+                readRow(pixels, pixmap, y, curLine);
+                encodeRow(curLine, prevLine, outLine, 0, lineLen);
+                output.write(outLine, 0, lineLen + 1);
+
+                byte[] swap = prevLine;
+                prevLine = curLine;
+                curLine = swap;
+            }
+        }
 
-            ByteBuffer pixels = pixmap.pixels;
-            int oldPosition = pixels.position();
-            for(int y = 0, h = pixmap.height; y < h; y++){
-                int py = flipY ? (h - y - 1) : y;
-                pixels.position(py * lineLen);
-                pixels.get(curLine, 1, lineLen);
+        /** Filters and compresses blocks of rows on the executor, then writes them as one zlib stream. */
+        private void writeBlocks(OutputStream output, Pixmap pixmap, int blockRows) throws IOException{
+            int height = pixmap.height, blocks = (height + blockRows - 1) / blockRows;
+            byte[][] filtered = new byte[blocks][], compressed = new byte[blocks][];
+            Seq<Future<?>> tasks = new Seq<>(blocks);
 
-                deflaterOutput.write(curLine, 0, lineLen + 1);
+            for(int i = 0; i < blocks; i++){
+                int block = i;
+                tasks.add(executor.submit(() -> filtered[block] = encodeRows(pixmap, block * blockRows, Math.min(height, (block + 1) * blockRows))));
             }
-            pixels.position(oldPosition);
-            deflaterOutput.finish();
-            buffer.endChunk(dataOutput);
+            Threads.awaitAll(tasks);
+            tasks.clear();
 
-            buffer.writeInt(IEND);
-            buffer.endChunk(dataOutput);
+            for(int i = 0; i < blocks; i++){
+                int block = i;
+                tasks.add(executor.submit(() -> compressed[block] = compress(filtered[block], block == 0 ? null : filtered[block - 1], block == blocks - 1)));
+            }
+            Threads.awaitAll(tasks);
+
+            //the zlib header for a 32K window without a preset dictionary, with the level as a hint
+            int flevel = level == Deflater.DEFAULT_COMPRESSION ? 2 : level < 2 ? 0 : level < 6 ? 1 : level == 6 ? 2 : 3;
+            int header = 0x7800 | flevel << 6;
+            header += (31 - header % 31) % 31;
+            output.write(header >>> 8);
+            output.write(header & 0xff);
+
+            Adler32 adler = new Adler32();
+            for(int i = 0; i < blocks; i++){
+                adler.update(filtered[i]);
+                output.write(compressed[i]);
+            }
+            int checksum = (int)adler.getValue();
+            output.write(checksum >>> 24);
+            output.write(checksum >>> 16);
+            output.write(checksum >>> 8);
+            output.write(checksum);
+        }
 
-            output.flush();
+        /** @return the encoded rows [from, to), each starting with its filter type. */
+        private byte[] encodeRows(Pixmap pixmap, int from, int to){
+            int lineLen = pixmap.width * 4;
+            byte[] result = new byte[(to - from) * (lineLen + 1)];
+            byte[] prevLine = new byte[lineLen + 1], curLine = new byte[lineLen + 1];
+
+            ByteBuffer pixels = pixmap.pixels.duplicate();
+            if(from > 0) readRow(pixels, pixmap, from - 1, prevLine);
+            for(int y = from; y < to; y++){
+                readRow(pixels, pixmap, y, curLine);
+                encodeRow(curLine, prevLine, result, (y - from) * (lineLen + 1), lineLen);
+
+                byte[] swap = prevLine;
+                prevLine = curLine;
+                curLine = swap;
+            }
+            return result;
+        }
+
+        /**
+         * Compresses a block as part of a larger raw deflate stream, using the end of the previous block as the dictionary.
+         * Blocks before the last end on a byte boundary, so the next one can follow them directly.
+         */
+        private byte[] compress(byte[] data, @Nullable byte[] previous, boolean last){
+            Deflater deflater = obtainDeflater();
+            try{
+                if(previous != null){
+                    int length = Math.min(previous.length, WINDOW_SIZE);
+                    deflater.setDictionary(previous, previous.length - length, length);
+                }
+                deflater.setInput(data);
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+                byte[] chunk = new byte[8192];
+                int count;
+                if(last){
+                    deflater.finish();
+                    while(!deflater.finished()){
+                        count = deflater.deflate(chunk);
+                        out.write(chunk, 0, count);
+                    }
+                }else{
+                    do{
+                        count = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+                        out.write(chunk, 0, count);
+                    }while(count == chunk.length);
+                }
+                return out.toByteArray();
+            }finally{
+                freeDeflater(deflater);
+            }
+        }
+
+        private Deflater obtainDeflater(){
+            synchronized(blockDeflaters){
+                if(blockDeflaters.any()){
+                    Deflater deflater = blockDeflaters.pop();
+                    deflater.reset();
+                    deflater.setLevel(level);
+                    return deflater;
+                }
+            }
+            return new Deflater(level, true);
+        }
+
+        private void freeDeflater(Deflater deflater){
+            synchronized(blockDeflaters){
+                blockDeflaters.add(deflater);
+            }
+        }
+
+        private void readRow(ByteBuffer pixels, Pixmap pixmap, int y, byte[] line){
+            int lineLen = pixmap.width * 4;
+            pixels.position((flipY ? pixmap.height - y - 1 : y) * lineLen);
+            pixels.get(line, 1, lineLen);
+        }
+
+        /**
+         * Writes a row, preceded by its filter type, to the output.
+         * @param line The row, starting at index 1.
+         * @param prev The previous row, starting at index 1, or all zeroes for the first row.
+         */
+        private void encodeRow(byte[] line, byte[] prev, byte[] out, int offset, int length){
+            if(!filter){
+                out[offset] = FILTER_NONE;
+                System.arraycopy(line, 1, out, offset + 1, length);
+                return;
+            }
+
+            //the sum of the absolute values of the filtered bytes for each filter; bytes of the first pixel have no left neighbors
+            int none = 0, sub = 0, up = 0, average = 0, paeth = 0;
+            int first = Math.min(length, 4);
+            for(int i = 1; i <= first; i++){
+                int x = line[i], b = prev[i] & 0xff;
+                none += Math.abs((byte)x);
+                sub += Math.abs((byte)x);
+                up += Math.abs((byte)(x - b));
+                average += Math.abs((byte)(x - (b >>> 1)));
+                paeth += Math.abs((byte)(x - b));
+            }
+            for(int i = 5; i <= length; i++){
+                int x = line[i], a = line[i - 4] & 0xff, b = prev[i] & 0xff, c = prev[i - 4] & 0xff;
+                none += Math.abs((byte)x);
+                sub += Math.abs((byte)(x - a));
+                up += Math.abs((byte)(x - b));
+                average += Math.abs((byte)(x - ((a + b) >>> 1)));
+                paeth += Math.abs((byte)(x - paeth(a, b, c)));
+            }
+
+            byte type = FILTER_NONE;
+            int min = none;
+            if(sub < min){
+                min = sub;
+                type = FILTER_SUB;
+            }
+            if(up < min){
+                min = up;
+                type = FILTER_UP;
+            }
+            if(average < min){
+                min = average;
+                type = FILTER_AVERAGE;
+            }
+            if(paeth < min){
+                type = FILTER_PAETH;
+            }
+
+            out[offset] = type;
+            switch(type){
+                case FILTER_NONE:
+                    System.arraycopy(line, 1, out, offset + 1, length);
+                    break;
+                case FILTER_SUB:
+                    System.arraycopy(line, 1, out, offset + 1, first);
+                    for(int i = 5; i <= length; i++){
+                        out[offset + i] = (byte)(line[i] - line[i - 4]);
+                    }
+                    break;
+                case FILTER_UP:
+                    for(int i = 1; i <= length; i++){
+                        out[offset + i] = (byte)(line[i] - prev[i]);
+                    }
+                    break;
+                case FILTER_AVERAGE:
+                    for(int i = 1; i <= first; i++){
+                        out[offset + i] = (byte)(line[i] - ((prev[i] & 0xff) >>> 1));
+                    }
+                    for(int i = 5; i <= length; i++){
+                        out[offset + i] = (byte)(line[i] - (((line[i - 4] & 0xff) + (prev[i] & 0xff)) >>> 1));
+                    }
+                    break;
+                default:
+                    for(int i = 1; i <= first; i++){
+                        out[offset + i] = (byte)(line[i] - prev[i]);
+                    }
+                    for(int i = 5; i <= length; i++){
+                        out[offset + i] = (byte)(line[i] - paeth(line[i - 4] & 0xff, prev[i] & 0xff, prev[i - 4] & 0xff));
+                    }
+            }
+        }
+
+        /** The Paeth predictor: whichever of the left, upper and upper left bytes is closest to left + upper - upper left. */
+        private static int paeth(int a, int b, int c){
+            int pa = Math.abs(b - c), pb = Math.abs(a - c), pc = Math.abs(a + b - 2 * c);
+            return pa <= pb && pa <= pc ? a : pb <= pc ? b : c;
         }
 
         @Override
         public void dispose(){
             deflater.end();
+            synchronized(blockDeflaters){
+                blockDeflaters.each(Deflater::end);
+                blockDeflaters.clear();
+            }
+        }
+
+        /** Writes everything it receives as IDAT chunks of at most {@link #IDAT_SIZE} bytes. */
+        private class IdatOutput extends OutputStream{
+            final DataOutputStream target;
+            boolean open;
+
+            IdatOutput(DataOutputStream target){
+                this.target = target;
+            }
+
+            @Override
+            public void write(int b) throws IOException{
+                write(new byte[]{(byte)b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException{
+                while(len > 0){
+                    if(!open){
+                        buffer.writeInt(IDAT);
+                        open = true;
+                    }
+                    //the buffer starts with the 4 bytes of the chunk type
+                    int count = Math.min(len, IDAT_SIZE - (buffer.buffer.size() - 4));
+                    buffer.write(b, off, count);
+                    off += count;
+                    len -= count;
+                    if(buffer.buffer.size() - 4 >= IDAT_SIZE){
+                        finish();
+                    }
+                }
+            }
+
+            void finish() throws IOException{
+                if(open){
+                    buffer.endChunk(target);
+                    open = false;
+                }
+            }
         }
 
         static class ChunkBuffer extends DataOutputStream{
@@ -373,4 +885,14 @@ public class PixmapIO{
             return (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
         }
     }
+
+    /** How the tiles of APIX files are compressed. */
+    public enum ApixCompression{
+        /** Deflate, the smallest. */
+        deflate,
+        /** LZ4, several times faster to decode but larger. */
+        fast,
+        /** LZ4 for each tile, unless deflate makes it at least a quarter smaller. */
+        auto
+    }
 }
@@ -0,0 +1,306 @@
+package arc.math.geom;
+
+import arc.func.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+
+import java.util.*;
+
+/**
+ * A flat, loose grid for many moving objects, as an alternative to {@link QuadTree}.
+ * <p>
+ * Each object is stored in the single cell that holds the center of its hitbox, no matter how large it is. Queries
+ * are widened by the largest half size of any object, so objects that straddle cell borders are still found, and none
+ * pile up at a root node. Objects and their hitboxes live in flat arrays and cells are intrusive linked lists, so
+ * inserting, moving and removing objects never allocates once the arrays have grown.
+ * <p>
+ * Hitboxes are read when an object is inserted or {@link #update(QuadTreeObject) updated}, and queries test against
+ * that stored copy. Call {@link #update(QuadTreeObject)} after an object moves, or {@link #updateAll()} once per tick.
+ * Objects outside the bounds are kept in the nearest edge cell.
+ * <p>
+ * The query margin only grows when single objects are inserted, updated or removed, as finding the next largest object
+ * would mean scanning all of them. {@link #updateAll()} scans them anyway, so it shrinks the margin back to the objects
+ * that are still in the grid; so do {@link #rebuild(Seq)} and {@link #clear()}.
+ *
+ * @param <T> The type of object this grid should contain.
+ */
+@SuppressWarnings("unchecked")
+public class LooseGrid<T extends QuadTreeObject>{
+    protected final Rect tmp = new Rect();
+    protected final Rect bounds;
+    protected final float cellSize;
+    protected final int width, height;
+
+    /** First slot of each cell, or -1. */
+    protected final int[] cells;
+    /** Per slot: the stored object, its hitbox as x, y, width, height and its cell with the links to its neighbors. */
+    protected Object[] objects = new Object[16];
+    protected float[] boxes = new float[16 * 4];
+    protected int[] cellOf = new int[16], next = new int[16], prev = new int[16];
+    /** Number of slots in use, including freed ones below it. */
+    protected int slots;
+    protected IntSeq free = new IntSeq();
+    protected ObjectIntMap<T> indices = new ObjectIntMap<>();
+    /**
+     * The largest half width and half height of any object since the last {@link #updateAll()}, {@link #clear()} or
+     * {@link #rebuild(Seq)}.
+     */
+    protected float maxHalfWidth, maxHalfHeight;
+
+    /**
+     * @param bounds The area covered by cells.
+     * @param cellSize The size of each cell. About the size of a typical object, or of a typical query, works well.
+     */
+    public LooseGrid(Rect bounds, float cellSize){
+        this.bounds = new Rect(bounds);
+        this.cellSize = cellSize;
+        this.width = Math.max(1, (int)Math.ceil(bounds.width / cellSize));
+        this.height = Math.max(1, (int)Math.ceil(bounds.height / cellSize));
+        this.cells = new int[width * height];
+        Arrays.fill(cells, -1);
+    }
+
+    /** @return the number of objects in this grid. */
+    public int size(){
+        return indices.size;
+    }
+
+    /** Inserts an object. Inserting an object that is already in the grid updates it instead. */
+    public void insert(T obj){
+        int index = indices.get(obj, -1);
+        if(index != -1){
+            update(index);
+            return;
+        }
+
+        index = free.isEmpty() ? slots++ : free.pop();
+        ensureCapacity(slots);
+        indices.put(obj, index);
+        objects[index] = obj;
+        store(index, obj);
+        link(index, cellAt(index));
+    }
+
+    /** Removes an object. */
+    public boolean remove(T obj){
+        int index = indices.remove(obj, -1);
+        if(index == -1) return false;
+
+        unlink(index);
+        objects[index] = null;
+        free.add(index);
+        return true;
+    }
+
+    /** Reads the hitbox of an object again, moving it to another cell if its center changed cells. */
+    public void update(T obj){
+        int index = indices.get(obj, -1);
+        if(index != -1) update(index);
+    }
+
+    /** Reads the hitboxes of all objects again, and fits the query margin to them. */
+    public void updateAll(){
+        maxHalfWidth = maxHalfHeight = 0f;
+        for(int i = 0; i < slots; i++){
+            if(objects[i] != null) update(i);
+        }
+    }
+
+    /**
+     * Replaces the contents of this grid with the given objects. Slots are assigned in cell order, so objects that are
+     * close to each other are also close in memory.
+     */
+    public void rebuild(Seq<T> all){
+        clear();
+        int size = all.size;
+        Object[] items = all.items;
+        ensureCapacity(size);
+
+        int[] order = new int[size], counts = new int[cells.length + 1];
+        for(int i = 0; i < size; i++){
+            store(i, (T)items[i]);
+            order[i] = cellAt(i);
+            counts[order[i] + 1]++;
+        }
+        for(int i = 1; i < counts.length; i++) counts[i] += counts[i - 1];
+
+        // Counting sort by cell, moving each stored hitbox to its sorted slot.
+        float[] sorted = new float[size * 4];
+        Object[] sortedObjects = new Object[size];
+        for(int i = 0; i < size; i++){
+            int slot = counts[order[i]]++;
+            System.arraycopy(boxes, i * 4, sorted, slot * 4, 4);
+            sortedObjects[slot] = items[i];
+        }
+        System.arraycopy(sorted, 0, boxes, 0, size * 4);
+
+        for(int i = 0; i < size; i++){
+            T obj = (T)sortedObjects[i];
+            if(indices.containsKey(obj)) continue;
+            objects[i] = obj;
+            indices.put(obj, i);
+            link(i, cellAt(i));
+        }
+        slots = size;
+        for(int i = size - 1; i >= 0; i--){
+            if(objects[i] == null) free.add(i);
+        }
+    }
+
+    /** Removes all objects. */
+    public void clear(){
+        Arrays.fill(cells, -1);
+        Arrays.fill(objects, 0, slots, null);
+        slots = 0;
+        free.clear();
+        indices.clear();
+        maxHalfWidth = maxHalfHeight = 0f;
+    }
+
+    /**
+     * Processes objects that intersect the given rectangle.
+     * <p>
+     * This will never result in false positives.
+     */
+    public void intersect(float x, float y, float width, float height, Cons<T> out){
+        int minX = cellX(x - maxHalfWidth), maxX = cellX(x + width + maxHalfWidth);
+        int minY = cellY(y - maxHalfHeight), maxY = cellY(y + height + maxHalfHeight);
+        float[] boxes = this.boxes;
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                for(int i = cells[cx + cy * this.width]; i != -1; i = next[i]){
+                    if(overlaps(boxes, i, x, y, width, height)) out.get((T)objects[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Processes objects that intersect the given rectangle.
+     * <p>
+     * This will never result in false positives.
+     */
+    public void intersect(Rect rect, Cons<T> out){
+        intersect(rect.x, rect.y, rect.width, rect.height, out);
+    }
+
+    /** Fills the out parameter with any objects that intersect the given rectangle. */
+    public void intersect(Rect toCheck, Seq<T> out){
+        intersect(toCheck.x, toCheck.y, toCheck.width, toCheck.height, out);
+    }
+
+    /** Fills the out parameter with any objects that intersect the given rectangle. */
+    public void intersect(float x, float y, float width, float height, Seq<T> out){
+        int minX = cellX(x - maxHalfWidth), maxX = cellX(x + width + maxHalfWidth);
+        int minY = cellY(y - maxHalfHeight), maxY = cellY(y + height + maxHalfHeight);
+        float[] boxes = this.boxes;
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                for(int i = cells[cx + cy * this.width]; i != -1; i = next[i]){
+                    if(overlaps(boxes, i, x, y, width, height)) out.add((T)objects[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return whether an object overlaps this rectangle.
+     * This will never result in false positives.
+     */
+    public boolean any(float x, float y, float width, float height){
+        int minX = cellX(x - maxHalfWidth), maxX = cellX(x + width + maxHalfWidth);
+        int minY = cellY(y - maxHalfHeight), maxY = cellY(y + height + maxHalfHeight);
+        float[] boxes = this.boxes;
+
+        for(int cy = minY; cy <= maxY; cy++){
+            for(int cx = minX; cx <= maxX; cx++){
+                for(int i = cells[cx + cy * this.width]; i != -1; i = next[i]){
+                    if(overlaps(boxes, i, x, y, width, height)) return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Adds all objects to the specified Seq. */
+    public void getObjects(Seq<T> out){
+        for(int i = 0; i < slots; i++){
+            if(objects[i] != null) out.add((T)objects[i]);
+        }
+    }
+
+    protected void update(int index){
+        int oldCell = cellOf[index];
+        store(index, (T)objects[index]);
+        int cell = cellAt(index);
+        if(cell != oldCell){
+            unlink(index);
+            link(index, cell);
+        }
+    }
+
+    /** Copies the hitbox of an object into its slot and widens the query margin if needed. */
+    protected void store(int index, T obj){
+        obj.hitbox(tmp);
+        float[] boxes = this.boxes;
+        int offset = index * 4;
+        boxes[offset] = tmp.x;
+        boxes[offset + 1] = tmp.y;
+        boxes[offset + 2] = tmp.width;
+        boxes[offset + 3] = tmp.height;
+        maxHalfWidth = Math.max(maxHalfWidth, tmp.width / 2f);
+        maxHalfHeight = Math.max(maxHalfHeight, tmp.height / 2f);
+    }
+
+    protected int cellAt(int index){
+        int offset = index * 4;
+        return cellX(boxes[offset] + boxes[offset + 2] / 2f) + cellY(boxes[offset + 1] + boxes[offset + 3] / 2f) * width;
+    }
+
+    protected int cellX(float x){
+        int cx = (int)Math.floor((x - bounds.x) / cellSize);
+        return cx < 0 ? 0 : cx >= width ? width - 1 : cx;
+    }
+
+    protected int cellY(float y){
+        int cy = (int)Math.floor((y - bounds.y) / cellSize);
+        return cy < 0 ? 0 : cy >= height ? height - 1 : cy;
+    }
+
+    protected void link(int index, int cell){
+        int head = cells[cell];
+        cellOf[index] = cell;
+        prev[index] = -1;
+        next[index] = head;
+        if(head != -1) prev[head] = index;
+        cells[cell] = index;
+    }
+
+    protected void unlink(int index){
+        int p = prev[index], n = next[index];
+        if(p != -1){
+            next[p] = n;
+        }else{
+            cells[cellOf[index]] = n;
+        }
+        if(n != -1) prev[n] = p;
+    }
+
+    protected void ensureCapacity(int size){
+        if(size <= objects.length) return;
+        int capacity = Math.max(size, objects.length * 2);
+        objects = Arrays.copyOf(objects, capacity);
+        boxes = Arrays.copyOf(boxes, capacity * 4);
+        cellOf = Arrays.copyOf(cellOf, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+
+    private static boolean overlaps(float[] boxes, int index, float x, float y, float width, float height){
+        int offset = index * 4;
+        float bx = boxes[offset], by = boxes[offset + 1];
+        return bx < x + width && bx + boxes[offset + 2] > x && by < y + height && by + boxes[offset + 3] > y;
+    }
+}
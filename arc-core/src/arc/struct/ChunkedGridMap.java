@@ -0,0 +1,465 @@
+package arc.struct;
+
+import arc.util.*;
+
+import java.util.*;
+
+/**
+ * A {@link GridMap} that stores objects in fixed-size square chunks instead of hashing every cell, so it can be used
+ * wherever a GridMap is. Its {@link #values()} and {@link #keys()} are {@link LongMap.Values} and {@link LongMap.Keys}.
+ * <p>
+ * A chunk is allocated the first time a cell inside it is set, and freed once it is empty again. Within a chunk, cells
+ * are a plain array indexed by coordinate, so a lookup hashes once per chunk rather than once per cell, and writes to
+ * neighbouring cells reuse the last chunk without hashing at all. Iteration is row-major: by y, then by x.
+ * <p>
+ * Null values are not stored, putting null removes the cell.
+ * <p>
+ * As with {@link GridMap}, reads don't modify the map, so several threads may read it at once while no thread writes
+ * to it. The iterators returned by {@link #values()} and {@link #keys()} are reused, as those of {@link LongMap} are.
+ */
+@SuppressWarnings("unchecked")
+public class ChunkedGridMap<T> extends GridMap<T> implements Iterable<T>{
+    /** Passed to the {@link LongMap} iterators that {@link Values} and {@link Keys} extend, which never read it. */
+    private static final LongMap<?> noMap = new LongMap<>(1);
+
+    protected final int shift, chunkSize, mask;
+    protected final LongMap<Chunk> chunks = new LongMap<>();
+    protected int size;
+
+    /** The chunk of the last write. Reads don't use it, so that they have no side effects. */
+    private @Nullable Chunk last;
+    /**
+     * Chunks sorted in row-major order, or null if a chunk was added or removed since it was built. Volatile, as
+     * concurrent readers may each build it.
+     */
+    private volatile @Nullable Chunk[] sorted;
+    private Values values1, values2;
+    private Keys keys1, keys2;
+
+    /** Creates a map with chunks of 32x32 cells. */
+    public ChunkedGridMap(){
+        this(5);
+    }
+
+    /** @param shift The log2 of the side length of a chunk, e.g. 5 for 32x32 chunks. */
+    public ChunkedGridMap(int shift){
+        if(shift < 1 || shift > 12) throw new IllegalArgumentException("shift must be between 1 and 12: " + shift);
+        this.shift = shift;
+        this.chunkSize = 1 << shift;
+        this.mask = chunkSize - 1;
+    }
+
+    private static long pack(int x, int y){
+        return (((long)x) << 32) | (y & 0xffffffffL);
+    }
+
+    @Override
+    public T get(int x, int y){
+        Chunk chunk = chunks.get(pack(x >> shift, y >> shift));
+        return chunk == null ? null : (T)chunk.items[(x & mask) | ((y & mask) << shift)];
+    }
+
+    @Override
+    public T get(int x, int y, T defaultValue){
+        T value = get(x, y);
+        return value == null ? defaultValue : value;
+    }
+
+    @Override
+    public boolean containsKey(int x, int y){
+        return get(x, y) != null;
+    }
+
+    @Override
+    public void put(int x, int y, T t){
+        if(t == null){
+            remove(x, y);
+            return;
+        }
+
+        int cx = x >> shift, cy = y >> shift;
+        Chunk chunk = chunk(cx, cy);
+        if(chunk == null){
+            chunk = new Chunk(cx, cy, chunkSize * chunkSize);
+            chunks.put(pack(cx, cy), chunk);
+            last = chunk;
+            sorted = null;
+        }
+
+        int index = (x & mask) | ((y & mask) << shift);
+        if(chunk.items[index] == null){
+            chunk.count++;
+            size++;
+        }
+        chunk.items[index] = t;
+    }
+
+    @Override
+    public void remove(int x, int y){
+        int cx = x >> shift, cy = y >> shift;
+        Chunk chunk = chunk(cx, cy);
+        if(chunk == null) return;
+
+        int index = (x & mask) | ((y & mask) << shift);
+        if(chunk.items[index] == null) return;
+        chunk.items[index] = null;
+        size--;
+
+        if(--chunk.count == 0){
+            chunks.remove(pack(cx, cy));
+            if(last == chunk) last = null;
+            sorted = null;
+        }
+    }
+
+    /** Calls the consumer for every cell in row-major order. The map must not be modified while iterating. */
+    public void each(CellCons<T> cons){
+        Chunk[] sorted = sorted();
+        for(int start = 0; start < sorted.length; ){
+            // All chunks in [start, end) are in the same row of chunks.
+            int end = start + 1;
+            while(end < sorted.length && sorted[end].cy == sorted[start].cy) end++;
+
+            int baseY = sorted[start].cy << shift;
+            for(int ly = 0; ly < chunkSize; ly++){
+                for(int i = start; i < end; i++){
+                    Chunk chunk = sorted[i];
+                    Object[] items = chunk.items;
+                    int baseX = chunk.cx << shift, offset = ly << shift;
+                    for(int lx = 0; lx < chunkSize; lx++){
+                        Object item = items[offset + lx];
+                        if(item != null) cons.get(baseX + lx, baseY + ly, (T)item);
+                    }
+                }
+            }
+            start = end;
+        }
+    }
+
+    /**
+     * Calls the consumer for every cell inside the given region, inclusive, in row-major order.
+     * The map must not be modified while iterating.
+     */
+    public void each(int minX, int minY, int maxX, int maxY, CellCons<T> cons){
+        if(maxX < minX || maxY < minY) return;
+        int minCx = minX >> shift, maxCx = maxX >> shift;
+        Chunk[] row = new Chunk[maxCx - minCx + 1];
+
+        for(int cy = minY >> shift, maxCy = maxY >> shift; cy <= maxCy; cy++){
+            boolean any = false;
+            for(int cx = minCx; cx <= maxCx; cx++){
+                any |= (row[cx - minCx] = chunks.get(pack(cx, cy))) != null;
+            }
+            if(!any) continue;
+
+            int baseY = cy << shift;
+            int fromY = Math.max(minY, baseY), toY = Math.min(maxY, baseY + mask);
+            for(int y = fromY; y <= toY; y++){
+                int offset = (y & mask) << shift;
+                for(int i = 0; i < row.length; i++){
+                    Chunk chunk = row[i];
+                    if(chunk == null) continue;
+                    int baseX = chunk.cx << shift;
+                    int fromX = Math.max(minX, baseX), toX = Math.min(maxX, baseX + mask);
+                    Object[] items = chunk.items;
+                    for(int x = fromX; x <= toX; x++){
+                        Object item = items[offset + (x & mask)];
+                        if(item != null) cons.get(x, y, (T)item);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator for the values in the map, in row-major order. Remove is supported. Note that the same
+     * iterator instance is returned each time this method is called.
+     */
+    @Override
+    public Values<T> values(){
+        if(values1 == null){
+            values1 = new Values<>(this);
+            values2 = new Values<>(this);
+        }
+        if(!values1.cursor.valid){
+            values1.reset();
+            values1.cursor.valid = true;
+            values2.cursor.valid = false;
+            return values1;
+        }
+        values2.reset();
+        values2.cursor.valid = true;
+        values1.cursor.valid = false;
+        return values2;
+    }
+
+    /**
+     * Returns an iterator for the keys in the map, packed as in {@link GridMap}: x in the high 32 bits and y in the low
+     * 32 bits. Keys are returned in row-major order. Note that the same iterator instance is returned each time this
+     * method is called.
+     */
+    @Override
+    public Keys keys(){
+        if(keys1 == null){
+            keys1 = new Keys(this);
+            keys2 = new Keys(this);
+        }
+        if(!keys1.cursor.valid){
+            keys1.reset();
+            keys1.cursor.valid = true;
+            keys2.cursor.valid = false;
+            return keys1;
+        }
+        keys2.reset();
+        keys2.cursor.valid = true;
+        keys1.cursor.valid = false;
+        return keys2;
+    }
+
+    @Override
+    public Iterator<T> iterator(){
+        return values();
+    }
+
+    @Override
+    public void clear(){
+        chunks.clear();
+        size = 0;
+        last = null;
+        sorted = null;
+    }
+
+    @Override
+    public int size(){
+        return size;
+    }
+
+    /** @return the side length of a chunk, in cells. */
+    public int chunkSize(){
+        return chunkSize;
+    }
+
+    /** @return the number of allocated chunks. */
+    public int chunkCount(){
+        return chunks.size;
+    }
+
+    /** @return the approximate heap size of one chunk in bytes, assuming compressed references. */
+    public long chunkBytes(){
+        //chunk object (header and 4 fields) + cell array (header and 4 bytes per reference)
+        return 32L + 16L + 4L * chunkSize * chunkSize;
+    }
+
+    /** @return the approximate heap size of all chunks in bytes, not counting the stored values themselves. */
+    public long memoryUsage(){
+        return chunkBytes() * chunks.size;
+    }
+
+    /** @return the fraction of cells in allocated chunks that hold a value. */
+    public float density(){
+        return chunks.size == 0 ? 0f : (float)size / ((long)chunks.size * chunkSize * chunkSize);
+    }
+
+    /** Looks up a chunk for a write, using and updating the cache. */
+    private @Nullable Chunk chunk(int cx, int cy){
+        Chunk last = this.last;
+        if(last != null && last.cx == cx && last.cy == cy) return last;
+        Chunk chunk = chunks.get(pack(cx, cy));
+        if(chunk != null) this.last = chunk;
+        return chunk;
+    }
+
+    private Chunk[] sorted(){
+        Chunk[] sorted = this.sorted;
+        if(sorted == null){
+            sorted = new Chunk[chunks.size];
+            //not chunks.values(), which reuses its iterators
+            LongMap.Values<Chunk> values = new LongMap.Values<>(chunks);
+            for(int i = 0; values.hasNext; i++) sorted[i] = values.next();
+            Arrays.sort(sorted, (a, b) -> a.cy != b.cy ? Integer.compare(a.cy, b.cy) : Integer.compare(a.cx, b.cx));
+            this.sorted = sorted;
+        }
+        return sorted;
+    }
+
+    /** Receives a cell's coordinates and its value. */
+    public interface CellCons<T>{
+        void get(int x, int y, T value);
+    }
+
+    protected static class Chunk{
+        final int cx, cy;
+        final Object[] items;
+        int count;
+
+        Chunk(int cx, int cy, int area){
+            this.cx = cx;
+            this.cy = cy;
+            this.items = new Object[area];
+        }
+    }
+
+    /** Walks the cells of a map in row-major order. */
+    private static class Cursor<T>{
+        final ChunkedGridMap<T> map;
+        boolean hasNext;
+        boolean valid = true;
+
+        Chunk[] chunks;
+        /** The row of chunks being walked is [start, end). */
+        int start, end;
+        /** The position of the next cell: a chunk in the row, and a cell inside it. */
+        int chunk, ly, lx;
+        /** The position of the cell returned last, for removal. */
+        int currentX, currentY;
+        boolean hasCurrent;
+
+        Cursor(ChunkedGridMap<T> map){
+            this.map = map;
+            reset();
+        }
+
+        void reset(){
+            chunks = map.sorted();
+            start = end = 0;
+            hasCurrent = false;
+            nextRow();
+            lx = -1;
+            findNext();
+        }
+
+        void nextRow(){
+            start = end;
+            while(end < chunks.length && chunks[end].cy == chunks[start].cy) end++;
+            chunk = start;
+            ly = 0;
+        }
+
+        void findNext(){
+            int size = map.chunkSize, shift = map.shift;
+            while(start < chunks.length){
+                Object[] items = chunks[chunk].items;
+                int offset = ly << shift;
+                while(++lx < size){
+                    if(items[offset + lx] != null){
+                        hasNext = true;
+                        return;
+                    }
+                }
+                lx = -1;
+                if(++chunk == end){
+                    chunk = start;
+                    if(++ly == size) nextRow();
+                }
+            }
+            hasNext = false;
+        }
+
+        void checkValid(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+        }
+
+        Object advance(){
+            if(!hasNext) throw new NoSuchElementException();
+            checkValid();
+            Chunk c = chunks[chunk];
+            currentX = (c.cx << map.shift) + lx;
+            currentY = (c.cy << map.shift) + ly;
+            hasCurrent = true;
+            Object value = c.items[(ly << map.shift) + lx];
+            findNext();
+            return value;
+        }
+
+        void remove(){
+            if(!hasCurrent) throw new IllegalStateException("next must be called before remove.");
+            hasCurrent = false;
+            //the walk keeps its own sorted array, so freeing a chunk doesn't disturb it
+            map.remove(currentX, currentY);
+        }
+    }
+
+    /** Iterates the values of a map in row-major order. Remove is supported. */
+    public static class Values<T> extends LongMap.Values<T>{
+        final Cursor<T> cursor;
+
+        public Values(ChunkedGridMap<T> map){
+            super((LongMap<T>)noMap);
+            cursor = new Cursor<>(map);
+            hasNext = cursor.hasNext;
+        }
+
+        @Override
+        public void reset(){
+            //also called by the superclass constructor, before there is a cursor
+            if(cursor == null) return;
+            cursor.reset();
+            hasNext = cursor.hasNext;
+        }
+
+        @Override
+        public boolean hasNext(){
+            cursor.checkValid();
+            return hasNext;
+        }
+
+        @Override
+        public T next(){
+            T value = (T)cursor.advance();
+            hasNext = cursor.hasNext;
+            return value;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        @Override
+        public Seq<T> toArray(){
+            Seq<T> array = new Seq<>(true, cursor.map.size);
+            while(hasNext) array.add(next());
+            return array;
+        }
+
+        @Override
+        public void remove(){
+            cursor.remove();
+        }
+    }
+
+    /** Iterates the keys of a map in row-major order, packed as in {@link GridMap}. Remove is supported. */
+    public static class Keys extends LongMap.Keys{
+        final Cursor<?> cursor;
+
+        public Keys(ChunkedGridMap<?> map){
+            super(noMap);
+            cursor = new Cursor<>(map);
+            hasNext = cursor.hasNext;
+        }
+
+        @Override
+        public void reset(){
+            //also called by the superclass constructor, before there is a cursor
+            if(cursor == null) return;
+            cursor.reset();
+            hasNext = cursor.hasNext;
+        }
+
+        @Override
+        public long next(){
+            cursor.advance();
+            hasNext = cursor.hasNext;
+            return pack(cursor.currentX, cursor.currentY);
+        }
+
+        /** Returns a new array containing the remaining keys. */
+        @Override
+        public LongSeq toArray(){
+            LongSeq array = new LongSeq(true, cursor.map.size);
+            while(hasNext) array.add(next());
+            return array;
+        }
+
+        @Override
+        public void remove(){
+            cursor.remove();
+        }
+    }
+}
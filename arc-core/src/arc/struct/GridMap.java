@@ -2,7 +2,10 @@ package arc.struct;
 
 import arc.struct.LongMap.Values;
 
-/** A 2-dimensional hashmap that stores objects using an x/y coordinate. */
+/**
+ * A 2-dimensional hashmap that stores objects using an x/y coordinate. For large, mostly-filled maps, use the
+ * {@link ChunkedGridMap} subclass instead.
+ */
 public class GridMap<T>{
     protected LongMap<T> map = new LongMap<>();
 
@@ -0,0 +1,670 @@
+package arc.struct;
+
+import arc.func.*;
+import arc.util.*;
+
+import java.util.*;
+
+/**
+ * An unordered map that uses int keys, with the same API as {@link IntMap}. This implementation uses open addressing with
+ * linear probing: a key is stored in the first free slot at or after its hashed position, and removing a key shifts the keys
+ * after it back instead of leaving a tombstone. Null values are allowed. No allocation is done except when growing the table
+ * size. <br>
+ * <br>
+ * Unlike {@link IntMap}, put never moves other keys around, and the table only grows when the size reaches the load factor.
+ * Lookups of keys that are in the map usually touch a single cache line, but lookups of missing keys and removal get slower as
+ * the load factor approaches 1. The default load factor is lower than the cuckoo maps', so tables can be twice as large.
+ */
+@SuppressWarnings("unchecked")
+public class ProbeIntMap<V> implements Iterable<ProbeIntMap.Entry<V>>{
+    private static final int EMPTY = 0;
+
+    public int size;
+
+    int[] keyTable;
+    V[] valueTable;
+    V zeroValue;
+    boolean hasZeroValue;
+
+    private float loadFactor;
+    private int threshold;
+    /** Used to take the top bits of hashes, which are spread best by {@link #place(int)}. */
+    private int shift;
+    int mask;
+
+    private Entries entries1, entries2;
+    private Values values1, values2;
+    private Keys keys1, keys2;
+
+    public static <V> ProbeIntMap<V> of(Object... values){
+        ProbeIntMap<V> map = new ProbeIntMap<>();
+
+        for(int i = 0; i < values.length / 2; i++){
+            Object key = values[i * 2];
+            int keyInt = (key instanceof Character ? ((Character) key).charValue() : (Integer)key);
+            map.put(keyInt, (V) values[i * 2 + 1]);
+        }
+
+        return map;
+    }
+
+    /** Creates a new map with an initial capacity of 51 and a load factor of 0.7. */
+    public ProbeIntMap(){
+        this(51, 0.7f);
+    }
+
+    /**
+     * Creates a new map with a load factor of 0.7.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     */
+    public ProbeIntMap(int initialCapacity){
+        this(initialCapacity, 0.7f);
+    }
+
+    /**
+     * Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+     * growing the backing table.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     * @param loadFactor Must be between 0 and 1, exclusive.
+     */
+    public ProbeIntMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if(loadFactor <= 0 || loadFactor >= 1) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+        this.loadFactor = loadFactor;
+
+        int tableSize = ProbeIntIntMap.tableSize(initialCapacity, loadFactor);
+        keyTable = new int[tableSize];
+        valueTable = (V[])new Object[tableSize];
+        setTableSize(tableSize);
+    }
+
+    /** Creates a new map identical to the specified map. */
+    public ProbeIntMap(ProbeIntMap<? extends V> map){
+        loadFactor = map.loadFactor;
+        keyTable = map.keyTable.clone();
+        valueTable = (V[])map.valueTable.clone();
+        setTableSize(keyTable.length);
+        size = map.size;
+        zeroValue = map.zeroValue;
+        hasZeroValue = map.hasZeroValue;
+    }
+
+    private void setTableSize(int tableSize){
+        //always less than the table size, so there is at least one empty slot to end every probe
+        threshold = (int)(tableSize * loadFactor);
+        mask = tableSize - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+    }
+
+    /** @return the slot where the search for a key starts. */
+    int place(int key){
+        return (int)(key * 0x9E3779B97F4A7C15L >>> shift);
+    }
+
+    /** @return the index of the key, or -(index + 1) for the empty slot where it would be inserted. */
+    private int locate(int key){
+        int[] keyTable = this.keyTable;
+        for(int i = place(key); ; i = i + 1 & mask){
+            int other = keyTable[i];
+            if(other == key) return i;
+            if(other == EMPTY) return -(i + 1);
+        }
+    }
+
+    public V put(int key, V value){
+        if(key == 0){
+            V oldValue = zeroValue;
+            zeroValue = value;
+            if(!hasZeroValue){
+                hasZeroValue = true;
+                size++;
+            }
+            return oldValue;
+        }
+
+        int index = locate(key);
+        if(index >= 0){
+            V oldValue = valueTable[index];
+            valueTable[index] = value;
+            return oldValue;
+        }
+
+        index = -(index + 1);
+        keyTable[index] = key;
+        valueTable[index] = value;
+        if(++size >= threshold) resize(keyTable.length << 1);
+        return null;
+    }
+
+    public void putAll(ProbeIntMap<? extends V> map){
+        ensureCapacity(map.size);
+        for(Entry<? extends V> entry : map.entries())
+            put(entry.key, entry.value);
+    }
+
+    /** Skips checks for existing keys. */
+    private void putResize(int key, V value){
+        int[] keyTable = this.keyTable;
+        for(int i = place(key); ; i = i + 1 & mask){
+            if(keyTable[i] == EMPTY){
+                keyTable[i] = key;
+                valueTable[i] = value;
+                return;
+            }
+        }
+    }
+
+    public V get(int key, Prov<V> defaultValue){
+        V out = get(key);
+        if(out == null){
+            out = defaultValue.get();
+            put(key, out);
+        }
+        return out;
+    }
+
+    public V get(int key){
+        return get(key, (V)null);
+    }
+
+    public V get(int key, V defaultValue){
+        if(key == 0){
+            if(!hasZeroValue) return defaultValue;
+            return zeroValue;
+        }
+        int index = locate(key);
+        return index < 0 ? defaultValue : valueTable[index];
+    }
+
+    public V remove(int key){
+        if(key == 0){
+            if(!hasZeroValue) return null;
+            V oldValue = zeroValue;
+            zeroValue = null;
+            hasZeroValue = false;
+            size--;
+            return oldValue;
+        }
+
+        int index = locate(key);
+        if(index < 0) return null;
+        V oldValue = valueTable[index];
+        removeIndex(index);
+        return oldValue;
+    }
+
+    /**
+     * Removes the key at an index. Keys after it that would no longer be found from their place are shifted back.
+     * @return the index that was left empty, which is not the removed index if a key was moved into it.
+     */
+    int removeIndex(int index){
+        int[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        int mask = this.mask;
+        for(int next = index + 1 & mask, key; (key = keyTable[next]) != EMPTY; next = next + 1 & mask){
+            int place = place(key);
+            if((next - place & mask) > (index - place & mask)){
+                keyTable[index] = key;
+                valueTable[index] = valueTable[next];
+                index = next;
+            }
+        }
+        keyTable[index] = EMPTY;
+        valueTable[index] = null;
+        size--;
+        return index;
+    }
+
+    /** @return the index of an empty slot, which always exists. */
+    int emptyIndex(){
+        int[] keyTable = this.keyTable;
+        int i = 0;
+        while(keyTable[i] != EMPTY) i++;
+        return i;
+    }
+
+    /** Returns true if the map is empty. */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Reduces the size of the backing arrays to be the specified capacity or less. If the capacity is already less, nothing is
+     * done. If the map contains more items than the specified capacity, the next highest power of two capacity is used instead.
+     */
+    public void shrink(int maximumCapacity){
+        if(maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+        if(size > maximumCapacity) maximumCapacity = size;
+        int tableSize = ProbeIntIntMap.tableSize(maximumCapacity, loadFactor);
+        if(keyTable.length > tableSize) resize(tableSize);
+    }
+
+    /** Clears the map and reduces the size of the backing arrays to be the specified capacity if they are larger. */
+    public void clear(int maximumCapacity){
+        int tableSize = ProbeIntIntMap.tableSize(maximumCapacity, loadFactor);
+        if(keyTable.length <= tableSize){
+            clear();
+            return;
+        }
+        zeroValue = null;
+        hasZeroValue = false;
+        size = 0;
+        keyTable = new int[tableSize];
+        valueTable = (V[])new Object[tableSize];
+        setTableSize(tableSize);
+    }
+
+    public void clear(){
+        if(size == 0) return;
+        Arrays.fill(keyTable, EMPTY);
+        Arrays.fill(valueTable, null);
+        size = 0;
+        zeroValue = null;
+        hasZeroValue = false;
+    }
+
+    /**
+     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
+     * be an expensive operation.
+     * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+     * {@link #equals(Object)}.
+     */
+    public boolean containsValue(Object value, boolean identity){
+        V[] valueTable = this.valueTable;
+        if(value == null){
+            if(hasZeroValue && zeroValue == null) return true;
+            int[] keyTable = this.keyTable;
+            for(int i = keyTable.length; i-- > 0; )
+                if(keyTable[i] != EMPTY && valueTable[i] == null) return true;
+        }else if(identity){
+            if(value == zeroValue) return true;
+            for(int i = valueTable.length; i-- > 0; )
+                if(valueTable[i] == value) return true;
+        }else{
+            if(hasZeroValue && value.equals(zeroValue)) return true;
+            for(int i = valueTable.length; i-- > 0; )
+                if(value.equals(valueTable[i])) return true;
+        }
+        return false;
+    }
+
+    public boolean containsKey(int key){
+        if(key == 0) return hasZeroValue;
+        return locate(key) >= 0;
+    }
+
+    /**
+     * Returns the key for the specified value, or <tt>notFound</tt> if it is not in the map. Note this traverses the entire map
+     * and compares every value, which may be an expensive operation.
+     * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+     * {@link #equals(Object)}.
+     */
+    public int findKey(Object value, boolean identity, int notFound){
+        V[] valueTable = this.valueTable;
+        if(value == null){
+            if(hasZeroValue && zeroValue == null) return 0;
+            int[] keyTable = this.keyTable;
+            for(int i = keyTable.length; i-- > 0; )
+                if(keyTable[i] != EMPTY && valueTable[i] == null) return keyTable[i];
+        }else if(identity){
+            if(value == zeroValue) return 0;
+            for(int i = valueTable.length; i-- > 0; )
+                if(valueTable[i] == value) return keyTable[i];
+        }else{
+            if(hasZeroValue && value.equals(zeroValue)) return 0;
+            for(int i = valueTable.length; i-- > 0; )
+                if(value.equals(valueTable[i])) return keyTable[i];
+        }
+        return notFound;
+    }
+
+    /**
+     * Increases the size of the backing array to accommodate the specified number of additional items. Useful before adding many
+     * items to avoid multiple backing array resizes.
+     */
+    public void ensureCapacity(int additionalCapacity){
+        if(additionalCapacity < 0)
+            throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
+        int sizeNeeded = size + additionalCapacity;
+        if(sizeNeeded >= threshold) resize(ProbeIntIntMap.tableSize(sizeNeeded, loadFactor));
+    }
+
+    private void resize(int newSize){
+        int[] oldKeyTable = keyTable;
+        V[] oldValueTable = valueTable;
+
+        keyTable = new int[newSize];
+        valueTable = (V[])new Object[newSize];
+        setTableSize(newSize);
+
+        if(size > (hasZeroValue ? 1 : 0)){
+            for(int i = 0; i < oldKeyTable.length; i++){
+                int key = oldKeyTable[i];
+                if(key != EMPTY) putResize(key, oldValueTable[i]);
+            }
+        }
+    }
+
+    public int hashCode(){
+        int h = 0;
+        if(hasZeroValue && zeroValue != null){
+            h += zeroValue.hashCode();
+        }
+        int[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        for(int i = 0, n = keyTable.length; i < n; i++){
+            int key = keyTable[i];
+            if(key != EMPTY){
+                h += key * 31;
+
+                V value = valueTable[i];
+                if(value != null){
+                    h += value.hashCode();
+                }
+            }
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj){
+        if(obj == this) return true;
+        if(!(obj instanceof ProbeIntMap)) return false;
+        ProbeIntMap<V> other = (ProbeIntMap)obj;
+        if(other.size != size) return false;
+        if(other.hasZeroValue != hasZeroValue) return false;
+        if(hasZeroValue){
+            if(other.zeroValue == null){
+                if(zeroValue != null) return false;
+            }else{
+                if(!other.zeroValue.equals(zeroValue)) return false;
+            }
+        }
+        int[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        for(int i = 0, n = keyTable.length; i < n; i++){
+            int key = keyTable[i];
+            if(key != EMPTY){
+                V value = valueTable[i];
+                if(value == null){
+                    if(!other.containsKey(key) || other.get(key) != null) return false;
+                }else{
+                    if(!value.equals(other.get(key))) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public String toString(){
+        if(size == 0) return "[]";
+        StringBuilder buffer = new StringBuilder(32);
+        buffer.append('[');
+        int[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        int i = keyTable.length;
+        if(hasZeroValue){
+            buffer.append("0=");
+            buffer.append(zeroValue);
+        }else{
+            while(i-- > 0){
+                int key = keyTable[i];
+                if(key == EMPTY) continue;
+                buffer.append(key);
+                buffer.append('=');
+                buffer.append(valueTable[i]);
+                break;
+            }
+        }
+        while(i-- > 0){
+            int key = keyTable[i];
+            if(key == EMPTY) continue;
+            buffer.append(", ");
+            buffer.append(key);
+            buffer.append('=');
+            buffer.append(valueTable[i]);
+        }
+        buffer.append(']');
+        return buffer.toString();
+    }
+
+    public Iterator<Entry<V>> iterator(){
+        return entries();
+    }
+
+    /**
+     * Returns an iterator for the entries in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Entries<V> entries(){
+        if(entries1 == null){
+            entries1 = new Entries(this);
+            entries2 = new Entries(this);
+        }
+        if(!entries1.valid){
+            entries1.reset();
+            entries1.valid = true;
+            entries2.valid = false;
+            return entries1;
+        }
+        entries2.reset();
+        entries2.valid = true;
+        entries1.valid = false;
+        return entries2;
+    }
+
+    /**
+     * Returns an iterator for the values in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Values} constructor for nested or multithreaded iteration.
+     */
+    public Values<V> values(){
+        if(values1 == null){
+            values1 = new Values(this);
+            values2 = new Values(this);
+        }
+        if(!values1.valid){
+            values1.reset();
+            values1.valid = true;
+            values2.valid = false;
+            return values1;
+        }
+        values2.reset();
+        values2.valid = true;
+        values1.valid = false;
+        return values2;
+    }
+
+    /**
+     * Returns an iterator for the keys in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Keys} constructor for nested or multithreaded iteration.
+     */
+    public Keys keys(){
+        if(keys1 == null){
+            keys1 = new Keys(this);
+            keys2 = new Keys(this);
+        }
+        if(!keys1.valid){
+            keys1.reset();
+            keys1.valid = true;
+            keys2.valid = false;
+            return keys1;
+        }
+        keys2.reset();
+        keys2.valid = true;
+        keys1.valid = false;
+        return keys2;
+    }
+
+    public static class Entry<V>{
+        public int key;
+        public V value;
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Visits slots in order, starting after an empty one. Runs of keys then never wrap around the end of the iteration, so
+     * removing a key only ever shifts keys that were not visited yet.
+     */
+    private static class MapIterator<V>{
+        static final int INDEX_ILLEGAL = -2;
+        static final int INDEX_ZERO = -1;
+
+        final ProbeIntMap<V> map;
+        public boolean hasNext;
+        /** Counted from {@link #start}. */
+        int nextIndex, currentIndex;
+        int start;
+        boolean valid = true;
+
+        public MapIterator(ProbeIntMap<V> map){
+            this.map = map;
+            reset();
+        }
+
+        public void reset(){
+            currentIndex = INDEX_ILLEGAL;
+            nextIndex = INDEX_ZERO;
+            start = map.emptyIndex();
+            if(map.hasZeroValue)
+                hasNext = true;
+            else
+                findNextIndex();
+        }
+
+        void findNextIndex(){
+            hasNext = false;
+            int[] keyTable = map.keyTable;
+            for(int n = keyTable.length, mask = n - 1; ++nextIndex < n; ){
+                if(keyTable[start + nextIndex & mask] != EMPTY){
+                    hasNext = true;
+                    break;
+                }
+            }
+        }
+
+        int slot(int index){
+            return start + index & map.mask;
+        }
+
+        public void remove(){
+            if(currentIndex == INDEX_ZERO && map.hasZeroValue){
+                map.zeroValue = null;
+                map.hasZeroValue = false;
+                map.size--;
+            }else if(currentIndex < 0){
+                throw new IllegalStateException("next must be called before remove.");
+            }else{
+                int slot = slot(currentIndex);
+                if(map.removeIndex(slot) != slot){
+                    //a key that was not visited yet was moved into this slot
+                    nextIndex = currentIndex - 1;
+                    findNextIndex();
+                }
+            }
+            currentIndex = INDEX_ILLEGAL;
+        }
+    }
+
+    public static class Entries<V> extends MapIterator<V> implements Iterable<Entry<V>>, Iterator<Entry<V>>{
+        private Entry<V> entry = new Entry();
+
+        public Entries(ProbeIntMap map){
+            super(map);
+        }
+
+        /** Note the same entry instance is returned each time this method is called. */
+        public Entry<V> next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            if(nextIndex == INDEX_ZERO){
+                entry.key = 0;
+                entry.value = map.zeroValue;
+            }else{
+                int slot = slot(nextIndex);
+                entry.key = map.keyTable[slot];
+                entry.value = map.valueTable[slot];
+            }
+            currentIndex = nextIndex;
+            findNextIndex();
+            return entry;
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public Iterator<Entry<V>> iterator(){
+            return this;
+        }
+
+        public void remove(){
+            super.remove();
+        }
+    }
+
+    public static class Values<V> extends MapIterator<V> implements Iterable<V>, Iterator<V>{
+        public Values(ProbeIntMap<V> map){
+            super(map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public V next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            V value;
+            if(nextIndex == INDEX_ZERO)
+                value = map.zeroValue;
+            else
+                value = map.valueTable[slot(nextIndex)];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return value;
+        }
+
+        public Iterator<V> iterator(){
+            return this;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        public Seq<V> toArray(){
+            Seq array = new Seq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+
+        public void remove(){
+            super.remove();
+        }
+    }
+
+    public static class Keys extends MapIterator{
+        public Keys(ProbeIntMap map){
+            super(map);
+        }
+
+        public int next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            int key = nextIndex == INDEX_ZERO ? 0 : map.keyTable[slot(nextIndex)];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return key;
+        }
+
+        /** Returns a new array containing the remaining keys. */
+        public IntSeq toArray(){
+            IntSeq array = new IntSeq(true, map.size);
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+    }
+}
@@ -0,0 +1,658 @@
+package arc.struct;
+
+import arc.func.Cons2;
+import arc.func.Prov;
+import arc.util.ArcRuntimeException;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unordered map, with the same API as {@link ObjectMap}. This implementation uses open addressing with linear probing: a key
+ * is stored in the first free slot at or after its hashed position, and removing a key shifts the keys after it back instead of
+ * leaving a tombstone. Null keys are not allowed. Null values are allowed. No allocation is done except when growing the table
+ * size. <br>
+ * <br>
+ * Unlike {@link ObjectMap}, put never moves other keys around, and the table only grows when the size reaches the load factor.
+ * Lookups of missing keys and removal get slower as the load factor approaches 1. Hash codes are mixed before use, but keys
+ * whose hash codes are equal always end up in the same run of slots, so lookups get slower for keys with many collisions.
+ */
+@SuppressWarnings("unchecked")
+public class ProbeObjectMap<K, V> implements Iterable<ProbeObjectMap.Entry<K, V>>{
+    public int size;
+
+    K[] keyTable;
+    V[] valueTable;
+
+    private float loadFactor;
+    private int threshold;
+    /** Used to take the top bits of hashes, which are spread best by {@link #place(Object)}. */
+    private int shift;
+    int mask;
+
+    Entries entries1, entries2;
+    Values values1, values2;
+    Keys keys1, keys2;
+
+    public static <K, V> ProbeObjectMap<K, V> of(Object... values){
+        ProbeObjectMap<K, V> map = new ProbeObjectMap<>();
+
+        for(int i = 0; i < values.length / 2; i++){
+            map.put((K)values[i * 2], (V)values[i * 2 + 1]);
+        }
+
+        return map;
+    }
+
+    /** Creates a new map with an initial capacity of 51 and a load factor of 0.7. */
+    public ProbeObjectMap(){
+        this(51, 0.7f);
+    }
+
+    /**
+     * Creates a new map with a load factor of 0.7.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     */
+    public ProbeObjectMap(int initialCapacity){
+        this(initialCapacity, 0.7f);
+    }
+
+    /**
+     * Creates a new map with the specified initial capacity and load factor. This map will hold initialCapacity items before
+     * growing the backing table.
+     * @param initialCapacity If not a power of two, it is increased to the next nearest power of two.
+     * @param loadFactor Must be between 0 and 1, exclusive.
+     */
+    public ProbeObjectMap(int initialCapacity, float loadFactor){
+        if(initialCapacity < 0) throw new IllegalArgumentException("initialCapacity must be >= 0: " + initialCapacity);
+        if(loadFactor <= 0 || loadFactor >= 1) throw new IllegalArgumentException("loadFactor must be > 0 and < 1: " + loadFactor);
+        this.loadFactor = loadFactor;
+
+        int tableSize = ProbeIntIntMap.tableSize(initialCapacity, loadFactor);
+        keyTable = (K[])new Object[tableSize];
+        valueTable = (V[])new Object[tableSize];
+        setTableSize(tableSize);
+    }
+
+    /** Creates a new map identical to the specified map. */
+    public ProbeObjectMap(ProbeObjectMap<? extends K, ? extends V> map){
+        loadFactor = map.loadFactor;
+        keyTable = (K[])map.keyTable.clone();
+        valueTable = (V[])map.valueTable.clone();
+        setTableSize(keyTable.length);
+        size = map.size;
+    }
+
+    /**Iterates through key/value pairs.*/
+    public void each(Cons2<K, V> cons){
+        for(Entry<K, V> entry : entries()){
+            cons.get(entry.key, entry.value);
+        }
+    }
+
+    public ProbeObjectMap<K, V> copy(){
+        return new ProbeObjectMap<>(this);
+    }
+
+    private void setTableSize(int tableSize){
+        //always less than the table size, so there is at least one empty slot to end every probe
+        threshold = (int)(tableSize * loadFactor);
+        mask = tableSize - 1;
+        shift = Long.numberOfLeadingZeros(mask);
+    }
+
+    /** @return the slot where the search for a key starts. */
+    int place(Object key){
+        return (int)(key.hashCode() * 0x9E3779B97F4A7C15L >>> shift);
+    }
+
+    /** @return the index of the key, or -(index + 1) for the empty slot where it would be inserted. */
+    private int locate(K key){
+        K[] keyTable = this.keyTable;
+        for(int i = place(key); ; i = i + 1 & mask){
+            K other = keyTable[i];
+            if(other == null) return -(i + 1);
+            if(key.equals(other)) return i;
+        }
+    }
+
+    /** Returns the old value associated with the specified key, or null. */
+    public V put(K key, V value){
+        if(key == null) throw new IllegalArgumentException("key cannot be null.");
+
+        int index = locate(key);
+        if(index >= 0){
+            V oldValue = valueTable[index];
+            valueTable[index] = value;
+            return oldValue;
+        }
+
+        index = -(index + 1);
+        keyTable[index] = key;
+        valueTable[index] = value;
+        if(++size >= threshold) resize(keyTable.length << 1);
+        return null;
+    }
+
+    public void putAll(ProbeObjectMap<? extends K, ? extends V> map){
+        ensureCapacity(map.size);
+        for(Entry<? extends K, ? extends V> entry : map.entries())
+            put(entry.key, entry.value);
+    }
+
+    public void putAll(Object... values){
+        for(int i = 0; i < values.length / 2; i++){
+            put((K)values[i * 2], (V)values[i * 2 + 1]);
+        }
+    }
+
+    /** Put all the keys of this other map into this map, and return this map for chaining. */
+    public ProbeObjectMap<K, V> merge(ProbeObjectMap<? extends K, ? extends V> map){
+        putAll(map);
+        return this;
+    }
+
+    /** Skips checks for existing keys. */
+    private void putResize(K key, V value){
+        K[] keyTable = this.keyTable;
+        for(int i = place(key); ; i = i + 1 & mask){
+            if(keyTable[i] == null){
+                keyTable[i] = key;
+                valueTable[i] = value;
+                return;
+            }
+        }
+    }
+
+    public V getThrow(K key, Prov<? extends RuntimeException> error){
+        int index = locate(key);
+        if(index < 0) throw error.get();
+        return valueTable[index];
+    }
+
+    /** Tries to get the value. If it does not exist, it creates a new instance using the supplier and places it, returning the value.*/
+    public V get(K key, Prov<V> supplier){
+        V val = get(key);
+        if(val == null){
+            put(key, val = supplier.get());
+        }
+        return val;
+    }
+
+    /** Get, with a nullable key.*/
+    public V getNull(K key){
+        return key == null ? null : get(key);
+    }
+
+    /** Returns the value for the specified key, or null if the key is not in the map. */
+    public V get(K key){
+        return get(key, (V)null);
+    }
+
+    /** Returns the value for the specified key, or the default value if the key is not in the map. */
+    public V get(K key, V defaultValue){
+        int index = locate(key);
+        return index < 0 ? defaultValue : valueTable[index];
+    }
+
+    /** Returns the value associated with the key, or null. */
+    public V remove(K key){
+        int index = locate(key);
+        if(index < 0) return null;
+        V oldValue = valueTable[index];
+        removeIndex(index);
+        return oldValue;
+    }
+
+    /**
+     * Removes the key at an index. Keys after it that would no longer be found from their place are shifted back.
+     * @return the index that was left empty, which is not the removed index if a key was moved into it.
+     */
+    int removeIndex(int index){
+        K[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        int mask = this.mask;
+        K key;
+        for(int next = index + 1 & mask; (key = keyTable[next]) != null; next = next + 1 & mask){
+            int place = place(key);
+            if((next - place & mask) > (index - place & mask)){
+                keyTable[index] = key;
+                valueTable[index] = valueTable[next];
+                index = next;
+            }
+        }
+        keyTable[index] = null;
+        valueTable[index] = null;
+        size--;
+        return index;
+    }
+
+    /** @return the index of an empty slot, which always exists. */
+    int emptyIndex(){
+        K[] keyTable = this.keyTable;
+        int i = 0;
+        while(keyTable[i] != null) i++;
+        return i;
+    }
+
+    /** Returns true if the map is empty. */
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Reduces the size of the backing arrays to be the specified capacity or less. If the capacity is already less, nothing is
+     * done. If the map contains more items than the specified capacity, the next highest power of two capacity is used instead.
+     */
+    public void shrink(int maximumCapacity){
+        if(maximumCapacity < 0) throw new IllegalArgumentException("maximumCapacity must be >= 0: " + maximumCapacity);
+        if(size > maximumCapacity) maximumCapacity = size;
+        int tableSize = ProbeIntIntMap.tableSize(maximumCapacity, loadFactor);
+        if(keyTable.length > tableSize) resize(tableSize);
+    }
+
+    /**
+     * Clears the map and reduces the size of the backing arrays to be the specified capacity, if they are larger. The reduction
+     * is done by allocating new arrays, though for large arrays this can be faster than clearing the existing array.
+     */
+    public void clear(int maximumCapacity){
+        int tableSize = ProbeIntIntMap.tableSize(maximumCapacity, loadFactor);
+        if(keyTable.length <= tableSize){
+            clear();
+            return;
+        }
+        size = 0;
+        keyTable = (K[])new Object[tableSize];
+        valueTable = (V[])new Object[tableSize];
+        setTableSize(tableSize);
+    }
+
+    /**
+     * Clears the map, leaving the backing arrays at the current capacity. When the capacity is high and the population is low,
+     * iteration can be unnecessarily slow. {@link #clear(int)} can be used to reduce the capacity.
+     */
+    public void clear(){
+        if(size == 0) return;
+        Arrays.fill(keyTable, null);
+        Arrays.fill(valueTable, null);
+        size = 0;
+    }
+
+    /**
+     * Returns true if the specified value is in the map. Note this traverses the entire map and compares every value, which may
+     * be an expensive operation.
+     * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+     * {@link #equals(Object)}.
+     */
+    public boolean containsValue(Object value, boolean identity){
+        V[] valueTable = this.valueTable;
+        if(value == null){
+            K[] keyTable = this.keyTable;
+            for(int i = keyTable.length; i-- > 0; )
+                if(keyTable[i] != null && valueTable[i] == null) return true;
+        }else if(identity){
+            for(int i = valueTable.length; i-- > 0; )
+                if(valueTable[i] == value) return true;
+        }else{
+            for(int i = valueTable.length; i-- > 0; )
+                if(value.equals(valueTable[i])) return true;
+        }
+        return false;
+    }
+
+    public boolean containsKey(K key){
+        return locate(key) >= 0;
+    }
+
+    /**
+     * Returns the key for the specified value, or null if it is not in the map. Note this traverses the entire map and compares
+     * every value, which may be an expensive operation.
+     * @param identity If true, uses == to compare the specified value with values in the map. If false, uses
+     * {@link #equals(Object)}.
+     */
+    public K findKey(Object value, boolean identity){
+        V[] valueTable = this.valueTable;
+        if(value == null){
+            K[] keyTable = this.keyTable;
+            for(int i = keyTable.length; i-- > 0; )
+                if(keyTable[i] != null && valueTable[i] == null) return keyTable[i];
+        }else if(identity){
+            for(int i = valueTable.length; i-- > 0; )
+                if(valueTable[i] == value) return keyTable[i];
+        }else{
+            for(int i = valueTable.length; i-- > 0; )
+                if(value.equals(valueTable[i])) return keyTable[i];
+        }
+        return null;
+    }
+
+    /**
+     * Increases the size of the backing array to accommodate the specified number of additional items. Useful before adding many
+     * items to avoid multiple backing array resizes.
+     */
+    public void ensureCapacity(int additionalCapacity){
+        if(additionalCapacity < 0)
+            throw new IllegalArgumentException("additionalCapacity must be >= 0: " + additionalCapacity);
+        int sizeNeeded = size + additionalCapacity;
+        if(sizeNeeded >= threshold) resize(ProbeIntIntMap.tableSize(sizeNeeded, loadFactor));
+    }
+
+    private void resize(int newSize){
+        K[] oldKeyTable = keyTable;
+        V[] oldValueTable = valueTable;
+
+        keyTable = (K[])new Object[newSize];
+        valueTable = (V[])new Object[newSize];
+        setTableSize(newSize);
+
+        if(size > 0){
+            for(int i = 0; i < oldKeyTable.length; i++){
+                K key = oldKeyTable[i];
+                if(key != null) putResize(key, oldValueTable[i]);
+            }
+        }
+    }
+
+    public int hashCode(){
+        int h = 0;
+        K[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        for(int i = 0, n = keyTable.length; i < n; i++){
+            K key = keyTable[i];
+            if(key != null){
+                h += key.hashCode() * 31;
+
+                V value = valueTable[i];
+                if(value != null){
+                    h += value.hashCode();
+                }
+            }
+        }
+        return h;
+    }
+
+    public boolean equals(Object obj){
+        if(obj == this) return true;
+        if(!(obj instanceof ProbeObjectMap)) return false;
+        ProbeObjectMap<K, V> other = (ProbeObjectMap)obj;
+        if(other.size != size) return false;
+        K[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        for(int i = 0, n = keyTable.length; i < n; i++){
+            K key = keyTable[i];
+            if(key != null){
+                V value = valueTable[i];
+                if(value == null){
+                    if(!other.containsKey(key) || other.get(key) != null) return false;
+                }else{
+                    if(!value.equals(other.get(key))) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    public String toString(String separator){
+        return toString(separator, false);
+    }
+
+    public String toString(){
+        return toString(", ", true);
+    }
+
+    public String toString(String separator, boolean braces){
+        if(size == 0) return braces ? "{}" : "";
+        StringBuilder buffer = new StringBuilder(32);
+        if(braces) buffer.append('{');
+        K[] keyTable = this.keyTable;
+        V[] valueTable = this.valueTable;
+        int i = keyTable.length;
+        while(i-- > 0){
+            K key = keyTable[i];
+            if(key == null) continue;
+            buffer.append(key);
+            buffer.append('=');
+            buffer.append(valueTable[i]);
+            break;
+        }
+        while(i-- > 0){
+            K key = keyTable[i];
+            if(key == null) continue;
+            buffer.append(separator);
+            buffer.append(key);
+            buffer.append('=');
+            buffer.append(valueTable[i]);
+        }
+        if(braces) buffer.append('}');
+        return buffer.toString();
+    }
+
+    public Entries<K, V> iterator(){
+        return entries();
+    }
+
+    /**
+     * Returns an iterator for the entries in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Entries} constructor for nested or multithreaded iteration.
+     */
+    public Entries<K, V> entries(){
+        if(entries1 == null){
+            entries1 = new Entries(this);
+            entries2 = new Entries(this);
+        }
+        if(!entries1.valid){
+            entries1.reset();
+            entries1.valid = true;
+            entries2.valid = false;
+            return entries1;
+        }
+        entries2.reset();
+        entries2.valid = true;
+        entries1.valid = false;
+        return entries2;
+    }
+
+    /**
+     * Returns an iterator for the values in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Values} constructor for nested or multithreaded iteration.
+     */
+    public Values<V> values(){
+        if(values1 == null){
+            values1 = new Values(this);
+            values2 = new Values(this);
+        }
+        if(!values1.valid){
+            values1.reset();
+            values1.valid = true;
+            values2.valid = false;
+            return values1;
+        }
+        values2.reset();
+        values2.valid = true;
+        values1.valid = false;
+        return values2;
+    }
+
+    /**
+     * Returns an iterator for the keys in the map. Remove is supported. Note that the same iterator instance is returned each
+     * time this method is called. Use the {@link Keys} constructor for nested or multithreaded iteration.
+     */
+    public Keys<K> keys(){
+        if(keys1 == null){
+            keys1 = new Keys(this);
+            keys2 = new Keys(this);
+        }
+        if(!keys1.valid){
+            keys1.reset();
+            keys1.valid = true;
+            keys2.valid = false;
+            return keys1;
+        }
+        keys2.reset();
+        keys2.valid = true;
+        keys1.valid = false;
+        return keys2;
+    }
+
+    public static class Entry<K, V>{
+        public K key;
+        public V value;
+
+        public String toString(){
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Visits slots in order, starting after an empty one. Runs of keys then never wrap around the end of the iteration, so
+     * removing a key only ever shifts keys that were not visited yet.
+     */
+    private static abstract class MapIterator<K, V, I> implements Iterable<I>, Iterator<I>{
+        final ProbeObjectMap<K, V> map;
+        public boolean hasNext;
+        /** Counted from {@link #start}. */
+        int nextIndex, currentIndex;
+        int start;
+        boolean valid = true;
+
+        public MapIterator(ProbeObjectMap<K, V> map){
+            this.map = map;
+            reset();
+        }
+
+        public void reset(){
+            currentIndex = -1;
+            nextIndex = -1;
+            start = map.emptyIndex();
+            findNextIndex();
+        }
+
+        void findNextIndex(){
+            hasNext = false;
+            K[] keyTable = map.keyTable;
+            for(int n = keyTable.length, mask = n - 1; ++nextIndex < n; ){
+                if(keyTable[start + nextIndex & mask] != null){
+                    hasNext = true;
+                    break;
+                }
+            }
+        }
+
+        int slot(int index){
+            return start + index & map.mask;
+        }
+
+        public void remove(){
+            if(currentIndex < 0) throw new IllegalStateException("next must be called before remove.");
+            int slot = slot(currentIndex);
+            if(map.removeIndex(slot) != slot){
+                //a key that was not visited yet was moved into this slot
+                nextIndex = currentIndex - 1;
+                findNextIndex();
+            }
+            currentIndex = -1;
+        }
+    }
+
+    public static class Entries<K, V> extends MapIterator<K, V, Entry<K, V>>{
+        Entry<K, V> entry = new Entry();
+
+        public Entries(ProbeObjectMap<K, V> map){
+            super(map);
+        }
+
+        /** Note the same entry instance is returned each time this method is called. */
+        public Entry<K, V> next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            int slot = slot(nextIndex);
+            entry.key = map.keyTable[slot];
+            entry.value = map.valueTable[slot];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return entry;
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public Entries<K, V> iterator(){
+            return this;
+        }
+    }
+
+    public static class Values<V> extends MapIterator<Object, V, V>{
+        public Values(ProbeObjectMap<?, V> map){
+            super((ProbeObjectMap<Object, V>)map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public V next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            V value = map.valueTable[slot(nextIndex)];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return value;
+        }
+
+        public Values<V> iterator(){
+            return this;
+        }
+
+        /** Returns a new array containing the remaining values. */
+        public Seq<V> toSeq(){
+            return toSeq(new Seq<>(true, map.size));
+        }
+
+        /** Adds the remaining values to the specified array. */
+        public Seq<V> toSeq(Seq<V> array){
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+    }
+
+    public static class Keys<K> extends MapIterator<K, Object, K>{
+        public Keys(ProbeObjectMap<K, ?> map){
+            super((ProbeObjectMap<K, Object>)map);
+        }
+
+        public boolean hasNext(){
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            return hasNext;
+        }
+
+        public K next(){
+            if(!hasNext) throw new NoSuchElementException();
+            if(!valid) throw new ArcRuntimeException("#iterator() cannot be used nested.");
+            K key = map.keyTable[slot(nextIndex)];
+            currentIndex = nextIndex;
+            findNextIndex();
+            return key;
+        }
+
+        public Keys<K> iterator(){
+            return this;
+        }
+
+        /** Returns a new array containing the remaining keys. */
+        public Seq<K> toSeq(){
+            return toSeq(new Seq<>(true, map.size));
+        }
+
+        /** Adds the remaining keys to the array. */
+        public Seq<K> toSeq(Seq<K> array){
+            while(hasNext)
+                array.add(next());
+            return array;
+        }
+    }
+}
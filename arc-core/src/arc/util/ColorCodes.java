@@ -2,6 +2,8 @@ package arc.util;
 
 import arc.struct.*;
 
+import java.util.*;
+
 /** Note that these color codes will only work on linux or mac terminals. */
 public class ColorCodes{
     public static String
@@ -34,6 +36,8 @@ public class ColorCodes{
     backBlue = "\u001B[44m";
 
     public static final String[] codes, values;
+    /** Index into {@link #codes} for each one- or two-letter code, see {@link #find(CharSequence, int)}. */
+    private static final byte[] lookup = new byte[26 * 27];
 
     static{
 
@@ -76,6 +80,30 @@ public class ColorCodes{
 
         codes = map.keys().toSeq().toArray(String.class);
         values = map.values().toSeq().toArray(String.class);
+
+        Arrays.fill(lookup, (byte)-1);
+        for(int i = 0; i < codes.length; i++){
+            String code = codes[i];
+            lookup[(code.charAt(0) - 'a') * 27 + (code.length() == 1 ? 0 : code.charAt(1) - 'a' + 1)] = (byte)i;
+        }
+    }
+
+    /**
+     * Finds the color code that starts at the specified index, which is the character after a '&'. Two-letter codes take
+     * precedence over one-letter codes, so "&lr" is light red and not an unknown code followed by "r".
+     * @return the index of the code in {@link #codes} and {@link #values}, or -1 if there is none.
+     */
+    public static int find(CharSequence text, int index){
+        if(index >= text.length()) return -1;
+        int first = text.charAt(index) - 'a';
+        if(first < 0 || first >= 26) return -1;
+        if(index + 1 < text.length()){
+            int second = text.charAt(index + 1) - 'a';
+            if(second >= 0 && second < 26 && lookup[first * 27 + second + 1] != -1){
+                return lookup[first * 27 + second + 1];
+            }
+        }
+        return lookup[first * 27];
     }
     
 }
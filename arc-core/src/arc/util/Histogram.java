@@ -0,0 +1,59 @@
+package arc.util;
+
+/**
+ * Records non-negative long values, such as durations in nanoseconds, in power of two buckets. Percentiles are
+ * therefore only accurate to within a factor of two, which is enough to tell a slow operation from a fast one at a
+ * fixed, small memory cost. This class is thread safe.
+ */
+public class Histogram{
+    private final long[] buckets = new long[64];
+    private long count, total, max;
+
+    public synchronized void record(long value){
+        if(value < 0) value = 0;
+        buckets[63 - Long.numberOfLeadingZeros(value | 1)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    public synchronized long count(){
+        return count;
+    }
+
+    public synchronized long total(){
+        return total;
+    }
+
+    public synchronized long max(){
+        return max;
+    }
+
+    public synchronized long mean(){
+        return count == 0 ? 0 : total / count;
+    }
+
+    /**
+     * @param fraction The fraction of values that are at most the result, from 0 to 1.
+     * @return The upper bound of the bucket holding the percentile, or 0 if nothing has been recorded.
+     */
+    public synchronized long percentile(float fraction){
+        if(count == 0) return 0;
+        long target = Math.max(1, (long)Math.ceil(count * (double)fraction)), seen = 0;
+        for(int i = 0; i < buckets.length; i++){
+            seen += buckets[i];
+            if(seen >= target) return Math.min(max, i == 63 ? Long.MAX_VALUE : (2L << i) - 1);
+        }
+        return max;
+    }
+
+    public synchronized void clear(){
+        for(int i = 0; i < buckets.length; i++) buckets[i] = 0;
+        count = total = max = 0;
+    }
+
+    @Override
+    public synchronized String toString(){
+        return "count=" + count + " mean=" + mean() + " p50=" + percentile(0.5f) + " p99=" + percentile(0.99f) + " max=" + max;
+    }
+}
@@ -1,5 +1,6 @@
 package arc.util;
 
+import arc.files.*;
 import arc.func.*;
 import arc.struct.*;
 import arc.util.io.*;
@@ -13,6 +14,12 @@ import java.util.concurrent.*;
 public class Http{
     protected static ExecutorService exec = Threads.unboundedExecutor("HTTP", 1);
 
+    /**
+     * Sends every request. Defaults to a {@link HttpURLConnection} per request. On Java 11+, the JavaHttpBackend of the
+     * httpclient extension reuses connections and uses HTTP/2.
+     */
+    public static HttpBackend backend = new UrlConnectionBackend();
+
     /** @return a new HttpRequest that must be configured & submitted. */
     public static HttpRequest request(HttpMethod method, String url){
         if(url == null) throw new NullPointerException("url cannot be null.");
@@ -51,13 +58,87 @@ public class Http{
         return new HttpRequest(HttpMethod.POST).url(url).content(content);
     }
 
+    /** Sends HTTP requests for {@link HttpRequest#block(ConsT)}. Implementations must be thread safe. */
+    public interface HttpBackend{
+        /**
+         * Sends a request and blocks until the status and headers of the response are received. The body is read
+         * from the response afterwards, and the response is {@link HttpResponse#close() closed} once the request callbacks finish.
+         */
+        HttpResponse send(HttpRequest request) throws Exception;
+    }
+
+    /** Opens a {@link HttpURLConnection} for each request. Available on every platform. */
+    public static class UrlConnectionBackend implements HttpBackend{
+        @Override
+        public HttpResponse send(HttpRequest request) throws Exception{
+            URL url;
+
+            if(request.method == HttpMethod.GET){
+                String queryString = "";
+                String value = request.content;
+                if(value != null && !"".equals(value)) queryString = "?" + value;
+                url = new URL(request.url + queryString);
+            }else{
+                url = new URL(request.url);
+            }
+
+            HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+            //should be enabled to upload data.
+            boolean doingOutPut = request.method == HttpMethod.POST || request.method == HttpMethod.PUT;
+            connection.setDoOutput(doingOutPut);
+            connection.setDoInput(true);
+            connection.setRequestMethod(request.method.toString());
+            connection.setInstanceFollowRedirects(request.followRedirects);
+
+            //set headers
+            request.headers.each(connection::addRequestProperty);
+
+            //timeouts
+            connection.setConnectTimeout(request.timeout);
+            connection.setReadTimeout(request.timeout);
+
+            try{
+                // Set the content for POST and PUT (GET has the information embedded in the URL)
+                if(doingOutPut){
+                    // we probably need to use the content as stream here instead of using it as a string.
+                    if(request.content != null){
+                        try(OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream(), Strings.utf8)){
+                            writer.write(request.content);
+                        }
+                    }else{
+                        if(request.contentStream != null){
+                            try(OutputStream os = connection.getOutputStream()){
+                                Streams.copy(request.contentStream, os);
+                            }
+                        }
+                    }
+                }
+
+                connection.connect();
+                return new HttpResponse(connection);
+            }catch(Throwable e){
+                connection.disconnect();
+                throw e;
+            }
+        }
+    }
+
     public static class HttpResponse{
         private final HttpURLConnection connection;
+        private final int code;
         private HttpStatus status;
 
         protected HttpResponse(HttpURLConnection connection) throws IOException{
             this.connection = connection;
-            this.status = HttpStatus.byCode(connection.getResponseCode());
+            this.code = connection.getResponseCode();
+            this.status = HttpStatus.byCode(code);
+        }
+
+        /** For responses that do not come from a {@link HttpURLConnection}; all methods that use it must be overridden. */
+        protected HttpResponse(int code){
+            this.connection = null;
+            this.code = code;
+            this.status = HttpStatus.byCode(code);
         }
 
         /** @return the length of received content in bytes as a long. May throw an exception (?) */
@@ -82,7 +163,7 @@ public class Http{
             }
 
             try{
-                return Streams.copyBytes(input, connection.getContentLength());
+                return Streams.copyBytes(input, (int)Math.max(getContentLength(), 0));
             }catch(IOException e){
                 return Streams.emptyBytes;
             }finally{
@@ -107,7 +188,7 @@ public class Http{
             }
 
             try{
-                return Streams.copyString(input, connection.getContentLength());
+                return Streams.copyString(input, (int)Math.max(getContentLength(), 0));
             }catch(IOException e){
                 return "";
             }finally{
@@ -115,6 +196,21 @@ public class Http{
             }
         }
 
+        /**
+         * Streams the data of the HTTP response into a file, without holding the whole body in memory.
+         * <p>
+         * <b>Note</b>: This method may only be called once per response.
+         * </p>
+         */
+        public void writeTo(Fi file) throws IOException{
+            InputStream input = getResultAsStream();
+            try(OutputStream output = file.write(false, 8192)){
+                if(input != null) Streams.copy(input, output);
+            }finally{
+                Streams.close(input);
+            }
+        }
+
         /**
          * Returns the data of the HTTP response as an {@link InputStream}. <b><br>
          * Warning:</b> Do not store a reference to this InputStream. The underlying HTTP connection will be closed after that
@@ -129,6 +225,11 @@ public class Http{
             }
         }
 
+        /** @return the status code of the HTTP response, including codes that have no {@link HttpStatus}. */
+        public int getStatusCode(){
+            return code;
+        }
+
         /** @return the {@link HttpStatus} containing the statusCode of the HTTP response. */
         public HttpStatus getStatus(){
             return status;
@@ -155,6 +256,10 @@ public class Http{
             return out;
         }
 
+        /** Releases the connection of this response. Called after the request callbacks finish. */
+        public void close(){
+            connection.disconnect();
+        }
     }
 
     public static class HttpRequest{
@@ -251,69 +356,19 @@ public class Http{
             }
 
             try{
-                URL url;
-
-                if(method == HttpMethod.GET){
-                    String queryString = "";
-                    String value = content;
-                    if(value != null && !"".equals(value)) queryString = "?" + value;
-                    url = new URL(this.url + queryString);
-                }else{
-                    url = new URL(this.url);
-                }
-
-                HttpURLConnection connection = (HttpURLConnection)url.openConnection();
-                //should be enabled to upload data.
-                boolean doingOutPut = method == HttpMethod.POST || method == HttpMethod.PUT;
-                connection.setDoOutput(doingOutPut);
-                connection.setDoInput(true);
-                connection.setRequestMethod(method.toString());
-                HttpURLConnection.setFollowRedirects(followRedirects);
-
-                //set headers
-                headers.each(connection::addRequestProperty);
-
-                //timeouts
-                connection.setConnectTimeout(timeout);
-                connection.setReadTimeout(timeout);
+                HttpResponse res = backend.send(this);
 
                 try{
-                    // Set the content for POST and PUT (GET has the information embedded in the URL)
-                    if(doingOutPut){
-                        // we probably need to use the content as stream here instead of using it as a string.
-                        if(content != null){
-                            try(OutputStreamWriter writer = new OutputStreamWriter(connection.getOutputStream(), Strings.utf8)){
-                                writer.write(content);
-                            }
-                        }else{
-                            if(contentStream != null){
-                                try(OutputStream os = connection.getOutputStream()){
-                                    Streams.copy(contentStream, os);
-                                }
-                            }
-                        }
-                    }
-
-                    connection.connect();
-
-                    try{
-                        int code = connection.getResponseCode();
+                    int code = res.getStatusCode();
 
-                        //4xx or 5xx error
-                        if(code >= 400){
-                            HttpResponse res = new HttpResponse(connection);
-                            errorHandler.get(new HttpStatusException("HTTP request failed with error: " + code + " (" + res.getStatus() + ", URL = " + url + ")", res.getStatus(), res));
-                        }else{
-                            success.get(new HttpResponse(connection));
-                        }
-
-                    }finally{
-                        connection.disconnect();
+                    //4xx or 5xx error
+                    if(code >= 400){
+                        errorHandler.get(new HttpStatusException("HTTP request failed with error: " + code + " (" + res.getStatus() + ", URL = " + url + ")", res.getStatus(), res));
+                    }else{
+                        success.get(res);
                     }
-
-                }catch(Throwable e){
-                    connection.disconnect();
-                    errorHandler.get(e);
+                }finally{
+                    res.close();
                 }
             }catch(Throwable e){
                 errorHandler.get(e);
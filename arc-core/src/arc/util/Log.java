@@ -1,5 +1,7 @@
 package arc.util;
 
+import arc.math.*;
+
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
@@ -81,17 +83,57 @@ public class Log{
     }
 
     public static String removeColors(String text){
-        for(String color : ColorCodes.codes){
-            text = text.replace("&" + color, "");
-        }
-        return text;
+        if(text.indexOf('&') == -1) return text;
+        return formatTo(new StringBuilder(text.length()), text, false, empty).toString();
     }
 
     public static String addColors(String text){
-        for(int i = 0; i < ColorCodes.codes.length; i++){
-            text = text.replace("&" + ColorCodes.codes[i], ColorCodes.values[i]);
+        if(text.indexOf('&') == -1) return text;
+        return formatTo(new StringBuilder(text.length()), text, true, empty).toString();
+    }
+
+    /**
+     * Appends the text to the builder in a single pass, replacing each '@' with the next argument and translating color
+     * codes as {@link #addColors(String)} or {@link #removeColors(String)} would. Color codes in the arguments are translated as well.
+     */
+    public static StringBuilder formatTo(StringBuilder out, String text, boolean useColors, Object... args){
+        int argi = 0;
+        for(int i = 0, n = text.length(); i < n; i++){
+            char c = text.charAt(i);
+            if(c == '@' && argi < args.length){
+                appendColors(out, String.valueOf(args[argi++]), useColors);
+            }else if(c == '&'){
+                i = appendCode(out, text, i, useColors);
+            }else{
+                out.append(c);
+            }
+        }
+        return out;
+    }
+
+    private static void appendColors(StringBuilder out, String text, boolean useColors){
+        for(int i = 0, n = text.length(); i < n; i++){
+            char c = text.charAt(i);
+            if(c == '&'){
+                i = appendCode(out, text, i, useColors);
+            }else{
+                out.append(c);
+            }
         }
-        return text;
+    }
+
+    /**
+     * Appends the color code that follows the '&' at the specified index, or the '&' itself if no code follows it.
+     * @return the index of the last character that was consumed.
+     */
+    private static int appendCode(StringBuilder out, String text, int index, boolean useColors){
+        int code = ColorCodes.find(text, index + 1);
+        if(code == -1){
+            out.append('&');
+            return index;
+        }
+        if(useColors) out.append(ColorCodes.values[code]);
+        return index + ColorCodes.codes[code].length();
     }
 
     public enum LogLevel{
@@ -106,11 +148,25 @@ public class Log{
         String format(String text, boolean useColors, Object... args);
     }
 
+    /** Formats with {@link #formatTo(StringBuilder, String, boolean, Object...)} into a builder that is reused by each thread. */
     public static class DefaultLogFormatter implements LogFormatter{
+        /** Builders that grew past this many characters, e.g. for a long stack trace, are not kept. */
+        private static final int maxRetained = 8192;
+
+        private final ThreadLocal<StringBuilder> builders = Threads.local(() -> new StringBuilder(256));
+
         @Override
         public String format(String text, boolean useColors, Object... args){
-            text = Strings.format(text, args);
-            return useColors ? addColors(text) : removeColors(text);
+            if(args.length == 0 && text.indexOf('&') == -1) return text;
+
+            StringBuilder out = builders.get();
+            String result = formatTo(out, text, useColors, args).toString();
+            if(out.capacity() > maxRetained){
+                builders.remove();
+            }else{
+                out.setLength(0);
+            }
+            return result;
         }
     }
 
@@ -134,4 +190,194 @@ public class Log{
         @Override public void log(LogLevel level, String text){}
     }
 
+    /**
+     * Passes log lines to another handler on a background thread, so that logging does not wait for console output.
+     * Lines are queued in a ring buffer of fixed size; the {@link OverflowPolicy} decides what happens when it is full.
+     * Lines still queued when the JVM exits are written by a shutdown hook.
+     */
+    public static class AsyncLogHandler implements LogHandler, Disposable{
+        public final LogHandler handler;
+        public final OverflowPolicy policy;
+
+        private final LogLevel[] levels;
+        private final String[] texts;
+        private final int mask;
+        private final Thread thread, hook;
+        /** Sequence numbers of the next line to write, the next line to queue, and the line after the last one written. */
+        private long head, tail, written;
+        private long dropped;
+        private boolean waiting, disposed;
+
+        /** Writes to a {@link DefaultLogHandler}, queueing up to 1024 lines and blocking when full. */
+        public AsyncLogHandler(){
+            this(new DefaultLogHandler(), 1024, OverflowPolicy.block);
+        }
+
+        /** @param capacity The number of lines that can be queued, rounded up to a power of two. */
+        public AsyncLogHandler(LogHandler handler, int capacity, OverflowPolicy policy){
+            if(capacity < 1) throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+            capacity = Mathf.nextPowerOfTwo(capacity);
+
+            this.handler = handler;
+            this.policy = policy;
+            this.levels = new LogLevel[capacity];
+            this.texts = new String[capacity];
+            this.mask = capacity - 1;
+            this.thread = Threads.daemon("Log", this::run);
+            this.hook = new Thread(this::flush, "Log-Shutdown");
+            Runtime.getRuntime().addShutdownHook(hook);
+        }
+
+        @Override
+        public void log(LogLevel level, String text){
+            //lines logged by the handler itself can't wait for the queue to drain
+            if(Thread.currentThread() == thread){
+                handler.log(level, text);
+                return;
+            }
+
+            synchronized(this){
+                if(!disposed && tail - head > mask){
+                    switch(policy){
+                        case dropNewest:
+                            dropped++;
+                            return;
+                        case dropOldest:
+                            texts[(int)head & mask] = null;
+                            head++;
+                            dropped++;
+                            break;
+                        default:
+                            while(!disposed && tail - head > mask){
+                                try{
+                                    wait();
+                                }catch(InterruptedException e){
+                                    Thread.currentThread().interrupt();
+                                    dropped++;
+                                    return;
+                                }
+                            }
+                    }
+                }
+
+                if(!disposed){
+                    int index = (int)tail & mask;
+                    levels[index] = level;
+                    texts[index] = text;
+                    tail++;
+                    if(waiting) notifyAll();
+                    return;
+                }
+            }
+
+            handler.log(level, text);
+        }
+
+        /** Blocks until every line queued before this call has been written or dropped. */
+        public void flush(){
+            if(Thread.currentThread() == thread) return;
+
+            synchronized(this){
+                long target = tail;
+                while(written < target && thread.isAlive()){
+                    try{
+                        wait(100);
+                    }catch(InterruptedException e){
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        /** @return the number of lines that were dropped because the queue was full. */
+        public synchronized long getDropped(){
+            return dropped;
+        }
+
+        /** Writes the remaining lines and stops the background thread. Lines logged afterwards are written on the calling thread. */
+        @Override
+        public void dispose(){
+            synchronized(this){
+                if(disposed) return;
+                disposed = true;
+                notifyAll();
+            }
+
+            try{
+                Runtime.getRuntime().removeShutdownHook(hook);
+            }catch(IllegalStateException ignored){
+                //already shutting down
+            }
+
+            if(Thread.currentThread() != thread){
+                try{
+                    thread.join();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public synchronized boolean isDisposed(){
+            return disposed;
+        }
+
+        private void run(){
+            LogLevel[] batchLevels = new LogLevel[levels.length];
+            String[] batchTexts = new String[texts.length];
+
+            while(true){
+                int count;
+                long end;
+                synchronized(this){
+                    while(head == tail && !disposed){
+                        waiting = true;
+                        try{
+                            wait();
+                        }catch(InterruptedException ignored){
+                        }
+                    }
+                    waiting = false;
+                    if(head == tail) return;
+
+                    count = (int)(tail - head);
+                    for(int i = 0; i < count; i++){
+                        int index = (int)(head + i) & mask;
+                        batchLevels[i] = levels[index];
+                        batchTexts[i] = texts[index];
+                        texts[index] = null;
+                    }
+                    head = end = tail;
+                    //wakes up callers blocked on a full queue
+                    notifyAll();
+                }
+
+                for(int i = 0; i < count; i++){
+                    try{
+                        handler.log(batchLevels[i], batchTexts[i]);
+                    }catch(Throwable t){
+                        t.printStackTrace();
+                    }
+                    batchTexts[i] = null;
+                }
+
+                synchronized(this){
+                    written = end;
+                    notifyAll();
+                }
+            }
+        }
+
+        public enum OverflowPolicy{
+            /** The caller waits until there is room in the queue. */
+            block,
+            /** The line being logged is discarded. */
+            dropNewest,
+            /** The oldest queued line is discarded to make room. */
+            dropOldest
+        }
+    }
+
 }
@@ -1,36 +1,96 @@
 package arc.util;
 
-import arc.struct.*;
+import java.util.concurrent.atomic.*;
 
+/**
+ * A queue of tasks that any number of threads can {@link #post(Runnable)} to, and one thread {@link #run()}s.
+ * <p>
+ * Posting never locks: tasks are linked onto the tail of a list with a single atomic swap, and the running thread
+ * unlinks them from the head as it goes, without copying. {@link #run(long)} can stop after a time budget, leaving the
+ * remaining tasks for the next call. How long tasks wait between being posted and run is recorded in {@link #getLatency()}.
+ */
 public class TaskQueue{
-    private final Seq<Runnable> runnables = new Seq<>();
-    private final Seq<Runnable> executedRunnables = new Seq<>();
+    private final AtomicReference<Node> tail;
+    private final AtomicInteger size = new AtomicInteger();
+    private final Histogram latency = new Histogram();
+    /** The last task that was run, or a placeholder. Only touched by the running thread. */
+    private Node head;
 
+    public TaskQueue(){
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /** Runs every task that was posted before this call. Tasks posted while running wait for the next call. */
     public void run(){
-        synchronized(runnables){
-            executedRunnables.clear();
-            executedRunnables.addAll(runnables);
-            runnables.clear();
-        }
+        run(0);
+    }
+
+    /**
+     * Runs tasks that were posted before this call, in order, until the budget is used up. Tasks that are left over stay
+     * at the front of the queue for the next call. At least one task is run, if there are any.
+     * @param budget The time to spend running tasks in nanoseconds, or 0 for no limit.
+     */
+    public void run(long budget){
+        Node last = tail.get(), head = this.head;
+        if(head == last) return;
+
+        long start = Time.nanos();
+        while(head != last){
+            Node next = head.next;
+            //posted, but not linked yet; leave it for the next call
+            if(next == null) break;
+
+            Runnable task = next.task;
+            next.task = null;
+            this.head = head = next;
+            size.decrementAndGet();
+            latency.record(Time.timeSinceNanos(next.posted));
 
-        for(Runnable runnable : executedRunnables){
-            runnable.run();
+            task.run();
+
+            if(budget > 0 && Time.timeSinceNanos(start) >= budget) break;
         }
     }
 
+    /** @return the number of tasks waiting to be run. */
     public int size(){
-        return runnables.size;
+        return size.get();
+    }
+
+    /** @return the time between tasks being posted and run, in nanoseconds. */
+    public Histogram getLatency(){
+        return latency;
     }
 
+    /** Discards every waiting task. Must only be called from the thread that runs tasks. */
     public void clear(){
-        synchronized(runnables){
-            runnables.clear();
+        Node last = tail.get(), head = this.head;
+        while(head != last){
+            Node next = head.next;
+            if(next == null) break;
+            next.task = null;
+            head = next;
+            size.decrementAndGet();
         }
+        this.head = head;
     }
 
+    /** Queues a task to be run on the next {@link #run()}. This method is thread safe. */
     public void post(Runnable runnable){
-        synchronized(runnables){
-            runnables.add(runnable);
+        Node node = new Node(runnable);
+        size.incrementAndGet();
+        tail.getAndSet(node).next = node;
+    }
+
+    private static class Node{
+        volatile Node next;
+        Runnable task;
+        final long posted;
+
+        Node(Runnable task){
+            this.task = task;
+            this.posted = task == null ? 0 : Time.nanos();
         }
     }
 }
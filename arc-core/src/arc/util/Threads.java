@@ -12,6 +12,7 @@ import java.util.concurrent.atomic.*;
  * Utilities for threaded programming.
  */
 public class Threads{
+    private static ForkJoinPool computePool;
 
     public static <T> ThreadLocal<T> local(Prov<T> prov){
         return new ThreadLocal<T>(){
@@ -40,6 +41,15 @@ public class Threads{
         }
     }
 
+    /**
+     * @return a fork-join pool with a daemon thread per core, shared by CPU-bound work that is split into parallel tasks,
+     * such as decoding and blending images. Created on first use.
+     */
+    public static synchronized ForkJoinPool computePool(){
+        if(computePool == null) computePool = new ForkJoinPool(OS.cores);
+        return computePool;
+    }
+
     /** @return an executor with a fixed number of threads which do not expire
      *  @param threads the number of threads */
     public static ExecutorService executor(@Nullable String name, int threads){
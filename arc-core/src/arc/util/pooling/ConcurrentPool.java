@@ -0,0 +1,182 @@
+package arc.util.pooling;
+
+import arc.struct.*;
+import arc.util.*;
+
+/**
+ * A pool that can be used from any number of threads without locking on every call.
+ * <p>
+ * Each thread obtains and frees objects through its own small cache. When a cache runs empty or full, half of it is
+ * moved from or to a free list shared by all threads, which is the only place a lock is taken. Objects can be freed on
+ * a different thread than the one that obtained them.
+ * <p>
+ * {@link #max} and {@link #peak} refer to the shared free list; each thread may hold up to {@link #cacheSize} more free
+ * objects.
+ */
+abstract public class ConcurrentPool<T> extends Pool<T>{
+    /** The maximum number of free objects each thread keeps for itself. */
+    public final int cacheSize;
+
+    private final Seq<T> shared;
+    private final ThreadLocal<Cache<T>> caches;
+    /** The counters of every thread that has used this pool. Kept apart from the caches, so that those of finished threads can be collected. */
+    private final Seq<Counters> counters = new Seq<>(false, 8);
+    /** The counter totals at the last {@link #resetCounters()}; guarded by {@link #counters}. */
+    private long obtainedBase, freedBase, missesBase;
+
+    /** Creates a pool with a per-thread cache of 32 objects and no maximum. */
+    public ConcurrentPool(){
+        this(Integer.MAX_VALUE, 32);
+    }
+
+    /**
+     * @param max The maximum number of free objects in the shared list.
+     * @param cacheSize The maximum number of free objects each thread keeps for itself. Must be at least 2.
+     */
+    public ConcurrentPool(int max, int cacheSize){
+        super(0, max);
+        if(cacheSize < 2) throw new IllegalArgumentException("cacheSize must be at least 2: " + cacheSize);
+        this.cacheSize = cacheSize;
+        this.shared = new Seq<>(false, Math.min(max, 64));
+        this.caches = Threads.local(() -> {
+            Cache<T> cache = new Cache<>(cacheSize);
+            synchronized(counters){
+                counters.add(cache.counters);
+            }
+            return cache;
+        });
+    }
+
+    @Override
+    public T obtain(){
+        Cache<T> cache = caches.get();
+        cache.counters.obtained++;
+        if(cache.size == 0 && refill(cache) == 0){
+            cache.counters.misses++;
+            return newObject();
+        }
+        T object = cache.items[--cache.size];
+        cache.items[cache.size] = null;
+        return object;
+    }
+
+    @Override
+    public void free(T object){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
+        reset(object);
+        Cache<T> cache = caches.get();
+        cache.counters.freed++;
+        if(cache.size == cacheSize) spill(cache);
+        cache.items[cache.size++] = object;
+    }
+
+    @Override
+    public void freeAll(Seq<T> objects){
+        if(objects == null) throw new IllegalArgumentException("objects cannot be null.");
+        for(int i = 0; i < objects.size; i++){
+            T object = objects.get(i);
+            if(object != null) free(object);
+        }
+    }
+
+    /** Moves up to half a cache of objects from the shared list into an empty cache. */
+    private int refill(Cache<T> cache){
+        synchronized(shared){
+            int count = Math.min(shared.size, cacheSize / 2);
+            T[] items = shared.items;
+            for(int i = 0; i < count; i++){
+                cache.items[i] = items[--shared.size];
+                items[shared.size] = null;
+            }
+            cache.size = count;
+            return count;
+        }
+    }
+
+    /** Moves half of a full cache into the shared list, dropping objects the list has no room for. */
+    private void spill(Cache<T> cache){
+        int count = cacheSize / 2;
+        synchronized(shared){
+            int room = Math.min(count, max - shared.size);
+            for(int i = 0; i < room; i++){
+                shared.add(cache.items[cache.size - 1 - i]);
+            }
+            peak = Math.max(peak, shared.size);
+        }
+        for(int i = 0; i < count; i++){
+            cache.items[--cache.size] = null;
+        }
+    }
+
+    /** Removes all free objects from the shared list and the cache of the calling thread. */
+    @Override
+    public void clear(){
+        synchronized(shared){
+            shared.clear();
+        }
+        Cache<T> cache = caches.get();
+        for(int i = 0; i < cache.size; i++) cache.items[i] = null;
+        cache.size = 0;
+    }
+
+    /** @return the number of free objects in the shared list and the cache of the calling thread. */
+    @Override
+    public int getFree(){
+        synchronized(shared){
+            return shared.size + caches.get().size;
+        }
+    }
+
+    /** @return the number of calls to {@link #obtain()}. */
+    public long getObtained(){
+        synchronized(counters){
+            long sum = 0;
+            for(int i = 0; i < counters.size; i++) sum += counters.get(i).obtained;
+            return sum - obtainedBase;
+        }
+    }
+
+    /** @return the number of calls to {@link #free(Object)}, including objects passed to {@link #freeAll(Seq)}. */
+    public long getFreed(){
+        synchronized(counters){
+            long sum = 0;
+            for(int i = 0; i < counters.size; i++) sum += counters.get(i).freed;
+            return sum - freedBase;
+        }
+    }
+
+    /** @return the number of obtained objects that had to be created, as no free object was available. */
+    public long getMisses(){
+        synchronized(counters){
+            long sum = 0;
+            for(int i = 0; i < counters.size; i++) sum += counters.get(i).misses;
+            return sum - missesBase;
+        }
+    }
+
+    /** Resets the obtain, free and miss counters, and {@link #peak}. */
+    public void resetCounters(){
+        synchronized(counters){
+            obtainedBase += getObtained();
+            freedBase += getFreed();
+            missesBase += getMisses();
+        }
+        peak = 0;
+    }
+
+    private static class Cache<T>{
+        final T[] items;
+        final Counters counters = new Counters();
+        int size;
+
+        @SuppressWarnings("unchecked")
+        Cache(int capacity){
+            items = (T[])new Object[capacity];
+        }
+    }
+
+    /** Only written by the thread that owns them, so no atomic updates are needed; volatile so that other threads see whole values. */
+    private static class Counters{
+        volatile long obtained, freed, misses;
+    }
+}
@@ -1,34 +1,40 @@
 package arc.util.pooling;
 
+import arc.func.*;
 import arc.struct.Seq;
-import arc.struct.ObjectMap;
-import arc.func.Prov;
+
+import java.util.*;
+import java.util.concurrent.*;
 
 /**
- * Stores a map of {@link Pool}s by type for convenient static access.
+ * Stores a map of {@link Pool}s by type for convenient static access. Safe to use from any thread: the pools created by
+ * {@link #get(Class, Prov)} are {@link ConcurrentPool}s, and other pools registered with {@link #set(Class, Pool)} are
+ * locked while objects are obtained from or freed into them.
  * @author Nathan Sweet
  */
 @SuppressWarnings("unchecked")
 public class Pools{
-    private static final ObjectMap<Class, Pool> typePools = new ObjectMap<>();
+    private static final ConcurrentHashMap<Class, Pool> typePools = new ConcurrentHashMap<>();
 
     private Pools(){
     }
 
     /**
-     * Returns a new or existing pool for the specified type, stored in a Class to {@link Pool} map. Note that the max size is ignored for some reason.
+     * Returns a new or existing pool for the specified type, stored in a Class to {@link Pool} map. The max size is ignored
      * if this is not the first time this pool has been requested.
      */
     public static <T> Pool<T> get(Class<T> type, Prov<T> supplier, int max){
         Pool<T> pool = typePools.get(type);
         if(pool == null){
-            pool = new Pool<T>(4, max){
+            pool = new ConcurrentPool<T>(max, 32){
                 @Override
                 protected T newObject(){
                     return supplier.get();
                 }
             };
-            typePools.put(type, pool);
+            //another thread may have registered a pool first
+            Pool<T> existing = typePools.putIfAbsent(type, pool);
+            if(existing != null) pool = existing;
         }
         return pool;
     }
@@ -46,17 +52,38 @@ public class Pools{
         typePools.put(type, pool);
     }
 
+    /** Calls the consumer with every registered type and its pool, such as to log the counters of {@link ConcurrentPool}s. */
+    public static void each(Cons2<Class<?>, Pool<?>> cons){
+        for(Map.Entry<Class, Pool> entry : typePools.entrySet()){
+            cons.get(entry.getKey(), entry.getValue());
+        }
+    }
+
     /** Obtains an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized <T> T obtain(Class<T> type, Prov<T> supplier){
-        return get(type, supplier).obtain();
+    public static <T> T obtain(Class<T> type, Prov<T> supplier){
+        Pool<T> pool = get(type, supplier);
+        if(pool instanceof ConcurrentPool) return pool.obtain();
+        synchronized(pool){
+            return pool.obtain();
+        }
     }
 
     /** Frees an object from the {@link #get(Class, Prov) pool}. */
-    public static synchronized void free(Object object){
+    public static void free(Object object){
         if(object == null) throw new IllegalArgumentException("Object cannot be null.");
         Pool pool = typePools.get(object.getClass());
         if(pool == null) return; // Ignore freeing an object that was never retained.
-        pool.free(object);
+        free(pool, object);
+    }
+
+    private static void free(Pool pool, Object object){
+        if(pool instanceof ConcurrentPool){
+            pool.free(object);
+        }else{
+            synchronized(pool){
+                pool.free(object);
+            }
+        }
     }
 
     /**
@@ -81,7 +108,7 @@ public class Pools{
                 pool = typePools.get(object.getClass());
                 if(pool == null) continue; // Ignore freeing an object that was never retained.
             }
-            pool.free(object);
+            free(pool, object);
             if(!samePool) pool = null;
         }
     }
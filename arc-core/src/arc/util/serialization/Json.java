@@ -8,6 +8,7 @@ import arc.struct.Queue;
 import arc.struct.OrderedMap.*;
 import arc.util.*;
 import arc.util.io.*;
+import arc.util.serialization.JsonStreamReader.*;
 import arc.util.serialization.JsonValue.*;
 import arc.util.serialization.JsonWriter.*;
 
@@ -152,6 +153,18 @@ public class Json{
         metadata.elementType = elementType;
     }
 
+    /**
+     * Sets how a field is read and written, replacing reflection for it. This can be used to plug in accessors that were
+     * written by hand, or generated for a class by the jsongen extension's annotation processor.
+     */
+    public void setAccessor(Class type, String fieldName, FieldAccessor accessor){
+        ObjectMap<String, FieldMetadata> fields = getFields(type);
+        FieldMetadata metadata = fields.get(fieldName);
+        if(metadata == null)
+            throw new SerializationException("Field not found: " + fieldName + " (" + type.getName() + ")");
+        metadata.accessor = accessor;
+    }
+
     @SuppressWarnings("deprecation")
     public OrderedMap<String, FieldMetadata> getFields(Class type){
         OrderedMap<String, FieldMetadata> fields = typeToFields.get(type);
@@ -286,9 +299,9 @@ public class Json{
         int i = 0;
         for(FieldMetadata metadata : new OrderedMapValues<>(fields)){
             Field field = metadata.field;
-            if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
+            if(readDeprecated && ignoreDeprecated && metadata.deprecated) continue;
             try{
-                Object value = field.get(object);
+                Object value = metadata.accessor.get(object);
                 if(defaultValues != null){
                     Object defaultValue = defaultValues[i++];
                     if(value == null && defaultValue == null) continue;
@@ -302,9 +315,9 @@ public class Json{
                     }
                 }
 
-                if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
-                writer.name(field.getName());
-                writeValue(value, field.getType(), metadata.elementType);
+                if(debug) System.out.println("Writing field: " + metadata.name + " (" + type.getName() + ")");
+                writer.name(metadata.name);
+                writeValue(value, metadata.type, metadata.elementType);
             }catch(IllegalAccessException ex){
                 throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
             }catch(SerializationException ex){
@@ -336,9 +349,9 @@ public class Json{
         int i = 0;
         for(FieldMetadata metadata : fields.values()){
             Field field = metadata.field;
-            if(readDeprecated && ignoreDeprecated && field.isAnnotationPresent(Deprecated.class)) continue;
+            if(readDeprecated && ignoreDeprecated && metadata.deprecated) continue;
             try{
-                values[i++] = field.get(object);
+                values[i++] = metadata.accessor.get(object);
             }catch(IllegalAccessException ex){
                 throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
             }catch(SerializationException ex){
@@ -386,7 +399,7 @@ public class Json{
         try{
             if(debug) System.out.println("Writing field: " + field.getName() + " (" + type.getName() + ")");
             writer.name(jsonName);
-            writeValue(field.get(object), field.getType(), elementType);
+            writeValue(metadata.accessor.get(object), metadata.type, elementType);
         }catch(IllegalAccessException ex){
             throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
         }catch(SerializationException ex){
@@ -839,6 +852,31 @@ public class Json{
         return readValue(type, elementType, new JsonReader().parse(json));
     }
 
+    /**
+     * Reads a value directly from a stream of tokens, then closes the reader. Plain objects, {@link ObjectMap}s, arrays
+     * and collections are read without building a {@link JsonValue} tree; anything else, such as a type with a
+     * {@link Serializer}, is read into a tree first. A class tag is only used if it is the first field of its object.
+     * @param type May be null if the type is unknown.
+     * @return May be null.
+     */
+    public <T> T fromJson(Class<T> type, JsonStreamReader reader){
+        return fromJson(type, null, reader);
+    }
+
+    /**
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     * @see #fromJson(Class, JsonStreamReader)
+     */
+    public <T> T fromJson(Class<T> type, Class elementType, JsonStreamReader reader){
+        try{
+            return readValue(type, elementType, reader);
+        }finally{
+            reader.close();
+        }
+    }
+
     public void readField(Object object, String name, JsonValue jsonData){
         readField(object, name, name, null, jsonData);
     }
@@ -858,9 +896,8 @@ public class Json{
         FieldMetadata metadata = fields.get(fieldName);
         if(metadata == null)
             throw new SerializationException("Field not found: " + fieldName + " (" + type.getName() + ")");
-        Field field = metadata.field;
         if(elementType == null) elementType = metadata.elementType;
-        readField(object, field, jsonName, elementType, jsonMap);
+        readField(object, metadata.field, metadata.accessor, jsonName, elementType, jsonMap);
     }
 
     /**
@@ -868,10 +905,14 @@ public class Json{
      * @param elementType May be null if the type is unknown.
      */
     public void readField(Object object, Field field, String jsonName, Class elementType, JsonValue jsonMap){
+        readField(object, field, new ReflectAccessor(field), jsonName, elementType, jsonMap);
+    }
+
+    private void readField(Object object, Field field, FieldAccessor accessor, String jsonName, Class elementType, JsonValue jsonMap){
         JsonValue jsonValue = jsonMap.get(jsonName);
         if(jsonValue == null) return;
         try{
-            field.set(object, readValue(field.getType(), elementType, jsonValue));
+            accessor.set(object, readValue(field.getType(), elementType, jsonValue));
         }catch(IllegalAccessException ex){
             throw new SerializationException(
             "Error accessing field: " + field.getName() + " (" + field.getDeclaringClass().getName() + ")", ex);
@@ -904,7 +945,7 @@ public class Json{
             }
             Field field = metadata.field;
             try{
-                field.set(object, readValue(field.getType(), metadata.elementType, child, metadata.keyType));
+                metadata.accessor.set(object, readValue(metadata.type, metadata.elementType, child, metadata.keyType));
             }catch(IllegalAccessException ex){
                 throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
             }catch(SerializationException ex){
@@ -1001,14 +1042,7 @@ public class Json{
         if(jsonData.isObject()){
             String className = typeName == null ? null : jsonData.getString(typeName, null);
             if(className != null){
-                type = getClass(className);
-                if(type == null){
-                    try{
-                        type = (Class<T>)Class.forName(className);
-                    }catch(Throwable ex){
-                        throw new SerializationException(ex);
-                    }
-                }
+                type = forName(className);
             }
 
             if(type == null){
@@ -1199,6 +1233,177 @@ public class Json{
         return null;
     }
 
+    /**
+     * Reads the next value from the stream, skipping its name if there is one.
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     * @see #fromJson(Class, JsonStreamReader)
+     */
+    public <T> T readValue(Class<T> type, Class elementType, JsonStreamReader reader){
+        return readValue(type, elementType, reader, (Class)null);
+    }
+
+    /**
+     * Reads the next value from the stream, skipping its name if there is one.
+     * @param type May be null if the type is unknown.
+     * @param elementType May be null if the type is unknown.
+     * @return May be null.
+     * @see #fromJson(Class, JsonStreamReader)
+     */
+    public <T> T readValue(Class<T> type, Class elementType, JsonStreamReader reader, Class keyType){
+        if(reader.peek() == Token.name) reader.next();
+        Token token = reader.next();
+        JsonValue jsonData = reader.readToken(token);
+        if(jsonData == null) return null;
+
+        if(token == Token.startObject){
+            JsonValue tag = null;
+            String firstName = nextName(reader);
+            if(firstName != null && firstName.equals(typeName)){
+                tag = reader.readValue();
+                tag.name = firstName;
+                type = forName(tag.asString());
+                firstName = nextName(reader);
+            }
+
+            if(type != null && ObjectMap.class.isAssignableFrom(type) && classToSerializer.get(type) == null
+            && !JsonSerializable.class.isAssignableFrom(type)){
+                ObjectMap result = (ObjectMap)newInstance(type);
+                if(tag != null) result.put(keyType != null ? readValue(keyType, null, new JsonValue(tag.name)) : tag.name, readValue(elementType, null, tag));
+                for(String name = firstName; name != null; name = nextName(reader)){
+                    result.put(keyType != null ? readValue(keyType, null, new JsonValue(name)) : name, readValue(elementType, null, reader));
+                }
+                return (T)result;
+            }
+
+            if(canStreamFields(type)){
+                Object object = newInstance(type);
+                readFields(object, firstName, reader);
+                return (T)object;
+            }
+
+            // Anything else is read from a tree of this object.
+            if(tag != null) JsonStreamReader.append(jsonData, tag);
+            if(firstName != null){
+                JsonValue first = reader.readValue();
+                first.name = firstName;
+                JsonStreamReader.append(jsonData, first);
+            }
+            reader.readChildren(jsonData);
+            return readValue(type, elementType, jsonData, keyType);
+        }
+
+        if(token == Token.startArray){
+            if(type == null || type == Object.class) type = (Class<T>)Seq.class;
+
+            Object result = null;
+            if(classToSerializer.get(type) != null || JsonSerializable.class.isAssignableFrom(type)){
+                // Read from a tree below.
+            }else if(Seq.class.isAssignableFrom(type)){
+                result = type == Seq.class ? new Seq() : newInstance(type);
+            }else if(ObjectSet.class.isAssignableFrom(type)){
+                result = type == ObjectSet.class ? new ObjectSet() : newInstance(type);
+            }else if(arc.struct.Queue.class.isAssignableFrom(type)){
+                result = type == arc.struct.Queue.class ? new arc.struct.Queue() : newInstance(type);
+            }else if(Collection.class.isAssignableFrom(type)){
+                result = type.isInterface() ? new ArrayList() : newInstance(type);
+            }else if(type.isArray()){
+                Class componentType = type.getComponentType();
+                if(elementType == null) elementType = componentType;
+                Seq items = new Seq();
+                while(reader.peek() != Token.endArray) items.add(readValue(elementType, null, reader));
+                reader.next();
+
+                Object array = java.lang.reflect.Array.newInstance(componentType, items.size);
+                for(int i = 0; i < items.size; i++) java.lang.reflect.Array.set(array, i, items.get(i));
+                return (T)array;
+            }
+
+            if(result != null){
+                while(reader.peek() != Token.endArray){
+                    Object item = readValue(elementType, null, reader);
+                    if(result instanceof Seq) ((Seq)result).add(item);
+                    else if(result instanceof ObjectSet) ((ObjectSet)result).add(item);
+                    else if(result instanceof arc.struct.Queue) ((arc.struct.Queue)result).addLast(item);
+                    else ((Collection)result).add(item);
+                }
+                reader.next();
+                return (T)result;
+            }
+
+            reader.readChildren(jsonData);
+        }
+
+        return readValue(type, elementType, jsonData, keyType);
+    }
+
+    /** Reads the fields of an object from the stream, up to and including the end of the object. */
+    private void readFields(Object object, @Nullable String firstName, JsonStreamReader reader){
+        Class type = object.getClass();
+        ObjectMap<String, FieldMetadata> fields = getFields(type);
+        for(String name = firstName; name != null; name = nextName(reader)){
+            FieldMetadata metadata = fields.get(name.replace(" ", "_"));
+            if(metadata == null){
+                if(name.equals(typeName)){
+                    JsonValue tag = reader.readValue();
+                    if(forName(tag.asString()) != type){
+                        throw reader.error("Class tag " + tag.asString() + " must be the first field to be read from a stream (" + type.getName() + ")");
+                    }
+                    continue;
+                }
+                if(ignoreUnknownFields || ignoreUnknownField(type, name)){
+                    if(debug) Log.warn("Ignoring unknown field: " + name + " (" + type.getName() + ")");
+                    reader.skipValue();
+                    continue;
+                }else{
+                    throw reader.error("Field not found: " + name + " (" + type.getName() + ")");
+                }
+            }
+            Field field = metadata.field;
+            try{
+                metadata.accessor.set(object, readValue(metadata.type, metadata.elementType, reader, metadata.keyType));
+            }catch(IllegalAccessException ex){
+                throw new SerializationException("Error accessing field: " + field.getName() + " (" + type.getName() + ")", ex);
+            }catch(SerializationException ex){
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }catch(RuntimeException runtimeEx){
+                SerializationException ex = new SerializationException(runtimeEx);
+                ex.addTrace(field.getName() + " (" + type.getName() + ")");
+                throw ex;
+            }
+        }
+    }
+
+    /** @return whether objects of this type are read field by field, without any special cases. */
+    private boolean canStreamFields(Class type){
+        return type != null && classToSerializer.get(type) == null && !type.isEnum() && type != String.class && !Reflect.isWrapper(type)
+            && !Enum.class.isAssignableFrom(type) && !JsonSerializable.class.isAssignableFrom(type) && !Collection.class.isAssignableFrom(type)
+            && !ObjectIntMap.class.isAssignableFrom(type) && !IntMap.class.isAssignableFrom(type) && !ObjectSet.class.isAssignableFrom(type)
+            && !IntSet.class.isAssignableFrom(type) && !ArrayMap.class.isAssignableFrom(type) && !Map.class.isAssignableFrom(type);
+    }
+
+    /** @return the next name in the current object, or null after consuming its end. */
+    private @Nullable String nextName(JsonStreamReader reader){
+        Token token = reader.next();
+        if(token == Token.endObject) return null;
+        if(token != Token.name) throw reader.error("Expected a name but found: " + token);
+        return reader.getString();
+    }
+
+    private Class forName(String className){
+        Class type = getClass(className);
+        if(type == null){
+            try{
+                type = Class.forName(className);
+            }catch(Throwable ex){
+                throw new SerializationException(ex);
+            }
+        }
+        return type;
+    }
+
     /**
      * Each field on the <code>to</code> object is set to the value for the field with the same name on the <code>from</code>
      * object. The <code>to</code> object must have at least all the fields of the <code>from</code> object with the same name and
@@ -1217,7 +1422,7 @@ public class Json{
 
             if(toField == null) throw new SerializationException("To object is missing field" + entry.key);
             try{
-                toField.field.set(to, fromField.get(from));
+                toField.accessor.set(to, entry.value.accessor.get(from));
             }catch(IllegalAccessException ex){
                 throw new SerializationException("Error copying field: " + fromField.getName(), ex);
             }
@@ -1296,21 +1501,56 @@ public class Json{
         void read(Json json, JsonValue jsonData);
     }
 
+    /** Reads and writes one field of an object. */
+    public interface FieldAccessor{
+        Object get(Object object) throws IllegalAccessException;
+
+        void set(Object object, Object value) throws IllegalAccessException;
+    }
+
     public static class FieldMetadata{
         public final Field field;
+        /** The field's name and type, cached so serialization doesn't have to ask the {@link Field} each time. */
+        public final String name;
+        public final Class type;
+        public final boolean deprecated;
         public @Nullable Class elementType;
         public @Nullable Class keyType;
+        /** Used to get and set the field, which goes through reflection unless replaced. */
+        public FieldAccessor accessor;
 
         public FieldMetadata(Field field){
             boolean isMap = ObjectMap.class.isAssignableFrom(field.getType())
             || Map.class.isAssignableFrom(field.getType());
 
             this.field = field;
+            this.name = field.getName();
+            this.type = field.getType();
+            this.deprecated = field.isAnnotationPresent(Deprecated.class);
             this.elementType = getElementType(field, isMap ? 1 : 0);
+            this.accessor = new ReflectAccessor(field);
             keyType = isMap ? getElementType(field, 0) : null;
         }
     }
 
+    static class ReflectAccessor implements FieldAccessor{
+        final Field field;
+
+        ReflectAccessor(Field field){
+            this.field = field;
+        }
+
+        @Override
+        public Object get(Object object) throws IllegalAccessException{
+            return field.get(object);
+        }
+
+        @Override
+        public void set(Object object, Object value) throws IllegalAccessException{
+            field.set(object, value);
+        }
+    }
+
     static Class getElementType(Field field, int index){
         Type genericType = field.getGenericType();
         if(genericType instanceof ParameterizedType){
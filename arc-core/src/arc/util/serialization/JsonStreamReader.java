@@ -0,0 +1,469 @@
+package arc.util.serialization;
+
+import arc.files.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.io.*;
+import arc.util.serialization.JsonValue.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+/**
+ * A pull parser that reads JSON as a sequence of {@link Token}s straight from UTF-8 bytes, without reading the whole
+ * input into a char array or building a {@link JsonValue} tree first. It accepts the same syntax as {@link JsonReader}:
+ * unquoted names and strings, comments, and optional commas.
+ * <p>
+ * Use {@link Json#fromJson(Class, JsonStreamReader)} to read objects directly from the stream, {@link #next()} to walk
+ * the tokens, or {@link #readValue()} to build a {@link JsonValue} for only part of the input.
+ */
+public class JsonStreamReader implements Closeable{
+    private final @Nullable InputStream input;
+    private final @Nullable ByteBuffer buffer;
+    private final byte[] data = new byte[8192];
+    private int pos, limit, line = 1;
+    private boolean eof;
+
+    /** Whether each open container is an object, innermost last. */
+    private final BoolSeq containers = new BoolSeq();
+    private boolean expectName;
+
+    private @Nullable Token peeked;
+    private byte[] chars = new byte[256];
+    private String string;
+    private long longValue;
+    private double doubleValue;
+
+    /** The kinds of tokens returned by {@link #next()}. */
+    public enum Token{
+        startObject, endObject, startArray, endArray, name, stringValue, doubleValue, longValue, booleanValue, nullValue, endDocument
+    }
+
+    /** Reads from a stream, which is closed by {@link #close()}. */
+    public JsonStreamReader(InputStream input){
+        this.input = input;
+        this.buffer = null;
+    }
+
+    /** Reads the remaining bytes of a buffer, such as one returned by {@link Fi#map()}. */
+    public JsonStreamReader(ByteBuffer buffer){
+        this.input = null;
+        this.buffer = buffer;
+    }
+
+    public JsonStreamReader(Fi file){
+        this(file.read());
+    }
+
+    /** @return the next token without consuming it. */
+    public Token peek(){
+        if(peeked == null) peeked = lex();
+        return peeked;
+    }
+
+    /** Consumes and returns the next token. Its content, if any, is available through the getters until the next call. */
+    public Token next(){
+        Token token = peek();
+        peeked = null;
+        return token;
+    }
+
+    /** @return the name, or the text of a string or number, of the last token. Null for a null value. */
+    public String getString(){
+        return string;
+    }
+
+    public long getLong(){
+        return longValue;
+    }
+
+    public double getDouble(){
+        return doubleValue;
+    }
+
+    public boolean getBoolean(){
+        return longValue != 0;
+    }
+
+    /** @return the line the reader is on, for error messages. */
+    public int getLine(){
+        return line;
+    }
+
+    /** Consumes the next value, along with its name if the next token is one, and everything inside it. */
+    public void skipValue(){
+        if(peek() == Token.name) next();
+        int depth = 0;
+        do{
+            switch(next()){
+                case startObject:
+                case startArray:
+                    depth++;
+                    break;
+                case endObject:
+                case endArray:
+                    depth--;
+                    break;
+                case endDocument:
+                    throw error("Unexpected end of JSON");
+            }
+        }while(depth > 0);
+    }
+
+    /**
+     * Consumes the next value, along with its name if the next token is one, and returns it as a {@link JsonValue} tree.
+     * @return May be null at the end of the document.
+     */
+    public @Nullable JsonValue readValue(){
+        String name = null;
+        if(peek() == Token.name){
+            next();
+            name = string;
+        }
+
+        JsonValue value = readToken(next());
+        if(value == null) return null;
+        value.name = name;
+        if(value.isObject() || value.isArray()) readChildren(value);
+        return value;
+    }
+
+    /** Reads the children of an object or array whose start token was consumed, up to and including its end token. */
+    public void readChildren(JsonValue parent){
+        Token end = parent.isObject() ? Token.endObject : Token.endArray;
+        JsonValue last = parent.child;
+        while(last != null && last.next != null) last = last.next;
+
+        while(peek() != end){
+            JsonValue child = readValue();
+            if(child == null) throw error("Unexpected end of JSON");
+            append(parent, last, child);
+            last = child;
+        }
+        next();
+    }
+
+    /** Adds a child after the last child of a value. */
+    static void append(JsonValue parent, JsonValue child){
+        JsonValue last = parent.child;
+        while(last != null && last.next != null) last = last.next;
+        append(parent, last, child);
+    }
+
+    private static void append(JsonValue parent, @Nullable JsonValue last, JsonValue child){
+        child.parent = parent;
+        if(last == null){
+            parent.child = child;
+        }else{
+            last.next = child;
+            child.prev = last;
+        }
+        parent.size++;
+    }
+
+    /** Reads the whole document as a {@link JsonValue} tree, and closes the reader. */
+    public JsonValue parse(){
+        try{
+            JsonValue value = readValue();
+            if(next() != Token.endDocument) throw error("Unexpected content after JSON value");
+            return value;
+        }finally{
+            close();
+        }
+    }
+
+    @Override
+    public void close(){
+        Streams.close(input);
+    }
+
+    /** @return the JSON value of a value token that was just read. Objects and arrays are empty. */
+    @Nullable JsonValue readToken(Token token){
+        switch(token){
+            case startObject: return new JsonValue(ValueType.object);
+            case startArray: return new JsonValue(ValueType.array);
+            case stringValue: return new JsonValue(string);
+            case doubleValue: return new JsonValue(doubleValue, string);
+            case longValue: return new JsonValue(longValue, string);
+            case booleanValue: return new JsonValue(longValue != 0);
+            case nullValue: return new JsonValue(ValueType.nullValue);
+            case endDocument: return null;
+            default: throw error("Expected a value but found: " + token);
+        }
+    }
+
+    SerializationException error(String message){
+        return new SerializationException(message + " on line " + line);
+    }
+
+    private Token lex(){
+        skipSeparators();
+        int depth = containers.size;
+
+        if(!available()){
+            if(depth > 0) throw error(containers.peek() ? "Error parsing JSON, unmatched brace" : "Error parsing JSON, unmatched bracket");
+            return Token.endDocument;
+        }
+
+        int c = data[pos];
+        if(depth > 0 && containers.peek() && expectName){
+            if(c == '}'){
+                pos++;
+                return endContainer(true);
+            }
+
+            if(c == '"'){
+                pos++;
+                readQuoted();
+            }else{
+                readUnquoted(true);
+            }
+            skipSeparators();
+            if(!available() || data[pos] != ':') throw error("Expected ':' after name \"" + string + "\"");
+            pos++;
+            expectName = false;
+            return Token.name;
+        }
+
+        switch(c){
+            case '{':
+                pos++;
+                containers.add(true);
+                expectName = true;
+                return Token.startObject;
+            case '[':
+                pos++;
+                containers.add(false);
+                return Token.startArray;
+            case '}':
+            case ']':
+                if(depth == 0 || containers.peek() != (c == '}')) throw error("Unexpected '" + (char)c + "'");
+                pos++;
+                return endContainer(c == '}');
+            case ':':
+                throw error("Unexpected ':'");
+            case '"':
+                pos++;
+                readQuoted();
+                afterValue();
+                return Token.stringValue;
+            default:
+                Token token = readUnquoted(false);
+                afterValue();
+                return token;
+        }
+    }
+
+    private Token endContainer(boolean object){
+        containers.pop();
+        afterValue();
+        return object ? Token.endObject : Token.endArray;
+    }
+
+    private void afterValue(){
+        expectName = containers.size > 0 && containers.peek();
+    }
+
+    /** Skips whitespace, commas and comments. */
+    private void skipSeparators(){
+        while(available()){
+            int c = data[pos];
+            switch(c){
+                case '\n':
+                    line++;
+                case ' ':
+                case '\t':
+                case '\r':
+                case ',':
+                    pos++;
+                    break;
+                case '/':
+                    if(!skipComment()) return;
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    /** @return false if the slash at the current position does not start a comment. */
+    private boolean skipComment(){
+        if(pos + 1 >= limit && !fillKeeping()) return false;
+        int kind = data[pos + 1];
+        if(kind != '/' && kind != '*') return false;
+        pos += 2;
+
+        int last = 0;
+        while(available()){
+            int c = data[pos++];
+            if(c == '\n'){
+                line++;
+                if(kind == '/') return true;
+            }
+            if(kind == '*' && last == '*' && c == '/') return true;
+            last = c;
+        }
+        if(kind == '*') throw error("Unterminated comment");
+        return true;
+    }
+
+    private void readQuoted(){
+        int length = 0;
+        boolean escaped = false;
+        while(true){
+            if(!available()) throw error("Unterminated string");
+            byte c = data[pos++];
+            if(c == '"') break;
+            if(c == '\n') line++;
+            if(c == '\\'){
+                escaped = true;
+                length = append(length, c);
+                if(!available()) throw error("Unterminated string");
+                c = data[pos++];
+            }
+            length = append(length, c);
+        }
+        string = decode(length, escaped);
+    }
+
+    /**
+     * Reads an unquoted name or value. Like {@link JsonReader}, names end at a colon and values at a comma or the end of
+     * their container, both end at a line break or comment, and trailing whitespace is trimmed.
+     */
+    private Token readUnquoted(boolean name){
+        int length = 0;
+        boolean escaped = false;
+        outer:
+        while(available()){
+            byte c = data[pos];
+            switch(c){
+                case '\r':
+                case '\n':
+                    break outer;
+                case ':':
+                    if(name) break outer;
+                    break;
+                case '}':
+                case ']':
+                case ',':
+                    if(!name) break outer;
+                    break;
+                case '/':
+                    if(pos + 1 < limit || fillKeeping()){
+                        //the buffer may have moved
+                        byte next = data[pos + 1];
+                        if(next == '/' || next == '*') break outer;
+                    }
+                    break;
+                case '\\':
+                    escaped = true;
+                    break;
+            }
+            length = append(length, c);
+            pos++;
+        }
+        while(length > 0 && isSpace(chars[length - 1])) length--;
+        if(length == 0) throw error("Expected a value");
+
+        string = decode(length, escaped);
+        if(name) return Token.name;
+
+        if(string.equals("true") || string.equals("false")){
+            longValue = string.equals("true") ? 1 : 0;
+            return Token.booleanValue;
+        }
+        if(string.equals("null")){
+            string = null;
+            return Token.nullValue;
+        }
+
+        boolean couldBeDouble = false, couldBeLong = true;
+        outer:
+        for(int i = 0; i < length; i++){
+            switch(chars[i]){
+                case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7': case '8': case '9':
+                case '-': case '+':
+                    break;
+                case '.': case 'e': case 'E':
+                    couldBeDouble = true;
+                    couldBeLong = false;
+                    break;
+                default:
+                    couldBeDouble = false;
+                    couldBeLong = false;
+                    break outer;
+            }
+        }
+        try{
+            if(couldBeDouble){
+                doubleValue = Double.parseDouble(string);
+                return Token.doubleValue;
+            }else if(couldBeLong){
+                longValue = Long.parseLong(string);
+                return Token.longValue;
+            }
+        }catch(NumberFormatException ignored){
+        }
+        return Token.stringValue;
+    }
+
+    private static boolean isSpace(byte c){
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private int append(int length, byte c){
+        if(length == chars.length){
+            byte[] grown = new byte[chars.length * 2];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+        chars[length] = c;
+        return length + 1;
+    }
+
+    private String decode(int length, boolean escaped){
+        String value = new String(chars, 0, length, StandardCharsets.UTF_8);
+        return escaped ? JsonReader.unescape(value) : value;
+    }
+
+    private boolean available(){
+        return pos < limit || fill(0);
+    }
+
+    /** Makes sure the byte after the current one is buffered, keeping the current one. */
+    private boolean fillKeeping(){
+        return fill(1) && pos + 1 < limit;
+    }
+
+    /** Refills the buffer, keeping the given number of unread bytes at its start. */
+    private boolean fill(int keep){
+        if(eof) return false;
+        keep = Math.min(keep, limit - pos);
+        System.arraycopy(data, pos, data, 0, keep);
+        pos = 0;
+        limit = keep;
+
+        try{
+            while(limit < data.length){
+                int read;
+                if(buffer != null){
+                    read = Math.min(data.length - limit, buffer.remaining());
+                    if(read == 0) read = -1;
+                    else buffer.get(data, limit, read);
+                }else{
+                    read = input.read(data, limit, data.length - limit);
+                }
+                if(read == -1){
+                    eof = true;
+                    break;
+                }
+                limit += read;
+                if(keep == 0 || limit > keep) break;
+            }
+        }catch(IOException e){
+            throw new SerializationException(e);
+        }
+        return limit > pos;
+    }
+}
@@ -0,0 +1,257 @@
+import arc.*;
+import arc.Events.*;
+import arc.func.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class EventsTest{
+    enum Trigger{
+        update
+    }
+
+    static class Damage{
+        final int amount;
+
+        Damage(int amount){
+            this.amount = amount;
+        }
+    }
+
+    static class Position{
+        final int x;
+
+        Position(int x){
+            this.x = x;
+        }
+    }
+
+    @Before
+    public void clear(){
+        Events.clear();
+        Events.drain();
+    }
+
+    @After
+    public void resetQueue(){
+        Events.setQueueCapacity(4096);
+        Events.profiling = false;
+        Events.clearTimings();
+    }
+
+    @Test
+    public void order(){
+        Seq<String> calls = new Seq<>();
+        Events.on(Damage.class, e -> calls.add("a" + e.amount));
+        int b = Events.onid(Damage.class, e -> calls.add("b" + e.amount));
+        Events.on(Damage.class, e -> calls.add("c" + e.amount));
+        Events.run(Trigger.update, () -> calls.add("u"));
+
+        Events.fire(new Damage(1));
+        Events.fire(Trigger.update);
+        assertEquals(Seq.with("a1", "b1", "c1", "u"), calls);
+
+        //removal keeps the order of the rest
+        assertTrue(Events.remove(Damage.class, b));
+        assertFalse(Events.remove(Damage.class, b));
+        calls.clear();
+        Events.fire(new Damage(2));
+        assertEquals(Seq.with("a2", "c2"), calls);
+    }
+
+    @Test
+    public void fireAfterRemove(){
+        int[] count = {0};
+        Cons<Damage> listener = e -> count[0]++;
+        Events.on(Damage.class, listener);
+        int id = Events.runid(Trigger.update, () -> count[0] += 10);
+
+        assertTrue(Events.remove(Damage.class, listener));
+        Events.fire(new Damage(1));
+        assertEquals(0, count[0]);
+
+        Events.fire(Trigger.update);
+        assertEquals(10, count[0]);
+        assertFalse(Events.remove(Damage.class, listener));
+        assertFalse(Events.remove(Damage.class, id));
+
+        //firing a type that never had listeners does nothing
+        Events.fire(new Object());
+    }
+
+    @Test
+    public void changeDuringFire(){
+        Seq<String> calls = new Seq<>();
+        int[] second = {0};
+        Events.on(Damage.class, e -> {
+            calls.add("first");
+            //takes effect at once for removal, and from the next fire for addition
+            Events.remove(Damage.class, second[0]);
+            Events.on(Damage.class, d -> calls.add("added"));
+        });
+        second[0] = Events.onid(Damage.class, e -> calls.add("second"));
+
+        Events.fire(new Damage(1));
+        assertEquals(Seq.with("first"), calls);
+
+        calls.clear();
+        Events.fire(new Damage(1));
+        assertEquals(Seq.with("first", "added"), calls);
+    }
+
+    @Test
+    public void resolvedType(){
+        EventType<Damage> type = Events.type(Damage.class);
+        int[] total = {0};
+        type.fire(new Damage(5));
+
+        Events.on(Damage.class, e -> total[0] += e.amount);
+        type.fire(new Damage(2));
+        Events.fire(new Damage(3));
+        assertEquals(5, total[0]);
+
+        //the slot survives clearing, with no listeners left
+        Events.clear();
+        type.fire(new Damage(100));
+        Events.on(Damage.class, e -> total[0] += e.amount);
+        type.fire(new Damage(1));
+        assertEquals(6, total[0]);
+    }
+
+    @Test
+    public void postAndDrain(){
+        Seq<String> calls = new Seq<>();
+        Events.on(Damage.class, e -> {
+            calls.add("d" + e.amount);
+            //posted while draining, so it waits for the next drain
+            if(e.amount == 1) Events.post(new Damage(3));
+        });
+        Events.run(Trigger.update, () -> calls.add("u"));
+
+        assertTrue(Events.post(new Damage(1)));
+        assertTrue(Events.post(Trigger.update));
+        assertTrue(Events.post(new Damage(2)));
+        assertEquals(0, calls.size);
+
+        Events.drain();
+        assertEquals(Seq.with("d1", "u", "d2"), calls);
+
+        calls.clear();
+        Events.drain();
+        assertEquals(Seq.with("d3"), calls);
+        Events.drain();
+        assertEquals(1, calls.size);
+    }
+
+    @Test
+    public void coalesce(){
+        Seq<String> calls = new Seq<>();
+        Events.coalesce(Position.class);
+        Events.on(Position.class, e -> calls.add("p" + e.x));
+        Events.on(Damage.class, e -> calls.add("d" + e.amount));
+
+        //the latest position fires, in the place of the first one posted
+        Events.post(new Position(1));
+        Events.post(new Damage(1));
+        Events.post(new Position(2));
+        Events.post(new Position(3));
+        Events.drain();
+        assertEquals(Seq.with("p3", "d1"), calls);
+
+        calls.clear();
+        Events.post(new Position(4));
+        Events.drain();
+        assertEquals(Seq.with("p4"), calls);
+
+        //fire is never coalesced
+        calls.clear();
+        Events.fire(new Position(5));
+        Events.fire(new Position(6));
+        assertEquals(Seq.with("p5", "p6"), calls);
+    }
+
+    @Test
+    public void overflow(){
+        Events.setQueueCapacity(3);
+        Events.coalesce(Position.class);
+        int[] count = {0};
+        Events.on(Damage.class, e -> count[0]++);
+        Seq<Integer> positions = new Seq<>();
+        Events.on(Position.class, e -> positions.add(e.x));
+
+        assertTrue(Events.post(new Damage(1)));
+        assertTrue(Events.post(new Damage(2)));
+        assertTrue(Events.post(new Damage(3)));
+        assertFalse(Events.post(new Damage(4)));
+        //a coalesced event that does not fit is dropped too, and can be posted again once there is room
+        assertFalse(Events.post(new Position(1)));
+
+        Events.drain();
+        assertEquals(3, count[0]);
+        assertEquals(0, positions.size);
+
+        assertTrue(Events.post(new Position(2)));
+        assertTrue(Events.post(new Damage(5)));
+        assertTrue(Events.post(new Damage(6)));
+        assertFalse(Events.post(new Damage(7)));
+        //replacing a queued event needs no room
+        assertTrue(Events.post(new Position(3)));
+        Events.drain();
+        assertEquals(Seq.with(3), positions);
+        assertEquals(5, count[0]);
+    }
+
+    @Test
+    public void overflowFromThreads() throws Exception{
+        Events.setQueueCapacity(2);
+        Events.coalesce(Position.class);
+        Seq<Integer> positions = new Seq<>();
+        Events.on(Position.class, e -> positions.add(e.x));
+
+        for(int round = 0; round < 500; round++){
+            //with the queue full, two threads race to post the coalesced type
+            Events.post(new Damage(1));
+            Events.post(new Damage(2));
+            CyclicBarrier start = new CyclicBarrier(2);
+            Thread[] threads = new Thread[2];
+            for(int i = 0; i < threads.length; i++){
+                int x = i;
+                threads[i] = new Thread(() -> {
+                    try{
+                        start.await();
+                    }catch(Exception e){
+                        throw new RuntimeException(e);
+                    }
+                    for(int j = 0; j < 20; j++) Events.post(new Position(x));
+                });
+                threads[i].start();
+            }
+            for(Thread thread : threads) thread.join();
+            Events.drain();
+
+            //whatever was dropped, the type must still be delivered once there is room
+            positions.clear();
+            assertTrue(Events.post(new Position(-1)));
+            Events.drain();
+            assertEquals("round " + round, Seq.with(-1), positions);
+        }
+    }
+
+    @Test
+    public void profiling(){
+        Events.on(Damage.class, e -> {});
+        Events.fire(new Damage(1));
+        assertNull(Events.getTime(Damage.class));
+
+        Events.profiling = true;
+        Events.fire(new Damage(1));
+        Events.type(Damage.class).fire(new Damage(2));
+        assertEquals(2, Events.getTime(Damage.class).count());
+
+        Events.clearTimings();
+        assertNull(Events.getTime(Damage.class));
+    }
+}
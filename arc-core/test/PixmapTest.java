@@ -1,9 +1,18 @@
+import arc.files.*;
 import arc.graphics.*;
+import arc.graphics.PixmapIO.*;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.util.*;
 import org.junit.*;
 
+import javax.imageio.*;
+import java.awt.image.*;
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
 import static org.junit.Assert.*;
 
 public class PixmapTest{
@@ -39,6 +48,256 @@ public class PixmapTest{
         crop.draw(base, 0, 176, x, x, 0, 0, x, x, true);
     }
 
+    @Test
+    public void blendMatchesPerPixel(){
+        Rand rand = new Rand(3);
+        //every pair of alphas, and the random colors of a large blit that is split across threads
+        Pixmap src = new Pixmap(256, 256), dst = new Pixmap(256, 256);
+        src.each((x, y) -> src.setRaw(x, y, rand.nextInt() & 0xffffff00 | x));
+        dst.each((x, y) -> dst.setRaw(x, y, rand.nextInt() & 0xffffff00 | y));
+        checkDraw(src, dst, 0, 0, 256, 256, 0, 0, 256, 256, false, true);
+
+        Pixmap big = randomPixmap(rand, 1000, 700), bigDst = randomPixmap(rand, 900, 800);
+        checkDraw(big, bigDst, 0, 0, 1000, 700, 0, 0, 1000, 700, false, true);
+    }
+
+    @Test
+    public void drawMatchesPerPixel(){
+        Rand rand = new Rand(4);
+        for(int i = 0; i < 300; i++){
+            Pixmap src = randomPixmap(rand, rand.random(1, 80), rand.random(1, 80));
+            Pixmap dst = randomPixmap(rand, rand.random(1, 80), rand.random(1, 80));
+            int srcWidth = rand.random(1, 90), srcHeight = rand.random(1, 90);
+            boolean same = rand.chance(0.3);
+            checkDraw(src, dst,
+                rand.random(-20, 40), rand.random(-20, 40), srcWidth, srcHeight,
+                rand.random(-40, 60), rand.random(-40, 60), same ? srcWidth : rand.random(1, 160), same ? srcHeight : rand.random(1, 160),
+                //same-size copies without blending use a separate bulk path
+                rand.chance(0.5), same || rand.chance(0.5));
+        }
+
+        Pixmap src = randomPixmap(rand, 600, 600), dst = randomPixmap(rand, 500, 500);
+        checkDraw(src, dst, 0, 0, 600, 600, -10, -10, 520, 470, false, true);
+        checkDraw(src, dst, 0, 0, 600, 600, 0, 0, 400, 400, true, true);
+    }
+
+    @Test
+    public void pngRoundTrip() throws IOException{
+        Rand rand = new Rand(5);
+        //gradients, noise and flat areas, large enough to be compressed in several blocks
+        Pixmap pixmap = new Pixmap(300, 500);
+        pixmap.each((x, y) -> pixmap.setRaw(x, y, Color.rgba8888(x / 300f, y / 500f, 0.5f, 1f)));
+        for(int i = 0; i < 40; i++){
+            pixmap.fillRect(rand.random(300), rand.random(500), rand.random(60), rand.random(60), rand.nextInt() | 0xff);
+        }
+        for(int i = 0; i < 5000; i++){
+            pixmap.setRaw(rand.random(299), rand.random(499), rand.nextInt());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        PngWriter writer = new PngWriter();
+        try{
+            byte[] unfiltered = null;
+            for(int mode = 0; mode < 4; mode++){
+                writer.setFilter(mode != 0);
+                writer.setFlipY(mode == 3);
+                writer.setExecutor(mode >= 2 ? executor : null);
+
+                //written twice to check that the deflaters are reused correctly
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                writer.write(out, pixmap);
+                out.reset();
+                writer.write(out, pixmap);
+                byte[] png = out.toByteArray();
+                if(mode == 0) unfiltered = png;
+                if(mode == 1) assertTrue(png.length < unfiltered.length);
+
+                PngReader reader = new PngReader();
+                ByteBuffer pixels = reader.read(new ByteArrayInputStream(png));
+                assertEquals(300, reader.width);
+                assertEquals(500, reader.height);
+
+                BufferedImage image = ImageIO.read(new ByteArrayInputStream(png));
+                for(int y = 0; y < 500; y++){
+                    int sy = mode == 3 ? 499 - y : y;
+                    for(int x = 0; x < 300; x++){
+                        int expected = pixmap.getRaw(x, sy);
+                        assertEquals(expected, pixels.getInt((x + y * 300) * 4));
+                        int argb = image.getRGB(x, y);
+                        assertEquals(expected, argb << 8 | argb >>> 24);
+                    }
+                }
+            }
+        }finally{
+            writer.dispose();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void apixRoundTrip() throws IOException{
+        Rand rand = new Rand(6);
+        //not a multiple of the tile size, with both noise and flat areas so that every codec is chosen
+        Pixmap pixmap = randomPixmap(rand, 300, 200);
+        pixmap.fillRect(0, 0, 300, 100, Color.rgba8888(0.2f, 0.4f, 0.6f, 1f));
+        pixmap.fillRect(20, 30, 100, 50, Color.rgba8888(1f, 0.4f, 0f, 1f));
+
+        int tileSize = PixmapIO.apixTileSize;
+        File file = File.createTempFile("pixmap", ".apix");
+        Fi fi = new Fi(file);
+        try{
+            PixmapIO.apixTileSize = 64;
+            for(ApixCompression compression : ApixCompression.values()){
+                PixmapIO.writeApix(fi, pixmap, compression);
+
+                Pixmap read = PixmapIO.readApix(fi);
+                assertPixmapEquals(pixmap, read, 0, 0);
+                read.dispose();
+
+                //areas inside one tile, across tiles and along the edges
+                int[][] areas = {{5, 5, 10, 10}, {50, 40, 100, 90}, {0, 150, 300, 50}, {299, 199, 1, 1}, {0, 0, 300, 200}, {10, 10, 0, 0}};
+                for(int[] area : areas){
+                    Pixmap part = PixmapIO.readApix(fi, area[0], area[1], area[2], area[3]);
+                    assertEquals(area[2], part.width);
+                    assertEquals(area[3], part.height);
+                    assertPixmapEquals(part, pixmap, area[0], area[1]);
+                    part.dispose();
+                }
+            }
+
+            try{
+                PixmapIO.readApix(fi, 250, 0, 100, 10);
+                fail("Areas outside of the image should be rejected.");
+            }catch(IllegalArgumentException expected){
+            }
+
+            //files from before tiles were added are one deflate stream with the size and pixels
+            try(DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new FileOutputStream(file)))){
+                out.writeInt(pixmap.width);
+                out.writeInt(pixmap.height);
+                for(int i = 0; i < pixmap.width * pixmap.height; i++){
+                    out.writeInt(pixmap.pixels.getInt(i * 4));
+                }
+            }
+            Pixmap old = PixmapIO.readApix(fi);
+            assertPixmapEquals(pixmap, old, 0, 0);
+            old.dispose();
+            Pixmap oldPart = PixmapIO.readApix(fi, 50, 40, 100, 90);
+            assertPixmapEquals(oldPart, pixmap, 50, 40);
+            oldPart.dispose();
+        }finally{
+            PixmapIO.apixTileSize = tileSize;
+            file.delete();
+            pixmap.dispose();
+        }
+    }
+
+    /** Checks that every pixel of expected matches actual, offset by x and y. */
+    static void assertPixmapEquals(Pixmap expected, Pixmap actual, int x, int y){
+        for(int py = 0; py < expected.height; py++){
+            for(int px = 0; px < expected.width; px++){
+                assertEquals(expected.getRaw(px, py), actual.getRaw(px + x, py + y));
+            }
+        }
+    }
+
+    static Pixmap randomPixmap(Rand rand, int width, int height){
+        Pixmap pixmap = new Pixmap(width, height);
+        int[] alphas = {0, 0, 255, 255, 1, 128, 254};
+        pixmap.each((x, y) -> pixmap.setRaw(x, y, rand.nextInt() & 0xffffff00 | (rand.chance(0.5) ? alphas[rand.random(alphas.length - 1)] : rand.random(255))));
+        return pixmap;
+    }
+
+    static void checkDraw(Pixmap src, Pixmap dst, int srcx, int srcy, int srcWidth, int srcHeight, int dstx, int dsty, int dstWidth, int dstHeight, boolean filtering, boolean blending){
+        Pixmap expected = dst.copy();
+        try{
+            drawPerPixel(expected, src, srcx, srcy, srcWidth, srcHeight, dstx, dsty, dstWidth, dstHeight, filtering, blending);
+        }catch(IndexOutOfBoundsException e){
+            //the filtered loop reads past the end of the source for some areas; the result isn't defined there
+            return;
+        }
+        dst.draw(src, srcx, srcy, srcWidth, srcHeight, dstx, dsty, dstWidth, dstHeight, filtering, blending);
+
+        for(int y = 0; y < dst.height; y++){
+            for(int x = 0; x < dst.width; x++){
+                if(expected.getRaw(x, y) != dst.getRaw(x, y)){
+                    fail("Pixel " + x + ", " + y + " differs: expected " + Integer.toHexString(expected.getRaw(x, y)) + ", got " + Integer.toHexString(dst.getRaw(x, y)));
+                }
+            }
+        }
+    }
+
+    /** The blending and scaling paths of {@link Pixmap#draw}, one pixel at a time. */
+    static void drawPerPixel(Pixmap dst, Pixmap pixmap, int srcx, int srcy, int srcWidth, int srcHeight, int dstx, int dsty, int dstWidth, int dstHeight, boolean filtering, boolean blending){
+        int width = dst.width, height = dst.height, owidth = pixmap.width, oheight = pixmap.height;
+
+        if(srcWidth == dstWidth && srcHeight == dstHeight){
+            for(int sy = srcy, dy = dsty; sy < srcy + srcHeight; sy++, dy++){
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= oheight || dy >= height) break;
+
+                for(int sx = srcx, dx = dstx; sx < srcx + srcWidth; sx++, dx++){
+                    if(sx < 0 || dx < 0) continue;
+                    if(sx >= owidth || dx >= width) break;
+                    dst.setRaw(dx, dy, blending ? Pixmap.blend(pixmap.getRaw(sx, sy), dst.getRaw(dx, dy)) : pixmap.getRaw(sx, sy));
+                }
+            }
+        }else if(filtering){
+            float x_ratio = ((float)srcWidth - 1) / dstWidth;
+            float y_ratio = ((float)srcHeight - 1) / dstHeight;
+            int rX = Math.max(Mathf.round(x_ratio), 1), rY = Math.max(Mathf.round(y_ratio), 1);
+            int spitch = 4 * owidth;
+
+            for(int i = 0; i < dstHeight; i++){
+                int sy = (int)(i * y_ratio) + srcy, dy = i + dsty;
+                float ydiff = (y_ratio * i + srcy) - sy;
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= oheight || dy >= height) break;
+
+                for(int j = 0; j < dstWidth; j++){
+                    int sx = (int)(j * x_ratio) + srcx, dx = j + dstx;
+                    float xdiff = (x_ratio * j + srcx) - sx;
+                    if(sx < 0 || dx < 0) continue;
+                    if(sx >= owidth || dx >= width) break;
+
+                    int
+                    srcp = (sx + sy * owidth) * 4,
+                    c1 = pixmap.pixels.getInt(srcp),
+                    c2 = sx + rX < srcWidth ? pixmap.pixels.getInt(srcp + 4 * rX) : c1,
+                    c3 = sy + rY < srcHeight ? pixmap.pixels.getInt(srcp + spitch * rY) : c1,
+                    c4 = sx + rX < srcWidth && sy + rY < srcHeight ? pixmap.pixels.getInt(srcp + 4 * rX + spitch * rY) : c1;
+
+                    float ta = (1 - xdiff) * (1 - ydiff), tb = (xdiff) * (1 - ydiff), tc = (1 - xdiff) * (ydiff), td = (xdiff) * (ydiff);
+
+                    int r = (int)(((c1 & 0xff000000) >>> 24) * ta + ((c2 & 0xff000000) >>> 24) * tb + ((c3 & 0xff000000) >>> 24) * tc + ((c4 & 0xff000000) >>> 24) * td) & 0xff;
+                    int g = (int)(((c1 & 0xff0000) >>> 16) * ta + ((c2 & 0xff0000) >>> 16) * tb + ((c3 & 0xff0000) >>> 16) * tc + ((c4 & 0xff0000) >>> 16) * td) & 0xff;
+                    int b = (int)(((c1 & 0xff00) >>> 8) * ta + ((c2 & 0xff00) >>> 8) * tb + ((c3 & 0xff00) >>> 8) * tc + ((c4 & 0xff00) >>> 8) * td) & 0xff;
+                    int a = (int)((c1 & 0xff) * ta + (c2 & 0xff) * tb + (c3 & 0xff) * tc + (c4 & 0xff) * td) & 0xff;
+                    int srccol = (r << 24) | (g << 16) | (b << 8) | a;
+
+                    dst.setRaw(dx, dy, !blending ? srccol : Pixmap.blend(srccol, dst.getRaw(dx, dy)));
+                }
+            }
+        }else{
+            int xratio = (srcWidth << 16) / dstWidth + 1;
+            int yratio = (srcHeight << 16) / dstHeight + 1;
+
+            for(int i = 0; i < dstHeight; i++){
+                int sy = ((i * yratio) >> 16) + srcy, dy = i + dsty;
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= oheight || dy >= height) break;
+
+                for(int j = 0; j < dstWidth; j++){
+                    int sx = ((j * xratio) >> 16) + srcx, dx = j + dstx;
+                    if(sx < 0 || dx < 0) continue;
+                    if(sx >= owidth || dx >= width) break;
+
+                    dst.setRaw(dx, dy, !blending ? pixmap.getRaw(sx, sy) : Pixmap.blend(pixmap.getRaw(sx, sy), dst.getRaw(dx, dy)));
+                }
+            }
+        }
+    }
+
     static  Rect rect = new Rect();
     static Vec2 v1 = new Vec2(), v2 = new Vec2();
 
@@ -0,0 +1,239 @@
+import arc.*;
+import arc.files.*;
+import org.junit.*;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SettingsTest{
+    Fi dir, other;
+
+    @Before
+    public void setup(){
+        dir = Fi.tempDirectory("settings");
+        other = Fi.tempDirectory("settings");
+    }
+
+    @After
+    public void cleanup(){
+        dir.deleteDirectory();
+        other.deleteDirectory();
+    }
+
+    Settings settings(Fi directory){
+        Settings settings = new Settings();
+        settings.setDataDirectory(directory);
+        return settings;
+    }
+
+    Settings load(){
+        Settings settings = settings(dir);
+        settings.loadValues();
+        return settings;
+    }
+
+    @Test
+    public void nullKeys(){
+        Settings settings = new Settings();
+        settings.put("a", 1);
+
+        assertFalse(settings.has(null));
+        assertEquals(2, settings.getInt(null, 2));
+        assertEquals("b", settings.getString(null, "b"));
+        settings.remove(null);
+        assertEquals(1, settings.getInt("a", 0));
+
+        try{
+            settings.put(null, 1);
+            fail("put should reject a null name");
+        }catch(IllegalArgumentException expected){
+        }
+    }
+
+    @Test
+    public void journalAndCompaction(){
+        Settings settings = settings(dir);
+        settings.put("int", 1);
+        settings.put("string", "a");
+        settings.put("removed", true);
+        settings.saveValues();
+
+        //the first save writes the whole file
+        assertTrue(settings.getSettingsFile().exists());
+        assertFalse(settings.getJournalFile().exists());
+
+        settings.put("int", 2);
+        settings.put("long", 3L);
+        settings.remove("removed");
+        settings.saveValues();
+
+        //later saves only append the changes
+        assertTrue(settings.getJournalFile().length() > 0);
+
+        Settings loaded = load();
+        assertEquals(2, loaded.getInt("int", 0));
+        assertEquals(3L, loaded.getLong("long", 0));
+        assertEquals("a", loaded.getString("string", null));
+        assertFalse(loaded.has("removed"));
+
+        //the journal is folded into the settings file on the next save
+        loaded.saveValues();
+        assertFalse(loaded.getJournalFile().exists());
+        assertFalse(loaded.getTempSettingsFile().exists());
+        assertFalse(loaded.getRetiredJournalFile().exists());
+
+        Settings compacted = load();
+        assertEquals(2, compacted.getInt("int", 0));
+        assertEquals(3L, compacted.getLong("long", 0));
+        assertEquals("a", compacted.getString("string", null));
+        assertFalse(compacted.has("removed"));
+    }
+
+    @Test
+    public void truncatedJournal(){
+        Settings settings = settings(dir);
+        settings.put("a", 1);
+        settings.put("b", 1);
+        settings.saveValues();
+
+        settings.put("a", 2);
+        settings.saveValues();
+        settings.put("b", 2);
+        settings.saveValues();
+
+        //cut the last record short, as a crash during the append would
+        Fi journal = settings.getJournalFile();
+        byte[] bytes = journal.readBytes();
+        journal.writeBytes(Arrays.copyOf(bytes, bytes.length - 3));
+
+        Settings loaded = load();
+        assertEquals(2, loaded.getInt("a", 0));
+        assertEquals(1, loaded.getInt("b", 0));
+
+        loaded.saveValues();
+        assertFalse(journal.exists());
+        assertEquals(2, load().getInt("a", 0));
+    }
+
+    @Test
+    public void corruptJournalRecord(){
+        Settings settings = settings(dir);
+        settings.put("a", 1);
+        settings.put("b", 1);
+        settings.saveValues();
+
+        settings.put("a", 2);
+        settings.saveValues();
+        settings.put("b", 2);
+        settings.saveValues();
+
+        //flip a byte of the last value; its checksum no longer matches
+        Fi journal = settings.getJournalFile();
+        byte[] bytes = journal.readBytes();
+        bytes[bytes.length - 5] ^= 1;
+        journal.writeBytes(bytes);
+
+        Settings loaded = load();
+        assertEquals(2, loaded.getInt("a", 0));
+        assertEquals(1, loaded.getInt("b", 0));
+    }
+
+    @Test
+    public void crashBeforeRetiringJournal(){
+        Settings settings = settings(dir);
+        settings.put("a", 1);
+        settings.saveValues();
+        settings.put("a", 2);
+        settings.saveValues();
+
+        //the temporary file may be incomplete, as the journal wasn't retired yet
+        write(settings.getTempSettingsFile(), 3);
+
+        Settings loaded = load();
+        assertEquals(2, loaded.getInt("a", 0));
+        assertFalse(loaded.getTempSettingsFile().exists());
+    }
+
+    @Test
+    public void crashBetweenRenames(){
+        Settings settings = settings(dir);
+        settings.put("a", 1);
+        settings.saveValues();
+        settings.put("a", 2);
+        settings.saveValues();
+
+        //the journal was retired, but the temporary file didn't replace the settings file yet
+        write(settings.getTempSettingsFile(), 3);
+        settings.getJournalFile().moveTo(settings.getRetiredJournalFile());
+
+        Settings loaded = load();
+        assertEquals(3, loaded.getInt("a", 0));
+        assertFalse(loaded.getTempSettingsFile().exists());
+        assertFalse(loaded.getRetiredJournalFile().exists());
+        assertFalse(loaded.getJournalFile().exists());
+        assertEquals(3, load().getInt("a", 0));
+    }
+
+    @Test
+    public void crashAfterRenames(){
+        Settings settings = settings(dir);
+        settings.put("a", 1);
+        settings.saveValues();
+
+        //the settings file was replaced, but the retired journal wasn't deleted yet
+        settings.getRetiredJournalFile().writeBytes(new byte[0]);
+
+        Settings loaded = load();
+        assertEquals(1, loaded.getInt("a", 0));
+        assertFalse(loaded.getRetiredJournalFile().exists());
+    }
+
+    @Test
+    public void legacySettingsFile() throws IOException{
+        //written like settings were before the journal existed
+        Fi file = dir.child("settings.bin");
+        try(DataOutputStream stream = new DataOutputStream(file.write(false))){
+            stream.writeInt(4);
+            stream.writeUTF("bool");
+            stream.writeByte(0);
+            stream.writeBoolean(true);
+            stream.writeUTF("int");
+            stream.writeByte(1);
+            stream.writeInt(5);
+            stream.writeUTF("float");
+            stream.writeByte(3);
+            stream.writeFloat(1.5f);
+            stream.writeUTF("bytes");
+            stream.writeByte(5);
+            stream.writeInt(2);
+            stream.write(new byte[]{7, 8});
+        }
+
+        Settings loaded = load();
+        assertTrue(loaded.getBool("bool", false));
+        assertEquals(5, loaded.getInt("int", 0));
+        assertEquals(1.5f, loaded.getFloat("float", 0f), 0f);
+        assertArrayEquals(new byte[]{7, 8}, loaded.getBytes("bytes", null));
+
+        loaded.put("int", 6);
+        loaded.saveValues();
+        loaded.put("string", "a");
+        loaded.saveValues();
+
+        Settings reloaded = load();
+        assertTrue(reloaded.getBool("bool", false));
+        assertEquals(6, reloaded.getInt("int", 0));
+        assertEquals("a", reloaded.getString("string", null));
+        assertArrayEquals(new byte[]{7, 8}, reloaded.getBytes("bytes", null));
+    }
+
+    /** Writes a complete settings file with a single value to the given file. */
+    void write(Fi file, int a){
+        Settings settings = settings(other);
+        settings.put("a", a);
+        settings.saveValues();
+        settings.getSettingsFile().copyTo(file);
+    }
+}
@@ -0,0 +1,122 @@
+package math;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class LooseGridTest{
+    static class Box implements QuadTreeObject{
+        float x, y, size;
+
+        Box(float x, float y, float size){
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        @Override
+        public void hitbox(Rect out){
+            out.set(x - size / 2f, y - size / 2f, size, size);
+        }
+    }
+
+    Rand rand = new Rand(1);
+    Rect bounds = new Rect(0, 0, 1000, 1000);
+
+    @Test
+    public void matchesBruteForce(){
+        Seq<Box> boxes = new Seq<>();
+        LooseGrid<Box> grid = new LooseGrid<>(bounds, 32f);
+
+        for(int i = 0; i < 2000; i++){
+            Box box = new Box(rand.random(1000f), rand.random(1000f), rand.random(1f, i % 100 == 0 ? 300f : 20f));
+            boxes.add(box);
+            grid.insert(box);
+        }
+        assertEquals(boxes.size, grid.size());
+        check(grid, boxes);
+
+        //move everything and remove some
+        for(Box box : boxes){
+            box.x = Math.min(box.x + rand.range(40f), 999f);
+            box.y = Math.max(box.y + rand.range(40f), 1f);
+        }
+        grid.updateAll();
+        for(int i = 0; i < 300; i++){
+            assertTrue(grid.remove(boxes.pop()));
+        }
+        assertEquals(boxes.size, grid.size());
+        check(grid, boxes);
+
+        grid.rebuild(boxes);
+        assertEquals(boxes.size, grid.size());
+        check(grid, boxes);
+    }
+
+    @Test
+    public void marginShrinks(){
+        class Probe extends LooseGrid<Box>{
+            Probe(Rect bounds){
+                super(bounds, 32f);
+            }
+
+            float margin(){
+                return Math.max(maxHalfWidth, maxHalfHeight);
+            }
+        }
+        Probe grid = new Probe(bounds);
+        Seq<Box> boxes = new Seq<>();
+        for(int i = 0; i < 100; i++){
+            Box box = new Box(rand.random(1000f), rand.random(1000f), 10f);
+            boxes.add(box);
+            grid.insert(box);
+        }
+
+        //one object grows for a moment, then shrinks again
+        Box big = boxes.first();
+        big.size = 600f;
+        grid.update(big);
+        assertEquals(300f, grid.margin(), 0.001f);
+        big.size = 10f;
+        grid.update(big);
+        assertEquals(300f, grid.margin(), 0.001f);
+
+        grid.updateAll();
+        assertEquals(5f, grid.margin(), 0.001f);
+        check(grid, boxes);
+
+        //a removed object no longer widens queries either
+        big.size = 600f;
+        grid.update(big);
+        grid.remove(big);
+        boxes.remove(big);
+        grid.updateAll();
+        assertEquals(5f, grid.margin(), 0.001f);
+        check(grid, boxes);
+    }
+
+    void check(LooseGrid<Box> grid, Seq<Box> boxes){
+        Rect hit = new Rect();
+        Seq<Box> found = new Seq<>(), expected = new Seq<>();
+
+        for(int i = 0; i < 200; i++){
+            float x = rand.random(-50f, 1000f), y = rand.random(-50f, 1000f), w = rand.random(1f, 120f), h = rand.random(1f, 120f);
+
+            found.clear();
+            expected.clear();
+            grid.intersect(x, y, w, h, found);
+            for(Box box : boxes){
+                box.hitbox(hit);
+                if(hit.overlaps(x, y, w, h)) expected.add(box);
+            }
+
+            assertEquals(expected.size, found.size);
+            for(Box box : expected) assertTrue(found.contains(box, true));
+            assertEquals(expected.any(), grid.any(x, y, w, h));
+        }
+    }
+}
@@ -4,9 +4,134 @@ import arc.func.*;
 import arc.struct.*;
 import arc.util.*;
 import arc.util.pooling.*;
+import arc.util.pooling.Pool.*;
 import org.junit.*;
 
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
 public class PoolTest{
+    static class Item implements Poolable{
+        final AtomicBoolean inUse = new AtomicBoolean();
+        int resets;
+
+        @Override
+        public void reset(){
+            resets++;
+        }
+    }
+
+    @Test
+    public void reuse(){
+        ConcurrentPool<Item> pool = new ConcurrentPool<Item>(100, 4){
+            @Override
+            protected Item newObject(){
+                return new Item();
+            }
+        };
+
+        Seq<Item> items = new Seq<>();
+        for(int i = 0; i < 10; i++) items.add(pool.obtain());
+        assertEquals(10, pool.getMisses());
+
+        pool.freeAll(items);
+        assertEquals(10, pool.getFreed());
+        assertEquals(10, pool.getFree());
+        //the cache spilled into the shared list
+        assertTrue(pool.peak > 0);
+
+        Set<Item> reused = Collections.newSetFromMap(new IdentityHashMap<>());
+        for(int i = 0; i < 10; i++) reused.add(pool.obtain());
+        assertEquals(new HashSet<>(items.list()), reused);
+        assertEquals(10, pool.getMisses());
+        assertEquals(20, pool.getObtained());
+        for(Item item : reused) assertEquals(1, item.resets);
+
+        pool.clear();
+        assertEquals(0, pool.getFree());
+        pool.resetCounters();
+        assertEquals(0, pool.getObtained());
+        assertEquals(0, pool.peak);
+    }
+
+    @Test
+    public void maxBoundsSharedList(){
+        ConcurrentPool<Item> pool = new ConcurrentPool<Item>(3, 2){
+            @Override
+            protected Item newObject(){
+                return new Item();
+            }
+        };
+
+        for(int i = 0; i < 20; i++) pool.free(new Item());
+        //3 in the shared list, at most 2 in this thread's cache
+        assertEquals(3, pool.peak);
+        assertTrue(pool.getFree() <= 5);
+    }
+
+    @Test
+    public void concurrentObtainAndFree() throws Exception{
+        ConcurrentPool<Item> pool = new ConcurrentPool<Item>(){
+            @Override
+            protected Item newObject(){
+                return new Item();
+            }
+        };
+
+        int threads = 4, iterations = 50000;
+        ExecutorService executor = Threads.executor("PoolsTest", threads);
+        Seq<Future<?>> futures = new Seq<>();
+        AtomicInteger failures = new AtomicInteger();
+
+        for(int t = 0; t < threads; t++){
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                Random random = new Random(seed);
+                ArrayDeque<Item> held = new ArrayDeque<>();
+                for(int i = 0; i < iterations; i++){
+                    if(held.isEmpty() || (held.size() < 64 && random.nextBoolean())){
+                        Item item = pool.obtain();
+                        //an object must never be handed out twice
+                        if(!item.inUse.compareAndSet(false, true)) failures.incrementAndGet();
+                        held.add(item);
+                    }else{
+                        Item item = held.poll();
+                        item.inUse.set(false);
+                        pool.free(item);
+                    }
+                }
+                for(Item item : held){
+                    item.inUse.set(false);
+                    pool.free(item);
+                }
+            }));
+        }
+
+        Threads.awaitAll(futures);
+        executor.shutdown();
+
+        assertEquals(0, failures.get());
+        assertEquals(pool.getObtained(), pool.getFreed());
+        assertTrue(pool.getMisses() < pool.getObtained() / 10);
+    }
+
+    @Test
+    public void registry(){
+        Pool<Item> pool = Pools.get(Item.class, Item::new);
+        assertTrue(pool instanceof ConcurrentPool);
+        assertSame(pool, Pools.get(Item.class, Item::new));
+
+        Item item = Pools.obtain(Item.class, Item::new);
+        Pools.free(item);
+        assertSame(item, Pools.obtain(Item.class, Item::new));
+
+        boolean[] found = {false};
+        Pools.each((type, p) -> found[0] |= type == Item.class && p == pool);
+        assertTrue(found[0]);
+    }
 
     @Test
     public void allocation(){
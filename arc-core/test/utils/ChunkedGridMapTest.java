@@ -0,0 +1,132 @@
+package utils;
+
+import arc.math.*;
+import arc.struct.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class ChunkedGridMapTest{
+
+    @Test
+    public void matchesGridMap(){
+        Rand rand = new Rand(2);
+        GridMap<Integer> expected = new GridMap<>();
+        ChunkedGridMap<Integer> map = new ChunkedGridMap<>(3);
+
+        for(int i = 0; i < 5000; i++){
+            int x = rand.random(-40, 40), y = rand.random(-40, 40);
+            if(rand.chance(0.3)){
+                expected.remove(x, y);
+                map.remove(x, y);
+            }else{
+                expected.put(x, y, i);
+                map.put(x, y, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for(int x = -45; x <= 45; x++){
+            for(int y = -45; y <= 45; y++){
+                assertEquals(expected.get(x, y), map.get(x, y));
+                assertEquals(expected.containsKey(x, y), map.containsKey(x, y));
+            }
+        }
+
+        //keys are packed like GridMap's and come out in row-major order
+        LongSeq keys = map.keys().toArray();
+        assertEquals(map.size(), keys.size);
+        for(int i = 0; i < keys.size; i++){
+            long key = keys.get(i);
+            assertTrue(expected.containsKey((int)(key >>> 32), (int)key));
+            if(i > 0){
+                long prev = keys.get(i - 1);
+                assertTrue((int)prev < (int)key || ((int)prev == (int)key && (int)(prev >>> 32) < (int)(key >>> 32)));
+            }
+        }
+        assertEquals(map.size(), map.values().toArray().size);
+
+        int[] count = {0};
+        map.each(-10, -5, 17, 3, (x, y, value) -> {
+            assertTrue(x >= -10 && x <= 17 && y >= -5 && y <= 3);
+            assertEquals(expected.get(x, y), value);
+            count[0]++;
+        });
+        int inside = 0;
+        for(int x = -10; x <= 17; x++){
+            for(int y = -5; y <= 3; y++){
+                if(expected.containsKey(x, y)) inside++;
+            }
+        }
+        assertEquals(inside, count[0]);
+
+        //removing everything through the iterator frees every chunk
+        for(ChunkedGridMap.Values<Integer> it = map.values(); it.hasNext(); ){
+            it.next();
+            it.remove();
+        }
+        assertEquals(0, map.size());
+        assertEquals(0, map.chunkCount());
+        assertEquals(0L, map.memoryUsage());
+    }
+
+    @Test
+    public void swapsForGridMap(){
+        GridMap<String> map = new ChunkedGridMap<>(2);
+        map.put(5, 1, "b");
+        map.put(-3, 0, "a");
+        map.put(9, 9, "c");
+        assertEquals("a", map.get(-3, 0));
+        assertEquals("none", map.get(1, 1, "none"));
+
+        //the iterator types are GridMap's, used the way LongMap's are
+        LongMap.Values<String> values = map.values();
+        Seq<String> seen = new Seq<>();
+        while(values.hasNext) seen.add(values.next());
+        assertEquals(Seq.with("a", "b", "c"), seen);
+
+        LongMap.Keys keys = map.keys();
+        assertTrue(keys.hasNext);
+        long first = keys.next();
+        assertEquals(-3, (int)(first >>> 32));
+        assertEquals(0, (int)first);
+        keys.remove();
+        assertFalse(map.containsKey(-3, 0));
+        assertEquals(2, map.keys().toArray().size);
+
+        map.clear();
+        assertEquals(0, map.size());
+        assertFalse(map.values().hasNext);
+    }
+
+    @Test
+    public void concurrentReads() throws InterruptedException{
+        ChunkedGridMap<Integer> map = new ChunkedGridMap<>(3);
+        for(int x = 0; x < 64; x++){
+            for(int y = 0; y < 64; y += 2) map.put(x, y, x * 64 + y);
+        }
+
+        //reads don't touch shared state, so any number of threads can look up different chunks at once
+        boolean[] failed = {false};
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++){
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 20; i++){
+                    for(int x = offset; x < 64; x += 3){
+                        for(int y = 0; y < 64; y++){
+                            Integer value = map.get(x, y);
+                            if(y % 2 == 0 ? value == null || value != x * 64 + y : value != null) failed[0] = true;
+                        }
+                    }
+                    int[] count = {0};
+                    map.each((x, y, value) -> count[0]++);
+                    if(count[0] != map.size()) failed[0] = true;
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads) thread.join();
+        assertFalse(failed[0]);
+    }
+}
@@ -0,0 +1,98 @@
+package utils;
+
+import arc.files.*;
+import arc.util.*;
+import arc.util.io.*;
+import arc.util.Http.*;
+import com.sun.net.httpserver.*;
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class HttpTest{
+    static HttpServer server;
+    static String base;
+    static HttpBackend previous;
+
+    @BeforeClass
+    public static void start() throws IOException{
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] body = Streams.copyBytes(exchange.getRequestBody());
+            String query = exchange.getRequestURI().getQuery();
+            byte[] out = (exchange.getRequestMethod() + ":" + (query == null ? new String(body, StandardCharsets.UTF_8) : query)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("X-Test", "yes");
+            exchange.sendResponseHeaders(200, out.length);
+            exchange.getResponseBody().write(out);
+            exchange.close();
+        });
+        server.createContext("/large", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try(OutputStream out = exchange.getResponseBody()){
+                byte[] chunk = new byte[8192];
+                for(int i = 0; i < 128; i++) out.write(chunk);
+            }
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(451, -1);
+            exchange.close();
+        });
+        server.createContext("/redirect", exchange -> {
+            exchange.getResponseHeaders().add("Location", "/echo");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+        previous = Http.backend;
+    }
+
+    @AfterClass
+    public static void stop(){
+        Http.backend = previous;
+        server.stop(0);
+    }
+
+    @Test
+    public void urlConnection() throws IOException{
+        Http.backend = new UrlConnectionBackend();
+        checkBackend();
+    }
+
+    void checkBackend() throws IOException{
+        AtomicReference<String> result = new AtomicReference<>();
+
+        Http.get(base + "/echo").content("a=b").block(res -> {
+            assertEquals("yes", res.getHeader("X-Test"));
+            result.set(res.getResultAsString());
+        });
+        assertEquals("GET:a=b", result.get());
+
+        Http.post(base + "/echo", "payload").block(res -> result.set(res.getResultAsString()));
+        assertEquals("POST:payload", result.get());
+
+        Http.get(base + "/redirect").block(res -> result.set(res.getResultAsString()));
+        assertEquals("GET:", result.get());
+
+        AtomicInteger status = new AtomicInteger();
+        Http.get(base + "/redirect").redirects(false).block(res -> status.set(res.getStatusCode()));
+        assertEquals(302, status.get());
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Http.get(base + "/missing").error(error::set).block(res -> fail("4xx must go to the error handler"));
+        assertTrue(error.get() instanceof HttpStatusException);
+
+        Fi file = new Fi(File.createTempFile("arc-http", ".bin"));
+        try{
+            Http.get(base + "/large").block(res -> res.writeTo(file));
+            assertEquals(128 * 8192, file.length());
+        }finally{
+            file.delete();
+        }
+    }
+}
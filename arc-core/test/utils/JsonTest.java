@@ -0,0 +1,178 @@
+package utils;
+
+import arc.func.*;
+import arc.struct.*;
+import arc.util.serialization.*;
+import arc.util.serialization.Json.*;
+import arc.util.serialization.JsonWriter.*;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("unchecked")
+public class JsonTest{
+    public static class Base{
+        public int id = 1;
+        protected String name = "base";
+    }
+
+    public static class Config extends Base{
+        public boolean enabled;
+        public byte b = 3;
+        public short s;
+        public char c = 'x';
+        public long big = 1L << 40;
+        public float scale = 1f;
+        public double ratio;
+        public final int[] counts = {1, 2};
+        public Integer boxed;
+        public String[] tags;
+        public Seq<String> list = new Seq<>();
+        public ObjectMap<String, Integer> map = new ObjectMap<>();
+        public Base child;
+        @Deprecated
+        public int old = 5;
+        public transient int skipped = 9;
+    }
+
+    static Config sample(){
+        Config config = new Config();
+        config.id = 42;
+        config.name = "sample";
+        config.enabled = true;
+        config.b = -7;
+        config.s = 300;
+        config.c = 'q';
+        config.big = -123456789012L;
+        config.scale = 0.25f;
+        config.ratio = Math.PI;
+        config.counts[1] = 7;
+        config.boxed = 11;
+        config.tags = new String[]{"a", "b c"};
+        config.list.addAll("x", "y");
+        config.map.put("k", 3);
+        config.child = new Base();
+        config.old = 6;
+        config.skipped = 10;
+        return config;
+    }
+
+    @Test
+    public void accessorsMatchReflection(){
+        Json reflect = new Json(), accessors = new Json();
+        //written the way a generator would emit them, one per field
+        accessors.setAccessor(Config.class, "id", accessor((Base o) -> o.id, (Base o, Object v) -> o.id = (Integer)v));
+        accessors.setAccessor(Config.class, "name", accessor((Base o) -> o.name, (Base o, Object v) -> o.name = (String)v));
+        accessors.setAccessor(Config.class, "enabled", accessor((Config o) -> o.enabled, (Config o, Object v) -> o.enabled = (Boolean)v));
+        accessors.setAccessor(Config.class, "big", accessor((Config o) -> o.big, (Config o, Object v) -> o.big = (Long)v));
+        accessors.setAccessor(Config.class, "scale", accessor((Config o) -> o.scale, (Config o, Object v) -> o.scale = (Float)v));
+        accessors.setAccessor(Config.class, "list", accessor((Config o) -> o.list, (Config o, Object v) -> o.list = (Seq<String>)v));
+        accessors.setAccessor(Config.class, "child", accessor((Config o) -> o.child, (Config o, Object v) -> o.child = (Base)v));
+
+        Config config = sample();
+        String expected = reflect.toJson(config);
+        assertEquals(expected, accessors.toJson(config));
+        assertEquals(reflect.toJson(new Config()), accessors.toJson(new Config()));
+
+        Config read = accessors.fromJson(Config.class, expected);
+        assertEquals(expected, reflect.toJson(read));
+        assertEquals(42, read.id);
+        assertEquals("sample", read.name);
+        assertEquals(-123456789012L, read.big);
+        assertEquals(7, read.counts[1]);
+        assertEquals(9, read.skipped);
+    }
+
+    static <T> FieldAccessor accessor(Func<T, Object> getter, Cons2<T, Object> setter){
+        return new FieldAccessor(){
+            @Override
+            public Object get(Object object){
+                return getter.get((T)object);
+            }
+
+            @Override
+            public void set(Object object, Object value){
+                setter.get((T)object, value);
+            }
+        };
+    }
+
+    @Test
+    public void customAccessor(){
+        Json json = new Json();
+        int[] gets = {0};
+        json.setAccessor(Base.class, "id", new FieldAccessor(){
+            @Override
+            public Object get(Object object){
+                gets[0]++;
+                return ((Base)object).id * 2;
+            }
+
+            @Override
+            public void set(Object object, Object value){
+                ((Base)object).id = (Integer)value / 2;
+            }
+        });
+
+        Base base = new Base();
+        base.id = 5;
+        String text = json.toJson(base);
+        assertTrue(text, text.contains("id:10"));
+        assertTrue(gets[0] > 0);
+        assertEquals(5, json.fromJson(Base.class, text).id);
+    }
+
+    @Test
+    public void streamMatchesReader(){
+        String[] inputs = {
+            "{a:1,b:-2.5e3,c:\"q\\\"uo\\u00e9te\\n\",d:true,e:null,f:[1 2 3],g:{}}",
+            "// comment\n{\n  name: some text here  \n  /* block */ list: [a, b/c, \"\", 007, 1.0f]\n  \"spaced name\" : x\n}",
+            "[\"\u00fcn\u00efc\u00f6d\u00e9 \u2713\", {x: [[]]}, -0, +5, 9223372036854775807, 1e400, abc def]",
+        };
+        for(String input : inputs){
+            String expected = new JsonReader().parse(input).toJson(OutputType.json);
+            assertEquals(expected, stream(input).parse().toJson(OutputType.json));
+        }
+
+        //crosses buffer boundaries in every kind of token
+        StringBuilder big = new StringBuilder("{");
+        for(int i = 0; i < 3000; i++){
+            big.append("key").append(i).append(": ").append(i % 3 == 0 ? "\"str // not a comment " + i + "\"" : i % 3 == 1 ? String.valueOf(i * 0.5) : "word" + i).append(i % 7 == 0 ? "// c\n" : ",");
+        }
+        big.append("}");
+        String input = big.toString();
+        assertEquals(new JsonReader().parse(input).toJson(OutputType.json), stream(input).parse().toJson(OutputType.json));
+        byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+        assertEquals(new JsonReader().parse(input).toJson(OutputType.json), new JsonStreamReader(ByteBuffer.wrap(bytes)).parse().toJson(OutputType.json));
+    }
+
+    @Test
+    public void streamBinding(){
+        Json json = new Json();
+        json.addClassTag("Config", Config.class);
+
+        Config config = sample();
+        String text = json.toJson(config, Base.class);
+        assertTrue(text, text.startsWith("{class:Config"));
+
+        Base read = json.fromJson(Base.class, stream(text));
+        assertTrue(read instanceof Config);
+        assertEquals(json.toJson(json.fromJson(Base.class, text)), json.toJson(read));
+
+        Seq<Config> list = Seq.with(sample(), new Config(), sample());
+        String listText = json.toJson(list, Seq.class, Config.class);
+        assertEquals(listText, json.toJson(json.fromJson(Seq.class, Config.class, stream(listText)), Seq.class, Config.class));
+
+        Config[] array = json.fromJson(Config[].class, stream(json.toJson(list.toArray(Config.class))));
+        assertEquals(3, array.length);
+        assertEquals(-123456789012L, array[2].big);
+    }
+
+    static JsonStreamReader stream(String text){
+        return new JsonStreamReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+}
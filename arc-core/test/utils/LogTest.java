@@ -0,0 +1,102 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.Log.*;
+import arc.util.Log.AsyncLogHandler.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class LogTest{
+
+    @Test
+    public void format(){
+        DefaultLogFormatter formatter = new DefaultLogFormatter();
+
+        assertEquals("plain", formatter.format("plain", true));
+        assertEquals("a 1 b two @", formatter.format("a @ b @ @", true, 1, "two"));
+        assertEquals(ColorCodes.lightRed + "x" + ColorCodes.reset, formatter.format("&lrx&fr", true));
+        assertEquals("x", formatter.format("&lrx&fr", false));
+        //codes inside arguments are translated too, unknown codes are kept
+        assertEquals("[" + ColorCodes.green + "ok] &q &", formatter.format("[@] &q &", true, "&gok"));
+        assertEquals("[ok]", formatter.format("[@]", false, "&gok"));
+
+        assertEquals(Log.addColors("&lc&fbtext&fr"), formatter.format("&lc&fb@&fr", true, "text"));
+        assertEquals("text", Log.removeColors("&lc&fbtext&fr"));
+    }
+
+    @Test
+    public void twoLetterCodesFirst(){
+        assertEquals(ColorCodes.backDefault, Log.addColors("&bd"));
+        assertEquals(ColorCodes.blue + "x", Log.addColors("&bx"));
+        assertEquals(ColorCodes.lightBlack, Log.addColors("&lk"));
+        assertEquals("&l", Log.addColors("&l"));
+    }
+
+    @Test
+    public void asyncOrder(){
+        Seq<String> lines = new Seq<>();
+        AsyncLogHandler handler = new AsyncLogHandler((level, text) -> {
+            synchronized(lines){
+                lines.add(text);
+            }
+        }, 4, OverflowPolicy.block);
+
+        for(int i = 0; i < 1000; i++){
+            handler.log(LogLevel.info, "line " + i);
+        }
+        handler.flush();
+
+        synchronized(lines){
+            assertEquals(1000, lines.size);
+            for(int i = 0; i < 1000; i++){
+                assertEquals("line " + i, lines.get(i));
+            }
+        }
+        assertEquals(0, handler.getDropped());
+
+        handler.dispose();
+        handler.log(LogLevel.info, "after");
+        assertEquals("after", lines.peek());
+    }
+
+    @Test
+    public void asyncDrop() throws InterruptedException{
+        Object gate = new Object();
+        boolean[] open = {false};
+        Seq<String> lines = new Seq<>();
+        AsyncLogHandler handler = new AsyncLogHandler((level, text) -> {
+            synchronized(gate){
+                while(!open[0]){
+                    try{
+                        gate.wait();
+                    }catch(InterruptedException e){
+                        return;
+                    }
+                }
+            }
+            synchronized(lines){
+                lines.add(text);
+            }
+        }, 2, OverflowPolicy.dropNewest);
+
+        //the writer blocks on the first lines it takes, then only two more fit in the queue
+        for(int i = 0; i < 10; i++){
+            handler.log(LogLevel.info, "line " + i);
+            Thread.sleep(1);
+        }
+        assertTrue(handler.getDropped() >= 6);
+
+        synchronized(gate){
+            open[0] = true;
+            gate.notifyAll();
+        }
+        handler.dispose();
+
+        synchronized(lines){
+            assertEquals(10 - handler.getDropped(), lines.size);
+            assertEquals("line 0", lines.first());
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package utils;
+
+import arc.math.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ProbeMapTest{
+
+    @Test
+    public void intIntMatchesHashMap(){
+        Rand rand = new Rand(1);
+        HashMap<Integer, Integer> expected = new HashMap<>();
+        ProbeIntIntMap map = new ProbeIntIntMap(4);
+
+        for(int i = 0; i < 20000; i++){
+            //a small key range so that removals hit, with zero included
+            int key = rand.random(-300, 300);
+            if(rand.chance(0.4)){
+                Integer old = expected.remove(key);
+                assertEquals(old == null ? -1 : old, map.remove(key, -1));
+            }else{
+                expected.put(key, i);
+                map.put(key, i);
+            }
+            assertEquals(expected.size(), map.size);
+        }
+
+        for(int key = -310; key <= 310; key++){
+            assertEquals(expected.containsKey(key), map.containsKey(key));
+            assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key, -1));
+        }
+
+        HashMap<Integer, Integer> iterated = new HashMap<>();
+        for(ProbeIntIntMap.Entry entry : map){
+            assertNull(iterated.put(entry.key, entry.value));
+        }
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void objectMatchesHashMap(){
+        Rand rand = new Rand(2);
+        HashMap<String, Integer> expected = new HashMap<>();
+        ProbeObjectMap<String, Integer> map = new ProbeObjectMap<>(4);
+
+        for(int i = 0; i < 20000; i++){
+            String key = "k" + rand.random(400);
+            if(rand.chance(0.4)){
+                assertEquals(expected.remove(key), map.remove(key));
+            }else{
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            assertEquals(expected.size(), map.size);
+        }
+
+        for(int i = 0; i <= 410; i++){
+            assertEquals(expected.get("k" + i), map.get("k" + i));
+        }
+        assertEquals(new HashSet<>(expected.keySet()), new HashSet<>(map.keys().toSeq().list()));
+    }
+
+    @Test
+    public void iteratorRemove(){
+        //packed coordinates collide in the low bits, which makes long runs of occupied slots
+        ProbeLongMap<String> map = new ProbeLongMap<>();
+        HashMap<Long, String> expected = new HashMap<>();
+        for(int x = 0; x < 40; x++){
+            for(int y = 0; y < 40; y++){
+                long key = (long)x << 32 | y;
+                map.put(key, x + "," + y);
+                expected.put(key, x + "," + y);
+            }
+        }
+
+        int visited = 0;
+        ProbeLongMap.Entries<String> entries = map.entries();
+        while(entries.hasNext()){
+            ProbeLongMap.Entry<String> entry = entries.next();
+            assertEquals(expected.get(entry.key), entry.value);
+            visited++;
+            if(entry.key % 3 == 0){
+                entries.remove();
+                expected.remove(entry.key);
+            }
+        }
+        assertEquals(1600, visited);
+        assertEquals(expected.size(), map.size);
+
+        for(ProbeLongMap.Entry<String> entry : map){
+            assertEquals(expected.remove(entry.key), entry.value);
+        }
+        assertTrue(expected.isEmpty());
+    }
+
+    @Test
+    public void iteratorRemoveAll(){
+        ProbeIntMap<String> map = new ProbeIntMap<>();
+        for(int i = -500; i <= 500; i++) map.put(i * 16, "v" + i);
+
+        int visited = 0;
+        ProbeIntMap.Keys keys = map.keys();
+        while(keys.hasNext){
+            keys.next();
+            keys.remove();
+            visited++;
+        }
+        assertEquals(1001, visited);
+        assertEquals(0, map.size);
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.keys().hasNext);
+    }
+
+    @Test
+    public void copyAndEquals(){
+        ProbeIntIntMap map = new ProbeIntIntMap();
+        for(int i = 0; i < 100; i++) map.put(i * 7, i);
+        map.remove(14);
+
+        ProbeIntIntMap copy = new ProbeIntIntMap(map);
+        assertEquals(map, copy);
+        assertEquals(map.hashCode(), copy.hashCode());
+
+        copy.put(14, 2);
+        assertFalse(map.equals(copy));
+        assertEquals(-1, map.get(14, -1));
+
+        ProbeObjectMap<String, String> objects = ProbeObjectMap.of("a", "b", "c", null);
+        ProbeObjectMap<String, String> objectCopy = objects.copy();
+        assertEquals(objects, objectCopy);
+        assertTrue(objectCopy.containsKey("c"));
+        assertNull(objectCopy.get("c", "default"));
+
+        objects.shrink(0);
+        objects.clear(0);
+        assertTrue(objects.isEmpty());
+        assertEquals(2, objectCopy.size);
+    }
+}
@@ -0,0 +1,71 @@
+package utils;
+
+import arc.struct.*;
+import arc.util.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class TaskQueueTest{
+
+    @Test
+    public void producersKeepOrder() throws InterruptedException{
+        TaskQueue queue = new TaskQueue();
+        int producers = 4, count = 20000;
+        IntSeq[] seen = new IntSeq[producers];
+        Thread[] threads = new Thread[producers];
+
+        for(int p = 0; p < producers; p++){
+            IntSeq out = seen[p] = new IntSeq();
+            threads[p] = new Thread(() -> {
+                for(int i = 0; i < count; i++){
+                    int value = i;
+                    queue.post(() -> out.add(value));
+                }
+            });
+            threads[p].start();
+        }
+
+        boolean alive = true;
+        while(alive){
+            alive = false;
+            for(Thread thread : threads) alive |= thread.isAlive();
+            queue.run();
+        }
+        queue.run();
+
+        assertEquals(0, queue.size());
+        assertEquals(producers * count, queue.getLatency().count());
+        for(IntSeq out : seen){
+            assertEquals(count, out.size);
+            for(int i = 0; i < count; i++) assertEquals(i, out.get(i));
+        }
+    }
+
+    @Test
+    public void budgetCarriesOver(){
+        TaskQueue queue = new TaskQueue();
+        int[] ran = {0};
+        for(int i = 0; i < 10; i++){
+            queue.post(() -> {
+                ran[0]++;
+                Threads.sleep(2);
+            });
+        }
+
+        queue.run(1);
+        assertEquals(1, ran[0]);
+        assertEquals(9, queue.size());
+
+        //tasks posted while running wait for the next call
+        queue.post(() -> queue.post(() -> ran[0] += 100));
+        queue.run();
+        assertEquals(10, ran[0]);
+        assertEquals(1, queue.size());
+
+        queue.clear();
+        queue.run();
+        assertEquals(10, ran[0]);
+        assertEquals(0, queue.size());
+    }
+}
@@ -0,0 +1,97 @@
+package utils;
+
+import arc.files.*;
+import arc.struct.*;
+import org.junit.*;
+
+import java.io.*;
+import java.util.zip.*;
+
+import static org.junit.Assert.*;
+
+public class ZipFiTest{
+    static Fi zip;
+
+    @BeforeClass
+    public static void create() throws IOException{
+        zip = new Fi(File.createTempFile("arc-zipfi", ".zip"));
+        try(ZipOutputStream out = new ZipOutputStream(zip.write())){
+            //explicit directory entries only for some directories
+            out.putNextEntry(new ZipEntry("assets/"));
+            for(int i = 0; i < 50; i++){
+                out.putNextEntry(new ZipEntry("assets/sprites/s" + i + ".png"));
+                out.write(i);
+            }
+            out.putNextEntry(new ZipEntry("assets/sprites.txt"));
+            out.write(new byte[]{1, 2, 3});
+            out.putNextEntry(new ZipEntry("assets/sprites0/deep/file.bin"));
+            out.putNextEntry(new ZipEntry("mod.json"));
+            out.write("{}".getBytes());
+        }
+    }
+
+    @AfterClass
+    public static void delete(){
+        zip.delete();
+    }
+
+    @Test
+    public void eager(){
+        check(new ZipFi(zip));
+    }
+
+    @Test
+    public void lazy(){
+        check(new ZipFi(zip, true));
+        //lookups before anything is listed
+        ZipFi root = new ZipFi(zip, true);
+        assertEquals(3, root.child("assets").child("sprites.txt").length());
+        assertTrue(root.child("assets").child("sprites0").child("deep").isDirectory());
+        assertFalse(root.child("assets").child("sprite").exists());
+        assertEquals(3, root.child("assets").list().length);
+    }
+
+    @Test
+    public void nestedPaths(){
+        for(ZipFi root : new ZipFi[]{new ZipFi(zip), new ZipFi(zip, true)}){
+            Fi file = root.child("assets/sprites/s3.png");
+            assertTrue(file.exists());
+            assertEquals(3, file.readBytes()[0]);
+            assertSame(root.child("assets").child("sprites").child("s3.png"), file);
+            assertTrue(root.child("assets/sprites0/").isDirectory());
+            assertFalse(root.child("assets/missing/s3.png").exists());
+            assertFalse(root.child("mod.json/x").exists());
+
+            //only direct children are listed
+            assertEquals(names(root.list()), ObjectSet.with("assets", "mod.json"));
+            assertEquals(names(root.child("assets").list()), ObjectSet.with("sprites", "sprites.txt", "sprites0"));
+        }
+    }
+
+    void check(ZipFi root){
+        assertEquals(names(root.list()), ObjectSet.with("assets", "mod.json"));
+
+        Fi assets = root.child("assets");
+        assertTrue(assets.isDirectory());
+        assertEquals("assets/", assets.path());
+        assertSame(root, assets.parent());
+        assertEquals(names(assets.list()), ObjectSet.with("sprites", "sprites.txt", "sprites0"));
+
+        Fi sprites = assets.child("sprites");
+        assertEquals(50, sprites.list().length);
+        assertSame(sprites, sprites.child("s7.png").parent());
+        assertEquals(7, sprites.child("s7.png").readBytes()[0]);
+        assertFalse(sprites.child("s7.png").isDirectory());
+
+        assertEquals("{}", root.child("mod.json").readString());
+        assertFalse(root.child("missing").exists());
+        assertNull(root.parent());
+        assertEquals(1, assets.child("sprites0").child("deep").list().length);
+    }
+
+    static ObjectSet<String> names(Fi[] files){
+        ObjectSet<String> out = new ObjectSet<>();
+        for(Fi file : files) out.add(file.name());
+        return out;
+    }
+}
@@ -0,0 +1,95 @@
+package arc.benchmarks;
+
+import arc.files.*;
+import arc.graphics.*;
+import arc.graphics.PixmapIO.*;
+import arc.math.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Loads a large pixmap from an APIX file in the format from before tiles were added, which is a single deflate stream,
+ * and from tiled files with each codec. The tiled files decode their tiles on every core.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApixBenchmark{
+    static final int size = 2048;
+
+    Fi single, deflate, fast;
+
+    @Setup
+    public void setup() throws IOException{
+        Headless.init();
+
+        //flat areas with edges and some noise, like a rendered map
+        Rand rand = new Rand(1);
+        Pixmap pixmap = new Pixmap(size, size);
+        for(int i = 0; i < 400; i++){
+            int color = Color.rgba8888(rand.random(1f), rand.random(1f), rand.random(1f), 1f);
+            pixmap.fillRect(rand.random(size), rand.random(size), rand.random(20, 300), rand.random(20, 300), color);
+        }
+        for(int i = 0; i < size * size / 20; i++){
+            pixmap.setRaw(rand.random(size - 1), rand.random(size - 1), rand.nextInt() | 0xff);
+        }
+
+        single = temp();
+        try(DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(single.write(false)));
+            WritableByteChannel channel = Channels.newChannel(out)){
+            out.writeInt(size);
+            out.writeInt(size);
+            ByteBuffer pixels = pixmap.pixels.duplicate();
+            pixels.position(0);
+            channel.write(pixels);
+        }
+
+        deflate = temp();
+        PixmapIO.writeApix(deflate, pixmap, ApixCompression.deflate);
+        fast = temp();
+        PixmapIO.writeApix(fast, pixmap, ApixCompression.fast);
+        pixmap.dispose();
+    }
+
+    @TearDown
+    public void tearDown(){
+        single.delete();
+        deflate.delete();
+        fast.delete();
+    }
+
+    static Fi temp() throws IOException{
+        File file = File.createTempFile("benchmark", ".apix");
+        file.deleteOnExit();
+        return new Fi(file);
+    }
+
+    @Benchmark
+    public void readSingleStream(){
+        PixmapIO.readApix(single).dispose();
+    }
+
+    @Benchmark
+    public void readTiledDeflate(){
+        PixmapIO.readApix(deflate).dispose();
+    }
+
+    @Benchmark
+    public void readTiledFast(){
+        PixmapIO.readApix(fast).dispose();
+    }
+
+    /** Reads a screen-sized area, which only decodes the tiles under it. */
+    @Benchmark
+    public void readTiledArea(){
+        PixmapIO.readApix(deflate, 700, 900, 320, 240).dispose();
+    }
+}
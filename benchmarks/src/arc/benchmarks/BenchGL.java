@@ -0,0 +1,40 @@
+package arc.benchmarks;
+
+import arc.graphics.*;
+import arc.mock.*;
+
+import java.nio.*;
+
+/** A GL that does nothing, but reports shaders as compiled, so batches can be created without a context. */
+public class BenchGL extends MockGL20{
+
+    @Override
+    public int glCreateProgram(){
+        return 1;
+    }
+
+    @Override
+    public int glCreateShader(int type){
+        return 1;
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, IntBuffer params){
+        params.put(0, pname == GL20.GL_COMPILE_STATUS ? 1 : 0);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, IntBuffer params){
+        params.put(0, pname == GL20.GL_LINK_STATUS ? 1 : 0);
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader){
+        return "";
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program){
+        return "";
+    }
+}
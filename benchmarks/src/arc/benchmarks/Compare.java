@@ -0,0 +1,99 @@
+package arc.benchmarks;
+
+import arc.files.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.serialization.*;
+
+/**
+ * Compares two JMH result files written by the {@code bench} task, such as the results of two commits, and prints the
+ * change of every benchmark they have in common.
+ * <p>
+ * Arguments: the base file, the new file, and optionally a threshold in percent. With a threshold, the exit code is 1
+ * if any benchmark got slower by more than that, and by more than the error of both scores.
+ */
+public class Compare{
+
+    public static void main(String[] args){
+        if(args.length < 2){
+            System.err.println("Usage: Compare <base.json> <new.json> [threshold percent]");
+            System.exit(2);
+        }
+
+        OrderedMap<String, JsonValue> base = read(new Fi(args[0])), head = read(new Fi(args[1]));
+        float threshold = args.length > 2 ? Float.parseFloat(args[2]) : -1f;
+        int width = 10;
+        for(String name : head.keys()) width = Math.max(width, name.length());
+
+        System.out.println(Strings.format("@  @  @  @  @", pad("Benchmark", width), lpad("Base", 14), lpad("New", 14), pad("Unit", 8), lpad("Change", 9)));
+        int regressions = 0;
+        for(ObjectMap.Entry<String, JsonValue> entry : head){
+            JsonValue before = base.get(entry.key), after = entry.value;
+            JsonValue metric = after.get("primaryMetric");
+            String unit = metric.getString("scoreUnit");
+            double score = metric.getDouble("score"), error = metric.getDouble("scoreError", 0);
+
+            if(before == null){
+                System.out.println(Strings.format("@  @  @  @  @", pad(entry.key, width), lpad("-", 14), lpad(format(score), 14), pad(unit, 8), lpad("new", 9)));
+                continue;
+            }
+
+            JsonValue baseMetric = before.get("primaryMetric");
+            double baseScore = baseMetric.getDouble("score"), baseError = baseMetric.getDouble("scoreError", 0);
+            //throughput is better when higher, every other mode measures time
+            boolean higherBetter = after.getString("mode").equals("thrpt");
+            double change = (score - baseScore) / baseScore * 100.0;
+            double worse = higherBetter ? -change : change;
+            boolean significant = Math.abs(score - baseScore) > (Double.isNaN(error) ? 0 : error) + (Double.isNaN(baseError) ? 0 : baseError);
+
+            String mark = !significant ? "" : worse > 0 ? " slower" : " faster";
+            if(significant && threshold >= 0 && worse > threshold) regressions++;
+
+            System.out.println(Strings.format("@  @  @  @  @@", pad(entry.key, width), lpad(format(baseScore), 14), lpad(format(score), 14), pad(unit, 8),
+                lpad((change >= 0 ? "+" : "") + Strings.fixed((float)change, 1) + "%", 9), mark));
+        }
+
+        for(String name : base.keys()){
+            if(!head.containsKey(name)) System.out.println(Strings.format("@  removed", pad(name, width)));
+        }
+
+        if(regressions > 0){
+            System.out.println(regressions + " benchmark(s) regressed by more than " + threshold + "%.");
+            System.exit(1);
+        }
+    }
+
+    /** @return results by benchmark name and parameters, in file order. */
+    static OrderedMap<String, JsonValue> read(Fi file){
+        OrderedMap<String, JsonValue> results = new OrderedMap<>();
+        for(JsonValue result = new JsonReader().parse(file).child; result != null; result = result.next){
+            StringBuilder name = new StringBuilder(result.getString("benchmark").replace("arc.benchmarks.", ""));
+            JsonValue params = result.get("params");
+            if(params != null){
+                name.append(" {");
+                for(JsonValue param = params.child; param != null; param = param.next){
+                    name.append(param.name).append('=').append(param.asString()).append(param.next == null ? "" : ", ");
+                }
+                name.append('}');
+            }
+            results.put(name.toString(), result);
+        }
+        return results;
+    }
+
+    static String format(double score){
+        return Strings.fixed((float)score, score >= 100 ? 1 : score >= 1 ? 3 : 5);
+    }
+
+    static String pad(String text, int width){
+        StringBuilder out = new StringBuilder(text);
+        while(out.length() < width) out.append(' ');
+        return out.toString();
+    }
+
+    static String lpad(String text, int width){
+        StringBuilder out = new StringBuilder();
+        while(out.length() + text.length() < width) out.append(' ');
+        return out.append(text).toString();
+    }
+}
@@ -0,0 +1,118 @@
+package arc.benchmarks;
+
+import arc.math.*;
+import arc.net.*;
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+/**
+ * Writing and reading a corpus of game-like packets through {@link DeflateSerializer}: many small input packets, entity
+ * snapshots with slowly changing positions, and chat messages. The compression ratio is printed after each trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeflateSerializerBenchmark{
+    @Param({"1", "6"})
+    public int level;
+    @Param({"false", "true"})
+    public boolean dictionary;
+
+    byte[][] packets;
+    NetSerializer raw = new BytesSerializer();
+    DeflateSerializer deflate;
+    ByteBuffer buffer = ByteBuffer.allocate(16384);
+
+    /** Writes byte arrays as they are, like a serializer of already encoded packets. */
+    static class BytesSerializer implements NetSerializer{
+        @Override
+        public void write(ByteBuffer buffer, Object object){
+            buffer.put((byte[])object);
+        }
+
+        @Override
+        public Object read(ByteBuffer buffer){
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+
+    @Setup
+    public void setup(){
+        packets = corpus(new Rand(1), 2000);
+        deflate = new DeflateSerializer(raw, 64, level, dictionary ? DeflateSerializer.train(new Seq<>(corpus(new Rand(2), 500)), 16384) : null);
+    }
+
+    @TearDown
+    public void report(){
+        System.out.println("Compression ratio: " + (float)deflate.getOutputBytes() / deflate.getInputBytes());
+    }
+
+    static byte[][] corpus(Rand rand, int count){
+        byte[][] packets = new byte[count][];
+        ByteBuffer out = ByteBuffer.allocate(16384);
+        String[] words = {"gg", "wave", "core", "attack", "defend", "here", "need", "copper", "silicon", "help", "nice", "build"};
+        float[] x = new float[40], y = new float[40];
+        for(int i = 0; i < x.length; i++){
+            x[i] = rand.random(4000f);
+            y[i] = rand.random(4000f);
+        }
+
+        for(int i = 0; i < count; i++){
+            out.clear();
+            float type = rand.random(1f);
+            if(type < 0.6f){
+                //player input
+                out.put((byte)3).putInt(rand.random(16)).putFloat(rand.random(4000f)).putFloat(rand.random(4000f)).put((byte)(rand.chance(0.5) ? 1 : 0));
+            }else if(type < 0.95f){
+                //entity snapshot
+                out.put((byte)7).putInt(i).putShort((short)x.length);
+                for(int e = 0; e < x.length; e++){
+                    x[e] += rand.range(3f);
+                    y[e] += rand.range(3f);
+                    out.putInt(1000 + e).putShort((short)(e % 6)).putFloat(x[e]).putFloat(y[e]).putShort((short)(e * 37 % 360)).putFloat(100f);
+                }
+            }else{
+                //chat
+                StringBuilder message = new StringBuilder();
+                for(int w = rand.random(2, 12); w > 0; w--) message.append(words[rand.random(words.length - 1)]).append(' ');
+                byte[] text = message.toString().getBytes(StandardCharsets.UTF_8);
+                out.put((byte)12).putShort((short)text.length).put(text);
+            }
+            out.flip();
+            packets[i] = new byte[out.remaining()];
+            out.get(packets[i]);
+        }
+        return packets;
+    }
+
+    /** The wrapped serializer alone, for comparison. */
+    @Benchmark
+    public int roundTripRaw(){
+        return roundTrip(raw);
+    }
+
+    @Benchmark
+    public int roundTripDeflate(){
+        return roundTrip(deflate);
+    }
+
+    int roundTrip(NetSerializer serializer){
+        int total = 0;
+        for(byte[] packet : packets){
+            buffer.clear();
+            serializer.write(buffer, packet);
+            buffer.flip();
+            total += ((byte[])serializer.read(buffer)).length;
+        }
+        return total;
+    }
+}
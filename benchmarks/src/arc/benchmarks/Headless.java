@@ -0,0 +1,26 @@
+package arc.benchmarks;
+
+import arc.*;
+import arc.mock.*;
+import arc.util.*;
+
+/** Sets up just enough of {@link Core} to create textures and batches without a window. */
+public class Headless{
+    private static boolean initialized;
+
+    public static synchronized void init(){
+        if(initialized) return;
+        initialized = true;
+
+        ArcNativesLoader.load();
+        Core.app = new MockApplication(){
+            //batches only sort on multiple threads on desktop
+            @Override
+            public ApplicationType getType(){
+                return ApplicationType.desktop;
+            }
+        };
+        Core.graphics = new MockGraphics();
+        Core.gl = Core.gl20 = new BenchGL();
+    }
+}
@@ -0,0 +1,144 @@
+package arc.benchmarks;
+
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Compares the cuckoo {@link IntIntMap} and {@link IntMap} with their linear probing counterparts. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntMapBenchmark{
+    @Param({"sequential", "packed", "random"})
+    public String distribution;
+    @Param({"1000", "100000"})
+    public int size;
+
+    int[] keys, misses;
+    IntIntMap cuckoo;
+    ProbeIntIntMap probe;
+    IntMap<Object> cuckooObjects;
+    ProbeIntMap<Object> probeObjects;
+
+    @Setup
+    public void setup(){
+        int[] all = Keys.ints(distribution, size * 2, 1);
+        keys = Arrays.copyOfRange(all, 0, size);
+        misses = Arrays.copyOfRange(all, size, size * 2);
+
+        cuckoo = new IntIntMap();
+        probe = new ProbeIntIntMap();
+        cuckooObjects = new IntMap<>();
+        probeObjects = new ProbeIntMap<>();
+        for(int key : keys){
+            cuckoo.put(key, key);
+            probe.put(key, key);
+            cuckooObjects.put(key, this);
+            probeObjects.put(key, this);
+        }
+    }
+
+    @Benchmark
+    public int getCuckoo(){
+        int sum = 0;
+        for(int key : keys) sum += cuckoo.get(key, 0);
+        return sum;
+    }
+
+    @Benchmark
+    public int getProbe(){
+        int sum = 0;
+        for(int key : keys) sum += probe.get(key, 0);
+        return sum;
+    }
+
+    @Benchmark
+    public int getMissCuckoo(){
+        int sum = 0;
+        for(int key : misses) sum += cuckoo.get(key, 0);
+        return sum;
+    }
+
+    @Benchmark
+    public int getMissProbe(){
+        int sum = 0;
+        for(int key : misses) sum += probe.get(key, 0);
+        return sum;
+    }
+
+    @Benchmark
+    public void getObjectsCuckoo(Blackhole bh){
+        for(int key : keys) bh.consume(cuckooObjects.get(key));
+    }
+
+    @Benchmark
+    public void getObjectsProbe(Blackhole bh){
+        for(int key : keys) bh.consume(probeObjects.get(key));
+    }
+
+    /** Fills a new map, including every resize on the way. */
+    @Benchmark
+    public IntIntMap putCuckoo(){
+        IntIntMap map = new IntIntMap();
+        for(int key : keys) map.put(key, key);
+        return map;
+    }
+
+    @Benchmark
+    public ProbeIntIntMap putProbe(){
+        ProbeIntIntMap map = new ProbeIntIntMap();
+        for(int key : keys) map.put(key, key);
+        return map;
+    }
+
+    /** Removes and re-adds every key, keeping the map at the same size. */
+    @Benchmark
+    public IntIntMap removeCuckoo(){
+        IntIntMap map = cuckoo;
+        for(int key : keys){
+            map.remove(key, 0);
+            map.put(key, key);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public ProbeIntIntMap removeProbe(){
+        ProbeIntIntMap map = probe;
+        for(int key : keys){
+            map.remove(key, 0);
+            map.put(key, key);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public int iterateCuckoo(){
+        int sum = 0;
+        for(IntIntMap.Entry entry : cuckoo.entries()) sum += entry.value;
+        return sum;
+    }
+
+    @Benchmark
+    public int iterateProbe(){
+        int sum = 0;
+        for(ProbeIntIntMap.Entry entry : probe.entries()) sum += entry.value;
+        return sum;
+    }
+
+    @Benchmark
+    public void iterateObjectsCuckoo(Blackhole bh){
+        for(Object value : cuckooObjects.values()) bh.consume(value);
+    }
+
+    @Benchmark
+    public void iterateObjectsProbe(Blackhole bh){
+        for(Object value : probeObjects.values()) bh.consume(value);
+    }
+}
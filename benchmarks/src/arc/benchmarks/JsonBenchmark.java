@@ -0,0 +1,125 @@
+package arc.benchmarks;
+
+import arc.jsongen.*;
+import arc.math.*;
+import arc.struct.*;
+import arc.util.serialization.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+
+/**
+ * Round trips of an object graph through {@link Json} and {@link UBJsonWriter}/{@link UBJsonReader}, with fields
+ * accessed by reflection or by the accessors that {@link GenerateAccessors} generates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark{
+    @Param({"false", "true"})
+    public boolean accessors;
+    /** The number of units in the saved state. */
+    @Param({"10", "1000"})
+    public int units;
+
+    Json json;
+    SaveState state;
+    String text;
+    byte[] utf8, binary;
+
+    @GenerateAccessors
+    public static class Unit{
+        public int id;
+        public String type;
+        public float x, y, rotation, health;
+        public boolean shielded;
+        public int[] items;
+    }
+
+    @GenerateAccessors
+    public static class SaveState{
+        public String name;
+        public long seed;
+        public int wave;
+        public Seq<Unit> units = new Seq<>();
+        public ObjectMap<String, Integer> research = new ObjectMap<>();
+    }
+
+    @Setup
+    public void setup() throws IOException{
+        json = new Json();
+        if(accessors){
+            JsonBenchmark_UnitAccessors.register(json);
+            JsonBenchmark_SaveStateAccessors.register(json);
+        }
+
+        Rand rand = new Rand(1);
+        state = new SaveState();
+        state.name = "benchmark";
+        state.seed = rand.nextLong();
+        state.wave = 30;
+        String[] types = {"dagger", "mace", "fortress", "flare", "horizon", "mono", "poly"};
+        for(int i = 0; i < units; i++){
+            Unit unit = new Unit();
+            unit.id = i;
+            unit.type = types[rand.random(types.length - 1)];
+            unit.x = rand.random(4000f);
+            unit.y = rand.random(4000f);
+            unit.rotation = rand.random(360f);
+            unit.health = rand.random(1000f);
+            unit.shielded = rand.chance(0.2);
+            unit.items = new int[]{rand.random(100), rand.random(100)};
+            state.units.add(unit);
+        }
+        for(int i = 0; i < 50; i++) state.research.put("node-" + i, rand.random(5));
+
+        text = json.toJson(state);
+        utf8 = text.getBytes(StandardCharsets.UTF_8);
+        binary = writeBinary();
+    }
+
+    @Benchmark
+    public String write(){
+        return json.toJson(state);
+    }
+
+    @Benchmark
+    public SaveState read(){
+        return json.fromJson(SaveState.class, text);
+    }
+
+    /** Binds the object directly from UTF-8 bytes, without building a tree of values. */
+    @Benchmark
+    public SaveState readStream(){
+        return json.fromJson(SaveState.class, new JsonStreamReader(new ByteArrayInputStream(utf8)));
+    }
+
+    @Benchmark
+    public JsonValue parse(){
+        return new JsonReader().parse(text);
+    }
+
+    @Benchmark
+    public byte[] writeUBJson() throws IOException{
+        return writeBinary();
+    }
+
+    @Benchmark
+    public SaveState readUBJson(){
+        return json.readValue(SaveState.class, new UBJsonReader().parse(new ByteArrayInputStream(binary)));
+    }
+
+    byte[] writeBinary() throws IOException{
+        ByteArrayOutputStream out = new ByteArrayOutputStream(binary == null ? 256 : binary.length);
+        UBJsonWriter writer = new UBJsonWriter(out);
+        json.setWriter(writer);
+        json.writeValue(state, SaveState.class);
+        writer.close();
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,106 @@
+package arc.benchmarks;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.struct.*;
+
+/** Key sets shaped like the ones maps are used with: entity ids, packed tile positions and hashes. */
+public class Keys{
+
+    /**
+     * @param distribution "sequential" for ids counting up from zero, "packed" for {@link Point2#pack(int, int)} positions in a
+     * square, or "random" for uniformly random ints.
+     * @return count distinct keys, in random order.
+     */
+    public static int[] ints(String distribution, int count, long seed){
+        Rand rand = new Rand(seed);
+        IntSet used = new IntSet(count);
+        int[] keys = new int[count];
+        int side = (int)Math.ceil(Math.sqrt(count));
+
+        for(int i = 0; i < count; i++){
+            switch(distribution){
+                case "sequential": keys[i] = i; break;
+                case "packed": keys[i] = Point2.pack(i % side, i / side); break;
+                case "random":
+                    int key;
+                    do key = rand.nextInt(); while(!used.add(key));
+                    keys[i] = key;
+                    break;
+                default: throw new IllegalArgumentException("Unknown distribution: " + distribution);
+            }
+        }
+
+        shuffle(keys, rand);
+        return keys;
+    }
+
+    /**
+     * @param distribution "sequential", "random", or "packed" for two ints packed into a long, as used by grid maps.
+     * @return count distinct keys, in random order.
+     */
+    public static long[] longs(String distribution, int count, long seed){
+        Rand rand = new Rand(seed);
+        LongSeq out = new LongSeq(count);
+        int side = (int)Math.ceil(Math.sqrt(count));
+
+        if(distribution.equals("random")){
+            LongMap<Boolean> used = new LongMap<>(count);
+            while(out.size < count){
+                long key = rand.nextLong();
+                if(used.put(key, true) == null) out.add(key);
+            }
+        }else{
+            for(int i = 0; i < count; i++){
+                switch(distribution){
+                    case "sequential": out.add(i); break;
+                    case "packed": out.add((long)(i % side) << 32 | (i / side)); break;
+                    default: throw new IllegalArgumentException("Unknown distribution: " + distribution);
+                }
+            }
+        }
+
+        long[] keys = out.toArray();
+        shuffle(keys, rand);
+        return keys;
+    }
+
+    /**
+     * @param distribution "strings" for content names like "copper-wall-12", or "boxed" for boxed sequential ids.
+     * @return count distinct keys, in random order.
+     */
+    public static Object[] objects(String distribution, int count, long seed){
+        Object[] keys = new Object[count];
+        int[] ids = ints("sequential", count, seed);
+        String[] names = {"copper", "lead", "titanium", "thorium", "plastanium", "surge"};
+        String[] types = {"wall", "conveyor", "drill", "turret", "router"};
+
+        for(int i = 0; i < count; i++){
+            int id = ids[i];
+            switch(distribution){
+                case "strings": keys[i] = names[id % names.length] + "-" + types[id / names.length % types.length] + "-" + id / (names.length * types.length); break;
+                case "boxed": keys[i] = id; break;
+                default: throw new IllegalArgumentException("Unknown distribution: " + distribution);
+            }
+        }
+        return keys;
+    }
+
+    private static void shuffle(int[] keys, Rand rand){
+        for(int i = keys.length - 1; i > 0; i--){
+            int j = rand.nextInt(i + 1);
+            int tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+    }
+
+    private static void shuffle(long[] keys, Rand rand){
+        for(int i = keys.length - 1; i > 0; i--){
+            int j = rand.nextInt(i + 1);
+            long tmp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package arc.benchmarks;
+
+import arc.util.ColorCodes;
+import arc.util.Log.*;
+import arc.util.Log.AsyncLogHandler.*;
+import arc.util.Strings;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Formats and logs a typical server line. The console is replaced by a stream that discards its output, so the handler
+ * benchmarks measure what a logging thread pays rather than the speed of the terminal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark{
+    static final String text = "&lk[&lbServer&lk] &fb@&fr has connected. &lk[&lb@&lk] (@ players)";
+    static final Object[] args = {"&ly[Player]", "127.0.0.1:6567", 12};
+
+    @Param({"true", "false"})
+    public boolean colors;
+
+    DefaultLogFormatter formatter = new DefaultLogFormatter();
+    PrintStream out = new PrintStream(new OutputStream(){
+        @Override
+        public void write(int b){
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len){
+        }
+    }, true);
+    LogHandler direct = (level, line) -> out.println(line);
+    AsyncLogHandler async;
+
+    @Setup
+    public void setup(){
+        async = new AsyncLogHandler(direct, 8192, OverflowPolicy.block);
+    }
+
+    @TearDown
+    public void tearDown(){
+        async.dispose();
+    }
+
+    /** The formatter before it was made single-pass. */
+    static String legacyFormat(String text, boolean useColors, Object... args){
+        text = Strings.format(text, args);
+        for(int i = 0; i < ColorCodes.codes.length; i++){
+            text = text.replace("&" + ColorCodes.codes[i], useColors ? ColorCodes.values[i] : "");
+        }
+        return text;
+    }
+
+    @Benchmark
+    public String formatLegacy(){
+        return legacyFormat(text, colors, args);
+    }
+
+    @Benchmark
+    public String formatSinglePass(){
+        return formatter.format(text, colors, args);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logDirect(){
+        direct.log(LogLevel.info, formatter.format(text, colors, args));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void logAsync(){
+        async.log(LogLevel.info, formatter.format(text, colors, args));
+    }
+}
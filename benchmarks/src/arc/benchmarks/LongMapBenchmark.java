@@ -0,0 +1,100 @@
+package arc.benchmarks;
+
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Compares the cuckoo {@link LongMap} with {@link ProbeLongMap}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LongMapBenchmark{
+    @Param({"sequential", "packed", "random"})
+    public String distribution;
+    @Param({"1000", "100000"})
+    public int size;
+
+    long[] keys, misses;
+    LongMap<Object> cuckoo;
+    ProbeLongMap<Object> probe;
+
+    @Setup
+    public void setup(){
+        long[] all = Keys.longs(distribution, size * 2, 1);
+        keys = Arrays.copyOfRange(all, 0, size);
+        misses = Arrays.copyOfRange(all, size, size * 2);
+
+        cuckoo = new LongMap<>();
+        probe = new ProbeLongMap<>();
+        for(long key : keys){
+            cuckoo.put(key, this);
+            probe.put(key, this);
+        }
+    }
+
+    @Benchmark
+    public void getCuckoo(Blackhole bh){
+        for(long key : keys) bh.consume(cuckoo.get(key));
+    }
+
+    @Benchmark
+    public void getProbe(Blackhole bh){
+        for(long key : keys) bh.consume(probe.get(key));
+    }
+
+    @Benchmark
+    public void getMissCuckoo(Blackhole bh){
+        for(long key : misses) bh.consume(cuckoo.get(key));
+    }
+
+    @Benchmark
+    public void getMissProbe(Blackhole bh){
+        for(long key : misses) bh.consume(probe.get(key));
+    }
+
+    /** Fills a new map, including every resize on the way. */
+    @Benchmark
+    public LongMap<Object> putCuckoo(){
+        LongMap<Object> map = new LongMap<>();
+        for(long key : keys) map.put(key, this);
+        return map;
+    }
+
+    @Benchmark
+    public ProbeLongMap<Object> putProbe(){
+        ProbeLongMap<Object> map = new ProbeLongMap<>();
+        for(long key : keys) map.put(key, this);
+        return map;
+    }
+
+    /** Removes and re-adds every key, keeping the map at the same size. */
+    @Benchmark
+    public LongMap<Object> removeCuckoo(){
+        LongMap<Object> map = cuckoo;
+        for(long key : keys) map.put(key, map.remove(key));
+        return map;
+    }
+
+    @Benchmark
+    public ProbeLongMap<Object> removeProbe(){
+        ProbeLongMap<Object> map = probe;
+        for(long key : keys) map.put(key, map.remove(key));
+        return map;
+    }
+
+    @Benchmark
+    public void iterateCuckoo(Blackhole bh){
+        for(LongMap.Entry<Object> entry : cuckoo.entries()) bh.consume(entry.value);
+    }
+
+    @Benchmark
+    public void iterateProbe(Blackhole bh){
+        for(ProbeLongMap.Entry<Object> entry : probe.entries()) bh.consume(entry.value);
+    }
+}
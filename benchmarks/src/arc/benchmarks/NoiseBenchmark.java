@@ -0,0 +1,52 @@
+package arc.benchmarks;
+
+import arc.util.noise.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** Fills a 128x128 map with {@link Simplex} and {@link Ridged} noise, as world generation does. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark{
+    static final int size = 128;
+
+    @Param({"1", "5"})
+    public int octaves;
+
+    float[] out = new float[size * size];
+
+    @Benchmark
+    public float[] simplex2d(){
+        for(int y = 0; y < size; y++){
+            for(int x = 0; x < size; x++){
+                out[x + y * size] = Simplex.noise2d(1, octaves, 0.5, 1f / 40f, x, y);
+            }
+        }
+        return out;
+    }
+
+    @Benchmark
+    public float[] simplex3d(){
+        for(int y = 0; y < size; y++){
+            for(int x = 0; x < size; x++){
+                out[x + y * size] = Simplex.noise3d(1, octaves, 0.5, 1f / 40f, x, y, 10);
+            }
+        }
+        return out;
+    }
+
+    @Benchmark
+    public float[] ridged2d(){
+        for(int y = 0; y < size; y++){
+            for(int x = 0; x < size; x++){
+                out[x + y * size] = Ridged.noise2d(1, x, y, octaves, 0.5, 1f / 40f);
+            }
+        }
+        return out;
+    }
+}
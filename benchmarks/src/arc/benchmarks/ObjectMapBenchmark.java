@@ -0,0 +1,102 @@
+package arc.benchmarks;
+
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/** Compares the cuckoo {@link ObjectMap} with {@link ProbeObjectMap}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectMapBenchmark{
+    @Param({"strings", "boxed"})
+    public String distribution;
+    @Param({"1000", "100000"})
+    public int size;
+
+    Object[] keys, misses;
+    ObjectMap<Object, Object> cuckoo;
+    ProbeObjectMap<Object, Object> probe;
+
+    @Setup
+    public void setup(){
+        Object[] all = Keys.objects(distribution, size * 2, 1), copies = Keys.objects(distribution, size * 2, 1);
+
+        cuckoo = new ObjectMap<>();
+        probe = new ProbeObjectMap<>();
+        for(int i = 0; i < size; i++){
+            cuckoo.put(all[i], all[i]);
+            probe.put(all[i], all[i]);
+        }
+
+        //equal copies of the stored keys, so that lookups can't succeed on reference equality alone
+        keys = Arrays.copyOfRange(copies, 0, size);
+        misses = Arrays.copyOfRange(all, size, size * 2);
+    }
+
+    @Benchmark
+    public void getCuckoo(Blackhole bh){
+        for(Object key : keys) bh.consume(cuckoo.get(key));
+    }
+
+    @Benchmark
+    public void getProbe(Blackhole bh){
+        for(Object key : keys) bh.consume(probe.get(key));
+    }
+
+    @Benchmark
+    public void getMissCuckoo(Blackhole bh){
+        for(Object key : misses) bh.consume(cuckoo.get(key));
+    }
+
+    @Benchmark
+    public void getMissProbe(Blackhole bh){
+        for(Object key : misses) bh.consume(probe.get(key));
+    }
+
+    /** Fills a new map, including every resize on the way. */
+    @Benchmark
+    public ObjectMap<Object, Object> putCuckoo(){
+        ObjectMap<Object, Object> map = new ObjectMap<>();
+        for(Object key : keys) map.put(key, key);
+        return map;
+    }
+
+    @Benchmark
+    public ProbeObjectMap<Object, Object> putProbe(){
+        ProbeObjectMap<Object, Object> map = new ProbeObjectMap<>();
+        for(Object key : keys) map.put(key, key);
+        return map;
+    }
+
+    /** Removes and re-adds every key, keeping the map at the same size. */
+    @Benchmark
+    public ObjectMap<Object, Object> removeCuckoo(){
+        ObjectMap<Object, Object> map = cuckoo;
+        for(Object key : keys) map.put(key, map.remove(key));
+        return map;
+    }
+
+    @Benchmark
+    public ProbeObjectMap<Object, Object> removeProbe(){
+        ProbeObjectMap<Object, Object> map = probe;
+        for(Object key : keys) map.put(key, map.remove(key));
+        return map;
+    }
+
+    @Benchmark
+    public void iterateCuckoo(Blackhole bh){
+        for(ObjectMap.Entry<Object, Object> entry : cuckoo.entries()) bh.consume(entry.value);
+    }
+
+    @Benchmark
+    public void iterateProbe(Blackhole bh){
+        for(ProbeObjectMap.Entry<Object, Object> entry : probe.entries()) bh.consume(entry.value);
+    }
+}
@@ -0,0 +1,132 @@
+package arc.benchmarks;
+
+import arc.graphics.*;
+import arc.graphics.PixmapIO.*;
+import arc.math.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.*;
+import java.util.concurrent.*;
+
+/** {@link Pixmap#draw} and PNG encoding and decoding with {@link PixmapIO}. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixmapBenchmark{
+    @Param({"64", "1024"})
+    public int size;
+
+    Pixmap source, target, sprite;
+    PngWriter writer, unfilteredWriter, parallelWriter;
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ByteArrayOutputStream png = new ByteArrayOutputStream();
+    byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException{
+        Headless.init();
+
+        //sprite-like content: flat regions, soft edges and transparent margins, which compress like real assets
+        Rand rand = new Rand(1);
+        source = new Pixmap(size, size);
+        for(int i = 0; i < size / 4; i++){
+            int color = Color.rgba8888(rand.random(1f), rand.random(1f), rand.random(1f), rand.chance(0.3) ? 0.5f : 1f);
+            source.fillCircle(rand.random(size), rand.random(size), rand.random(size / 16 + 1, size / 6 + 2), color);
+        }
+        target = new Pixmap(size, size);
+        sprite = new Pixmap(32, 32);
+        sprite.fill(Color.rgba8888(0.3f, 0.6f, 0.9f, 0.75f));
+
+        writer = new PngWriter(size * size * 4);
+        writer.setFlipY(false);
+        writer.write(png, source);
+        encoded = png.toByteArray();
+
+        unfilteredWriter = new PngWriter(size * size * 4);
+        unfilteredWriter.setFlipY(false);
+        unfilteredWriter.setFilter(false);
+        parallelWriter = new PngWriter(size * size * 4);
+        parallelWriter.setFlipY(false);
+        parallelWriter.setExecutor(executor);
+    }
+
+    @TearDown
+    public void dispose(){
+        source.dispose();
+        target.dispose();
+        sprite.dispose();
+        writer.dispose();
+        unfilteredWriter.dispose();
+        parallelWriter.dispose();
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public Pixmap drawCopy(){
+        target.draw(source, 0, 0, false);
+        return target;
+    }
+
+    @Benchmark
+    public Pixmap drawBlend(){
+        target.draw(source, 0, 0, true);
+        return target;
+    }
+
+    /** Draws the source at half size with filtering. */
+    @Benchmark
+    public Pixmap drawScaled(){
+        target.draw(source, 0, 0, size, size, 0, 0, size / 2, size / 2, true, true);
+        return target;
+    }
+
+    /** Blends many small sprites, the pattern of compositing icons and atlases. */
+    @Benchmark
+    public Pixmap drawSprites(){
+        for(int y = 0; y < size; y += 16){
+            for(int x = 0; x < size; x += 16){
+                target.draw(sprite, x, y, true);
+            }
+        }
+        return target;
+    }
+
+    @Benchmark
+    public int encodePng() throws IOException{
+        png.reset();
+        writer.write(png, source);
+        return png.size();
+    }
+
+    @Benchmark
+    public int encodePngUnfiltered() throws IOException{
+        png.reset();
+        unfilteredWriter.write(png, source);
+        return png.size();
+    }
+
+    /** Compresses blocks of rows on 4 threads. */
+    @Benchmark
+    public int encodePngParallel() throws IOException{
+        png.reset();
+        parallelWriter.write(png, source);
+        return png.size();
+    }
+
+    @Benchmark
+    public ByteBuffer decodePng() throws IOException{
+        return new PngReader().read(new ByteArrayInputStream(encoded));
+    }
+
+    /** Decodes with the native stb_image decoder. */
+    @Benchmark
+    public Pixmap decodePngNative(){
+        Pixmap result = new Pixmap(encoded);
+        result.dispose();
+        return result;
+    }
+}
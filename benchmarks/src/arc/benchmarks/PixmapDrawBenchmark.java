@@ -0,0 +1,175 @@
+package arc.benchmarks;
+
+import arc.graphics.*;
+import arc.math.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * The blending and scaling {@link Pixmap#draw} overloads, against the per-pixel loops they used before they went through
+ * whole rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PixmapDrawBenchmark{
+    @Param({"64", "1024"})
+    public int size;
+
+    Pixmap source, target, sprite;
+
+    @Setup
+    public void setup(){
+        Headless.init();
+
+        Rand rand = new Rand(1);
+        source = new Pixmap(size, size);
+        for(int i = 0; i < size / 4; i++){
+            int color = Color.rgba8888(rand.random(1f), rand.random(1f), rand.random(1f), rand.chance(0.3) ? 0.5f : 1f);
+            source.fillCircle(rand.random(size), rand.random(size), rand.random(size / 16 + 1, size / 6 + 2), color);
+        }
+        target = new Pixmap(size, size);
+        target.fill(Color.rgba8888(0.2f, 0.2f, 0.2f, 1f));
+        sprite = new Pixmap(32, 32);
+        sprite.fill(Color.rgba8888(0.3f, 0.6f, 0.9f, 0.75f));
+    }
+
+    @TearDown
+    public void dispose(){
+        source.dispose();
+        target.dispose();
+        sprite.dispose();
+    }
+
+    @Benchmark
+    public Pixmap blend(){
+        target.draw(source, 0, 0, true);
+        return target;
+    }
+
+    @Benchmark
+    public Pixmap blendPerPixel(){
+        drawPerPixel(target, source, 0, 0, size, size, 0, 0, size, size, false, true);
+        return target;
+    }
+
+    /** Blends many small sprites, the pattern of compositing icons and atlases. */
+    @Benchmark
+    public Pixmap sprites(){
+        for(int y = 0; y < size; y += 16){
+            for(int x = 0; x < size; x += 16){
+                target.draw(sprite, x, y, true);
+            }
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Pixmap spritesPerPixel(){
+        for(int y = 0; y < size; y += 16){
+            for(int x = 0; x < size; x += 16){
+                drawPerPixel(target, sprite, 0, 0, 32, 32, x, y, 32, 32, false, true);
+            }
+        }
+        return target;
+    }
+
+    @Benchmark
+    public Pixmap scaleNearest(){
+        target.draw(source, 0, 0, size, size, 0, 0, size * 3 / 4, size * 3 / 4, false, true);
+        return target;
+    }
+
+    @Benchmark
+    public Pixmap scaleNearestPerPixel(){
+        drawPerPixel(target, source, 0, 0, size, size, 0, 0, size * 3 / 4, size * 3 / 4, false, true);
+        return target;
+    }
+
+    @Benchmark
+    public Pixmap scaleFiltered(){
+        target.draw(source, 0, 0, size, size, 0, 0, size / 2, size / 2, true, true);
+        return target;
+    }
+
+    @Benchmark
+    public Pixmap scaleFilteredPerPixel(){
+        drawPerPixel(target, source, 0, 0, size, size, 0, 0, size / 2, size / 2, true, true);
+        return target;
+    }
+
+    /** The blending and scaling paths of {@link Pixmap#draw} as they were, one pixel at a time through getRaw and setRaw. */
+    static void drawPerPixel(Pixmap dst, Pixmap pixmap, int srcx, int srcy, int srcWidth, int srcHeight, int dstx, int dsty, int dstWidth, int dstHeight, boolean filtering, boolean blending){
+        int width = dst.width, height = dst.height, owidth = pixmap.width, oheight = pixmap.height;
+
+        if(srcWidth == dstWidth && srcHeight == dstHeight){
+            for(int sy = srcy, dy = dsty; sy < srcy + srcHeight; sy++, dy++){
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= oheight || dy >= height) break;
+
+                for(int sx = srcx, dx = dstx; sx < srcx + srcWidth; sx++, dx++){
+                    if(sx < 0 || dx < 0) continue;
+                    if(sx >= owidth || dx >= width) break;
+                    dst.setRaw(dx, dy, Pixmap.blend(pixmap.getRaw(sx, sy), dst.getRaw(dx, dy)));
+                }
+            }
+        }else if(filtering){
+            float x_ratio = ((float)srcWidth - 1) / dstWidth;
+            float y_ratio = ((float)srcHeight - 1) / dstHeight;
+            int rX = Math.max(Mathf.round(x_ratio), 1), rY = Math.max(Mathf.round(y_ratio), 1);
+            int spitch = 4 * owidth;
+
+            for(int i = 0; i < dstHeight; i++){
+                int sy = (int)(i * y_ratio) + srcy, dy = i + dsty;
+                float ydiff = (y_ratio * i + srcy) - sy;
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= oheight || dy >= height) break;
+
+                for(int j = 0; j < dstWidth; j++){
+                    int sx = (int)(j * x_ratio) + srcx, dx = j + dstx;
+                    float xdiff = (x_ratio * j + srcx) - sx;
+                    if(sx < 0 || dx < 0) continue;
+                    if(sx >= owidth || dx >= width) break;
+
+                    int
+                    srcp = (sx + sy * owidth) * 4,
+                    c1 = pixmap.pixels.getInt(srcp),
+                    c2 = sx + rX < srcWidth ? pixmap.pixels.getInt(srcp + 4 * rX) : c1,
+                    c3 = sy + rY < srcHeight ? pixmap.pixels.getInt(srcp + spitch * rY) : c1,
+                    c4 = sx + rX < srcWidth && sy + rY < srcHeight ? pixmap.pixels.getInt(srcp + 4 * rX + spitch * rY) : c1;
+
+                    float ta = (1 - xdiff) * (1 - ydiff), tb = (xdiff) * (1 - ydiff), tc = (1 - xdiff) * (ydiff), td = (xdiff) * (ydiff);
+
+                    int r = (int)(((c1 & 0xff000000) >>> 24) * ta + ((c2 & 0xff000000) >>> 24) * tb + ((c3 & 0xff000000) >>> 24) * tc + ((c4 & 0xff000000) >>> 24) * td) & 0xff;
+                    int g = (int)(((c1 & 0xff0000) >>> 16) * ta + ((c2 & 0xff0000) >>> 16) * tb + ((c3 & 0xff0000) >>> 16) * tc + ((c4 & 0xff0000) >>> 16) * td) & 0xff;
+                    int b = (int)(((c1 & 0xff00) >>> 8) * ta + ((c2 & 0xff00) >>> 8) * tb + ((c3 & 0xff00) >>> 8) * tc + ((c4 & 0xff00) >>> 8) * td) & 0xff;
+                    int a = (int)((c1 & 0xff) * ta + (c2 & 0xff) * tb + (c3 & 0xff) * tc + (c4 & 0xff) * td) & 0xff;
+                    int srccol = (r << 24) | (g << 16) | (b << 8) | a;
+
+                    dst.setRaw(dx, dy, !blending ? srccol : Pixmap.blend(srccol, dst.getRaw(dx, dy)));
+                }
+            }
+        }else{
+            int xratio = (srcWidth << 16) / dstWidth + 1;
+            int yratio = (srcHeight << 16) / dstHeight + 1;
+
+            for(int i = 0; i < dstHeight; i++){
+                int sy = ((i * yratio) >> 16) + srcy, dy = i + dsty;
+                if(sy < 0 || dy < 0) continue;
+                if(sy >= oheight || dy >= height) break;
+
+                for(int j = 0; j < dstWidth; j++){
+                    int sx = ((j * xratio) >> 16) + srcx, dx = j + dstx;
+                    if(sx < 0 || dx < 0) continue;
+                    if(sx >= owidth || dx >= width) break;
+
+                    dst.setRaw(dx, dy, !blending ? pixmap.getRaw(sx, sy) : Pixmap.blend(pixmap.getRaw(sx, sy), dst.getRaw(dx, dy)));
+                }
+            }
+        }
+    }
+}
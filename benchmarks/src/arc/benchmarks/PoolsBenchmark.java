@@ -0,0 +1,59 @@
+package arc.benchmarks;
+
+import arc.math.geom.*;
+import arc.util.pooling.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Obtaining and freeing objects from several threads at once, with a {@link ConcurrentPool} and with a plain
+ * {@link Pool} behind one lock, which is how {@link Pools} used to work.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PoolsBenchmark{
+    Pool<Rect> concurrent = new ConcurrentPool<Rect>(){
+        @Override
+        protected Rect newObject(){
+            return new Rect();
+        }
+    };
+
+    Pool<Rect> locked = new Pool<Rect>(){
+        @Override
+        protected Rect newObject(){
+            return new Rect();
+        }
+    };
+
+    /** Holds a few objects at a time, like a scene handling events. */
+    @Benchmark
+    public void concurrent(){
+        Rect a = concurrent.obtain(), b = concurrent.obtain();
+        concurrent.free(a);
+        concurrent.free(b);
+    }
+
+    @Benchmark
+    public void locked(){
+        Rect a, b;
+        synchronized(locked){
+            a = locked.obtain();
+        }
+        synchronized(locked){
+            b = locked.obtain();
+        }
+        synchronized(locked){
+            locked.free(a);
+        }
+        synchronized(locked){
+            locked.free(b);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package arc.benchmarks;
+
+import arc.math.*;
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.concurrent.*;
+
+/** Common {@link Seq} operations on boxed ints. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeqBenchmark{
+    @Param({"100", "10000"})
+    public int size;
+
+    Integer[] values;
+    Seq<Integer> seq;
+
+    @Setup
+    public void setup(){
+        Rand rand = new Rand(1);
+        values = new Integer[size];
+        for(int i = 0; i < size; i++) values[i] = rand.random(1000000);
+        seq = new Seq<>(values);
+    }
+
+    /** Grows a new seq from the default capacity. */
+    @Benchmark
+    public Seq<Integer> add(){
+        Seq<Integer> out = new Seq<>();
+        for(Integer value : values) out.add(value);
+        return out;
+    }
+
+    @Benchmark
+    public int get(){
+        Seq<Integer> seq = this.seq;
+        int sum = 0;
+        for(int i = 0; i < seq.size; i++) sum += seq.get(i);
+        return sum;
+    }
+
+    @Benchmark
+    public int iterate(){
+        int sum = 0;
+        for(Integer value : seq) sum += value;
+        return sum;
+    }
+
+    @Benchmark
+    public int each(){
+        int[] sum = {0};
+        seq.each(value -> sum[0] += value);
+        return sum[0];
+    }
+
+    /** Searches with equals for a value that is not there, the worst case. */
+    @Benchmark
+    public boolean containsMiss(){
+        return seq.contains(-1);
+    }
+
+    @Benchmark
+    public Seq<Integer> select(){
+        return seq.select(value -> (value & 1) == 0);
+    }
+
+    /** Copies, then removes every other element in place. */
+    @Benchmark
+    public Seq<Integer> removeAll(){
+        return seq.copy().removeAll(value -> (value & 1) == 0);
+    }
+
+    /** Copies, then removes from the front until empty, shifting the rest each time. */
+    @Benchmark
+    public void removeFirst(Blackhole bh){
+        Seq<Integer> copy = seq.copy();
+        while(!copy.isEmpty()) bh.consume(copy.remove(0));
+    }
+}
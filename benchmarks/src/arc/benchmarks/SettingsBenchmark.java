@@ -0,0 +1,82 @@
+package arc.benchmarks;
+
+import arc.*;
+import arc.files.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** {@link Settings} reads, alone and while another thread keeps changing and saving values. */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettingsBenchmark{
+    static final int keys = 256;
+
+    Fi directory;
+    Settings settings;
+    String[] names = new String[keys];
+
+    @State(Scope.Thread)
+    public static class Cursor{
+        int index, value;
+    }
+
+    @Setup
+    public void setup(){
+        directory = Fi.tempDirectory("arc-settings-bench");
+        settings = new Settings();
+        settings.setDataDirectory(directory);
+        for(int i = 0; i < keys; i++){
+            names[i] = "setting-" + i;
+            switch(i % 4){
+                case 0: settings.put(names[i], i); break;
+                case 1: settings.put(names[i], i % 3 == 0); break;
+                case 2: settings.put(names[i], i * 0.5f); break;
+                default: settings.put(names[i], "value-" + i);
+            }
+        }
+        settings.saveValues();
+    }
+
+    @TearDown
+    public void dispose(){
+        directory.deleteDirectory();
+    }
+
+    int read(Cursor cursor){
+        String name = names[cursor.index = cursor.index + 1 & (keys - 1)];
+        switch(cursor.index % 4){
+            case 0: return settings.getInt(name, 0);
+            case 1: return settings.getBool(name, false) ? 1 : 0;
+            case 2: return (int)settings.getFloat(name, 0f);
+            default: return settings.getString(name, "").length();
+        }
+    }
+
+    @Benchmark
+    @Group("read")
+    @GroupThreads(4)
+    public int readOnly(Cursor cursor){
+        return read(cursor);
+    }
+
+    @Benchmark
+    @Group("readWhileSaving")
+    @GroupThreads(3)
+    public int reader(Cursor cursor){
+        return read(cursor);
+    }
+
+    /** Changes one value and appends it to the journal, compacting the file now and then. */
+    @Benchmark
+    @Group("readWhileSaving")
+    @GroupThreads(1)
+    public void saver(Cursor cursor){
+        settings.put(names[(cursor.value++ * 4) & (keys - 1)], cursor.value);
+        settings.saveValues();
+    }
+}
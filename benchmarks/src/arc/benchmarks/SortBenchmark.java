@@ -0,0 +1,90 @@
+package arc.benchmarks;
+
+import arc.math.*;
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * {@link Sort} against {@link Arrays#sort(Object[], Comparator)}. Every benchmark sorts a fresh copy of the input, so the
+ * copy is included in all of them; {@link #copy()} measures it alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SortBenchmark{
+    /** "random" for shuffled values, "sorted" for ascending runs with a few swaps, "layers" for few distinct values. */
+    @Param({"random", "sorted", "layers"})
+    public String order;
+    @Param({"1000", "100000"})
+    public int size;
+
+    static final Comparator<Float> comparator = Float::compare;
+
+    Float[] input, work;
+    Seq<Float> seq;
+
+    @Setup
+    public void setup(){
+        Rand rand = new Rand(1);
+        input = new Float[size];
+        for(int i = 0; i < size; i++){
+            switch(order){
+                case "random": input[i] = rand.random(1f); break;
+                case "sorted": input[i] = (float)i; break;
+                case "layers": input[i] = (float)rand.random(8); break;
+                default: throw new IllegalArgumentException("Unknown order: " + order);
+            }
+        }
+        if(order.equals("sorted")){
+            for(int i = 0; i < size / 100; i++){
+                int a = rand.random(size - 1), b = rand.random(size - 1);
+                Float tmp = input[a];
+                input[a] = input[b];
+                input[b] = tmp;
+            }
+        }
+        work = new Float[size];
+        seq = new Seq<>(Float.class);
+    }
+
+    @Benchmark
+    public Float[] copy(){
+        System.arraycopy(input, 0, work, 0, size);
+        return work;
+    }
+
+    @Benchmark
+    public Float[] sortComparator(){
+        System.arraycopy(input, 0, work, 0, size);
+        Sort.instance().sort(work, comparator);
+        return work;
+    }
+
+    /** Comparable elements, which go through ComparableTimSort. */
+    @Benchmark
+    public Float[] sortComparable(){
+        System.arraycopy(input, 0, work, 0, size);
+        Sort.instance().sort(work);
+        return work;
+    }
+
+    @Benchmark
+    public Seq<Float> sortSeq(){
+        seq.clear();
+        seq.addAll(input);
+        return seq.sort(comparator);
+    }
+
+    @Benchmark
+    public Float[] arraysSort(){
+        System.arraycopy(input, 0, work, 0, size);
+        Arrays.sort(work, comparator);
+        return work;
+    }
+}
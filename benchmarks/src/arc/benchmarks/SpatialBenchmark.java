@@ -0,0 +1,95 @@
+package arc.benchmarks;
+
+import arc.math.*;
+import arc.math.geom.*;
+import arc.math.geom.QuadTree.*;
+import arc.struct.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+
+import java.util.concurrent.*;
+
+/**
+ * {@link LooseGrid} against {@link QuadTree} for moving units: each frame every unit moves, the index is brought up to
+ * date, and every unit queries its surroundings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialBenchmark{
+    static final float worldSize = 4000f, range = 80f;
+
+    @Param({"500", "5000"})
+    public int units;
+
+    Seq<Unit> all = new Seq<>();
+    QuadTree<Unit> tree;
+    LooseGrid<Unit> grid;
+    Rand rand = new Rand(1);
+
+    public static class Unit implements QuadTreeObject{
+        float x, y, size, vx, vy;
+
+        @Override
+        public void hitbox(Rect out){
+            out.setCentered(x, y, size);
+        }
+
+        void move(){
+            x = Mathf.clamp(x + vx, 0f, worldSize);
+            y = Mathf.clamp(y + vy, 0f, worldSize);
+        }
+    }
+
+    @Setup
+    public void setup(){
+        Rect bounds = new Rect(0, 0, worldSize, worldSize);
+        tree = new QuadTree<>(bounds);
+        grid = new LooseGrid<>(bounds, 64f);
+
+        for(int i = 0; i < units; i++){
+            Unit unit = new Unit();
+            unit.x = rand.random(worldSize);
+            unit.y = rand.random(worldSize);
+            unit.size = rand.random(8f, 24f);
+            unit.vx = rand.range(2f);
+            unit.vy = rand.range(2f);
+            all.add(unit);
+            tree.insert(unit);
+            grid.insert(unit);
+        }
+    }
+
+    /** The quadtree is rebuilt every frame, as its objects can't move in place. */
+    @Benchmark
+    public void frameQuadTree(Blackhole bh){
+        for(Unit unit : all) unit.move();
+        tree.clear();
+        for(Unit unit : all) tree.insert(unit);
+        for(Unit unit : all) tree.intersect(unit.x - range, unit.y - range, range * 2f, range * 2f, bh::consume);
+    }
+
+    @Benchmark
+    public void frameLooseGrid(Blackhole bh){
+        for(Unit unit : all) unit.move();
+        grid.updateAll();
+        for(Unit unit : all) grid.intersect(unit.x - range, unit.y - range, range * 2f, range * 2f, bh::consume);
+    }
+
+    @Benchmark
+    public boolean anyQuadTree(){
+        boolean any = false;
+        for(Unit unit : all) any |= tree.any(unit.x - range, unit.y - range, range * 2f, range * 2f);
+        return any;
+    }
+
+    @Benchmark
+    public boolean anyLooseGrid(){
+        boolean any = false;
+        for(Unit unit : all) any |= grid.any(unit.x - range, unit.y - range, range * 2f, range * 2f);
+        return any;
+    }
+}
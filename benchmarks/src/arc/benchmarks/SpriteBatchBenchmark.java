@@ -0,0 +1,104 @@
+package arc.benchmarks;
+
+import arc.*;
+import arc.graphics.*;
+import arc.graphics.g2d.*;
+import arc.math.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/** Sorting of draw requests in {@link SortedSpriteBatch}, rendered to a GL that does nothing. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteBatchBenchmark{
+    @Param({"1000", "20000"})
+    public int requests;
+    /** The number of distinct z layers. Draws within a layer tend to come in runs, like they do in a frame. */
+    @Param({"8", "200"})
+    public int layers;
+
+    BenchBatch batch;
+    TextureRegion region;
+    float[] z;
+
+    @Setup
+    public void setup(){
+        Headless.init();
+        batch = new BenchBatch();
+        region = new TextureRegion(new Texture(new Pixmap(16, 16)));
+
+        Rand rand = new Rand(1);
+        z = new float[requests];
+        float layer = 0;
+        for(int i = 0; i < requests; i++){
+            if(rand.chance(0.05)) layer = rand.random(layers - 1);
+            z[i] = layer;
+        }
+
+        batch.fill(z, region);
+    }
+
+    @TearDown
+    public void dispose(){
+        region.texture.dispose();
+        batch.dispose();
+    }
+
+    @Benchmark
+    public BenchBatch sortStandard(){
+        batch.sort(z, false);
+        return batch;
+    }
+
+    @Benchmark
+    public BenchBatch sortThreaded(){
+        batch.sort(z, true);
+        return batch;
+    }
+
+    /** Queues every request through {@link Draw}, then sorts and flushes them into the mesh. */
+    @Benchmark
+    public BenchBatch drawAndFlush(){
+        Core.batch = batch;
+        Draw.sort(true);
+        float[] z = this.z;
+        for(int i = 0; i < z.length; i++){
+            Draw.z(z[i]);
+            Draw.rect(region, i % 100, i / 100f, 8f, 8f);
+        }
+        Draw.flush();
+        Draw.sort(false);
+        return batch;
+    }
+
+    static class BenchBatch extends SortedSpriteBatch{
+
+        /** Queues one request for each z value. */
+        void fill(float[] z, TextureRegion region){
+            setSort(true);
+            for(float value : z){
+                this.z = value;
+                draw(region, 0f, 0f, 0f, 0f, 8f, 8f, 0f);
+            }
+            //the requests stay allocated, ready to be sorted again
+            numRequests = 0;
+            sort = false;
+        }
+
+        /** Sorts the queued requests again, from the order given by z. */
+        void sort(float[] z, boolean threaded){
+            System.arraycopy(z, 0, requestZ, 0, z.length);
+            numRequests = z.length;
+            if(threaded){
+                sortRequestsThreaded();
+            }else{
+                sortRequestsStandard();
+            }
+        }
+    }
+}
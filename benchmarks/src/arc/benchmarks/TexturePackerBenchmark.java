@@ -0,0 +1,76 @@
+package arc.benchmarks;
+
+import arc.files.*;
+import arc.graphics.*;
+import arc.math.*;
+import arc.packer.*;
+import arc.util.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.*;
+
+/**
+ * Packing a folder of sprites with {@link TexturePacker}, from scratch or with a warm image cache, so the cost of a
+ * repack after a small change can be compared with a full one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TexturePackerBenchmark{
+    static final int sprites = 400;
+
+    @Param({"false", "true"})
+    public boolean cache;
+    /** Zero to use every core. */
+    @Param({"1", "0"})
+    public int threads;
+
+    Fi input, output, cacheDirectory;
+    Fi[] files;
+
+    @Setup
+    public void setup(){
+        Headless.init();
+        input = Fi.tempDirectory("arc-packer-input");
+        output = Fi.tempDirectory("arc-packer-output");
+        cacheDirectory = Fi.tempDirectory("arc-packer-cache");
+        files = new Fi[sprites];
+
+        Rand rand = new Rand(1);
+        for(int i = 0; i < sprites; i++){
+            int size = rand.random(1, 4) * 16;
+            Pixmap sprite = new Pixmap(size, size);
+            //an outline with transparent margins, so that whitespace stripping has work to do
+            int margin = rand.random(size / 4);
+            sprite.fillRect(margin, margin, size - margin * 2, size - margin * 2, Color.rgba8888(rand.random(1f), rand.random(1f), rand.random(1f), 1f));
+            sprite.fillCircle(size / 2, size / 2, size / 5, Color.rgba8888(1f, 1f, 1f, 0.5f));
+            files[i] = input.child("sprite-" + i + ".png");
+            PixmapIO.writePng(files[i], sprite);
+            sprite.dispose();
+        }
+    }
+
+    @TearDown
+    public void dispose(){
+        input.deleteDirectory();
+        output.deleteDirectory();
+        cacheDirectory.deleteDirectory();
+    }
+
+    @Benchmark
+    public Fi pack(){
+        TexturePacker.Settings settings = new TexturePacker.Settings();
+        settings.silent = true;
+        settings.stripWhitespaceX = settings.stripWhitespaceY = true;
+        settings.threads = threads <= 0 ? OS.cores : threads;
+        settings.cacheDirectory = cache ? cacheDirectory.absolutePath() : null;
+
+        TexturePacker packer = new TexturePacker(input.file(), settings);
+        for(Fi file : files) packer.addImage(file.file());
+        packer.pack(output.file(), "sprites");
+        return output;
+    }
+}
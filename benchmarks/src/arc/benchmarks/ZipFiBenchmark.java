@@ -0,0 +1,88 @@
+package arc.benchmarks;
+
+import arc.files.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/** Opening and browsing a large archive with {@link ZipFi}, such as a mod with many sprites. */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipFiBenchmark{
+    static final int categories = 10, folders = 40, files = 50;
+
+    Fi zip;
+    ZipFi opened;
+
+    @Setup
+    public void setup() throws IOException{
+        zip = new Fi(File.createTempFile("arc-zipfi-bench", ".zip"));
+        try(ZipOutputStream out = new ZipOutputStream(new BufferedOutputStream(zip.write()))){
+            out.setLevel(Deflater.NO_COMPRESSION);
+            out.putNextEntry(new ZipEntry("mod.json"));
+            out.write("{}".getBytes());
+            for(int c = 0; c < categories; c++){
+                for(int f = 0; f < folders; f++){
+                    for(int i = 0; i < files; i++){
+                        out.putNextEntry(new ZipEntry("sprites/c" + c + "/f" + f + "/s" + i + ".png"));
+                        out.write(i);
+                    }
+                }
+            }
+        }
+        opened = new ZipFi(zip);
+    }
+
+    @TearDown
+    public void dispose(){
+        //closes the archive
+        opened.delete();
+        zip.delete();
+    }
+
+    /** Builds the whole tree of 20,000 entries. */
+    @Benchmark
+    public int openEager(){
+        ZipFi root = new ZipFi(zip);
+        int count = root.list().length;
+        root.delete();
+        return count;
+    }
+
+    /** Opens lazily and reads one file, the pattern of loading a mod's metadata. */
+    @Benchmark
+    public long openLazyLookup(){
+        ZipFi root = new ZipFi(zip, true);
+        long length = root.child("sprites").child("c5").child("f20").child("s25.png").length() + root.child("mod.json").length();
+        root.delete();
+        return length;
+    }
+
+    @Benchmark
+    public int openLazyList(){
+        ZipFi root = new ZipFi(zip, true);
+        int count = root.child("sprites").child("c5").child("f20").list().length;
+        root.delete();
+        return count;
+    }
+
+    /** Lists every directory of an open archive. */
+    @Benchmark
+    public int walk(){
+        return walk(opened);
+    }
+
+    int walk(Fi dir){
+        int count = 0;
+        for(Fi child : dir.list()){
+            count += child.isDirectory() ? walk(child) : 1;
+        }
+        return count;
+    }
+}
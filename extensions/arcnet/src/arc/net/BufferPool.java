@@ -0,0 +1,38 @@
+package arc.net;
+
+import arc.util.pooling.*;
+
+import java.nio.*;
+
+/**
+ * A thread safe pool of direct byte buffers of a fixed size. Buffers above the maximum free count are dropped and
+ * reclaimed by the garbage collector, so the pool shrinks back after bursts.
+ */
+class BufferPool extends Pool<ByteBuffer>{
+    /** Size of the segments that TCP write queues are built from. */
+    static final int defaultSegmentSize = 16 * 1024;
+
+    final int bufferSize;
+
+    BufferPool(int bufferSize, int max){
+        super(Math.min(max, 16), max);
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    protected ByteBuffer newObject(){
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    @Override
+    public synchronized ByteBuffer obtain(){
+        ByteBuffer buffer = super.obtain();
+        buffer.clear();
+        return buffer;
+    }
+
+    @Override
+    public synchronized void free(ByteBuffer buffer){
+        super.free(buffer);
+    }
+}
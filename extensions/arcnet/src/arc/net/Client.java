@@ -34,14 +34,14 @@ public class Client extends Connection implements EndPoint{
     private Prov<DatagramPacket> discoveryPacket = () -> new DatagramPacket(new byte[256], 256);
 
     /**
-     * @param writeBufferSize One buffer of this size is allocated. Objects are serialized
-     * to the write buffer where the bytes are queued until they can
-     * be written to the TCP socket.
+     * @param writeBufferSize Objects are serialized into a buffer of this size,
+     * then queued in pooled segments until they can be written to the TCP
+     * socket. It is also the default limit of queued bytes.
      * <p>
      * Normally the socket is writable and the bytes are written
      * immediately. If the socket cannot be written to and enough
-     * serialized objects are queued to overflow the buffer, then the
-     * connection will be closed.
+     * serialized objects are queued to exceed the limit, then the
+     * connection will be closed. See {@link #setTcpWriteBufferLimit(int)}.
      * <p>
      * The write buffer should be sized at least as large as the
      * largest object that will be sent, plus some head room to allow
@@ -55,7 +55,9 @@ public class Client extends Connection implements EndPoint{
      * network or deserialized.
      * <p>
      * The object buffers should be sized at least as large as the
-     * largest object that will be sent or received.
+     * largest object that will be sent over UDP. Larger TCP objects,
+     * up to {@link NetSerializer#getMaxLength()}, are sent and
+     * received through temporary buffers instead.
      */
     public Client(int writeBufferSize, int objectBufferSize, NetSerializer serialization){
         super();
@@ -63,7 +65,8 @@ public class Client extends Connection implements EndPoint{
 
         this.serialization = serialization;
 
-        initialize(serialization, writeBufferSize, objectBufferSize);
+        initialize(serialization, writeBufferSize, objectBufferSize,
+        new BufferPool(BufferPool.defaultSegmentSize, 16), new BufferPool(writeBufferSize, 2));
 
         try{
             selector = Selector.open();
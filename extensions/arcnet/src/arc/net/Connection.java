@@ -7,6 +7,7 @@ import arc.net.FrameworkMessage.Ping;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 /**
@@ -21,6 +22,8 @@ public class Connection{
     EndPoint endPoint;
     TcpConnection tcp;
     UdpConnection udp;
+    /** The worker that handles this connection, or null if it is handled on the update thread of its end point. */
+    Server.SelectorWorker worker;
     InetSocketAddress udpRemoteAddress;
     private NetListener[] listeners = {};
     private final Object listenerLock = new Object();
@@ -34,9 +37,9 @@ public class Connection{
     protected Connection(){
     }
 
-    void initialize(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+    void initialize(NetSerializer serialization, int writeBufferSize, int objectBufferSize, BufferPool segmentPool, BufferPool stagingPool){
         tcp = new TcpConnection(serialization, writeBufferSize,
-        objectBufferSize);
+        objectBufferSize, segmentPool, stagingPool);
     }
 
     /**
@@ -105,6 +108,43 @@ public class Connection{
         }
     }
 
+    /**
+     * Queues a frame that was serialized once for many connections, see {@link Server#sendToAllTCP(Object)}.
+     * @return The number of bytes sent.
+     */
+    int sendFrameTCP(ByteBuffer frame){
+        try{
+            return tcp.sendFrame(frame);
+        }catch(IOException | ArcNetException ex){
+            close(DcReason.error);
+            ArcNet.handleError(ex);
+            return 0;
+        }
+    }
+
+    /**
+     * Sends a datagram that was serialized once for many connections, see {@link Server#sendToAllUDP(Object)}.
+     * @return The number of bytes sent.
+     * @throws IllegalStateException if this connection was not opened with both TCP and UDP.
+     */
+    int sendFrameUDP(ByteBuffer datagram){
+        SocketAddress address = udpRemoteAddress;
+        if(address == null && udp != null)
+            address = udp.connectedAddress;
+        if(address == null && isConnected)
+            throw new IllegalStateException("Connection is not connected via UDP.");
+
+        try{
+            if(address == null) throw new SocketException("Connection is closed.");
+
+            return udp.send(datagram, address);
+        }catch(IOException | ArcNetException ex){
+            close(DcReason.error);
+            ArcNet.handleError(ex);
+            return 0;
+        }
+    }
+
     public void close(DcReason reason){
         boolean wasConnected = isConnected;
         isConnected = false;
@@ -299,18 +339,29 @@ public class Connection{
      * socket, if any.
      */
     public int getTcpWriteBufferSize(){
-        return tcp.writeBuffer.position();
+        return tcp.writeQueue.size();
+    }
+
+    /**
+     * Sets the maximum number of bytes that may be waiting to be written to the
+     * TCP socket before the connection is closed. Queued bytes are stored in
+     * pooled segments that are only held while data is pending, so this can be
+     * raised well above the write buffer size to absorb bursts. Defaults to the
+     * write buffer size.
+     */
+    public void setTcpWriteBufferLimit(int limit){
+        tcp.writeQueueLimit = limit;
     }
 
     /**
      * @see #setIdleThreshold(float)
      */
     public boolean isIdle(){
-        return tcp.writeBuffer.position() / (float)tcp.writeBuffer.capacity() < tcp.idleThreshold;
+        return tcp.writeQueue.size() / (float)tcp.writeQueueLimit < tcp.idleThreshold;
     }
 
     /**
-     * If the percent of the TCP write buffer that is filled is less than the
+     * If the percent of the TCP write buffer limit that is filled is less than the
      * specified threshold, {@link NetListener#idle(Connection)} will be called for
      * each network thread update. Default is 0.1.
      */
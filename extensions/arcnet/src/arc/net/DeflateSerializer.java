@@ -0,0 +1,262 @@
+package arc.net;
+
+import arc.struct.*;
+import arc.util.pooling.*;
+
+import java.nio.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
+
+/**
+ * Compresses the output of another {@link NetSerializer} with deflate. Objects that serialize to fewer bytes than the
+ * threshold, such as {@link FrameworkMessage}s, are sent raw behind a one byte header; larger ones are compressed if
+ * that makes them smaller. Each message is compressed on its own, so UDP datagrams and broadcast frames stay
+ * independent of each other.
+ * <p>
+ * A preset dictionary, for example one made with {@link #train(Iterable, int)} from captured packets, lets small
+ * messages compress well too. Both ends of a connection must use the same dictionary.
+ * <p>
+ * Deflaters and inflaters are pooled and reused, so one instance can be shared by every connection of an end point.
+ * This class is thread safe.
+ */
+public class DeflateSerializer implements NetSerializer{
+    private static final byte raw = 0, deflated = 1;
+    /** Deflate cannot expand data by more than this: a match of 258 bytes takes at least two bits. */
+    private static final int maxRatio = 1032;
+
+    private final NetSerializer serializer;
+    private final int threshold, level;
+    private final byte[] dictionary;
+    private int maxUncompressedLength = 1024 * 1024;
+    private final AtomicLong inputBytes = new AtomicLong(), outputBytes = new AtomicLong();
+    private final Pool<Codec> codecs = new ConcurrentPool<Codec>(64, 4){
+        @Override
+        protected Codec newObject(){
+            return new Codec();
+        }
+    };
+
+    /** Compresses objects of at least 128 bytes at the default level, without a dictionary. */
+    public DeflateSerializer(NetSerializer serializer){
+        this(serializer, 128, Deflater.DEFAULT_COMPRESSION, null);
+    }
+
+    /**
+     * @param threshold Objects that serialize to fewer bytes than this are sent uncompressed.
+     * @param level The deflate level, from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param dictionary The preset dictionary, or null.
+     */
+    public DeflateSerializer(NetSerializer serializer, int threshold, int level, byte[] dictionary){
+        if(serializer == null) throw new IllegalArgumentException("serializer cannot be null.");
+        this.serializer = serializer;
+        this.threshold = threshold;
+        this.level = level;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public void write(ByteBuffer buffer, Object object){
+        int start = buffer.position();
+        buffer.put(raw);
+        serializer.write(buffer, object);
+        int end = buffer.position(), length = end - start - 1;
+        inputBytes.addAndGet(length);
+
+        if(length >= threshold && length > 4){
+            Codec codec = codecs.obtain();
+            try{
+                byte[] input = codec.input(length);
+                buffer.position(start + 1);
+                buffer.get(input, 0, length);
+
+                Deflater deflater = codec.deflater;
+                deflater.reset();
+                if(dictionary != null) deflater.setDictionary(dictionary);
+                deflater.setInput(input, 0, length);
+                deflater.finish();
+
+                // Only keep the compressed form if it is smaller, including the length it adds.
+                byte[] output = codec.output(length);
+                int compressed = deflater.deflate(output, 0, length - 4);
+                if(deflater.finished()){
+                    buffer.position(start);
+                    buffer.put(deflated);
+                    buffer.putInt(length);
+                    buffer.put(output, 0, compressed);
+                    end = buffer.position();
+                }
+            }finally{
+                codecs.free(codec);
+            }
+        }
+
+        buffer.position(end);
+        outputBytes.addAndGet(end - start);
+    }
+
+    @Override
+    public Object read(ByteBuffer buffer){
+        byte type = buffer.get();
+        if(type == raw) return serializer.read(buffer);
+        if(type != deflated) throw new ArcNetException("Unknown compression type: " + type);
+
+        int length = buffer.getInt(), compressed = buffer.remaining();
+        if(length < 0 || length > Math.min(maxUncompressedLength, serializer.getMaxLength()) || length > (long)compressed * maxRatio + 258)
+            throw new ArcNetException("Invalid uncompressed length: " + length);
+
+        Codec codec = codecs.obtain();
+        try{
+            byte[] input = codec.input(compressed);
+            buffer.get(input, 0, compressed);
+
+            Inflater inflater = codec.inflater;
+            inflater.reset();
+            inflater.setInput(input, 0, compressed);
+
+            // Grown as the data inflates, so that a small packet claiming a large length cannot make it allocate that much.
+            byte[] output = new byte[Math.min(length, Math.max(compressed * 4, 1024))];
+            int inflated = 0;
+            while(inflated < length){
+                if(inflated == output.length) output = Arrays.copyOf(output, (int)Math.min(length, output.length * 2L));
+                int count = inflater.inflate(output, inflated, output.length - inflated);
+                if(count == 0){
+                    if(inflater.needsDictionary() && dictionary != null){
+                        inflater.setDictionary(dictionary);
+                    }else if(inflater.finished() || inflater.needsInput() || inflater.needsDictionary()){
+                        break;
+                    }
+                }
+                inflated += count;
+            }
+            if(inflated != length || !inflater.finished())
+                throw new ArcNetException("Compressed object is truncated or corrupt.");
+
+            ByteBuffer data = ByteBuffer.wrap(output);
+            Object object = serializer.read(data);
+            if(data.hasRemaining())
+                throw new ArcNetException("Incorrect number of bytes (" + data.remaining() + " remaining) used to deserialize object: " + object);
+            return object;
+        }catch(DataFormatException ex){
+            throw new ArcNetException("Unable to inflate object.", ex);
+        }finally{
+            codecs.free(codec);
+        }
+    }
+
+    /**
+     * Sets the largest size a compressed object may claim to inflate to; larger ones are rejected before they are
+     * decompressed. The maximum length of the wrapped serializer also applies. Defaults to 1 MiB.
+     */
+    public void setMaxUncompressedLength(int maxUncompressedLength){
+        if(maxUncompressedLength < 0) throw new IllegalArgumentException("maxUncompressedLength cannot be negative.");
+        this.maxUncompressedLength = maxUncompressedLength;
+    }
+
+    public int getMaxUncompressedLength(){
+        return maxUncompressedLength;
+    }
+
+    @Override
+    public boolean isVarLength(){
+        return serializer.isVarLength();
+    }
+
+    @Override
+    public int getMaxLength(){
+        return serializer.getMaxLength();
+    }
+
+    @Override
+    public int getLengthLength(){
+        return serializer.getLengthLength();
+    }
+
+    @Override
+    public void writeLength(ByteBuffer buffer, int length){
+        serializer.writeLength(buffer, length);
+    }
+
+    @Override
+    public int readLength(ByteBuffer buffer){
+        return serializer.readLength(buffer);
+    }
+
+    /** @return The number of bytes the wrapped serializer has written. */
+    public long getInputBytes(){
+        return inputBytes.get();
+    }
+
+    /** @return The number of bytes written after compression, including headers. Compare with {@link #getInputBytes()} for the compression ratio. */
+    public long getOutputBytes(){
+        return outputBytes.get();
+    }
+
+    public void resetStats(){
+        inputBytes.set(0);
+        outputBytes.set(0);
+    }
+
+    /**
+     * Builds a preset dictionary from sample messages, such as packets captured from a real session. The substrings
+     * shared by the most samples are kept, with the most common ones at the end, where deflate reaches them with the
+     * shortest distances.
+     * @param samples Serialized messages, as written by the wrapped serializer.
+     * @param size The maximum size of the dictionary. Deflate can only refer back 32 KiB, so larger sizes are not useful.
+     */
+    public static byte[] train(Iterable<byte[]> samples, int size){
+        final int gram = 8;
+        LongMap<int[]> counts = new LongMap<>();
+        LongMap<Boolean> seen = new LongMap<>();
+
+        for(byte[] sample : samples){
+            seen.clear();
+            for(int i = 0; i + gram <= sample.length; i++){
+                long key = 0;
+                for(int j = 0; j < gram; j++) key = (key << 8) | (sample[i + j] & 0xFF);
+                // Count each substring once per sample, repeats within one message compress without a dictionary.
+                if(seen.put(key, Boolean.TRUE) != null) continue;
+
+                int[] count = counts.get(key);
+                if(count == null) counts.put(key, count = new int[1]);
+                count[0]++;
+            }
+        }
+
+        Seq<LongMap.Entry<int[]>> common = new Seq<>();
+        for(LongMap.Entry<int[]> entry : counts.entries()){
+            if(entry.value[0] <= 1) continue;
+            LongMap.Entry<int[]> copy = new LongMap.Entry<>();
+            copy.key = entry.key;
+            copy.value = entry.value;
+            common.add(copy);
+        }
+        // Most common first, so that they end up last.
+        common.sort((a, b) -> Integer.compare(b.value[0], a.value[0]));
+
+        int used = Math.min(size / gram, common.size);
+        byte[] dictionary = new byte[used * gram];
+        for(int i = 0; i < used; i++){
+            long key = common.get(i).key;
+            int offset = dictionary.length - (i + 1) * gram;
+            for(int j = gram - 1; j >= 0; j--, key >>>= 8) dictionary[offset + j] = (byte)key;
+        }
+        return dictionary;
+    }
+
+    private class Codec{
+        final Deflater deflater = new Deflater(level);
+        final Inflater inflater = new Inflater();
+        byte[] input = {}, output = {};
+
+        byte[] input(int length){
+            if(input.length < length) input = new byte[length];
+            return input;
+        }
+
+        byte[] output(int length){
+            if(output.length < length) output = new byte[length];
+            return output;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package arc.net;
+
+import java.nio.*;
+
+/**
+ * Writes and reads the length prefix of TCP frames, either the fixed prefix of the {@link NetSerializer} or a varint
+ * when {@link NetSerializer#isVarLength()} is set.
+ */
+class Frames{
+    /** The largest number of bytes a varint length can take. */
+    static final int maxVarLength = 5;
+
+    /** @return The number of bytes to leave free in front of an object for its length prefix. */
+    static int prefixLength(NetSerializer serializer){
+        return serializer.isVarLength() ? maxVarLength : serializer.getLengthLength();
+    }
+
+    /** @return The largest frame length the serializer can write and read. */
+    static int maxLength(NetSerializer serializer){
+        int max = serializer.getMaxLength();
+        if(serializer.isVarLength()) return max;
+        int lengthLength = serializer.getLengthLength();
+        return lengthLength >= 4 ? max : Math.min(max, (1 << (lengthLength * 8 - 1)) - 1);
+    }
+
+    /**
+     * Serializes an object after room for its length prefix, then writes the prefix in front of it.
+     * If the object does not fit in the buffer, it is serialized again into a heap buffer that grows up to
+     * {@link #maxLength(NetSerializer)}.
+     * @return The buffer holding the frame between its position and limit, which is not the given buffer if it was too small.
+     */
+    static ByteBuffer writeFrame(NetSerializer serializer, ByteBuffer buffer, Object object){
+        int prefixLength = prefixLength(serializer), max = maxLength(serializer);
+        while(true){
+            try{
+                buffer.clear();
+                buffer.position(prefixLength);
+                serializer.write(buffer, object);
+                break;
+            }catch(BufferOverflowException ex){
+                int capacity = buffer.capacity() - prefixLength;
+                if(capacity >= max)
+                    throw new ArcNetException("Object is larger than the maximum frame length: " + max, ex);
+                buffer = ByteBuffer.allocate(prefixLength + (int)Math.min(capacity * 2L, max));
+            }
+        }
+
+        int end = buffer.position(), length = end - prefixLength;
+        if(length > max)
+            throw new ArcNetException("Object is larger than the maximum frame length: " + max);
+
+        int start;
+        if(serializer.isVarLength()){
+            start = prefixLength - varLengthSize(length);
+            buffer.position(start);
+            writeVarLength(buffer, length);
+        }else{
+            start = 0;
+            buffer.position(0);
+            serializer.writeLength(buffer, length);
+        }
+        buffer.limit(end);
+        buffer.position(start);
+        return buffer;
+    }
+
+    /**
+     * Reads a length prefix from the buffer.
+     * @return The length, or -1 if the buffer does not hold the whole prefix yet, in which case nothing is consumed.
+     */
+    static int readLength(NetSerializer serializer, ByteBuffer buffer){
+        if(!serializer.isVarLength()){
+            if(buffer.remaining() < serializer.getLengthLength()) return -1;
+            return serializer.readLength(buffer);
+        }
+
+        int position = buffer.position(), result = 0;
+        for(int i = 0; i < maxVarLength; i++){
+            if(!buffer.hasRemaining()){
+                buffer.position(position);
+                return -1;
+            }
+            int b = buffer.get();
+            result |= (b & 0x7F) << (i * 7);
+            if((b & 0x80) == 0) return result;
+        }
+        throw new ArcNetException("Malformed varint length.");
+    }
+
+    static int varLengthSize(int length){
+        int size = 1;
+        while((length >>>= 7) != 0) size++;
+        return size;
+    }
+
+    static void writeVarLength(ByteBuffer buffer, int length){
+        while((length & ~0x7F) != 0){
+            buffer.put((byte)((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        buffer.put((byte)length);
+    }
+}
@@ -0,0 +1,86 @@
+package arc.net;
+
+import java.io.*;
+import java.nio.*;
+
+/**
+ * A TCP frame too large for the read buffer of its connection. Its bytes are collected in direct chunks borrowed from a
+ * {@link BufferPool} as they arrive, then read back as a stream. The chunks return to the pool when it is closed.
+ * Not thread safe.
+ */
+class LargeFrame extends InputStream{
+    final int length;
+    private final BufferPool pool;
+    private ByteBuffer[] chunks;
+    private int count, received, readIndex;
+
+    LargeFrame(BufferPool pool, int length){
+        this.pool = pool;
+        this.length = length;
+        chunks = new ByteBuffer[length / pool.bufferSize + 1];
+    }
+
+    /** @return The number of bytes that have not arrived yet. */
+    int missing(){
+        return length - received;
+    }
+
+    /** Copies as many bytes of the buffer as the frame still misses, advancing its position. */
+    void put(ByteBuffer src){
+        int oldLimit = src.limit();
+        while(received < length && src.hasRemaining()){
+            ByteBuffer tail = count == 0 ? null : chunks[count - 1];
+            if(tail == null || !tail.hasRemaining()){
+                tail = pool.obtain();
+                chunks[count++] = tail;
+            }
+            int copied = Math.min(Math.min(src.remaining(), tail.remaining()), length - received);
+            src.limit(src.position() + copied);
+            tail.put(src);
+            src.limit(oldLimit);
+            received += copied;
+        }
+        if(received == length){
+            for(int i = 0; i < count; i++) chunks[i].flip();
+        }
+    }
+
+    @Override
+    public int read(){
+        ByteBuffer chunk = next();
+        return chunk == null ? -1 : chunk.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length){
+        if(length == 0) return 0;
+        ByteBuffer chunk = next();
+        if(chunk == null) return -1;
+        int read = Math.min(length, chunk.remaining());
+        chunk.get(bytes, offset, read);
+        return read;
+    }
+
+    @Override
+    public int available(){
+        int available = 0;
+        for(int i = readIndex; i < count; i++) available += chunks[i].remaining();
+        return available;
+    }
+
+    /** Returns every chunk to the pool. */
+    @Override
+    public void close(){
+        for(int i = 0; i < count; i++){
+            pool.free(chunks[i]);
+            chunks[i] = null;
+        }
+        count = 0;
+        readIndex = 0;
+    }
+
+    private ByteBuffer next(){
+        while(readIndex < count && !chunks[readIndex].hasRemaining()) readIndex++;
+        return readIndex < count ? chunks[readIndex] : null;
+    }
+}
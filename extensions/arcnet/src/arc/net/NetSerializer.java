@@ -2,6 +2,7 @@
 
 package arc.net;
 
+import java.io.*;
 import java.nio.ByteBuffer;
 
 /**
@@ -17,6 +18,38 @@ public interface NetSerializer{
 
     Object read(ByteBuffer buffer);
 
+    /**
+     * Reads an object from a TCP frame that is larger than the object buffer of the connection. The frame is collected
+     * in pooled chunks before this is called, and the stream holds exactly {@code length} bytes, all of which must be read.
+     * <p>
+     * The default implementation copies the frame into a temporary heap buffer and calls {@link #read(ByteBuffer)}.
+     * Serializers of large objects, such as world data, can override this to read them without the copy.
+     */
+    default Object read(InputStream stream, int length) throws IOException{
+        byte[] bytes = new byte[length];
+        new DataInputStream(stream).readFully(bytes);
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * If true, TCP frame lengths are written as varints of 1 to 5 bytes instead of with
+     * {@link #writeLength(ByteBuffer, int)}, so small objects cost a single byte of framing and the length is
+     * only limited by {@link #getMaxLength()}. Both ends of a connection must agree on this.
+     */
+    default boolean isVarLength(){
+        return false;
+    }
+
+    /**
+     * The largest TCP frame, in bytes, that may be sent or received. Frames larger than the object buffer of a
+     * connection are streamed through {@link #read(InputStream, int)}, and objects larger than the write buffer are
+     * serialized into a temporary heap buffer, so this is what actually bounds the memory used by one object.
+     * With a fixed length prefix, the frame size is also limited by what {@link #getLengthLength()} bytes can hold.
+     */
+    default int getMaxLength(){
+        return 16 * 1024 * 1024;
+    }
+
     /**
      * The fixed number of bytes that will be written by
      * {@link #writeLength(ByteBuffer, int)} and read by
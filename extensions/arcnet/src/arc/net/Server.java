@@ -1,5 +1,6 @@
 package arc.net;
 
+import arc.func.*;
 import arc.math.*;
 import arc.net.FrameworkMessage.*;
 import arc.struct.*;
@@ -10,6 +11,8 @@ import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * Manages TCP and optionally UDP connections from many {@linkplain Client
@@ -35,25 +38,40 @@ public class Server implements EndPoint{
     protected DiscoveryReceiver discoveryReceiver;
     protected ServerDiscoveryHandler discoveryHandler;
     private ServerConnectFilter connectFilter;
+    private boolean broadcastMode = true;
+    private final BufferPool segmentPool, stagingPool;
+    private final Object connectionLock = new Object();
+    private int workerCount;
+    private SelectorWorker[] workers = {};
+    private @Nullable Cons<Runnable> handoff;
 
     private NetListener dispatchListener = new NetListener(){
         public void connected(Connection connection){
-            NetListener[] listeners = Server.this.listeners;
-            for(int i = 0, n = listeners.length; i < n; i++)
-                listeners[i].connected(connection);
+            Cons<Runnable> handoff = Server.this.handoff;
+            if(handoff != null){
+                handoff.get(() -> notifyConnected(connection));
+            }else{
+                notifyConnected(connection);
+            }
         }
 
         public void disconnected(Connection connection, DcReason reason){
             removeConnection(connection);
-            NetListener[] listeners = Server.this.listeners;
-            for(int i = 0, n = listeners.length; i < n; i++)
-                listeners[i].disconnected(connection, reason);
+            Cons<Runnable> handoff = Server.this.handoff;
+            if(handoff != null){
+                handoff.get(() -> notifyDisconnected(connection, reason));
+            }else{
+                notifyDisconnected(connection, reason);
+            }
         }
 
         public void received(Connection connection, Object object){
-            NetListener[] listeners = Server.this.listeners;
-            for(int i = 0, n = listeners.length; i < n; i++)
-                listeners[i].received(connection, object);
+            Cons<Runnable> handoff = Server.this.handoff;
+            if(handoff != null){
+                handoff.get(() -> notifyReceived(connection, object));
+            }else{
+                notifyReceived(connection, object);
+            }
         }
 
         public void idle(Connection connection){
@@ -64,14 +82,15 @@ public class Server implements EndPoint{
     };
 
     /**
-     * @param writeBufferSize One buffer of this size is allocated for each connected
-     * client. Objects are serialized to the write buffer where the
-     * bytes are queued until they can be written to the TCP socket.
+     * @param writeBufferSize Objects are serialized into a buffer of this size,
+     * then queued in segments shared by all connections until they can be
+     * written to the TCP socket. It is also the default limit of queued bytes
+     * for each connected client. Memory is only held while bytes are queued.
      * <p>
      * Normally the socket is writable and the bytes are written
      * immediately. If the socket cannot be written to and enough
-     * serialized objects are queued to overflow the buffer, then the
-     * connection will be closed.
+     * serialized objects are queued to exceed the limit, then the
+     * connection will be closed. See {@link Connection#setTcpWriteBufferLimit(int)}.
      * <p>
      * The write buffer should be sized at least as large as the
      * largest object that will be sent, plus some head room to allow
@@ -85,12 +104,16 @@ public class Server implements EndPoint{
      * network or deserialized.
      * <p>
      * The object buffers should be sized at least as large as the
-     * largest object that will be sent or received.
+     * largest object that will be sent over UDP. Larger TCP objects,
+     * up to {@link NetSerializer#getMaxLength()}, are sent and
+     * received through temporary buffers instead.
      */
     public Server(int writeBufferSize, int objectBufferSize, NetSerializer serializer){
         this.writeBufferSize = writeBufferSize;
         this.objectBufferSize = objectBufferSize;
         this.serializer = serializer;
+        this.segmentPool = new BufferPool(BufferPool.defaultSegmentSize, 256);
+        this.stagingPool = new BufferPool(writeBufferSize, 8);
 
         this.discoveryHandler = (address, handler) -> handler.respond(ByteBuffer.allocate(0));
 
@@ -118,6 +141,30 @@ public class Server implements EndPoint{
         this.connectFilter = connectFilter;
     }
 
+    /**
+     * Sets the number of worker selectors that TCP connections are spread across, each with its own thread.
+     * The update thread then only accepts connections and handles UDP, while each worker reads, deserializes and writes
+     * for its share of the connections. All events of a connection are fired on the thread of its worker, so they stay
+     * in order. Zero, the default, handles everything on the update thread. Takes effect on the next {@link #bind(int)}.
+     * <p>
+     * Listeners will be notified from several threads; see {@link #setHandoff(Cons)} to receive everything on one thread instead.
+     */
+    public void setWorkers(int workers){
+        if(workers < 0) throw new IllegalArgumentException("workers cannot be negative.");
+        this.workerCount = workers;
+    }
+
+    /**
+     * If set, {@link NetListener#connected(Connection) connected}, {@link NetListener#disconnected(Connection, DcReason) disconnected}
+     * and {@link NetListener#received(Connection, Object) received} notifications of server listeners are passed to this
+     * as runnables instead of being run on the network thread. For example, {@code Core.app::post} delivers them on the
+     * game thread. Since each connection is only handled by one thread, its notifications are handed off in order.
+     * Idle notifications are always fired on the network thread. May be null.
+     */
+    public void setHandoff(@Nullable Cons<Runnable> handoff){
+        this.handoff = handoff;
+    }
+
     /**
      * Opens a TCP only server.
      * @throws IOException if the server could not be opened.
@@ -159,6 +206,15 @@ public class Server implements EndPoint{
                     discoveryReceiver = new DiscoveryReceiver(multicastPort);
                     discoveryReceiver.start();
                 }
+
+                SelectorWorker[] workers = new SelectorWorker[workerCount];
+                for(int i = 0; i < workers.length; i++){
+                    workers[i] = new SelectorWorker(i);
+                }
+                this.workers = workers;
+                for(SelectorWorker worker : workers){
+                    worker.thread.start();
+                }
             }catch(IOException ex){
                 close();
                 throw ex;
@@ -204,7 +260,7 @@ public class Server implements EndPoint{
             synchronized(keys){
                 UdpConnection udp = this.udp;
                 for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
-                    keepAlive();
+                    if(workers.length == 0) keepAlive(this.connections);
                     SelectionKey selectionKey = iter.next();
                     iter.remove();
                     Connection fromConnection = (Connection)selectionKey.attachment();
@@ -213,30 +269,7 @@ public class Server implements EndPoint{
 
                         if(fromConnection != null){ // Must be a TCP read or
                             // write operation.
-                            if(udp != null && fromConnection.udpRemoteAddress == null){
-                                fromConnection.close(DcReason.error);
-                                continue;
-                            }
-                            if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
-                                try{
-                                    while(true){
-                                        Object object = fromConnection.tcp.readObject();
-                                        if(object == null)
-                                            break;
-                                        fromConnection.notifyReceived(object);
-                                    }
-                                }catch(IOException | ArcNetException ex){
-                                    ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
-                            if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
-                                try{
-                                    fromConnection.tcp.writeOperation();
-                                }catch(IOException ex){
-                                    fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
-                                }
-                            }
+                            processTcp(fromConnection, ops);
                             continue;
                         }
 
@@ -246,8 +279,21 @@ public class Server implements EndPoint{
                                 continue;
                             try{
                                 SocketChannel socketChannel = serverChannel.accept();
-                                if(socketChannel != null)
-                                    acceptOperation(socketChannel);
+                                if(socketChannel != null){
+                                    SelectorWorker[] workers = this.workers;
+                                    if(workers.length == 0){
+                                        acceptOperation(socketChannel, null);
+                                    }else{
+                                        // Accept on the least loaded worker, so that all events of the connection originate from its thread.
+                                        SelectorWorker worker = workers[0];
+                                        for(SelectorWorker other : workers){
+                                            if(other.load.get() < worker.load.get()) worker = other;
+                                        }
+                                        // Counted now rather than when the accept runs, so that a burst of accepts is spread out.
+                                        worker.load.incrementAndGet();
+                                        worker.accept(socketChannel);
+                                    }
+                                }
                             }catch(IOException ex){
                                 ArcNet.handleError(ex);
                             }
@@ -291,14 +337,18 @@ public class Server implements EndPoint{
                                 // reply over TCP with a RegisterUDP to indicate
                                 // success.
                                 int fromConnectionID = ((RegisterUDP)object).connectionID;
-                                Connection connection = pendingConnections
-                                .remove(fromConnectionID);
+                                Connection connection;
+                                synchronized(connectionLock){
+                                    connection = pendingConnections.remove(fromConnectionID);
+                                }
                                 if(connection != null){
                                     if(connection.udpRemoteAddress != null) continue;
                                     connection.udpRemoteAddress = fromAddress;
-                                    addConnection(connection);
-                                    connection.sendTCP(new RegisterUDP());
-                                    connection.notifyConnected();
+                                    if(connection.worker != null){
+                                        connection.worker.post(() -> registerUDP(connection));
+                                    }else{
+                                        registerUDP(connection);
+                                    }
                                     continue;
                                 }
                                 continue;
@@ -313,7 +363,12 @@ public class Server implements EndPoint{
                         }
 
                         if(fromConnection != null){
-                            fromConnection.notifyReceived(object);
+                            if(fromConnection.worker != null){
+                                Connection connection = fromConnection;
+                                connection.worker.post(() -> connection.notifyReceived(object));
+                            }else{
+                                fromConnection.notifyReceived(object);
+                            }
                             continue;
                         }
                     }catch(CancelledKeyException ex){
@@ -325,8 +380,43 @@ public class Server implements EndPoint{
                 }
             }
         }
+        // Workers check their own connections.
+        if(workers.length == 0){
+            checkConnections(this.connections);
+        }
+    }
+
+    /** Reads and writes the TCP side of a connection whose selection key is ready. */
+    private void processTcp(Connection fromConnection, int ops){
+        if(udp != null && fromConnection.udpRemoteAddress == null){
+            fromConnection.close(DcReason.error);
+            return;
+        }
+        if((ops & SelectionKey.OP_READ) == SelectionKey.OP_READ){
+            try{
+                while(true){
+                    Object object = fromConnection.tcp.readObject();
+                    if(object == null)
+                        break;
+                    fromConnection.notifyReceived(object);
+                }
+            }catch(IOException | ArcNetException ex){
+                ArcNet.handleError(new ArcNetException("Error reading TCP from connection: " + fromConnection, ex));
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+        if((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE){
+            try{
+                fromConnection.tcp.writeOperation();
+            }catch(IOException ex){
+                fromConnection.close(ex.getMessage() != null && ex.getMessage().contains("closed") ? DcReason.closed : DcReason.error);
+            }
+        }
+    }
+
+    /** Closes timed out connections, sends keep alives and fires idle events. */
+    private void checkConnections(Connection[] connections){
         long time = System.currentTimeMillis();
-        Connection[] connections = this.connections;
         for(int i = 0, n = connections.length; i < n; i++){
             Connection connection = connections[i];
             if(connection.tcp.isTimedOut(time)){
@@ -340,9 +430,8 @@ public class Server implements EndPoint{
         }
     }
 
-    private void keepAlive(){
+    private void keepAlive(Connection[] connections){
         long time = System.currentTimeMillis();
-        Connection[] connections = this.connections;
         for(int i = 0, n = connections.length; i < n; i++){
             Connection connection = connections[i];
             if(connection.tcp.needsKeepAlive(time))
@@ -372,11 +461,13 @@ public class Server implements EndPoint{
         close();
     }
 
-    private void acceptOperation(SocketChannel socketChannel){
+    /** @param worker The worker that will own the connection, or null to use the server selector. Must be called on the thread of that selector. */
+    private void acceptOperation(SocketChannel socketChannel, SelectorWorker worker){
         if(connectFilter != null){
             try{
                 if(!connectFilter.accept(((InetSocketAddress)socketChannel.getRemoteAddress()).getAddress().getHostAddress())){
                     socketChannel.close();
+                    if(worker != null) worker.load.decrementAndGet();
                     return;
                 }
             }catch(IOException ignored){}
@@ -384,24 +475,30 @@ public class Server implements EndPoint{
 
         Connection connection = newConnection();
         connection.initialize(serializer,
-        writeBufferSize, objectBufferSize);
+        writeBufferSize, objectBufferSize, segmentPool, stagingPool);
         connection.endPoint = this;
         UdpConnection udp = this.udp;
         if(udp != null)
             connection.udp = udp;
         try{
-            SelectionKey selectionKey = connection.tcp.accept(selector, socketChannel);
+            SelectionKey selectionKey = connection.tcp.accept(worker == null ? selector : worker.selector, socketChannel);
             selectionKey.attach(connection);
 
-            int id = generateId();
-            connection.id = id;
-            connection.setConnected(true);
-            connection.addListener(dispatchListener);
-
-            if(udp == null)
-                addConnection(connection);
-            else
-                pendingConnections.put(id, connection);
+            int id;
+            synchronized(connectionLock){
+                id = generateId();
+                connection.id = id;
+                connection.setConnected(true);
+                connection.addListener(dispatchListener);
+                connection.worker = worker;
+                if(worker != null)
+                    worker.add(connection);
+
+                if(udp == null)
+                    addConnection(connection);
+                else
+                    pendingConnections.put(id, connection);
+            }
 
             RegisterTCP registerConnection = new RegisterTCP();
             registerConnection.connectionID = id;
@@ -410,6 +507,8 @@ public class Server implements EndPoint{
             if(udp == null)
                 connection.notifyConnected();
         }catch(IOException ex){
+            // Once added, the worker stops counting the connection when it is removed.
+            if(worker != null && connection.worker == null) worker.load.decrementAndGet();
             connection.close(DcReason.error);
         }
     }
@@ -431,38 +530,80 @@ public class Server implements EndPoint{
         return new Connection();
     }
 
+    /** Called once the UDP address of a connection is known, on the thread that owns the connection. */
+    private void registerUDP(Connection connection){
+        addConnection(connection);
+        connection.sendTCP(new RegisterUDP());
+        connection.notifyConnected();
+    }
+
     private void addConnection(Connection connection){
-        Connection[] newConnections = new Connection[connections.length + 1];
-        newConnections[0] = connection;
-        System.arraycopy(connections, 0, newConnections, 1, connections.length);
-        connections = newConnections;
+        synchronized(connectionLock){
+            Connection[] newConnections = new Connection[connections.length + 1];
+            newConnections[0] = connection;
+            System.arraycopy(connections, 0, newConnections, 1, connections.length);
+            connections = newConnections;
+        }
     }
 
     void removeConnection(Connection connection){
-        ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
-        temp.remove(connection);
-        connections = temp.toArray(new Connection[0]);
+        synchronized(connectionLock){
+            ArrayList<Connection> temp = new ArrayList<>(Arrays.asList(connections));
+            temp.remove(connection);
+            connections = temp.toArray(new Connection[0]);
+
+            pendingConnections.remove(connection.id);
+            if(connection.worker != null)
+                connection.worker.remove(connection);
+        }
+    }
 
-        pendingConnections.remove(connection.id);
+    /**
+     * In broadcast mode, {@link #sendToAllTCP(Object)}, {@link #sendToAllUDP(Object)} and their "except" variants
+     * serialize the object once into a pooled frame which is then copied into each connection, instead of running the
+     * serializer for every connection. This requires the serializer output to not depend on the connection it is
+     * written for. Enabled by default.
+     */
+    public void setBroadcastMode(boolean broadcastMode){
+        this.broadcastMode = broadcastMode;
     }
 
-    // BOZO - Provide mechanism for sending to multiple clients without
-    // serializing multiple times.
+    public boolean isBroadcastMode(){
+        return broadcastMode;
+    }
 
     public void sendToAllTCP(Object object){
-        Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            connection.sendTCP(object);
-        }
+        sendToAllTCP(object, false, 0);
     }
 
     public void sendToAllExceptTCP(int connectionID, Object object){
+        sendToAllTCP(object, true, connectionID);
+    }
+
+    private void sendToAllTCP(Object object, boolean except, int connectionID){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
         Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            if(connection.id != connectionID)
-                connection.sendTCP(object);
+        if(!broadcastMode){
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(!except || connection.id != connectionID)
+                    connection.sendTCP(object);
+            }
+            return;
+        }
+        if(connections.length == 0) return;
+
+        ByteBuffer buffer = stagingPool.obtain();
+        try{
+            ByteBuffer frame = serializeBroadcast(buffer, object, true, connections, except, connectionID);
+            if(frame == null) return;
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(!except || connection.id != connectionID)
+                    connection.sendFrameTCP(frame);
+            }
+        }finally{
+            stagingPool.free(buffer);
         }
     }
 
@@ -478,19 +619,60 @@ public class Server implements EndPoint{
     }
 
     public void sendToAllUDP(Object object){
-        Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            connection.sendUDP(object);
-        }
+        sendToAllUDP(object, false, 0);
     }
 
     public void sendToAllExceptUDP(int connectionID, Object object){
+        sendToAllUDP(object, true, connectionID);
+    }
+
+    private void sendToAllUDP(Object object, boolean except, int connectionID){
+        if(object == null) throw new IllegalArgumentException("object cannot be null.");
         Connection[] connections = this.connections;
-        for(int i = 0, n = connections.length; i < n; i++){
-            Connection connection = connections[i];
-            if(connection.id != connectionID)
-                connection.sendUDP(object);
+        if(!broadcastMode){
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(!except || connection.id != connectionID)
+                    connection.sendUDP(object);
+            }
+            return;
+        }
+        if(connections.length == 0) return;
+
+        ByteBuffer datagram = stagingPool.obtain();
+        //clients receive datagrams into buffers of objectBufferSize, so a larger object must fail here as it does for one connection
+        datagram.limit(Math.min(objectBufferSize, datagram.capacity()));
+        try{
+            if(serializeBroadcast(datagram, object, false, connections, except, connectionID) == null) return;
+            for(int i = 0, n = connections.length; i < n; i++){
+                Connection connection = connections[i];
+                if(!except || connection.id != connectionID)
+                    connection.sendFrameUDP(datagram);
+            }
+        }finally{
+            stagingPool.free(datagram);
+        }
+    }
+
+    /**
+     * Serializes an object into a broadcast buffer, leaving it ready to be queued. TCP frames are prefixed with their length,
+     * and are serialized into a larger heap buffer if the object does not fit.
+     * If serialization fails, every recipient is closed just as if it had failed to serialize the object itself, and null is returned.
+     * @return The buffer holding the serialized object, or null.
+     */
+    private @Nullable ByteBuffer serializeBroadcast(ByteBuffer buffer, Object object, boolean tcp, Connection[] recipients, boolean except, int exceptID){
+        try{
+            if(tcp) return Frames.writeFrame(serializer, buffer, object);
+
+            serializer.write(buffer, object);
+            buffer.flip();
+            return buffer;
+        }catch(Throwable ex){
+            ArcNet.handleError(new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex));
+            for(Connection connection : recipients){
+                if(!except || connection.id != exceptID) connection.close(DcReason.error);
+            }
+            return null;
         }
     }
 
@@ -549,10 +731,13 @@ public class Server implements EndPoint{
      * Closes all open connections and the server port(s).
      */
     public void close(){
-        Connection[] connections = this.connections;
+        Connection[] connections;
+        synchronized(connectionLock){
+            connections = this.connections;
+            this.connections = new Connection[0];
+        }
         for(int i = 0, n = connections.length; i < n; i++)
             connections[i].close(DcReason.closed);
-        this.connections = new Connection[0];
 
         ServerSocketChannel serverChannel = this.serverChannel;
         if(serverChannel != null){
@@ -574,6 +759,12 @@ public class Server implements EndPoint{
             this.udp = null;
         }
 
+        SelectorWorker[] workers = this.workers;
+        for(SelectorWorker worker : workers){
+            worker.stop();
+        }
+        this.workers = new SelectorWorker[0];
+
         synchronized(updateLock){ // Blocks to avoid a select while the
             // selector is used to bind the server
             // connection.
@@ -594,6 +785,24 @@ public class Server implements EndPoint{
         selector.close();
     }
 
+    private void notifyConnected(Connection connection){
+        NetListener[] listeners = this.listeners;
+        for(int i = 0, n = listeners.length; i < n; i++)
+            listeners[i].connected(connection);
+    }
+
+    private void notifyDisconnected(Connection connection, DcReason reason){
+        NetListener[] listeners = this.listeners;
+        for(int i = 0, n = listeners.length; i < n; i++)
+            listeners[i].disconnected(connection, reason);
+    }
+
+    private void notifyReceived(Connection connection, Object object){
+        NetListener[] listeners = this.listeners;
+        for(int i = 0, n = listeners.length; i < n; i++)
+            listeners[i].received(connection, object);
+    }
+
     public Thread getUpdateThread(){
         return updateThread;
     }
@@ -652,6 +861,134 @@ public class Server implements EndPoint{
         }
     }
 
+    /** Owns a selector and a thread that read and write the TCP side of a share of the connections. */
+    class SelectorWorker implements Runnable{
+        final Selector selector;
+        final Thread thread;
+        final TaskQueue tasks = new TaskQueue();
+        volatile Connection[] connections = {};
+        /** The connections owned by this worker or being accepted for it, used to pick the least loaded worker. */
+        final AtomicInteger load = new AtomicInteger();
+        /** Accepted sockets waiting to be registered on this worker's thread, closed instead if the worker stops first. */
+        final ConcurrentLinkedQueue<SocketChannel> accepting = new ConcurrentLinkedQueue<>();
+        private volatile boolean running = true;
+        private int emptySelects;
+
+        SelectorWorker(int index) throws IOException{
+            selector = Selector.open();
+            thread = new Thread(this, "Server Worker " + index);
+            thread.setDaemon(true);
+        }
+
+        /** Runs the task on this worker's thread, in order with the events of its connections. This method is thread safe. */
+        void post(Runnable task){
+            tasks.post(task);
+            selector.wakeup();
+        }
+
+        /** Registers an accepted socket on this worker's thread. This method is thread safe. */
+        void accept(SocketChannel socketChannel){
+            accepting.add(socketChannel);
+            if(!running){
+                //stopped after the check in the caller, and may have closed its pending sockets already
+                closeAccepting();
+                return;
+            }
+            post(() -> {
+                SocketChannel next = accepting.poll();
+                if(next != null) acceptOperation(next, this);
+            });
+        }
+
+        void closeAccepting(){
+            SocketChannel socketChannel;
+            while((socketChannel = accepting.poll()) != null){
+                try{
+                    socketChannel.close();
+                }catch(IOException ignored){
+                }
+            }
+        }
+
+        synchronized void add(Connection connection){
+            Connection[] newConnections = new Connection[connections.length + 1];
+            newConnections[0] = connection;
+            System.arraycopy(connections, 0, newConnections, 1, connections.length);
+            connections = newConnections;
+        }
+
+        synchronized void remove(Connection connection){
+            Connection[] connections = this.connections;
+            for(int i = 0; i < connections.length; i++){
+                if(connections[i] == connection){
+                    Connection[] newConnections = new Connection[connections.length - 1];
+                    System.arraycopy(connections, 0, newConnections, 0, i);
+                    System.arraycopy(connections, i + 1, newConnections, i, newConnections.length - i);
+                    this.connections = newConnections;
+                    load.decrementAndGet();
+                    return;
+                }
+            }
+        }
+
+        void stop(){
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run(){
+            while(running){
+                try{
+                    update(250);
+                }catch(IOException ex){
+                    ArcNet.handleError(ex);
+                }
+            }
+            closeAccepting();
+            try{
+                selector.close();
+            }catch(IOException ignored){
+            }
+        }
+
+        private void update(int timeout) throws IOException{
+            tasks.run();
+
+            long startTime = System.currentTimeMillis();
+            int select = selector.select(timeout);
+            if(select == 0){
+                emptySelects++;
+                if(emptySelects == 100){
+                    emptySelects = 0;
+                    // NIO freaks and returns immediately with 0 sometimes, so try
+                    // to keep from hogging the CPU.
+                    long elapsedTime = System.currentTimeMillis() - startTime;
+                    try{
+                        if(elapsedTime < 25) Thread.sleep(25 - elapsedTime);
+                    }catch(InterruptedException ignored){
+                    }
+                }
+            }else{
+                emptySelects = 0;
+                Set<SelectionKey> keys = selector.selectedKeys();
+                for(Iterator<SelectionKey> iter = keys.iterator(); iter.hasNext();){
+                    keepAlive(connections);
+                    SelectionKey selectionKey = iter.next();
+                    iter.remove();
+                    Connection fromConnection = (Connection)selectionKey.attachment();
+                    try{
+                        processTcp(fromConnection, selectionKey.readyOps());
+                    }catch(CancelledKeyException ex){
+                        fromConnection.close(DcReason.error);
+                    }
+                }
+            }
+
+            checkConnections(connections);
+        }
+    }
+
     public interface ServerConnectFilter{
         boolean accept(String address);
     }
@@ -14,7 +14,10 @@ import java.nio.channels.*;
 class TcpConnection{
     SocketChannel socketChannel;
     int keepAliveMillis = 8000;
-    final ByteBuffer readBuffer, writeBuffer;
+    final ByteBuffer readBuffer;
+    final WriteQueue writeQueue;
+    /** The maximum number of bytes that may be queued for writing before the connection is closed. */
+    int writeQueueLimit;
     int timeoutMillis = 12000;
     float idleThreshold = 0.1f;
 
@@ -22,20 +25,32 @@ class TcpConnection{
     private SelectionKey selectionKey;
     private volatile long lastWriteTime, lastReadTime;
     private int currentObjectLength;
+    /** The frame being received if it is larger than the read buffer, otherwise null. */
+    private LargeFrame largeFrame;
     private final Object writeLock = new Object();
+    private final BufferPool segmentPool, stagingPool;
 
-    public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize){
+    /**
+     * @param segmentPool Pool of the direct segments that queued writes and frames larger than the read buffer are stored in.
+     * @param stagingPool Pool of the direct buffers that objects are serialized into before being queued. Larger objects
+     * are serialized into a temporary heap buffer.
+     */
+    public TcpConnection(NetSerializer serialization, int writeBufferSize, int objectBufferSize, BufferPool segmentPool, BufferPool stagingPool){
         this.serialization = serialization;
-        writeBuffer = ByteBuffer.allocate(writeBufferSize);
+        this.segmentPool = segmentPool;
+        this.stagingPool = stagingPool;
+        writeQueue = new WriteQueue(segmentPool);
+        writeQueueLimit = writeBufferSize;
         readBuffer = ByteBuffer.allocate(objectBufferSize);
         readBuffer.flip();
     }
 
     public SelectionKey accept(Selector selector, SocketChannel socketChannel) throws IOException{
-        writeBuffer.clear();
+        clearWriteQueue();
         readBuffer.clear();
         readBuffer.flip();
         currentObjectLength = 0;
+        closeLargeFrame();
         try{
             this.socketChannel = socketChannel;
             socketChannel.configureBlocking(false);
@@ -56,10 +71,11 @@ class TcpConnection{
 
     public void connect(Selector selector, SocketAddress remoteAddress, int timeout) throws IOException{
         close();
-        writeBuffer.clear();
+        clearWriteQueue();
         readBuffer.clear();
         readBuffer.flip();
         currentObjectLength = 0;
+        closeLargeFrame();
         try{
             SocketChannel socketChannel = selector.provider().openSocketChannel();
             Socket socket = socketChannel.socket();
@@ -88,39 +104,33 @@ class TcpConnection{
 
         if(currentObjectLength == 0){
             // Read the length of the next object from the socket.
-            int lengthLength = serialization.getLengthLength();
-            if(readBuffer.remaining() < lengthLength){
-                readBuffer.compact();
-                int bytesRead = socketChannel.read(readBuffer);
-                readBuffer.flip();
-                if(bytesRead == -1)
-                    throw new SocketException("Connection is closed.");
-                lastReadTime = System.currentTimeMillis();
-
-                if(readBuffer.remaining() < lengthLength)
+            int length = Frames.readLength(serialization, readBuffer);
+            if(length == -1){
+                fill(socketChannel);
+                length = Frames.readLength(serialization, readBuffer);
+                if(length == -1)
                     return null;
             }
-            currentObjectLength = serialization.readLength(readBuffer);
+            currentObjectLength = length;
 
             if(currentObjectLength <= 0)
                 throw new ArcNetException(
                 "Invalid object length: " + currentObjectLength);
-            if(currentObjectLength > readBuffer.capacity())
+            if(currentObjectLength > Frames.maxLength(serialization))
                 throw new ArcNetException(
-                "Unable to read object larger than read buffer: "
+                "Unable to read object larger than the maximum frame length: "
                 + currentObjectLength);
+            if(currentObjectLength > readBuffer.capacity())
+                largeFrame = new LargeFrame(segmentPool, currentObjectLength);
         }
 
+        if(largeFrame != null)
+            return readLargeFrame(socketChannel);
+
         int length = currentObjectLength;
         if(readBuffer.remaining() < length){
             // Fill the tcpInputStream.
-            readBuffer.compact();
-            int bytesRead = socketChannel.read(readBuffer);
-            readBuffer.flip();
-            if(bytesRead == -1)
-                throw new SocketException("Connection is closed.");
-            lastReadTime = System.currentTimeMillis();
-
+            fill(socketChannel);
             if(readBuffer.remaining() < length)
                 return null;
         }
@@ -145,6 +155,54 @@ class TcpConnection{
         return object;
     }
 
+    /** Collects a frame that does not fit in the read buffer, and deserializes it once it has fully arrived. */
+    private Object readLargeFrame(SocketChannel socketChannel) throws IOException{
+        LargeFrame frame = largeFrame;
+        frame.put(readBuffer);
+        if(frame.missing() > 0){
+            fill(socketChannel);
+            frame.put(readBuffer);
+            if(frame.missing() > 0)
+                return null;
+        }
+        currentObjectLength = 0;
+        largeFrame = null;
+
+        Object object;
+        try{
+            object = serialization.read(frame, frame.length);
+        }catch(Exception ex){
+            frame.close();
+            throw new ArcNetException("Error during deserialization.", ex);
+        }
+
+        int remaining = frame.available();
+        frame.close();
+        if(remaining != 0)
+            throw new ArcNetException("Incorrect number of bytes ("
+            + remaining + " remaining) used to deserialize object: " + object);
+
+        return object;
+    }
+
+    /** Reads from the socket into the free space of the read buffer. */
+    private void fill(SocketChannel socketChannel) throws IOException{
+        readBuffer.compact();
+        int bytesRead = socketChannel.read(readBuffer);
+        readBuffer.flip();
+        if(bytesRead == -1)
+            throw new SocketException("Connection is closed.");
+        lastReadTime = System.currentTimeMillis();
+    }
+
+    /** Must be called on the thread that reads the connection. A frame abandoned by close() is left to the garbage collector. */
+    private void closeLargeFrame(){
+        if(largeFrame != null){
+            largeFrame.close();
+            largeFrame = null;
+        }
+    }
+
     public void writeOperation() throws IOException{
         synchronized(writeLock){
             if(writeToSocket()){
@@ -160,15 +218,13 @@ class TcpConnection{
         if(socketChannel == null)
             throw new SocketException("Connection is closed.");
 
-        ByteBuffer buffer = writeBuffer;
-        buffer.flip();
-        while(buffer.hasRemaining()){
-            if(socketChannel.write(buffer) == 0)
-                break;
-        }
-        buffer.compact();
+        return writeQueue.write(socketChannel);
+    }
 
-        return buffer.position() == 0;
+    private void clearWriteQueue(){
+        synchronized(writeLock){
+            writeQueue.clear();
+        }
     }
 
     /**
@@ -179,42 +235,67 @@ class TcpConnection{
         if(socketChannel == null)
             throw new SocketException("Connection is closed.");
         synchronized(writeLock){
-
-            int start = writeBuffer.position();
-            int lengthLength = serialization.getLengthLength();
-
+            ByteBuffer buffer = stagingPool.obtain();
             try{
-                // Leave room for length.
-                writeBuffer.position(writeBuffer.position() + lengthLength);
-
-                // Write data.
-                serialization.write(writeBuffer, object);
-            }catch(Throwable ex){
-                throw new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex);
-            }
-            int end = writeBuffer.position();
-
-            // Write data length.
-            writeBuffer.position(start);
-            serialization.writeLength(writeBuffer, end - lengthLength - start);
-            writeBuffer.position(end);
-
-            // Write to socket if no data was queued.
-            if(start == 0 && !writeToSocket()){
-                // A partial write, set OP_WRITE to be notified when more
-                // writing can occur.
-                selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-            }else{
-                // Full write, wake up selector so idle event will be fired.
-                selectionKey.selector().wakeup();
+                ByteBuffer frame;
+                try{
+                    frame = Frames.writeFrame(serialization, buffer, object);
+                }catch(Throwable ex){
+                    throw new ArcNetException("Error serializing object of type: " + object.getClass().getName(), ex);
+                }
+                int length = frame.remaining();
+
+                queue(frame);
+                return length;
+            }finally{
+                stagingPool.free(buffer);
             }
+        }
+    }
 
-            lastWriteTime = System.currentTimeMillis();
-            return end - start;
+    /**
+     * Queues a frame that has already been serialized, including its length prefix. The position of the frame is
+     * restored afterwards, so the same buffer can be queued on any number of connections.
+     * This method is thread safe.
+     */
+    public int sendFrame(ByteBuffer frame) throws IOException{
+        SocketChannel socketChannel = this.socketChannel;
+        if(socketChannel == null)
+            throw new SocketException("Connection is closed.");
+        synchronized(writeLock){
+            int length = frame.remaining();
+            int position = frame.position();
+            queue(frame);
+            frame.position(position);
+            return length;
+        }
+    }
+
+    /** Must be called with the write lock held. Appends the remaining bytes of the frame to the write queue. */
+    private void queue(ByteBuffer frame) throws IOException{
+        int length = frame.remaining();
+        // A single frame may exceed the limit, so that large objects can still be sent on an idle connection.
+        if(!writeQueue.isEmpty() && writeQueue.size() + length > writeQueueLimit)
+            throw new ArcNetException("Write queue limit exceeded (" + writeQueueLimit + " bytes) queueing frame of " + length + " bytes.");
+
+        boolean wasEmpty = writeQueue.isEmpty();
+        writeQueue.put(frame);
+
+        // Write to socket if no data was queued.
+        if(wasEmpty && !writeToSocket()){
+            // A partial write, set OP_WRITE to be notified when more
+            // writing can occur.
+            selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }else{
+            // Full write, wake up selector so idle event will be fired.
+            selectionKey.selector().wakeup();
         }
+
+        lastWriteTime = System.currentTimeMillis();
     }
 
     public void close(){
+        clearWriteQueue();
         try{
             if(socketChannel != null){
                 socketChannel.close();
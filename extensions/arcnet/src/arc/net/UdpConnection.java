@@ -123,6 +123,31 @@ class UdpConnection{
         }
     }
 
+    /**
+     * Sends a datagram that has already been serialized. The position of the datagram is restored afterwards, so the
+     * same buffer can be sent to any number of addresses.
+     * This method is thread safe.
+     */
+    public int send(ByteBuffer datagram, SocketAddress address) throws IOException{
+        DatagramChannel datagramChannel = this.datagramChannel;
+        if(datagramChannel == null)
+            throw new SocketException("Connection is closed.");
+        synchronized(writeLock){
+            int position = datagram.position();
+            try{
+                int length = datagram.remaining();
+                datagramChannel.send(datagram, address);
+
+                lastCommunicationTime = System.currentTimeMillis();
+
+                boolean wasFullWrite = !datagram.hasRemaining();
+                return wasFullWrite ? length : -1;
+            }finally{
+                datagram.position(position);
+            }
+        }
+    }
+
     public void close(){
         connectedAddress = null;
         try{
@@ -0,0 +1,95 @@
+package arc.net;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * Bytes waiting to be written to a TCP socket, stored as a chain of fixed-size direct segments borrowed from a
+ * {@link BufferPool}. Segments are obtained as data is queued and returned to the pool as soon as they are written,
+ * so an idle connection holds no segments at all. The chain is flushed with a single gathering write.
+ * <p>
+ * Each segment is kept ready for reading: its position is the next byte to write to the socket, its limit the end of
+ * the queued data. Not thread safe.
+ */
+class WriteQueue{
+    private final BufferPool pool;
+    private ByteBuffer[] segments = new ByteBuffer[4];
+    private int count;
+    private int size;
+
+    WriteQueue(BufferPool pool){
+        this.pool = pool;
+    }
+
+    /** @return The number of queued bytes. */
+    int size(){
+        return size;
+    }
+
+    boolean isEmpty(){
+        return size == 0;
+    }
+
+    /** Appends the remaining bytes of the buffer, advancing its position to its limit. */
+    void put(ByteBuffer src){
+        int oldLimit = src.limit();
+        while(src.hasRemaining()){
+            ByteBuffer tail = count == 0 ? null : segments[count - 1];
+            if(tail == null || tail.limit() == tail.capacity()){
+                tail = pool.obtain();
+                tail.limit(0);
+                if(count == segments.length){
+                    ByteBuffer[] newSegments = new ByteBuffer[count * 2];
+                    System.arraycopy(segments, 0, newSegments, 0, count);
+                    segments = newSegments;
+                }
+                segments[count++] = tail;
+            }
+
+            int end = tail.limit(), position = tail.position();
+            int length = Math.min(src.remaining(), tail.capacity() - end);
+            src.limit(src.position() + length);
+            tail.limit(end + length);
+            tail.position(end);
+            tail.put(src);
+            tail.position(position);
+            src.limit(oldLimit);
+            size += length;
+        }
+    }
+
+    /**
+     * Writes as much of the queue as the channel accepts, releasing every segment that was fully written.
+     * @return True if the queue is now empty.
+     */
+    boolean write(GatheringByteChannel channel) throws IOException{
+        while(size > 0){
+            long written = channel.write(segments, 0, count);
+            if(written == 0) break;
+            size -= (int)written;
+
+            int drained = 0;
+            while(drained < count && !segments[drained].hasRemaining()){
+                pool.free(segments[drained]);
+                drained++;
+            }
+            if(drained > 0){
+                System.arraycopy(segments, drained, segments, 0, count - drained);
+                for(int i = count - drained; i < count; i++) segments[i] = null;
+                count -= drained;
+            }
+        }
+        return size == 0;
+    }
+
+    /** Returns every segment to the pool, discarding queued bytes. */
+    void clear(){
+        for(int i = 0; i < count; i++){
+            pool.free(segments[i]);
+            segments[i] = null;
+        }
+        count = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,125 @@
+package arc.httpclient;
+
+import arc.struct.*;
+import arc.util.*;
+import arc.util.Http.*;
+import arc.util.io.*;
+
+import java.io.*;
+import java.net.*;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.*;
+import java.net.http.HttpRequest.*;
+import java.net.http.HttpResponse.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Sends {@link Http} requests through {@link HttpClient}, which keeps connections alive between requests and
+ * multiplexes requests to the same host over one HTTP/2 connection where the server supports it. Response bodies are
+ * streamed from the socket instead of being buffered.
+ * <p>
+ * Requires Java 11 or newer, so it lives in its own module instead of arc-core, which also targets Android and iOS.
+ * Select it with {@code Http.backend = new JavaHttpBackend();}.
+ */
+public class JavaHttpBackend implements Http.HttpBackend{
+    /** Headers that {@link HttpClient} sets itself and refuses to take from the request. */
+    private static final ObjectSet<String> restrictedHeaders = ObjectSet.with("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient client, noRedirectClient;
+    private final Semaphore inFlight;
+
+    /** Allows up to 64 requests in flight at once. */
+    public JavaHttpBackend(){
+        this(64);
+    }
+
+    /**
+     * @param maxInFlight The number of requests that may be waiting for or reading a response at once. Further requests
+     * block until one finishes.
+     */
+    public JavaHttpBackend(int maxInFlight){
+        inFlight = new Semaphore(maxInFlight);
+        client = HttpClient.newBuilder().version(Version.HTTP_2).followRedirects(Redirect.NORMAL).build();
+        noRedirectClient = HttpClient.newBuilder().version(Version.HTTP_2).followRedirects(Redirect.NEVER).build();
+    }
+
+    @Override
+    public Http.HttpResponse send(Http.HttpRequest request) throws Exception{
+        String url = request.url;
+        if(request.method == HttpMethod.GET && request.content != null && !request.content.isEmpty()){
+            url += "?" + request.content;
+        }
+
+        java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(url));
+        if(request.timeout > 0) builder.timeout(Duration.ofMillis(request.timeout));
+        request.headers.each((name, value) -> {
+            if(!restrictedHeaders.contains(name.toLowerCase(Locale.ROOT))) builder.header(name, value);
+        });
+
+        BodyPublisher body = BodyPublishers.noBody();
+        if(request.method == HttpMethod.POST || request.method == HttpMethod.PUT){
+            if(request.content != null){
+                body = BodyPublishers.ofString(request.content, Strings.utf8);
+            }else if(request.contentStream != null){
+                InputStream stream = request.contentStream;
+                body = request.contentLength > 0 ?
+                    BodyPublishers.fromPublisher(BodyPublishers.ofInputStream(() -> stream), request.contentLength) :
+                    BodyPublishers.ofInputStream(() -> stream);
+            }
+        }
+        builder.method(request.method.name(), body);
+
+        inFlight.acquire();
+        try{
+            java.net.http.HttpResponse<InputStream> response = (request.followRedirects ? client : noRedirectClient)
+                .send(builder.build(), BodyHandlers.ofInputStream());
+            return new StreamResponse(response);
+        }catch(Throwable e){
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    private class StreamResponse extends Http.HttpResponse{
+        private final java.net.http.HttpResponse<InputStream> response;
+        private boolean closed;
+
+        StreamResponse(java.net.http.HttpResponse<InputStream> response){
+            super(response.statusCode());
+            this.response = response;
+        }
+
+        @Override
+        public long getContentLength(){
+            return response.headers().firstValueAsLong("content-length").orElse(-1);
+        }
+
+        @Override
+        public InputStream getResultAsStream(){
+            return response.body();
+        }
+
+        @Override
+        public String getHeader(String name){
+            return response.headers().firstValue(name).orElse(null);
+        }
+
+        @Override
+        public ObjectMap<String, Seq<String>> getHeaders(){
+            ObjectMap<String, Seq<String>> out = new ObjectMap<>();
+            response.headers().map().forEach((key, values) -> out.put(key, Seq.with(values.toArray(new String[0]))));
+            return out;
+        }
+
+        /** Closes the body, which hands the connection back to the pool, and lets the next request in. */
+        @Override
+        public void close(){
+            if(closed) return;
+            closed = true;
+            Streams.close(response.body());
+            inFlight.release();
+        }
+    }
+}
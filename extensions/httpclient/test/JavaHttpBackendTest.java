@@ -0,0 +1,99 @@
+import arc.files.*;
+import arc.httpclient.*;
+import arc.util.*;
+import arc.util.Http.*;
+import arc.util.io.*;
+import com.sun.net.httpserver.*;
+import org.junit.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.concurrent.atomic.*;
+
+import static org.junit.Assert.*;
+
+public class JavaHttpBackendTest{
+    static HttpServer server;
+    static String base;
+    static HttpBackend previous;
+
+    @BeforeClass
+    public static void start() throws IOException{
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] body = Streams.copyBytes(exchange.getRequestBody());
+            String query = exchange.getRequestURI().getQuery();
+            byte[] out = (exchange.getRequestMethod() + ":" + (query == null ? new String(body, StandardCharsets.UTF_8) : query)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("X-Test", "yes");
+            exchange.sendResponseHeaders(200, out.length);
+            exchange.getResponseBody().write(out);
+            exchange.close();
+        });
+        server.createContext("/large", exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try(OutputStream out = exchange.getResponseBody()){
+                byte[] chunk = new byte[8192];
+                for(int i = 0; i < 128; i++) out.write(chunk);
+            }
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(451, -1);
+            exchange.close();
+        });
+        server.createContext("/redirect", exchange -> {
+            exchange.getResponseHeaders().add("Location", "/echo");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+        previous = Http.backend;
+        Http.backend = new JavaHttpBackend(2);
+    }
+
+    @AfterClass
+    public static void stop(){
+        Http.backend = previous;
+        server.stop(0);
+    }
+
+    @Test
+    public void requests(){
+        AtomicReference<String> result = new AtomicReference<>();
+
+        Http.get(base + "/echo").content("a=b").block(res -> {
+            assertEquals("yes", res.getHeader("X-Test"));
+            result.set(res.getResultAsString());
+        });
+        assertEquals("GET:a=b", result.get());
+
+        Http.post(base + "/echo", "payload").block(res -> result.set(res.getResultAsString()));
+        assertEquals("POST:payload", result.get());
+
+        Http.get(base + "/redirect").block(res -> result.set(res.getResultAsString()));
+        assertEquals("GET:", result.get());
+
+        AtomicInteger status = new AtomicInteger();
+        Http.get(base + "/redirect").redirects(false).block(res -> status.set(res.getStatusCode()));
+        assertEquals(302, status.get());
+
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Http.get(base + "/missing").error(error::set).block(res -> fail("4xx must go to the error handler"));
+        assertTrue(error.get() instanceof HttpStatusException);
+    }
+
+    @Test
+    public void inFlightCap() throws IOException{
+        //more requests than the in-flight cap must still complete, as each response is closed after its callback
+        Fi file = new Fi(File.createTempFile("arc-http", ".bin"));
+        try{
+            for(int i = 0; i < 8; i++){
+                Http.get(base + "/large").block(res -> res.writeTo(file));
+                assertEquals(128 * 8192, file.length());
+            }
+        }finally{
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package arc.jsongen;
+
+import javax.annotation.processing.*;
+import javax.lang.model.*;
+import javax.lang.model.element.*;
+import javax.lang.model.type.*;
+import javax.lang.model.util.*;
+import javax.tools.Diagnostic.*;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes the accessor classes described by {@link GenerateAccessors}. Each accessor casts to the annotated class and
+ * reads or assigns the field directly, so the JIT can inline it, unlike {@link java.lang.reflect.Field} access. The
+ * generated code only uses anonymous classes, so it runs anywhere arc-core does.
+ */
+@SupportedAnnotationTypes("arc.jsongen.GenerateAccessors")
+public class AccessorProcessor extends AbstractProcessor{
+
+    @Override
+    public SourceVersion getSupportedSourceVersion(){
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv){
+        for(Element element : roundEnv.getElementsAnnotatedWith(GenerateAccessors.class)){
+            if(element.getKind() != ElementKind.CLASS){
+                error(element, "@GenerateAccessors can only be used on classes");
+                continue;
+            }
+
+            TypeElement type = (TypeElement)element;
+            if(!visible(type)){
+                error(type, "@GenerateAccessors can't be used on private, local or anonymous classes");
+                continue;
+            }
+
+            try{
+                write(type);
+            }catch(IOException e){
+                error(type, "Failed to write accessors: " + e);
+            }
+        }
+        return true;
+    }
+
+    private void write(TypeElement type) throws IOException{
+        Elements elements = processingEnv.getElementUtils();
+        String pack = elements.getPackageOf(type).getQualifiedName().toString();
+        String name = accessorsName(type);
+        String target = type.getQualifiedName().toString();
+
+        StringBuilder out = new StringBuilder();
+        if(!pack.isEmpty()) out.append("package ").append(pack).append(";\n\n");
+        //single-type imports, which take precedence over classes of the same name in the package
+        out.append("import arc.struct.OrderedMap;\n");
+        out.append("import arc.util.serialization.Json;\n");
+        out.append("import arc.util.serialization.Json.FieldAccessor;\n");
+        out.append("import arc.util.serialization.Json.FieldMetadata;\n\n");
+        out.append("/** Field accessors for {@link ").append(target).append("}, generated by {@link arc.jsongen.AccessorProcessor}. */\n");
+        out.append("@SuppressWarnings({\"unchecked\", \"rawtypes\", \"deprecation\"})\n");
+        out.append("public final class ").append(name).append("{\n");
+        out.append("    private ").append(name).append("(){\n    }\n\n");
+        out.append("    /** Makes the Json read and write these fields directly instead of through reflection. */\n");
+        out.append("    public static void register(Json json){\n");
+        out.append("        OrderedMap<String, FieldMetadata> fields = json.getFields(").append(target).append(".class);\n");
+
+        for(VariableElement field : fields(type, pack)){
+            String fieldName = field.getSimpleName().toString();
+            out.append("        put(fields, \"").append(fieldName).append("\", new FieldAccessor(){\n");
+            out.append("            @Override\n");
+            out.append("            public Object get(Object object){\n");
+            out.append("                return ((").append(target).append(")object).").append(fieldName).append(";\n");
+            out.append("            }\n\n");
+            out.append("            @Override\n");
+            out.append("            public void set(Object object, Object value){\n");
+            out.append("                ((").append(target).append(")object).").append(fieldName).append(" = (").append(castType(field.asType())).append(")value;\n");
+            out.append("            }\n");
+            out.append("        });\n");
+        }
+
+        out.append("    }\n\n");
+        out.append("    private static void put(OrderedMap<String, FieldMetadata> fields, String name, FieldAccessor accessor){\n");
+        out.append("        FieldMetadata metadata = fields.get(name);\n");
+        out.append("        //deprecated fields are left out unless the Json reads them\n");
+        out.append("        if(metadata != null) metadata.accessor = accessor;\n");
+        out.append("    }\n");
+        out.append("}\n");
+
+        String file = pack.isEmpty() ? name : pack + "." + name;
+        try(Writer writer = processingEnv.getFiler().createSourceFile(file, type).openWriter()){
+            writer.write(out.toString());
+        }
+    }
+
+    /**
+     * @return The fields that {@link arc.util.serialization.Json#getFields(Class)} would serialize and that code in the
+     * package can assign. Like Json, a field shadows those of the same name in superclasses.
+     */
+    private List<VariableElement> fields(TypeElement type, String pack){
+        List<TypeElement> hierarchy = new ArrayList<>();
+        for(TypeElement next = type; next != null; next = superclass(next)){
+            hierarchy.add(0, next);
+        }
+
+        Map<String, VariableElement> byName = new LinkedHashMap<>();
+        for(TypeElement declaring : hierarchy){
+            for(VariableElement field : ElementFilter.fieldsIn(declaring.getEnclosedElements())){
+                Set<Modifier> modifiers = field.getModifiers();
+                if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT)) continue;
+                byName.put(field.getSimpleName().toString(), field);
+            }
+        }
+
+        List<VariableElement> result = new ArrayList<>();
+        for(VariableElement field : byName.values()){
+            Set<Modifier> modifiers = field.getModifiers();
+            if(modifiers.contains(Modifier.FINAL) || modifiers.contains(Modifier.PRIVATE)) continue;
+
+            String declaringPack = processingEnv.getElementUtils().getPackageOf(field.getEnclosingElement()).getQualifiedName().toString();
+            if(modifiers.contains(Modifier.PUBLIC) || declaringPack.equals(pack)) result.add(field);
+        }
+        return result;
+    }
+
+    private TypeElement superclass(TypeElement type){
+        TypeMirror superclass = type.getSuperclass();
+        if(superclass.getKind() != TypeKind.DECLARED) return null;
+        TypeElement element = (TypeElement)((DeclaredType)superclass).asElement();
+        return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+    }
+
+    /** @return The type to cast a value to before assigning it to a field of this type, boxed for primitives. */
+    private String castType(TypeMirror type){
+        Types types = processingEnv.getTypeUtils();
+        if(type.getKind().isPrimitive()){
+            return types.boxedClass((PrimitiveType)type).getQualifiedName().toString();
+        }
+        return types.erasure(type).toString();
+    }
+
+    private static String accessorsName(TypeElement type){
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for(Element outer = type.getEnclosingElement(); outer instanceof TypeElement; outer = outer.getEnclosingElement()){
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        return name.append("Accessors").toString();
+    }
+
+    /** @return Whether the class can be named from other classes in its package. */
+    private static boolean visible(TypeElement type){
+        for(Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()){
+            TypeElement current = (TypeElement)element;
+            if(current.getModifiers().contains(Modifier.PRIVATE)) return false;
+            if(current.getNestingKind() == NestingKind.LOCAL || current.getNestingKind() == NestingKind.ANONYMOUS) return false;
+        }
+        return true;
+    }
+
+    private void error(Element element, String message){
+        processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+    }
+}
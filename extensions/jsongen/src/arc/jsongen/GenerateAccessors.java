@@ -0,0 +1,17 @@
+package arc.jsongen;
+
+import java.lang.annotation.*;
+
+/**
+ * Generates a class next to the annotated one, named after it with an {@code Accessors} suffix (nested classes are
+ * joined with underscores, so {@code Outer.Inner} becomes {@code Outer_InnerAccessors}). Its {@code register(Json)}
+ * replaces reflection with direct field access for every serialized field that the generated class can reach: those
+ * that are not private, final, static or transient, and not declared in a superclass from another package unless public.
+ * Other fields are still accessed through reflection.
+ * <p>
+ * The output of {@link arc.util.serialization.Json} does not change.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateAccessors{
+}
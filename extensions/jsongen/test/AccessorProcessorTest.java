@@ -0,0 +1,119 @@
+import arc.jsongen.*;
+import arc.struct.*;
+import arc.util.*;
+import arc.util.serialization.*;
+import arc.util.serialization.Json.*;
+import org.junit.*;
+
+import static org.junit.Assert.*;
+
+public class AccessorProcessorTest{
+    @GenerateAccessors
+    public static class Config extends other.Parent{
+        public boolean enabled;
+        public byte b = 3;
+        public short s;
+        public char c = 'x';
+        public long big = 1L << 40;
+        public float scale = 1f;
+        public double ratio;
+        public final int[] counts = {1, 2};
+        public @Nullable Integer boxed;
+        public String[] tags;
+        public Seq<String> list = new Seq<>();
+        public ObjectMap<String, Integer> map = new ObjectMap<>();
+        public Item item;
+        int packaged = 4;
+        private int secret = 8;
+        @Deprecated
+        public int old = 5;
+        public transient int skipped = 9;
+
+        public int secret(){
+            return secret;
+        }
+    }
+
+    @GenerateAccessors
+    public static class Item{
+        public String name = "item";
+        public Item next;
+    }
+
+    static Config sample(){
+        Config config = new Config();
+        config.shared = 42;
+        config.enabled = true;
+        config.b = -7;
+        config.s = 300;
+        config.c = 'q';
+        config.big = -123456789012L;
+        config.scale = 0.25f;
+        config.ratio = Math.PI;
+        config.counts[1] = 7;
+        config.boxed = 11;
+        config.tags = new String[]{"a", "b c"};
+        config.list.addAll("x", "y");
+        config.map.put("k", 3);
+        config.item = new Item();
+        config.item.next = new Item();
+        config.item.next.name = "next";
+        config.packaged = 6;
+        config.old = 6;
+        config.skipped = 10;
+        return config;
+    }
+
+    static Json generated(){
+        Json json = new Json();
+        AccessorProcessorTest_ConfigAccessors.register(json);
+        AccessorProcessorTest_ItemAccessors.register(json);
+        return json;
+    }
+
+    @Test
+    public void matchesReflection(){
+        Json reflect = new Json(), generated = generated();
+
+        Config config = sample();
+        String expected = reflect.toJson(config);
+        assertEquals(expected, generated.toJson(config));
+        assertEquals(reflect.toJson(new Config()), generated.toJson(new Config()));
+
+        Config read = generated.fromJson(Config.class, expected);
+        assertEquals(expected, reflect.toJson(read));
+        assertEquals(42, read.shared);
+        assertEquals(-123456789012L, read.big);
+        assertEquals(7, read.counts[1]);
+        assertEquals("next", read.item.next.name);
+        assertEquals(9, read.skipped);
+
+        Config copy = new Config();
+        generated.copyFields(config, copy, true);
+        assertEquals(expected, reflect.toJson(copy));
+    }
+
+    @Test
+    public void reachableFields(){
+        OrderedMap<String, FieldMetadata> fields = generated().getFields(Config.class);
+        for(String name : new String[]{"shared", "enabled", "b", "c", "big", "boxed", "tags", "list", "map", "item", "packaged", "old"}){
+            assertTrue(name, isGenerated(fields.get(name).accessor));
+        }
+        //private, final and non-public inherited fields from another package keep using reflection
+        for(String name : new String[]{"secret", "counts", "hidden"}){
+            assertFalse(name, isGenerated(fields.get(name).accessor));
+        }
+        assertNull(fields.get("skipped"));
+
+        //registering skips fields that the Json leaves out
+        Json json = new Json();
+        json.setIgnoreDeprecated(true);
+        AccessorProcessorTest_ConfigAccessors.register(json);
+        assertNull(json.getFields(Config.class).get("old"));
+        assertTrue(isGenerated(json.getFields(Config.class).get("big").accessor));
+    }
+
+    static boolean isGenerated(FieldAccessor accessor){
+        return accessor.getClass().getName().startsWith(AccessorProcessorTest_ConfigAccessors.class.getName());
+    }
+}
@@ -0,0 +1,7 @@
+package other;
+
+/** A superclass in another package, whose non-public fields the generated accessors can't reach. */
+public class Parent{
+    public int shared = 1;
+    protected String hidden = "hidden";
+}
@@ -0,0 +1,137 @@
+package arc.packer;
+
+import arc.files.*;
+import arc.graphics.*;
+import arc.packer.ImageProcessor.*;
+import arc.packer.TexturePacker.*;
+import arc.util.*;
+
+import java.io.*;
+import java.math.*;
+import java.nio.charset.*;
+import java.security.*;
+import java.util.zip.*;
+
+/**
+ * Stores processed images on disk between runs, so images that did not change are not decoded, trimmed and hashed again.
+ * Entries are keyed by a hash of the source file's bytes, the image name, and every setting that affects processing.
+ */
+class ImageCache{
+    /** Changes whenever the format of entries or the processing of images changes. */
+    private static final int version = 1;
+
+    private final Fi directory;
+    private final String settingsKey;
+
+    ImageCache(Fi directory, Settings settings){
+        this.directory = directory;
+        this.settingsKey = version + "|" + settings.alias + "|" + settings.alphaThreshold + "|" + settings.stripWhitespaceX + "|" +
+            settings.stripWhitespaceY + "|" + settings.stripWhitespaceCenter + "|" + settings.duplicatePadding + "|" +
+            settings.ignoreBlankImages + "|" + String.join(",", settings.ignoredWhitespaceStrings);
+        directory.mkdirs();
+    }
+
+    /** @return the key of an image file with these bytes, processed with the given scale. */
+    String key(byte[] file, String name, float scale, boolean resampling){
+        try{
+            MessageDigest digest = MessageDigest.getInstance("SHA1");
+            digest.update((settingsKey + "|" + name + "|" + scale + "|" + resampling + "|").getBytes(StandardCharsets.UTF_8));
+            digest.update(file);
+            return new BigInteger(1, digest.digest()).toString(16);
+        }catch(NoSuchAlgorithmException ex){
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /** @return the processed image stored under this key, or null if there is none or it can't be read. */
+    @Nullable Processed load(String key, String name){
+        Fi file = directory.child(key);
+        if(!file.exists()) return null;
+
+        try(DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(file.read())))){
+            if(in.readInt() != version) return null;
+            if(!in.readBoolean()) return new Processed(name, null, null);
+
+            Rect rect = new Rect();
+            rect.name = in.readUTF();
+            rect.isPatch = in.readBoolean();
+            rect.canRotate = in.readBoolean();
+            rect.offsetX = in.readInt();
+            rect.offsetY = in.readInt();
+            rect.originalWidth = in.readInt();
+            rect.originalHeight = in.readInt();
+            rect.splits = readInts(in);
+            rect.pads = readInts(in);
+            String hash = in.readBoolean() ? in.readUTF() : null;
+
+            int width = in.readInt(), height = in.readInt();
+            rect.regionWidth = rect.width = width;
+            rect.regionHeight = rect.height = height;
+
+            byte[] pixels = new byte[width * height * 4];
+            in.readFully(pixels);
+            rect.pixmap = new Pixmap(width, height);
+            rect.pixmap.pixels.position(0);
+            rect.pixmap.pixels.put(pixels);
+            rect.pixmap.pixels.position(0);
+            return new Processed(name, rect, hash);
+        }catch(Exception e){
+            //a stale or partially written entry; it is replaced after processing the image again
+            return null;
+        }
+    }
+
+    /** Stores a processed image. Entries are written to a temporary file first, so readers never see a partial one. */
+    void save(String key, Processed processed){
+        Fi file = directory.child(key), temp = directory.child(key + "." + Thread.currentThread().getId() + ".tmp");
+        Rect rect = processed.rect;
+
+        try(DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(temp.write(false))))){
+            out.writeInt(version);
+            out.writeBoolean(rect != null);
+            if(rect != null){
+                out.writeUTF(rect.name);
+                out.writeBoolean(rect.isPatch);
+                out.writeBoolean(rect.canRotate);
+                out.writeInt(rect.offsetX);
+                out.writeInt(rect.offsetY);
+                out.writeInt(rect.originalWidth);
+                out.writeInt(rect.originalHeight);
+                writeInts(out, rect.splits);
+                writeInts(out, rect.pads);
+                out.writeBoolean(processed.hash != null);
+                if(processed.hash != null) out.writeUTF(processed.hash);
+
+                Pixmap image = rect.pixmap;
+                out.writeInt(image.width);
+                out.writeInt(image.height);
+                byte[] pixels = new byte[image.width * image.height * 4];
+                image.pixels.position(0);
+                image.pixels.get(pixels);
+                image.pixels.position(0);
+                out.write(pixels);
+            }
+        }catch(IOException e){
+            temp.delete();
+            Log.err("Failed to cache image: " + processed.name, e);
+            return;
+        }
+
+        file.delete();
+        if(!temp.file().renameTo(file.file())) temp.delete();
+    }
+
+    private static @Nullable int[] readInts(DataInputStream in) throws IOException{
+        if(!in.readBoolean()) return null;
+        int[] values = new int[4];
+        for(int i = 0; i < 4; i++) values[i] = in.readInt();
+        return values;
+    }
+
+    private static void writeInts(DataOutputStream out, @Nullable int[] values) throws IOException{
+        out.writeBoolean(values != null);
+        if(values != null){
+            for(int value : values) out.writeInt(value);
+        }
+    }
+}
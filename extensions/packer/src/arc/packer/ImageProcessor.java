@@ -10,39 +10,26 @@ import java.io.*;
 import java.math.*;
 import java.security.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class ImageProcessor{
-    private static final Pixmap emptyImage = new Pixmap(1, 1);
-
     private final Settings settings;
     private final HashMap<String, Rect> crcs = new HashMap<>();
     private final Seq<Rect> rects = new Seq<>();
+    private final @Nullable ImageCache cache;
     private float scale = 1;
     private boolean resampling;
 
     public ImageProcessor(Settings settings){
         this.settings = settings;
+        this.cache = settings.cacheDirectory == null ? null : new ImageCache(new Fi(settings.cacheDirectory), settings);
     }
 
     /**
      * @param rootPath Used to strip the root directory prefix from image file names, can be null.
      */
     public void addImage(File file, String rootPath){
-        Pixmap image = new Pixmap(new Fi(file));
-
-        String name = file.getAbsolutePath().replace('\\', '/');
-
-        // Strip root dir off front of image path.
-        if(rootPath != null){
-            if(!name.startsWith(rootPath)) throw new RuntimeException("Path '" + name + "' does not start with root: " + rootPath);
-            name = name.substring(rootPath.length());
-        }
-
-        // Strip extension.
-        int dotIndex = name.lastIndexOf('.');
-        if(dotIndex != -1) name = name.substring(0, dotIndex);
-
-        addImage(image, name);
+        add(process(file, rootPath));
     }
 
     /**
@@ -50,16 +37,58 @@ public class ImageProcessor{
      * @see #addImage(File, String)
      */
     public Rect addImage(Pixmap image, String name){
+        return add(process(image, name));
+    }
+
+    /**
+     * Loads and processes images on an executor, then adds them in their original order, so aliases are resolved the same
+     * way as when adding them one at a time.
+     */
+    void addImages(Seq<InputImage> images, ExecutorService executor){
+        Seq<Future<Processed>> results = new Seq<>(images.size);
+        for(InputImage input : images){
+            results.add(executor.submit(() -> input.file != null ? process(input.file, input.rootPath) : process(input.image, input.name)));
+        }
+        for(Future<Processed> result : results){
+            add(Threads.await(result));
+        }
+    }
+
+    /** Loads and processes an image file, or reads it from the cache if the file and settings haven't changed. */
+    private Processed process(File file, String rootPath){
+        String name = imageName(file, rootPath);
+        byte[] bytes = new Fi(file).readBytes();
+
+        String key = null;
+        if(cache != null){
+            key = cache.key(bytes, name, scale, resampling);
+            Processed cached = cache.load(key, name);
+            if(cached != null) return cached;
+        }
+
+        Pixmap image = new Pixmap(bytes);
+        Processed processed = process(image, name);
+        if(processed.rect == null || processed.rect.pixmap != image) image.dispose();
+
+        if(cache != null) cache.save(key, processed);
+        return processed;
+    }
+
+    /** Trims and hashes an image. This method is thread safe, as long as the scale isn't changed while it runs. */
+    private Processed process(Pixmap image, String name){
         Rect rect = processImage(image, name);
+        return new Processed(name, rect, rect != null && settings.alias ? hash(rect.getImage(this)) : null);
+    }
 
+    private Rect add(Processed processed){
+        Rect rect = processed.rect;
         if(rect == null){
-            if(!settings.silent) System.out.println("Ignoring blank input image: " + name);
+            if(!settings.silent) System.out.println("Ignoring blank input image: " + processed.name);
             return null;
         }
 
         if(settings.alias){
-            String crc = hash(rect.getImage(this));
-            Rect existing = crcs.get(crc);
+            Rect existing = crcs.get(processed.hash);
             if(existing != null){
                 if(!settings.silent && settings.printAliases){
                     System.out.println(rect.name + " (alias of " + existing.name + ")");
@@ -67,13 +96,28 @@ public class ImageProcessor{
                 existing.aliases.add(new Alias(rect));
                 return null;
             }
-            crcs.put(crc, rect);
+            crcs.put(processed.hash, rect);
         }
 
         rects.add(rect);
         return rect;
     }
 
+    private static String imageName(File file, String rootPath){
+        String name = file.getAbsolutePath().replace('\\', '/');
+
+        // Strip root dir off front of image path.
+        if(rootPath != null){
+            if(!name.startsWith(rootPath)) throw new RuntimeException("Path '" + name + "' does not start with root: " + rootPath);
+            name = name.substring(rootPath.length());
+        }
+
+        // Strip extension.
+        int dotIndex = name.lastIndexOf('.');
+        if(dotIndex != -1) name = name.substring(0, dotIndex);
+        return name;
+    }
+
     public void setScale(float scale){
         this.scale = scale;
     }
@@ -238,7 +282,7 @@ public class ImageProcessor{
             if(settings.ignoreBlankImages)
                 return null;
             else
-                return new Rect(emptyImage, 0, 0, 1, 1, false);
+                return new Rect(new Pixmap(1, 1), 0, 0, 1, 1, false);
         }
         return new Rect(source, left, top, newWidth, newHeight, false);
     }
@@ -414,4 +458,19 @@ public class ImageProcessor{
         digest.update((byte)(value >> 8));
         digest.update((byte)value);
     }
+
+    /** The result of processing one input image. */
+    static class Processed{
+        final String name;
+        /** Null if the image is blank and ignored. */
+        final @Nullable Rect rect;
+        /** The hash of the trimmed pixels, if aliases are enabled. */
+        final @Nullable String hash;
+
+        Processed(String name, @Nullable Rect rect, @Nullable String hash){
+            this.name = name;
+            this.rect = rect;
+            this.hash = hash;
+        }
+    }
 }
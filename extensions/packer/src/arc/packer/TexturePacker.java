@@ -12,6 +12,7 @@ import arc.util.serialization.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /** @author Nathan Sweet */
 public class TexturePacker{
@@ -85,38 +86,38 @@ public class TexturePacker{
             packFileName = packFileName.substring(0, packFileName.length() - settings.atlasExtension.length());
         outputDir.mkdirs();
 
-        int n = settings.scale.length;
-        for(int i = 0; i < n; i++){
+        ExecutorService executor = Threads.executor("TexturePacker", Math.max(settings.threads, 1));
+        try{
+            int n = settings.scale.length;
+            for(int i = 0; i < n; i++){
 
-            imageProcessor.setScale(settings.scale[i]);
-            imageProcessor.setResampling(settings.scaleResampling);
+                imageProcessor.setScale(settings.scale[i]);
+                imageProcessor.setResampling(settings.scaleResampling);
 
-            for(int ii = 0, nn = inputImages.size; ii < nn; ii++){
-                InputImage inputImage = inputImages.get(ii);
-                if(inputImage.file != null){
-                    imageProcessor.addImage(inputImage.file, inputImage.rootPath);
-                }else{
-                    imageProcessor.addImage(inputImage.image, inputImage.name);
-                }
-            }
-            Seq<Page> pages = packer.pack(imageProcessor.getImages());
+                imageProcessor.addImages(inputImages, executor);
+                Seq<Page> pages = packer.pack(imageProcessor.getImages());
 
-            String scaledPackFileName = settings.getScaledPackFileName(packFileName, i);
-            writeImages(outputDir, scaledPackFileName, pages);
-            try{
-                writePackFile(outputDir, scaledPackFileName, pages);
-            }catch(IOException ex){
-                throw new RuntimeException("Error writing pack file.", ex);
+                String scaledPackFileName = settings.getScaledPackFileName(packFileName, i);
+                writeImages(outputDir, scaledPackFileName, pages, executor);
+                try{
+                    writePackFile(outputDir, scaledPackFileName, pages);
+                }catch(IOException ex){
+                    throw new RuntimeException("Error writing pack file.", ex);
+                }
+                imageProcessor.clear();
             }
-            imageProcessor.clear();
+        }finally{
+            executor.shutdown();
         }
     }
 
-    private void writeImages(File outputDir, String scaledPackFileName, Seq<Page> pages){
+    /** Picks the file name and size of every page in order, then draws and encodes the pages in parallel. */
+    private void writeImages(File outputDir, String scaledPackFileName, Seq<Page> pages, ExecutorService executor){
         File packFileNoExt = new File(outputDir, scaledPackFileName);
         File packDir = packFileNoExt.getParentFile();
         String imageName = packFileNoExt.getName();
 
+        Seq<Future<?>> writes = new Seq<>(pages.size);
         int fileIndex = 0;
         for(int p = 0, pn = pages.size; p < pn; p++){
             Page page = pages.get(p);
@@ -156,80 +157,86 @@ public class TexturePacker{
             new Fi(outputFile).parent().mkdirs();
             page.imageName = outputFile.getName();
 
-            Pixmap canvas = new Pixmap(width, height);
+            if(!settings.silent) System.out.println("| Writing " + width + "x" + height + ": " + outputFile);
 
-            if(!settings.silent) System.out.println("| Writing " + canvas.width + "x" + canvas.height + ": " + outputFile);
+            File file = outputFile;
+            writes.add(executor.submit(() -> writeImage(page, file)));
+        }
+        Threads.awaitAll(writes);
+    }
 
-            for(int r = 0, rn = page.outputRects.size; r < rn; r++){
-                Rect rect = page.outputRects.get(r);
-                Pixmap image = rect.getImage(imageProcessor);
-                int iw = image.width;
-                int ih = image.height;
-                int rectX = page.x + rect.x, rectY = page.y + page.height - rect.y - (rect.height - settings.paddingY);
-                if(settings.duplicatePadding){
-                    int amountX = settings.paddingX / 2;
-                    int amountY = settings.paddingY / 2;
-                    if(rect.rotated){
-                        // Copy corner pixels to fill corners of the padding.
-                        for(int i = 1; i <= amountX; i++){
-                            for(int j = 1; j <= amountY; j++){
-                                canvas.set(rectX - j, rectY + iw - 1 + i, image.getRaw(0, 0));
-                                canvas.set(rectX + ih - 1 + j, rectY + iw - 1 + i, image.getRaw(0, ih - 1));
-                                canvas.set(rectX - j, rectY - i, image.getRaw(iw - 1, 0));
-                                canvas.set(rectX + ih - 1 + j, rectY - i, image.getRaw(iw - 1, ih - 1));
-                            }
+    private void writeImage(Page page, File outputFile){
+        Pixmap canvas = new Pixmap(page.imageWidth, page.imageHeight);
+
+        for(int r = 0, rn = page.outputRects.size; r < rn; r++){
+            Rect rect = page.outputRects.get(r);
+            Pixmap image = rect.getImage(imageProcessor);
+            int iw = image.width;
+            int ih = image.height;
+            int rectX = page.x + rect.x, rectY = page.y + page.height - rect.y - (rect.height - settings.paddingY);
+            if(settings.duplicatePadding){
+                int amountX = settings.paddingX / 2;
+                int amountY = settings.paddingY / 2;
+                if(rect.rotated){
+                    // Copy corner pixels to fill corners of the padding.
+                    for(int i = 1; i <= amountX; i++){
+                        for(int j = 1; j <= amountY; j++){
+                            canvas.set(rectX - j, rectY + iw - 1 + i, image.getRaw(0, 0));
+                            canvas.set(rectX + ih - 1 + j, rectY + iw - 1 + i, image.getRaw(0, ih - 1));
+                            canvas.set(rectX - j, rectY - i, image.getRaw(iw - 1, 0));
+                            canvas.set(rectX + ih - 1 + j, rectY - i, image.getRaw(iw - 1, ih - 1));
                         }
-                        // Copy edge pixels into padding.
-                        for(int i = 1; i <= amountY; i++){
-                            for(int j = 0; j < iw; j++){
-                                canvas.set(rectX - i, rectY + iw - 1 - j, image.getRaw(j, 0));
-                                canvas.set(rectX + ih - 1 + i, rectY + iw - 1 - j, image.getRaw(j, ih - 1));
-                            }
-                        }
-                        for(int i = 1; i <= amountX; i++){
-                            for(int j = 0; j < ih; j++){
-                                canvas.set(rectX + j, rectY - i, image.getRaw(iw - 1, j));
-                                canvas.set(rectX + j, rectY + iw - 1 + i, image.getRaw(0, j));
-                            }
-                        }
-                    }else{
-                        // Copy corner pixels to fill corners of the padding.
-                        for(int i = 1; i <= amountX; i++){
-                            for(int j = 1; j <= amountY; j++){
-                                canvas.set(rectX - i, rectY - j, image.getRaw(0, 0));
-                                canvas.set(rectX - i, rectY + ih - 1 + j, image.getRaw(0, ih - 1));
-                                canvas.set(rectX + iw - 1 + i, rectY - j, image.getRaw(iw - 1, 0));
-                                canvas.set(rectX + iw - 1 + i, rectY + ih - 1 + j, image.getRaw(iw - 1, ih - 1));
-                            }
+                    }
+                    // Copy edge pixels into padding.
+                    for(int i = 1; i <= amountY; i++){
+                        for(int j = 0; j < iw; j++){
+                            canvas.set(rectX - i, rectY + iw - 1 - j, image.getRaw(j, 0));
+                            canvas.set(rectX + ih - 1 + i, rectY + iw - 1 - j, image.getRaw(j, ih - 1));
                         }
-                        // Copy edge pixels into padding.
-                        for(int i = 1; i <= amountY; i++){
-                            copy(image, 0, 0, iw, 1, canvas, rectX, rectY - i, rect.rotated);
-                            copy(image, 0, ih - 1, iw, 1, canvas, rectX, rectY + ih - 1 + i, rect.rotated);
+                    }
+                    for(int i = 1; i <= amountX; i++){
+                        for(int j = 0; j < ih; j++){
+                            canvas.set(rectX + j, rectY - i, image.getRaw(iw - 1, j));
+                            canvas.set(rectX + j, rectY + iw - 1 + i, image.getRaw(0, j));
                         }
-                        for(int i = 1; i <= amountX; i++){
-                            copy(image, 0, 0, 1, ih, canvas, rectX - i, rectY, rect.rotated);
-                            copy(image, iw - 1, 0, 1, ih, canvas, rectX + iw - 1 + i, rectY, rect.rotated);
+                    }
+                }else{
+                    // Copy corner pixels to fill corners of the padding.
+                    for(int i = 1; i <= amountX; i++){
+                        for(int j = 1; j <= amountY; j++){
+                            canvas.set(rectX - i, rectY - j, image.getRaw(0, 0));
+                            canvas.set(rectX - i, rectY + ih - 1 + j, image.getRaw(0, ih - 1));
+                            canvas.set(rectX + iw - 1 + i, rectY - j, image.getRaw(iw - 1, 0));
+                            canvas.set(rectX + iw - 1 + i, rectY + ih - 1 + j, image.getRaw(iw - 1, ih - 1));
                         }
                     }
+                    // Copy edge pixels into padding.
+                    for(int i = 1; i <= amountY; i++){
+                        copy(image, 0, 0, iw, 1, canvas, rectX, rectY - i, rect.rotated);
+                        copy(image, 0, ih - 1, iw, 1, canvas, rectX, rectY + ih - 1 + i, rect.rotated);
+                    }
+                    for(int i = 1; i <= amountX; i++){
+                        copy(image, 0, 0, 1, ih, canvas, rectX - i, rectY, rect.rotated);
+                        copy(image, iw - 1, 0, 1, ih, canvas, rectX + iw - 1 + i, rectY, rect.rotated);
+                    }
                 }
-                copy(image, 0, 0, iw, ih, canvas, rectX, rectY, rect.rotated);
-                image.dispose();
             }
+            copy(image, 0, 0, iw, ih, canvas, rectX, rectY, rect.rotated);
+            image.dispose();
+        }
 
-            if(settings.bleed){
-                Pixmaps.bleed(canvas, settings.bleedIterations);
-            }
+        if(settings.bleed){
+            Pixmaps.bleed(canvas, settings.bleedIterations);
+        }
 
-            if(settings.outputFormat.equalsIgnoreCase("apix")){
-                PixmapIO.writeApix(new Fi(outputFile), canvas);
-            }else if(settings.outputFormat.equalsIgnoreCase("png")){
-                PixmapIO.writePng(new Fi(outputFile), canvas);
-            }else{
-                throw new ArcRuntimeException("Unsupported image format: '" + settings.outputFormat + "'. Must be one of: apix, png");
-            }
-            canvas.dispose();
+        if(settings.outputFormat.equalsIgnoreCase("apix")){
+            PixmapIO.writeApix(new Fi(outputFile), canvas);
+        }else if(settings.outputFormat.equalsIgnoreCase("png")){
+            PixmapIO.writePng(new Fi(outputFile), canvas);
+        }else{
+            throw new ArcRuntimeException("Unsupported image format: '" + settings.outputFormat + "'. Must be one of: apix, png");
         }
+        canvas.dispose();
     }
 
     private static void copy(Pixmap src, int x, int y, int w, int h, Pixmap dst, int dx, int dy, boolean rotated){
@@ -608,6 +615,10 @@ public class TexturePacker{
         public String[] scaleSuffix = {""};
         public boolean scaleResampling = true;
         public String atlasExtension = ".aatls";
+        /** Directory where processed images are kept between runs, so unchanged images are not decoded and trimmed again. Null to disable. */
+        public String cacheDirectory;
+        /** The number of threads used to process images and write pages. */
+        public int threads = OS.cores;
 
         public Settings copy(){
             try{
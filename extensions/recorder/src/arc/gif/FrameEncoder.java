@@ -0,0 +1,134 @@
+package arc.gif;
+
+import arc.util.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Writes fixed-size frames to a stream on a background thread, such as the input of an encoder process or a raw file.
+ * <p>
+ * Frames are read into buffers from {@link #obtain()}, which are reused once written, so memory use is bounded by the
+ * number of frames allowed to wait. When the writer falls behind, {@link #obtain()} either blocks until a buffer is free,
+ * or returns null so that the frame is dropped.
+ */
+public class FrameEncoder{
+    private static final byte[] end = {};
+
+    private final OutputStream out;
+    private final int frameSize, buffers;
+    private final boolean dropFrames;
+    private final BlockingQueue<byte[]> queue, free;
+    private final Thread thread;
+
+    private int allocated;
+    private final AtomicInteger written = new AtomicInteger(), dropped = new AtomicInteger();
+    private volatile @Nullable IOException error;
+
+    /**
+     * @param out The stream to write frames to. It is closed by {@link #finish()}.
+     * @param frameSize The size of each frame in bytes.
+     * @param capacity The number of frames that may wait to be written.
+     * @param dropFrames Whether to drop frames instead of waiting when the writer falls behind.
+     */
+    public FrameEncoder(OutputStream out, int frameSize, int capacity, boolean dropFrames){
+        if(capacity < 1) throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+
+        this.out = out;
+        this.frameSize = frameSize;
+        this.dropFrames = dropFrames;
+        //one more for the frame being written
+        this.buffers = capacity + 1;
+        this.queue = new ArrayBlockingQueue<>(buffers + 1);
+        this.free = new ArrayBlockingQueue<>(buffers);
+        this.thread = Threads.daemon("FrameEncoder", this::write);
+    }
+
+    /**
+     * @return a buffer to read the next frame into, which must be passed to {@link #submit(byte[])}. If frames are
+     * dropped and every buffer is waiting to be written, returns null instead of blocking.
+     */
+    public @Nullable byte[] obtain(){
+        byte[] buffer = free.poll();
+        if(buffer != null) return buffer;
+
+        if(allocated < buffers){
+            allocated++;
+            return new byte[frameSize];
+        }
+
+        if(dropFrames){
+            dropped.incrementAndGet();
+            return null;
+        }
+
+        try{
+            return free.take();
+        }catch(InterruptedException e){
+            throw new ArcRuntimeException(e);
+        }
+    }
+
+    /** Queues a frame from {@link #obtain()} to be written. */
+    public void submit(byte[] frame){
+        if(frame.length != frameSize) throw new IllegalArgumentException("Frame size must be " + frameSize + ", but was " + frame.length);
+        //never blocks: there are fewer buffers than queue slots
+        queue.add(frame);
+    }
+
+    /** Waits for every queued frame to be written, then closes the stream. */
+    public void finish() throws IOException{
+        queue.add(end);
+        try{
+            thread.join();
+        }catch(InterruptedException e){
+            throw new ArcRuntimeException(e);
+        }
+
+        try{
+            out.close();
+        }catch(IOException e){
+            if(error == null) error = e;
+        }
+        if(error != null) throw error;
+    }
+
+    /** @return the number of frames written so far. */
+    public int written(){
+        return written.get();
+    }
+
+    /** @return the number of frames dropped because the writer fell behind. */
+    public int dropped(){
+        return dropped.get();
+    }
+
+    /** @return the number of frames waiting to be written. */
+    public int queued(){
+        return queue.size();
+    }
+
+    private void write(){
+        try{
+            byte[] frame;
+            while((frame = queue.take()) != end){
+                //after an error, keep taking frames so that producers don't block forever
+                if(error == null){
+                    try{
+                        out.write(frame);
+                        written.incrementAndGet();
+                    }catch(IOException e){
+                        error = e;
+                    }
+                }
+                free.add(frame);
+            }
+
+            if(error == null) out.flush();
+        }catch(InterruptedException ignored){
+        }catch(IOException e){
+            error = e;
+        }
+    }
+}
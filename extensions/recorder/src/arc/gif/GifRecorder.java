@@ -8,10 +8,10 @@ import arc.input.*;
 import arc.math.*;
 import arc.math.geom.*;
 import arc.scene.ui.Label.*;
-import arc.struct.*;
 import arc.util.*;
 
 import java.io.*;
+import java.nio.*;
 import java.text.*;
 import java.util.*;
 
@@ -37,10 +37,26 @@ public class GifRecorder{
     public Rect bounds = new Rect(-defaultSize / 2, -defaultSize / 2, defaultSize, defaultSize);
     public boolean recording, open, saving;
 
+    /**
+     * Whether to pipe frames to ffmpeg while recording. Otherwise, frames are written to a raw file in the export
+     * directory, which is encoded once recording stops. Either way, only a few frames are kept in memory.
+     */
+    public boolean encodeWhileRecording = true;
+    /** Whether to drop frames instead of stalling when they can't be written as fast as they are captured. */
+    public boolean dropFrames = false;
+    /** The number of captured frames that may wait to be written. */
+    public int maxQueuedFrames = 30;
+    public String ffmpegPath = "/usr/bin/ffmpeg";
+
     private float offsetx, offsety;
-    private Seq<byte[]> frames = new Seq<>();
     private float frametime, saveprogress;
 
+    private @Nullable FrameEncoder encoder;
+    private @Nullable Process process;
+    private @Nullable Fi rawFile, outputFile;
+    private @Nullable ByteBuffer pixels;
+    private int frames, width, height;
+
     /** Updates the recorder and draws the GUI */
     public void update(){
         float wx = Core.graphics.getWidth() / 2f, wy = Core.graphics.getHeight() / 2f;
@@ -49,21 +65,22 @@ public class GifRecorder{
         if(recording){
             frametime += Core.graphics.getDeltaTime() * 60.5f / speedMultiplier;
             if(frametime >= (60f / recordfps)){
-                frames.add(ScreenUtils.getFrameBufferPixels(
-                    (int)(bounds.x + offsetx + wx),
-                    (int)(bounds.y + offsety + wy),
-                    (int)bounds.width, (int)bounds.height, false
-                ));
+                capture((int)(bounds.x + offsetx + wx), (int)(bounds.y + offsety + wy));
                 frametime = 0;
             }
         }
 
+        FrameEncoder encoder = this.encoder;
+        if(saving && encoder != null){
+            saveprogress = frames == 0 ? 1f : encoder.written() / (float)frames;
+        }
+
         //update input
         if(Core.scene == null || !Core.scene.hasField()){
             if(Core.input.keyTap(openKey) && !saving){
                 if(recording){
                     recording = false;
-                    frames.clear();
+                    cancel();
                 }
                 open = !open;
             }
@@ -102,49 +119,14 @@ public class GifRecorder{
 
                 if(Core.input.keyTap(recordKey) && !saving){
                     if(!recording){
-                        frames.clear();
-                        recording = true;
+                        start();
                     }else{
                         recording = false;
-                        saving = true;
-                        saveprogress = 0f;
-
-                        Threads.daemon(() -> {
-                            if(frames.size == 0){
-                                saving = false;
-                                return;
-                            }
-
-                            try{
-                                exportDirectory.mkdirs();
-
-                                //linux-only
-                                String args = Strings.format(
-                                "/usr/bin/ffmpeg -r @ -s @x@ -f rawvideo -pix_fmt rgba -i - -frames:v @ -filter:v vflip@ @/@.@",
-                                recordfps, (int)bounds.width, (int)bounds.height, frames.size, outputMp4 ? "" : ",split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse",
-                                exportDirectory.absolutePath(), new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss", Locale.getDefault()).format(new Date()),
-                                outputMp4 ? "mp4" : "gif"
-                                );
-
-                                ProcessBuilder builder = new ProcessBuilder(args.split(" ")).redirectErrorStream(true);
-                                Process process = builder.start();
-                                OutputStream out = process.getOutputStream();
-
-                                for(byte[] frame : frames){
-                                    out.write(frame);
-                                    out.flush();
-                                    saveprogress += (1f / frames.size);
-                                }
-
-                                out.close();
-                                process.waitFor();
-                            }catch(Exception e){
-                                Log.err(e);
-                            }
-
-                            frames.clear();
-                            saving = false;
-                        });
+                        if(frames == 0){
+                            cancel();
+                        }else{
+                            finish();
+                        }
                     }
                 }
             }
@@ -203,4 +185,112 @@ public class GifRecorder{
             Draw.proj(Tmp.m1);
         }
     }
+
+    private void start(){
+        width = (int)bounds.width;
+        height = (int)bounds.height;
+        frames = 0;
+        pixels = Buffers.newByteBuffer(width * height * 4);
+
+        try{
+            exportDirectory.mkdirs();
+            String name = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss", Locale.getDefault()).format(new Date());
+            outputFile = exportDirectory.child(name + "." + (outputMp4 ? "mp4" : "gif"));
+
+            OutputStream out;
+            if(encodeWhileRecording){
+                process = startEncoder("-");
+                out = process.getOutputStream();
+            }else{
+                rawFile = exportDirectory.child(name + ".raw");
+                out = rawFile.write(false, 1 << 16);
+            }
+
+            encoder = new FrameEncoder(out, width * height * 4, maxQueuedFrames, dropFrames);
+            recording = true;
+        }catch(Exception e){
+            Log.err(e);
+            cancel();
+        }
+    }
+
+    private void capture(int x, int y){
+        byte[] frame = encoder.obtain();
+        //the encoder is behind, so this frame is dropped
+        if(frame == null) return;
+
+        Gl.pixelStorei(Gl.packAlignment, 1);
+        pixels.clear();
+        Gl.readPixels(x, y, width, height, Gl.rgba, Gl.unsignedByte, pixels);
+        pixels.position(0);
+        pixels.get(frame);
+        encoder.submit(frame);
+        frames++;
+    }
+
+    /** Writes the remaining frames and waits for the video to be encoded on a background thread. */
+    private void finish(){
+        saving = true;
+        saveprogress = 0f;
+
+        FrameEncoder encoder = this.encoder;
+        Threads.daemon("GifRecorder", () -> {
+            try{
+                encoder.finish();
+                if(rawFile != null) process = startEncoder(rawFile.absolutePath());
+                process.waitFor();
+            }catch(Exception e){
+                Log.err(e);
+            }
+            if(rawFile != null) rawFile.delete();
+            reset();
+            saving = false;
+        });
+    }
+
+    /** Stops recording and discards what was recorded. */
+    private void cancel(){
+        FrameEncoder encoder = this.encoder;
+        Process process = this.process;
+        Fi rawFile = this.rawFile, outputFile = this.outputFile;
+        reset();
+
+        Threads.daemon("GifRecorder", () -> {
+            try{
+                if(encoder != null) encoder.finish();
+            }catch(IOException ignored){
+                //the encoder may have already exited
+            }
+            if(process != null){
+                process.destroy();
+                try{
+                    process.waitFor();
+                }catch(InterruptedException ignored){
+                }
+                if(outputFile != null) outputFile.delete();
+            }
+            if(rawFile != null) rawFile.delete();
+        });
+    }
+
+    private void reset(){
+        encoder = null;
+        process = null;
+        rawFile = null;
+        outputFile = null;
+        pixels = null;
+    }
+
+    /** Starts ffmpeg reading raw frames from the given file, or - for its standard input. */
+    private Process startEncoder(String input) throws IOException{
+        //linux-only
+        ProcessBuilder builder = new ProcessBuilder(
+            ffmpegPath, "-y", "-r", String.valueOf(recordfps), "-s", width + "x" + height, "-f", "rawvideo", "-pix_fmt", "rgba", "-i", input,
+            "-filter:v", "vflip" + (outputMp4 ? "" : ",split[s0][s1];[s0]palettegen[p];[s1][p]paletteuse"),
+            outputFile.absolutePath()
+        );
+        //nothing reads the output, so it must not fill up a pipe
+        builder.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.appendTo(exportDirectory.child("ffmpeg.log").file()));
+        return builder.start();
+    }
 }
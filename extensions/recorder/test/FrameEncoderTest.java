@@ -0,0 +1,149 @@
+import arc.gif.*;
+import org.junit.*;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class FrameEncoderTest{
+    static final int frameSize = 64 * 1024;
+
+    /** Stands in for ffmpeg: copies frames from its input to its output slowly, or exits after reading a number of frames. */
+    public static class StubEncoder{
+        public static void main(String[] args) throws Exception{
+            int delay = Integer.parseInt(args[1]), limit = args[0].equals("exit") ? Integer.parseInt(args[2]) : Integer.MAX_VALUE;
+            DataInputStream in = new DataInputStream(System.in);
+            byte[] frame = new byte[frameSize];
+            for(int i = 0; i < limit; i++){
+                try{
+                    in.readFully(frame);
+                }catch(EOFException e){
+                    break;
+                }
+                Thread.sleep(delay);
+                System.out.write(frame);
+            }
+            System.out.flush();
+        }
+    }
+
+    static Process stub(File output, String... args) throws IOException{
+        List<String> command = new ArrayList<>(Arrays.asList(
+            Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"), StubEncoder.class.getName()));
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).redirectOutput(output).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    static void fill(byte[] frame, int index){
+        Arrays.fill(frame, (byte)index);
+        frame[0] = (byte)(index >> 8);
+    }
+
+    /** Produces frames on another thread, so that a producer stuck in obtain() fails the test instead of hanging it. */
+    static void produce(FrameEncoder encoder, int frames, long timeoutMs) throws InterruptedException{
+        Thread producer = new Thread(() -> {
+            for(int i = 0; i < frames; i++){
+                byte[] frame = encoder.obtain();
+                if(frame == null) continue;
+                fill(frame, i);
+                encoder.submit(frame);
+            }
+        });
+        producer.setDaemon(true);
+        producer.start();
+        producer.join(timeoutMs);
+        assertFalse("producer blocked", producer.isAlive());
+    }
+
+    @Test(timeout = 60000)
+    public void blockKeepsEveryFrame() throws Exception{
+        File output = File.createTempFile("frames", ".raw");
+        try{
+            Process process = stub(output, "copy", "2");
+            FrameEncoder encoder = new FrameEncoder(process.getOutputStream(), frameSize, 2, false);
+
+            produce(encoder, 40, 30000);
+            encoder.finish();
+            assertEquals(0, process.waitFor());
+            assertEquals(40, encoder.written());
+            assertEquals(0, encoder.dropped());
+
+            //every frame arrives, in order
+            byte[] data = Files.readAllBytes(output.toPath());
+            assertEquals(40L * frameSize, data.length);
+            byte[] expected = new byte[frameSize];
+            for(int i = 0; i < 40; i++){
+                fill(expected, i);
+                assertArrayEquals(expected, Arrays.copyOfRange(data, i * frameSize, (i + 1) * frameSize));
+            }
+        }finally{
+            output.delete();
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void dropDoesNotBlock() throws Exception{
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        //stalls on the first frame until released, like an encoder that can't keep up
+        OutputStream slow = new OutputStream(){
+            @Override
+            public void write(int b){
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException{
+                try{
+                    release.await();
+                }catch(InterruptedException e){
+                    throw new InterruptedIOException();
+                }
+                received.write(b, off, len);
+            }
+        };
+
+        FrameEncoder encoder = new FrameEncoder(slow, frameSize, 3, true);
+        produce(encoder, 100, 10000);
+        assertTrue(encoder.dropped() > 0);
+
+        release.countDown();
+        encoder.finish();
+        assertEquals(100, encoder.written() + encoder.dropped());
+        assertEquals((long)encoder.written() * frameSize, received.size());
+
+        //the frames that were kept are still in order
+        byte[] data = received.toByteArray();
+        int last = -1;
+        for(int i = 0; i < encoder.written(); i++){
+            int index = ((data[i * frameSize] & 0xff) << 8) | (data[i * frameSize + 1] & 0xff);
+            assertTrue(index > last);
+            last = index;
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void encoderExitsEarly() throws Exception{
+        File output = File.createTempFile("frames", ".raw");
+        try{
+            Process process = stub(output, "exit", "0", "2");
+            FrameEncoder encoder = new FrameEncoder(process.getOutputStream(), frameSize, 2, false);
+
+            //the stub stops reading after two frames; the writer fails, but keeps freeing buffers, so producers in block mode still finish
+            produce(encoder, 50, 30000);
+            try{
+                encoder.finish();
+                fail("finish() must report that the encoder stopped reading");
+            }catch(IOException expected){
+            }
+            process.waitFor();
+            assertTrue(encoder.written() < 50);
+        }finally{
+            output.delete();
+        }
+    }
+}